@@ -0,0 +1,114 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.gisgraphy.domain.geoloc.entity.HouseNumber;
+import com.gisgraphy.domain.geoloc.entity.OpenStreetMap;
+import com.gisgraphy.helper.GeolocHelper;
+import com.gisgraphy.street.StreetType;
+
+/**
+ * The inputs of the benchmarks. They are always the same (fixed lists or
+ * generated with a fixed seed) so that two runs measure the same work.
+ */
+public final class BenchmarkData {
+
+    public static final long SEED = 20081212L;
+
+    /**
+     * The number of {@link #ADDRESSES} and of {@link #STREET_NAMES} (it
+     * should be a constant to be used in the annotations)
+     */
+    public static final int INPUTS = 20;
+
+    /**
+     * Raw addresses as they are sent to the geocoder, in several countries
+     * and formats
+     */
+    public static final String[] ADDRESSES = { "10 rue de la paix 75002 Paris France", "via alba,1 12100 Cuneo italy",
+	    "1600 Pennsylvania Ave NW, Washington, DC 20500, United States", "Unter den Linden 77, 10117 Berlin, Deutschland",
+	    "221B Baker Street London", "Avenida Paulista 1578 Sao Paulo Brasil", "Calle Mayor 1 Madrid", "Nairobi - Kenya",
+	    "Hauptstraße 5a 80331 München", "12 bis avenue des Champs-Élysées, Paris", "Kurfürstendamm 21 Berlin",
+	    "45 boulevard Saint-Germain 75005", "350 5th Ave, New York, NY 10118", "Bahnhofstrasse 10 8001 Zürich Schweiz",
+	    "Rua Augusta 274 Lisboa Portugal", "Damrak 1 Amsterdam Nederland", "Karl-Marx-Allee 3 Berlin", "route de Lyon 69003",
+	    "Grote Markt 1 Brussel Belgique", "Kongens Nytorv 8 København Danmark" };
+
+    /**
+     * Street names, some of them are compounded (german) or have a street
+     * type
+     */
+    public static final String[] STREET_NAMES = { "rue de la paix", "avenue des champs élysées", "Hauptstraße", "Haupt straße",
+	    "Bahnhofstrasse", "Bahnhof strasse", "Kurfürstendamm", "Unter den Linden", "boulevard Saint-Germain",
+	    "Pennsylvania Avenue North West", "Baker Street", "Karl-Marx-Allee", "Schillerweg", "Goethe Platz", "Friedrichstraße",
+	    "Calle Mayor", "route nationale 7", "chemin des vignes", "Lindenallee", "Marktgasse" };
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @return the house numbers of a street, with a few numbers with a
+     *         suffix, always the same ones
+     */
+    public static List<HouseNumber> createHouseNumbers(int size) {
+	Random random = new Random(SEED);
+	List<HouseNumber> houseNumbers = new ArrayList<HouseNumber>(size);
+	for (int i = 1; i <= size; i++) {
+	    String number = i % 10 == 0 ? i + "b" : String.valueOf(i);
+	    houseNumbers.add(new HouseNumber(number, GeolocHelper.createPoint(2.35D + random.nextDouble() / 100, 48.85D + random
+		    .nextDouble() / 100), "FR"));
+	}
+	return houseNumbers;
+    }
+
+    /**
+     * @return streets with a name, a type, the cities they are in and a
+     *         shape, always the same ones
+     */
+    public static List<OpenStreetMap> createStreets(int size) {
+	Random random = new Random(SEED);
+	List<OpenStreetMap> streets = new ArrayList<OpenStreetMap>(size);
+	for (int i = 1; i <= size; i++) {
+	    OpenStreetMap street = new OpenStreetMap();
+	    street.setId((long) i);
+	    street.setGid((long) i);
+	    street.setOpenstreetmapId(1000000L + i);
+	    street.setName(STREET_NAMES[i % STREET_NAMES.length] + " " + i);
+	    street.setStreetType(StreetType.RESIDENTIAL);
+	    street.setCountryCode("FR");
+	    street.setIsIn("city " + (i % 50));
+	    street.setIsInAdm("adm " + (i % 5));
+	    street.setZipCode(String.valueOf(75001 + i % 20));
+	    double x = 2.25D + random.nextDouble() / 5;
+	    double y = 48.80D + random.nextDouble() / 10;
+	    street.setLocation(GeolocHelper.createPoint(x, y));
+	    street.setShape(GeolocHelper.createLineString("LINESTRING (" + x + " " + y + "," + (x + 0.001D) + " " + (y + 0.001D) + ")"));
+	    streets.add(street);
+	}
+	return streets;
+    }
+
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.gisgraphy.helper.CountriesStaticData;
+import com.gisgraphy.helper.CountryDetector;
+import com.gisgraphy.helper.CountryDetectorDto;
+
+/**
+ * {@link CountryDetector#detectAndRemoveCountry(String)}, done for each raw
+ * address to geocode, compared to the legacy detection (a loop over the
+ * countries and their names, with a regular expression for each name that
+ * ends the address) on the same addresses.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms512m", "-Xmx512m" })
+@State(Scope.Benchmark)
+public class CountryDetectorBenchmark {
+
+    private final CountryDetector countryDetector = new CountryDetector();
+
+    @Benchmark
+    @OperationsPerInvocation(BenchmarkData.INPUTS)
+    public void detectAndRemoveCountry(Blackhole blackhole) {
+	for (String address : BenchmarkData.ADDRESSES) {
+	    blackhole.consume(countryDetector.detectAndRemoveCountry(address));
+	}
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchmarkData.INPUTS)
+    public void legacyDetectAndRemoveCountry(Blackhole blackhole) {
+	for (String address : BenchmarkData.ADDRESSES) {
+	    blackhole.consume(legacyDetectAndRemoveCountry(address));
+	}
+    }
+
+    /**
+     * A copy of the legacy CountryDetector#detectAndRemoveCountry(String),
+     * without the log of the detected country
+     */
+    private static CountryDetectorDto legacyDetectAndRemoveCountry(String address) {
+	for (String countryCode : CountriesStaticData.countryCodeSortedByPopularity) {
+	    if (countryCode == null || "SG".equalsIgnoreCase(countryCode) || "PA".equalsIgnoreCase(countryCode)) {
+		// shortcut for specific country that got countryname and city is
+		// the same (panama, singapour
+		continue;
+	    }
+	    List<String> alternateNames = CountriesStaticData.countryAlternateNames.get(countryCode.toUpperCase());
+	    if (alternateNames != null) {
+		String sanitarizeAddress = address.replaceAll("[\\s\\-\\']+", " ").trim().toLowerCase();
+		for (String alternateName : alternateNames) {
+		    if (alternateName != null && alternateName.toLowerCase().contains("mexico")) {
+			//special case for mexico =>we should not remove because it is also a city and a sate
+			continue;
+		    }
+		    if (sanitarizeAddress.endsWith(alternateName.toLowerCase())) {
+			Matcher matcher = Pattern.compile("(?i)" + alternateName + "\\s*$").matcher(sanitarizeAddress);
+			if (matcher.find()) {
+			    int index = matcher.start();
+			    String result = address.substring(0, index).trim();
+			    if (result != null && Pattern.matches(".*[,-]$", result)) {
+				result = result.substring(0, result.length() - 1).trim();
+			    }
+			    return new CountryDetectorDto(result, countryCode);
+			}
+		    }
+		}
+	    }
+	}
+	return new CountryDetectorDto(address, null);
+    }
+
+}
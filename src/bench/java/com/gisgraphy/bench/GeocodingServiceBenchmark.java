@@ -0,0 +1,134 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.bench;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gisgraphy.addressparser.AddressQuery;
+import com.gisgraphy.addressparser.AddressResultsDto;
+import com.gisgraphy.domain.geoloc.entity.GisFeature;
+import com.gisgraphy.domain.geoloc.entity.OpenStreetMap;
+import com.gisgraphy.domain.valueobject.GisgraphyConfig;
+import com.gisgraphy.fulltext.EmbeddedSolrFixture;
+import com.gisgraphy.fulltext.FullTextSearchEngine;
+import com.gisgraphy.geocoding.GeocodingService;
+import com.gisgraphy.importer.ImporterConfig;
+import com.gisgraphy.street.StreetFactory;
+import com.gisgraphy.test.GisgraphyTestHelper;
+
+/**
+ * End to end geocoding of raw addresses with the {@link GeocodingService} :
+ * country detection, house number extraction, queries to the fulltext
+ * engine and building of the results. The fulltext engine is an
+ * {@link EmbeddedSolrFixture} that contains generated streets (with house
+ * numbers) and cities, always the same ones.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class GeocodingServiceBenchmark {
+
+    private static final int STREETS = 5000;
+
+    private static final int CITIES = 50;
+
+    private static final int QUERIES = 200;
+
+    private File solrHome;
+
+    private EmbeddedSolrFixture fixture;
+
+    private GeocodingService geocodingService;
+
+    private List<AddressQuery> queries;
+
+    private int next = 0;
+
+    @Setup
+    public void setUp() throws Exception {
+	solrHome = File.createTempFile("gisgraphy-bench-solr", "");
+	solrHome.delete();
+	fixture = new EmbeddedSolrFixture(solrHome);
+	FullTextSearchEngine.disableLogging = true;
+
+	List<OpenStreetMap> streets = BenchmarkData.createStreets(STREETS);
+	List<GisFeature> features = new ArrayList<GisFeature>(STREETS + CITIES);
+	StreetFactory streetFactory = new StreetFactory();
+	for (OpenStreetMap street : streets) {
+	    street.addHouseNumbers(BenchmarkData.createHouseNumbers(20));
+	    features.add(streetFactory.create(street));
+	}
+	for (int i = 0; i < CITIES; i++) {
+	    features.add(GisgraphyTestHelper.createCity("city " + i, 2.25F + i / 250F, 48.80F + i / 500F, 10000000L + i));
+	}
+	fixture.index(features);
+
+	geocodingService = new GeocodingService();
+	geocodingService.setFullTextSearchEngine(fixture.createFullTextSearchEngine());
+	geocodingService.setStatsUsageService(fixture.getStatsUsageService());
+	geocodingService.setImporterConfig(new ImporterConfig());
+	geocodingService.setGisgraphyConfig(new GisgraphyConfig());
+
+	Random random = new Random(BenchmarkData.SEED);
+	queries = new ArrayList<AddressQuery>(QUERIES);
+	for (int i = 0; i < QUERIES; i++) {
+	    OpenStreetMap street = streets.get(random.nextInt(STREETS));
+	    String address = (1 + random.nextInt(20)) + " " + street.getName() + " " + street.getIsIn();
+	    queries.add(new AddressQuery(address, i % 2 == 0 ? "FR" : null));
+	}
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+	fixture.shutdown();
+	FileUtils.deleteDirectory(solrHome);
+    }
+
+    @Benchmark
+    public AddressResultsDto geocode() {
+	AddressQuery query = queries.get(next);
+	next = (next + 1) % QUERIES;
+	return geocodingService.geocode(query);
+    }
+
+}
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.test.util.AopTestUtils;
+
+import com.gisgraphy.domain.geoloc.entity.City;
+import com.gisgraphy.domain.repository.GenericGisDao;
+import com.gisgraphy.domain.repository.ICityDao;
+import com.gisgraphy.helper.GeolocHelper;
+import com.vividsolutions.jts.geom.Point;
+
+/**
+ * {@link GenericGisDao#getNearest(Point, String, boolean, int)} with the KNN
+ * query and with the exact distance query, done for each reverse geocoding
+ * that doesn't find a city by shape. It needs the database of the test
+ * configuration (jdbc.* properties) where a country has been imported, the
+ * points are random points of the bounding box of France :<br/>
+ * <code>mvn -Pbench test -Dbench.include=GetNearest</code>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class GetNearestBenchmark {
+
+    private static final String[] CONTEXT_LOCATIONS = { "classpath:/applicationContext.xml",
+	    "classpath:/applicationContext-resources.xml", "classpath:/applicationContext-repository.xml",
+	    "classpath:/applicationContext-geoloc.xml", "classpath:/applicationContext-dao.xml",
+	    "classpath:/applicationContext-service.xml", "classpath:/applicationContext-test.xml",
+	    "classpath:/applicationContext-dao-test.xml" };
+
+    private static final int MIN_CITIES = 10000;
+
+    private static final int POINTS = 1000;
+
+    private static final int DISTANCE = 40000;
+
+    @Param({ "true", "false" })
+    public boolean knn;
+
+    private ClassPathXmlApplicationContext context;
+
+    private GenericGisDao<City> cityDao;
+
+    private Point[] points;
+
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+	context = new ClassPathXmlApplicationContext(CONTEXT_LOCATIONS);
+	ICityDao cityDaoProxy = (ICityDao) context.getBean("cityDao");
+	long cityCount = cityDaoProxy.count();
+	if (cityCount < MIN_CITIES) {
+	    throw new IllegalStateException("GetNearestBenchmark needs a country-sized dataset, only " + cityCount + " cities found");
+	}
+	cityDao = AopTestUtils.getUltimateTargetObject(cityDaoProxy);
+	cityDao.setUseKnnForNearest(knn);
+	Random random = new Random(BenchmarkData.SEED);
+	points = new Point[POINTS];
+	for (int i = 0; i < POINTS; i++) {
+	    points[i] = GeolocHelper.createPoint(-4.8D + random.nextDouble() * 13D, 42.3D + random.nextDouble() * 8.8D);
+	}
+    }
+
+    @TearDown
+    public void tearDown() {
+	cityDao.setUseKnnForNearest(true);
+	context.close();
+    }
+
+    @Benchmark
+    public City getNearest() {
+	Point point = points[next];
+	next = (next + 1) % POINTS;
+	return cityDao.getNearest(point, null, false, DISTANCE);
+    }
+
+}
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.gisgraphy.domain.geoloc.entity.HouseNumber;
+import com.gisgraphy.street.HouseNumberDeserializer;
+import com.gisgraphy.street.HouseNumberDto;
+import com.gisgraphy.street.HouseNumberPacker;
+import com.gisgraphy.street.HouseNumberSerializer;
+import com.gisgraphy.street.PackedHouseNumbers;
+
+/**
+ * The encodings of the house numbers of a street in the fulltext engine :
+ * the legacy one (one string by house number, see
+ * {@link HouseNumberSerializer} and {@link HouseNumberDeserializer}) and the
+ * packed one ({@link HouseNumberPacker} and {@link PackedHouseNumbers}). An
+ * operation is the encoding or the decoding of all the house numbers of a
+ * street.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms512m", "-Xmx512m" })
+@State(Scope.Benchmark)
+public class HouseNumberSerializerBenchmark {
+
+    private static final int HOUSE_NUMBERS = 200;
+
+    private final HouseNumberSerializer serializer = new HouseNumberSerializer();
+
+    private final HouseNumberDeserializer deserializer = new HouseNumberDeserializer();
+
+    private final HouseNumberPacker packer = new HouseNumberPacker();
+
+    private List<HouseNumber> houseNumbers;
+
+    private List<String> serialized;
+
+    private String packed;
+
+    @Setup
+    public void setUp() {
+	houseNumbers = BenchmarkData.createHouseNumbers(HOUSE_NUMBERS);
+	serialized = new ArrayList<String>(HOUSE_NUMBERS);
+	for (HouseNumber houseNumber : houseNumbers) {
+	    serialized.add(serializer.serialize(houseNumber));
+	}
+	packed = packer.packToBase64(houseNumbers);
+    }
+
+    @Benchmark
+    public void serialize(Blackhole blackhole) {
+	for (HouseNumber houseNumber : houseNumbers) {
+	    blackhole.consume(serializer.serialize(houseNumber));
+	}
+    }
+
+    @Benchmark
+    public void deserialize(Blackhole blackhole) {
+	for (String houseNumber : serialized) {
+	    blackhole.consume(deserializer.deserialize(houseNumber));
+	}
+    }
+
+    /**
+     * what the fulltext engine does to find a house number with the legacy
+     * encoding
+     */
+    @Benchmark
+    public HouseNumberDto findNumberInSerialized() {
+	String number = String.valueOf(HOUSE_NUMBERS - 1);
+	for (String houseNumber : serialized) {
+	    HouseNumberDto dto = deserializer.deserialize(houseNumber);
+	    if (number.equals(dto.getNumber())) {
+		return dto;
+	    }
+	}
+	return null;
+    }
+
+    @Benchmark
+    public String pack() {
+	return packer.packToBase64(houseNumbers);
+    }
+
+    @Benchmark
+    public int findNumberInPacked() {
+	return PackedHouseNumbers.fromBase64(packed).indexOf(String.valueOf(HOUSE_NUMBERS - 1));
+    }
+
+}
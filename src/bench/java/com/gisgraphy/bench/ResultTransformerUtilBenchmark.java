@@ -0,0 +1,87 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gisgraphy.domain.geoloc.entity.City;
+import com.gisgraphy.domain.valueobject.GisFeatureDistance;
+import com.gisgraphy.helper.GeolocHelper;
+import com.gisgraphy.hibernate.criterion.ResultTransformerUtil;
+
+/**
+ * The transformation of the rows returned by the database into
+ * {@link GisFeatureDistance} (see
+ * {@link ResultTransformerUtil#transformToGisFeatureDistance(String[], List, java.util.Map, Class)}
+ * ). An operation is the transformation of a page of rows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms512m", "-Xmx512m" })
+@State(Scope.Benchmark)
+public class ResultTransformerUtilBenchmark {
+
+    private static final String[] ALIASES = { "id", "featureId", "name", "asciiName", "countryCode", "adm1Name", "adm2Name",
+	    "adm3Name", "adm4Name", "timezone", "location", "distance" };
+
+    @Param({ "10", "100", "2000" })
+    public int rows;
+
+    private List<Object[]> tuples;
+
+    /**
+     * one row out of five is a duplicate, as when the features are joined
+     * with their zip codes
+     */
+    @Setup
+    public void setUp() {
+	tuples = new ArrayList<Object[]>(rows);
+	for (long i = 0; i < rows; i++) {
+	    long id = i % 5 == 4 ? i - 1 : i;
+	    tuples.add(new Object[] { id, id + 100000, "name" + id, "name" + id, "FR", "adm1", "adm2", "adm3", "adm4",
+		    "Europe/Paris", GeolocHelper.createPoint(2F + id / 10000F, 48F), id * 10D });
+	}
+    }
+
+    @Benchmark
+    public List<GisFeatureDistance> transformToGisFeatureDistance() {
+	return ResultTransformerUtil.transformToGisFeatureDistance(ALIASES, tuples, null, City.class);
+    }
+
+}
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.gisgraphy.fulltext.SmartStreetDetection;
+
+/**
+ * {@link SmartStreetDetection#getStreetTypes(String)}, done when the
+ * geocoder searches for a street in a text.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms512m", "-Xmx512m" })
+@State(Scope.Benchmark)
+public class SmartStreetDetectionBenchmark {
+
+    private final SmartStreetDetection smartStreetDetection = new SmartStreetDetection();
+
+    @Benchmark
+    @OperationsPerInvocation(BenchmarkData.INPUTS)
+    public void getStreetTypesOfAddresses(Blackhole blackhole) {
+	for (String address : BenchmarkData.ADDRESSES) {
+	    blackhole.consume(smartStreetDetection.getStreetTypes(address));
+	}
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchmarkData.INPUTS)
+    public void getStreetTypesOfStreetNames(Blackhole blackhole) {
+	for (String name : BenchmarkData.STREET_NAMES) {
+	    blackhole.consume(smartStreetDetection.getStreetTypes(name));
+	}
+    }
+
+}
@@ -0,0 +1,240 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.fulltext;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.logging.Level;
+
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.io.IOUtils;
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.embedded.EmbeddedSolrServer;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.core.CoreContainer;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.request.LocalSolrQueryRequest;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.request.SolrRequestHandler;
+import org.apache.solr.request.SolrRequestInfo;
+import org.apache.solr.response.BinaryQueryResponseWriter;
+import org.apache.solr.response.QueryResponseWriter;
+import org.apache.solr.response.SolrQueryResponse;
+
+import com.gisgraphy.domain.geoloc.entity.GisFeature;
+import com.gisgraphy.domain.geoloc.entity.event.GisFeatureStoredEvent;
+import com.gisgraphy.domain.repository.SolRSynchroniser;
+import com.gisgraphy.domain.valueobject.Constants;
+import com.gisgraphy.service.IStatsUsageService;
+import com.gisgraphy.stats.StatsUsageType;
+
+/**
+ * A SolR server in the JVM of the benchmarks, with the schema and the
+ * configuration of the webapp, to measure the services that query the
+ * fulltext engine without the network and without a running server. The
+ * raw responses are written by the response writers of the core, as the
+ * SolR server does.
+ */
+public class EmbeddedSolrFixture implements IsolrClient {
+
+    /**
+     * the files of the SolR configuration, in the classpath
+     */
+    private static final String[] CONFIGURATION_FILES = { "schema.xml", "solrconfig.xml", "stopwords.txt", "synonyms.txt",
+	    "protwords.txt", "compound.txt" };
+
+    private static final IStatsUsageService NO_STATS = new IStatsUsageService() {
+	public int getNumberOfCounter() {
+	    return 0;
+	}
+
+	public Long getUsage(StatsUsageType statsUsageType) {
+	    return 0L;
+	}
+
+	public void increaseUsage(StatsUsageType statsUsageType) {
+	}
+
+	public void resetUsage(StatsUsageType statsUsageType) {
+	}
+
+	public void flush(StatsUsageType statsUsageType) {
+	}
+    };
+
+    private final CoreContainer coreContainer;
+
+    private final EmbeddedSolrServer server;
+
+    /**
+     * @param home
+     *            the directory of the SolR home, the configuration and the
+     *            index are written in it
+     */
+    public EmbeddedSolrFixture(File home) throws Exception {
+	File configurationDirectory = new File(home, "conf");
+	if (!configurationDirectory.isDirectory() && !configurationDirectory.mkdirs()) {
+	    throw new IOException("can not create " + configurationDirectory);
+	}
+	for (String file : CONFIGURATION_FILES) {
+	    copyFromClasspath(file, new File(configurationDirectory, file));
+	}
+	System.setProperty("solr.solr.home", home.getAbsolutePath());
+	System.setProperty("solr.data.dir", new File(home, "data").getAbsolutePath());
+	coreContainer = new CoreContainer.Initializer().initialize();
+	server = new EmbeddedSolrServer(coreContainer, coreContainer.getDefaultCoreName());
+	server.deleteByQuery("*:*");
+	server.commit();
+    }
+
+    private void copyFromClasspath(String resource, File destination) throws IOException {
+	InputStream in = EmbeddedSolrFixture.class.getResourceAsStream("/" + resource);
+	if (in == null) {
+	    throw new IOException(resource + " is not in the classpath");
+	}
+	OutputStream out = new FileOutputStream(destination);
+	try {
+	    IOUtils.copy(in, out);
+	} finally {
+	    IOUtils.closeQuietly(in);
+	    IOUtils.closeQuietly(out);
+	}
+    }
+
+    /**
+     * Index the features as the importers do (with a
+     * {@link SolRSynchroniser}) and commit
+     */
+    public void index(List<? extends GisFeature> features) {
+	SolRSynchroniser synchroniser = new SolRSynchroniser(this);
+	for (GisFeature feature : features) {
+	    synchroniser.handleEvent(new GisFeatureStoredEvent(feature));
+	}
+	synchroniser.commit();
+    }
+
+    /**
+     * @return a fulltext engine that queries this server
+     */
+    public FullTextSearchEngine createFullTextSearchEngine() {
+	FullTextSearchEngine fullTextSearchEngine = new FullTextSearchEngine(new MultiThreadedHttpConnectionManager());
+	fullTextSearchEngine.setSolrClient(this);
+	fullTextSearchEngine.statsUsageService = NO_STATS;
+	return fullTextSearchEngine;
+    }
+
+    /**
+     * @return a stats service that counts nothing
+     */
+    public IStatsUsageService getStatsUsageService() {
+	return NO_STATS;
+    }
+
+    public void shutdown() {
+	coreContainer.shutdown();
+    }
+
+    public SolrServer getServer() {
+	return server;
+    }
+
+    public String getURL() {
+	return "embedded";
+    }
+
+    public boolean isServerAlive() {
+	return true;
+    }
+
+    public void setSolRLogLevel(Level level) {
+    }
+
+    /**
+     * The embedded server has no URL, the fixture always queries it
+     */
+    public void bindToUrl(String solrUrl) {
+    }
+
+    /**
+     * Execute the query in the core and write the response with the
+     * response writer of the format (the wt parameter), as the servlet of
+     * the SolR server does
+     */
+    public void executeAndSerialize(SolrParams params, OutputStream outputStream) throws SolrServerException {
+	SolrCore core = coreContainer.getCore(coreContainer.getDefaultCoreName());
+	SolrQueryRequest request = new LocalSolrQueryRequest(core, params);
+	SolrQueryResponse response = new SolrQueryResponse();
+	SolrRequestInfo.setRequestInfo(new SolrRequestInfo(request, response));
+	try {
+	    SolrRequestHandler handler = core.getRequestHandler(params.get(CommonParams.QT));
+	    if (handler == null) {
+		throw new SolrServerException("unknown handler: " + params.get(CommonParams.QT));
+	    }
+	    core.execute(handler, request, response);
+	    if (response.getException() != null) {
+		throw new SolrServerException(response.getException());
+	    }
+	    QueryResponseWriter writer = core.getQueryResponseWriter(request);
+	    if (writer instanceof BinaryQueryResponseWriter) {
+		((BinaryQueryResponseWriter) writer).write(outputStream, request, response);
+	    } else {
+		Writer out = new OutputStreamWriter(outputStream, Constants.CHARSET);
+		writer.write(out, request, response);
+		out.flush();
+	    }
+	} catch (IOException e) {
+	    throw new SolrServerException(e);
+	} finally {
+	    SolrRequestInfo.clearRequestInfo();
+	    request.close();
+	    core.close();
+	    IOUtils.closeQuietly(outputStream);
+	}
+    }
+
+    /**
+     * The response is serialized with
+     * {@link #executeAndSerialize(SolrParams, OutputStream)} then given to
+     * the handler
+     */
+    public void executeAndProcess(SolrParams params, IResponseStreamHandler handler) throws SolrServerException {
+	ByteArrayOutputStream response = new ByteArrayOutputStream();
+	executeAndSerialize(params, response);
+	try {
+	    handler.handle(new ByteArrayInputStream(response.toByteArray()), Constants.CHARSET);
+	} catch (IOException e) {
+	    throw new SolrServerException(e);
+	}
+    }
+
+}
@@ -734,6 +734,24 @@ public class AdmDao extends GenericGisDao<Adm> implements IAdmDao {
 	}
     }
 
+    @SuppressWarnings("unchecked")
+    public List<Long> listFeatureIds() {
+	return ((List<Long>) this.getHibernateTemplate().execute(
+		new HibernateCallback() {
+
+		    public Object doInHibernate(final Session session)
+			    throws PersistenceException {
+			final String queryString = "select featureId from "
+				+ persistentClass.getSimpleName();
+
+			final Query qry = session.createQuery(queryString);
+			qry.setCacheable(false);
+			return qry.list();
+
+		    }
+		}));
+    }
+
     @SuppressWarnings("unchecked")
     public List<Long> listFeatureIdByLevel(final int level) {
 	return ((List<Long>) this.getHibernateTemplate().execute(
@@ -0,0 +1,378 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.domain.repository;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.persistence.PersistenceException;
+
+import org.hibernate.EntityMode;
+import org.hibernate.Session;
+import org.hibernate.engine.SessionImplementor;
+import org.hibernate.jdbc.Work;
+import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.Type;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.support.nativejdbc.CommonsDbcpNativeJdbcExtractor;
+import org.springframework.jdbc.support.nativejdbc.NativeJdbcExtractor;
+import org.springframework.orm.hibernate3.HibernateCallback;
+import org.springframework.orm.hibernate3.support.HibernateDaoSupport;
+import org.springframework.stereotype.Repository;
+
+import com.gisgraphy.domain.geoloc.entity.GisFeature;
+import com.gisgraphy.domain.geoloc.entity.OpenStreetMap;
+import com.gisgraphy.domain.geoloc.entity.event.EventManager;
+import com.gisgraphy.domain.geoloc.entity.event.GisFeatureStoredEvent;
+import com.gisgraphy.street.IStreetFactory;
+import com.gisgraphy.street.StreetFactory;
+
+/**
+ * PostgreSQL implementation of {@link IBulkCopyDao}. The columns of an entity
+ * are the ones hibernate inserts (id, insertable properties and foreign
+ * keys), their postgres types are read once from the catalog so that the
+ * values are written with the right binary format by
+ * {@link PgBinaryCopyWriter}.
+ * <p>
+ * The COPY API is the one of the postgres driver (8.4 or later), the pooled
+ * connection is unwrapped with a {@link NativeJdbcExtractor}, so the
+ * datasource has to allow the access to the underlying connection.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+@Repository
+@SuppressWarnings({ "unchecked", "rawtypes" })
+public class BulkCopyDao extends HibernateDaoSupport implements IBulkCopyDao {
+
+    protected static final Logger logger = LoggerFactory.getLogger(BulkCopyDao.class);
+
+    /**
+     * The prefix of the temporary staging tables
+     */
+    public static final String STAGING_TABLE_PREFIX = "copy_";
+
+    private IStreetFactory streetFactory = new StreetFactory();
+
+    private EventManager eventManager;
+
+    private NativeJdbcExtractor nativeJdbcExtractor = new CommonsDbcpNativeJdbcExtractor();
+
+    /**
+     * The postgres type of the columns, by column name, by table name. the
+     * schema does not change during an import
+     */
+    private final Map<String, Map<String, String>> columnTypesCache = new ConcurrentHashMap<String, Map<String, String>>();
+
+    /**
+     * A column to copy : the property it comes from (-1 for the id) and its
+     * postgres type
+     */
+    static class CopyColumn {
+	final String name;
+	final int propertyIndex;
+	final String type;
+
+	CopyColumn(String name, int propertyIndex, String type) {
+	    this.name = name;
+	    this.propertyIndex = propertyIndex;
+	    this.type = type;
+	}
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.IBulkCopyDao#copy(java.util.List)
+     */
+    public int copy(final List<?> entities) {
+	if (entities == null || entities.isEmpty()) {
+	    return 0;
+	}
+	final Map<Class<?>, List<Object>> entitiesByClass = new LinkedHashMap<Class<?>, List<Object>>();
+	for (Object entity : entities) {
+	    List<Object> classEntities = entitiesByClass.get(entity.getClass());
+	    if (classEntities == null) {
+		classEntities = new ArrayList<Object>();
+		entitiesByClass.put(entity.getClass(), classEntities);
+	    }
+	    classEntities.add(entity);
+	}
+	final List<Object> entitiesWithGeneratedId = new ArrayList<Object>();
+	Integer inserted;
+	try {
+	    inserted = (Integer) this.getHibernateTemplate().executeWithNativeSession(new HibernateCallback() {
+
+		public Object doInHibernate(Session session) throws PersistenceException {
+		    for (Entry<Class<?>, List<Object>> entry : entitiesByClass.entrySet()) {
+			AbstractEntityPersister persister = getPersister(entry.getKey());
+			for (Object entity : entry.getValue()) {
+			    if (persister.getIdentifier(entity, EntityMode.POJO) == null) {
+				Serializable id = persister.getIdentifierGenerator().generate((SessionImplementor) session, entity);
+				persister.setIdentifier(entity, id, EntityMode.POJO);
+				entitiesWithGeneratedId.add(entity);
+			    }
+			}
+		    }
+		    final int[] count = new int[1];
+		    session.doWork(new Work() {
+			public void execute(Connection connection) throws SQLException {
+			    count[0] = copy(connection, entitiesByClass);
+			}
+		    });
+		    return count[0];
+		}
+	    });
+	} catch (RuntimeException e) {
+	    for (Object entity : entitiesWithGeneratedId) {
+		getPersister(entity.getClass()).setIdentifier(entity, null, EntityMode.POJO);
+	    }
+	    throw e;
+	}
+	// the cached collections (e.g : the house numbers of a street) don't
+	// know the rows that have been inserted behind hibernate
+	getSessionFactory().getCache().evictCollectionRegions();
+	fireStoredEvents(entities);
+	return inserted;
+    }
+
+    private int copy(Connection connection, Map<Class<?>, List<Object>> entitiesByClass) throws SQLException {
+	Connection nativeConnection = nativeJdbcExtractor.getNativeConnection(connection);
+	if (!(nativeConnection instanceof PGConnection)) {
+	    throw new SQLException("The COPY protocol needs a connection of the postgres driver (8.4 or later), not a "
+		    + nativeConnection.getClass().getName());
+	}
+	CopyManager copyManager = ((PGConnection) nativeConnection).getCopyAPI();
+	Savepoint savepoint = connection.setSavepoint();
+	try {
+	    int count = 0;
+	    for (Entry<Class<?>, List<Object>> entry : entitiesByClass.entrySet()) {
+		count += copy(connection, copyManager, getPersister(entry.getKey()), entry.getValue());
+	    }
+	    connection.releaseSavepoint(savepoint);
+	    return count;
+	} catch (SQLException e) {
+	    connection.rollback(savepoint);
+	    throw e;
+	} catch (RuntimeException e) {
+	    connection.rollback(savepoint);
+	    throw e;
+	}
+    }
+
+    private int copy(Connection connection, CopyManager copyManager, AbstractEntityPersister persister,
+	    List<Object> entities) throws SQLException {
+	long start = System.currentTimeMillis();
+	String table = toSqlName(persister.getTableName());
+	String stagingTable = STAGING_TABLE_PREFIX + table;
+	List<CopyColumn> columns = getColumns(persister, getColumnTypes(connection, table));
+	StringBuilder columnList = new StringBuilder();
+	for (CopyColumn column : columns) {
+	    if (columnList.length() > 0) {
+		columnList.append(",");
+	    }
+	    columnList.append(column.name);
+	}
+
+	Type[] types = persister.getPropertyTypes();
+	PgBinaryCopyWriter writer = new PgBinaryCopyWriter();
+	for (Object entity : entities) {
+	    Object[] values = persister.getPropertyValues(entity, EntityMode.POJO);
+	    writer.startRow(columns.size());
+	    for (CopyColumn column : columns) {
+		if (column.propertyIndex == -1) {
+		    writer.write(column.type, persister.getIdentifier(entity, EntityMode.POJO));
+		} else {
+		    Object value = values[column.propertyIndex];
+		    Type type = types[column.propertyIndex];
+		    if (value != null && type.isEntityType()) {
+			value = getIdentifier(((EntityType) type).getAssociatedEntityName(), value);
+		    }
+		    writer.write(column.type, value);
+		}
+	    }
+	}
+
+	// ON COMMIT DELETE ROWS : nothing stays in the staging table if the
+	// transaction is rolled back after the copy
+	execute(connection, "CREATE TEMP TABLE IF NOT EXISTS " + stagingTable + " (LIKE " + table
+		+ " INCLUDING DEFAULTS) ON COMMIT DELETE ROWS");
+	try {
+	    copyManager.copyIn("COPY " + stagingTable + " (" + columnList + ") FROM STDIN WITH BINARY",
+		    writer.toInputStream());
+	} catch (IOException e) {
+	    SQLException sqlException = new SQLException("can not copy in " + stagingTable + " : " + e.getMessage());
+	    sqlException.initCause(e);
+	    throw sqlException;
+	}
+	int inserted = execute(connection, "INSERT INTO " + table + " (" + columnList + ") SELECT " + columnList
+		+ " FROM " + stagingTable);
+	execute(connection, "TRUNCATE " + stagingTable);
+	logger.info(inserted + " rows have been copied in " + table + " in "
+		+ (System.currentTimeMillis() - start) + " ms");
+	return inserted;
+    }
+
+    /**
+     * @return the columns hibernate would insert for the entities of the
+     *         persister, with their postgres types
+     */
+    List<CopyColumn> getColumns(AbstractEntityPersister persister, Map<String, String> columnTypes) {
+	String table = persister.getTableName();
+	List<CopyColumn> columns = new ArrayList<CopyColumn>();
+	String[] idColumns = persister.getIdentifierColumnNames();
+	if (idColumns.length != 1) {
+	    throw new IllegalArgumentException("can not copy " + persister.getEntityName()
+		    + " because its id is on several columns");
+	}
+	columns.add(createColumn(table, idColumns[0], -1, columnTypes));
+	Type[] types = persister.getPropertyTypes();
+	boolean[] insertable = persister.getPropertyInsertability();
+	for (int i = 0; i < types.length; i++) {
+	    if (!insertable[i] || types[i].isCollectionType()) {
+		continue;
+	    }
+	    String[] propertyColumns = persister.getPropertyColumnNames(i);
+	    if (propertyColumns == null || propertyColumns.length == 0) {
+		continue;
+	    }
+	    if (types[i].isComponentType() || propertyColumns.length != 1) {
+		throw new IllegalArgumentException("can not copy " + persister.getEntityName() + " because "
+			+ persister.getPropertyNames()[i] + " is mapped on several columns");
+	    }
+	    columns.add(createColumn(table, propertyColumns[0], i, columnTypes));
+	}
+	return columns;
+    }
+
+    private CopyColumn createColumn(String table, String hibernateColumnName, int propertyIndex,
+	    Map<String, String> columnTypes) {
+	String name = toSqlName(hibernateColumnName);
+	String type = columnTypes.get(name);
+	if (type == null) {
+	    throw new IllegalArgumentException("the column " + name + " does not exist in " + table);
+	}
+	return new CopyColumn(name, propertyIndex, type);
+    }
+
+    /**
+     * The names are not quoted by the mapping, so postgres stores them in
+     * lower case
+     */
+    static String toSqlName(String name) {
+	return name.replace("\"", "").toLowerCase();
+    }
+
+    private Map<String, String> getColumnTypes(Connection connection, String table) throws SQLException {
+	Map<String, String> columnTypes = columnTypesCache.get(table);
+	if (columnTypes != null) {
+	    return columnTypes;
+	}
+	columnTypes = new HashMap<String, String>();
+	PreparedStatement statement = connection.prepareStatement("SELECT a.attname, t.typname FROM pg_attribute a "
+		+ "JOIN pg_class c ON c.oid = a.attrelid JOIN pg_type t ON t.oid = a.atttypid "
+		+ "WHERE c.relname = ? AND pg_table_is_visible(c.oid) AND a.attnum > 0 AND NOT a.attisdropped");
+	try {
+	    statement.setString(1, table);
+	    ResultSet resultSet = statement.executeQuery();
+	    while (resultSet.next()) {
+		columnTypes.put(resultSet.getString(1), resultSet.getString(2));
+	    }
+	    resultSet.close();
+	} finally {
+	    statement.close();
+	}
+	if (columnTypes.isEmpty()) {
+	    throw new SQLException("the table " + table + " does not exist");
+	}
+	columnTypesCache.put(table, columnTypes);
+	return columnTypes;
+    }
+
+    private static int execute(Connection connection, String sql) throws SQLException {
+	Statement statement = connection.createStatement();
+	try {
+	    return statement.executeUpdate(sql);
+	} finally {
+	    statement.close();
+	}
+    }
+
+    private Object getIdentifier(String entityName, Object entity) {
+	if (entity instanceof HibernateProxy) {
+	    return ((HibernateProxy) entity).getHibernateLazyInitializer().getIdentifier();
+	}
+	return getSessionFactory().getClassMetadata(entityName).getIdentifier(entity, EntityMode.POJO);
+    }
+
+    private AbstractEntityPersister getPersister(Class<?> entityClass) {
+	ClassMetadata metadata = getSessionFactory().getClassMetadata(entityClass);
+	if (!(metadata instanceof AbstractEntityPersister)) {
+	    throw new IllegalArgumentException(entityClass.getName() + " is not an entity");
+	}
+	return (AbstractEntityPersister) metadata;
+    }
+
+    private void fireStoredEvents(List<?> entities) {
+	for (Object entity : entities) {
+	    if (entity instanceof GisFeature) {
+		eventManager.handleEvent(new GisFeatureStoredEvent((GisFeature) entity));
+	    } else if (entity instanceof OpenStreetMap) {
+		eventManager.handleEvent(new GisFeatureStoredEvent(streetFactory.create((OpenStreetMap) entity)));
+	    }
+	}
+    }
+
+    @Autowired
+    public void setEventManager(EventManager eventManager) {
+	this.eventManager = eventManager;
+    }
+
+    public void setStreetFactory(IStreetFactory streetFactory) {
+	this.streetFactory = streetFactory;
+    }
+
+    public void setNativeJdbcExtractor(NativeJdbcExtractor nativeJdbcExtractor) {
+	this.nativeJdbcExtractor = nativeJdbcExtractor;
+    }
+
+}
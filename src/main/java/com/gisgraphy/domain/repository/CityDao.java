@@ -140,6 +140,121 @@ public class CityDao extends GenericGisDao<City> implements ICityDao {
 		    }
 		});
 	}
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.ICityDao#listShapesByCountryCode(java.lang.String)
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> listShapesByCountryCode(final String countryCode) {
+	Assert.notNull(countryCode, "can not list the shapes of a null country code");
+	return (List<Object[]>) this.getHibernateTemplate().execute(
+		new HibernateCallback() {
+
+		    public Object doInHibernate(Session session)
+			    throws PersistenceException {
+			String queryString = "select c.id, c.shape, c.municipality from "
+				+ persistentClass.getSimpleName()
+				+ " as c where c.countryCode=? and c.shape is not null";
+
+			Query qry = session.createQuery(queryString);
+			qry.setParameter(0, countryCode.toUpperCase());
+
+			List<Object[]> results = (List<Object[]>) qry.list();
+			if (results == null) {
+			    results = new ArrayList<Object[]>();
+			}
+			return results;
+		    }
+		});
+    }
+	
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.ICityDao#listReverseGeocodingFieldsByCountryCode(java.lang.String, java.lang.Long, int)
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> listReverseGeocodingFieldsByCountryCode(final String countryCode, final Long afterId, final int maxResults) {
+	Assert.notNull(countryCode, "can not list the cities of a null country code");
+	return (List<Object[]>) this.getHibernateTemplate().execute(
+		new HibernateCallback() {
+
+		    public Object doInHibernate(Session session)
+			    throws PersistenceException {
+			String queryString = "select c.id, c.featureId, c.openstreetmapId, c.name, c.shape, c.location, c.adminCentreLocation,"
+				+ " c.countryCode, c.isInAdm, c.adm1Name, c.adm2Name, c.adm3Name, c.adm4Name, c.adm5Name from "
+				+ persistentClass.getSimpleName() + " as c where c.countryCode=?";
+			if (afterId != null) {
+			    queryString += " and c.id>?";
+			}
+			queryString += " order by c.id";
+
+			Query qry = session.createQuery(queryString);
+			qry.setParameter(0, countryCode.toUpperCase());
+			if (afterId != null) {
+			    qry.setParameter(1, afterId);
+			}
+			if (maxResults > 0) {
+			    qry.setMaxResults(maxResults);
+			}
+			List<Object[]> results = (List<Object[]>) qry.list();
+			if (results == null) {
+			    results = new ArrayList<Object[]>();
+			}
+			return results;
+		    }
+		});
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.ICityDao#listZipCodesByIdRange(java.lang.Long, java.lang.Long)
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> listZipCodesByIdRange(final Long fromId, final Long toId) {
+	Assert.notNull(fromId, "can not list the zip codes from a null id");
+	Assert.notNull(toId, "can not list the zip codes to a null id");
+	return (List<Object[]>) this.getHibernateTemplate().execute(
+		new HibernateCallback() {
+
+		    public Object doInHibernate(Session session)
+			    throws PersistenceException {
+			String queryString = "select z.gisFeature.id, z.code from " + ZipCode.class.getSimpleName()
+				+ " as z where z.gisFeature.id>=? and z.gisFeature.id<=? order by z.gisFeature.id";
+
+			Query qry = session.createQuery(queryString);
+			qry.setParameter(0, fromId);
+			qry.setParameter(1, toId);
+
+			List<Object[]> results = (List<Object[]>) qry.list();
+			if (results == null) {
+			    results = new ArrayList<Object[]>();
+			}
+			return results;
+		    }
+		});
+    }
+	
+    @SuppressWarnings("unchecked")
+    public List<Long> listFeatureIds() {
+	return ((List<Long>) this.getHibernateTemplate().execute(
+		new HibernateCallback() {
+
+		    public Object doInHibernate(final Session session)
+			    throws PersistenceException {
+			final String queryString = "select featureId from "
+				+ persistentClass.getSimpleName();
+
+			final Query qry = session.createQuery(queryString);
+			qry.setCacheable(false);
+			return qry.list();
+
+		    }
+		}));
+    }
 	
 	@SuppressWarnings({ "rawtypes", "unchecked" })
 	public int fixPolygons(){
@@ -22,6 +22,7 @@
  *******************************************************************************/
 package com.gisgraphy.domain.repository;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.persistence.PersistenceException;
@@ -150,6 +151,35 @@ public class CitySubdivisionDao extends GenericGisDao<CitySubdivision>
 		});
 	}
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.ICitySubdivisionDao#listShapesByCountryCode(java.lang.String)
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> listShapesByCountryCode(final String countryCode) {
+	Assert.notNull(countryCode, "can not list the shapes of a null country code");
+	return (List<Object[]>) this.getHibernateTemplate().execute(
+		new HibernateCallback() {
+
+		    public Object doInHibernate(Session session)
+			    throws PersistenceException {
+			String queryString = "select c.id, c.shape from "
+				+ persistentClass.getSimpleName()
+				+ " as c where c.countryCode=? and c.shape is not null";
+
+			Query qry = session.createQuery(queryString);
+			qry.setParameter(0, countryCode.toUpperCase());
+
+			List<Object[]> results = (List<Object[]>) qry.list();
+			if (results == null) {
+			    results = new ArrayList<Object[]>();
+			}
+			return results;
+		    }
+		});
+    }
+
 	@Required
 	public void setCityDao(ICityDao cityDao) {
 		this.cityDao = cityDao;
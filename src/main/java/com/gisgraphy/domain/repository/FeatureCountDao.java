@@ -0,0 +1,212 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.domain.repository;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.PersistenceException;
+
+import org.hibernate.Query;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.orm.hibernate3.HibernateCallback;
+import org.springframework.orm.hibernate3.support.HibernateDaoSupport;
+import org.springframework.stereotype.Repository;
+
+import com.gisgraphy.domain.valueobject.CountryCountDto;
+
+/**
+ * PostgreSQL implementation of {@link IFeatureCountDao}. The estimates are
+ * computed from pg_class.reltuples and the pg_stats view.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+@Repository
+public class FeatureCountDao extends HibernateDaoSupport implements IFeatureCountDao {
+
+    protected static final Logger logger = LoggerFactory.getLogger(FeatureCountDao.class);
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.IFeatureCountDao#countByCountryCode(java.lang.Class,
+     *      boolean)
+     */
+    @SuppressWarnings("unchecked")
+    public List<CountryCountDto> countByCountryCode(Class<?> entityClass, final boolean withShape) {
+	final String table = getTableName(entityClass);
+	return (List<CountryCountDto>) this.getHibernateTemplate().execute(new HibernateCallback() {
+
+	    public Object doInHibernate(Session session) throws PersistenceException {
+		// the country codes are not always upper case in the database
+		String queryString = "select upper(countrycode), count(*), " + (withShape ? "count(shape)" : "0") + " from " + table
+			+ " group by upper(countrycode)";
+		Query qry = session.createSQLQuery(queryString);
+		List<Object[]> rows = qry.list();
+		List<CountryCountDto> counts = new ArrayList<CountryCountDto>();
+		for (Object[] row : rows) {
+		    if (row[0] != null) {
+			counts.add(new CountryCountDto((String) row[0], toLong(row[1]), toLong(row[2])));
+		    }
+		}
+		return counts;
+	    }
+	});
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.IFeatureCountDao#estimateCountByCountryCode(java.lang.Class,
+     *      boolean)
+     */
+    @SuppressWarnings("unchecked")
+    public List<CountryCountDto> estimateCountByCountryCode(Class<?> entityClass, final boolean withShape) {
+	final String table = getTableName(entityClass);
+	return (List<CountryCountDto>) this.getHibernateTemplate().execute(new HibernateCallback() {
+
+	    public Object doInHibernate(Session session) throws PersistenceException {
+		String queryString = "select c.reltuples, s.null_frac, s.n_distinct, s.most_common_vals::text, s.most_common_freqs::text, "
+			+ (withShape ? "shape.null_frac" : "null") + " from pg_class c"
+			+ " join pg_namespace n on n.oid = c.relnamespace"
+			+ " left join pg_stats s on s.schemaname = n.nspname and s.tablename = c.relname and s.attname = 'countrycode'"
+			+ (withShape ? " left join pg_stats shape on shape.schemaname = n.nspname and shape.tablename = c.relname and shape.attname = 'shape'" : "")
+			+ " where c.relname = ? and pg_table_is_visible(c.oid)";
+		Query qry = session.createSQLQuery(queryString);
+		qry.setParameter(0, table);
+		List<Object[]> rows = qry.list();
+		if (rows.isEmpty() || rows.get(0)[1] == null) {
+		    logger.warn("there is no statistics for " + table + ", the table should be analyzed");
+		    return new ArrayList<CountryCountDto>();
+		}
+		Object[] row = rows.get(0);
+		return estimate(toDouble(row[0]), toDouble(row[1]), toDouble(row[2]), (String) row[3], (String) row[4],
+			withShape ? toDouble(row[5]) : 1);
+	    }
+	});
+    }
+
+    /**
+     * Estimate the counts by country code like the postgres planner does
+     * 
+     * @param rowCount
+     *                the (estimated) number of rows of the table
+     * @param nullFraction
+     *                the fraction of the rows without country code
+     * @param distinctCount
+     *                the number of distinct country codes, or minus the
+     *                fraction of the rows if it is negative
+     * @param mostCommonValues
+     *                the most common country codes as a postgres array
+     *                ('{FR,US}'), can be null
+     * @param mostCommonFrequencies
+     *                the fractions of the rows of the most common country
+     *                codes as a postgres array ('{0.2,0.1}'), can be null
+     * @param shapeNullFraction
+     *                the fraction of the rows without shape, the shapes are
+     *                considered as evenly distributed between the countries
+     * @return the estimates of the most common values (the values that only
+     *         differ by their case are summed) and the one of the other
+     *         values, with a null country code
+     */
+    static List<CountryCountDto> estimate(double rowCount, double nullFraction, double distinctCount, String mostCommonValues,
+	    String mostCommonFrequencies, double shapeNullFraction) {
+	List<CountryCountDto> estimates = new ArrayList<CountryCountDto>();
+	if (rowCount <= 0) {
+	    return estimates;
+	}
+	String[] values = parseArray(mostCommonValues);
+	String[] frequencies = parseArray(mostCommonFrequencies);
+	Map<String, Double> frequenciesByCountry = new LinkedHashMap<String, Double>();
+	double mostCommonFraction = 0;
+	int mostCommonCount = 0;
+	for (int i = 0; i < values.length && i < frequencies.length; i++) {
+	    double frequency = Double.parseDouble(frequencies[i]);
+	    mostCommonFraction += frequency;
+	    mostCommonCount++;
+	    String countryCode = values[i].toUpperCase();
+	    Double countryFrequency = frequenciesByCountry.get(countryCode);
+	    frequenciesByCountry.put(countryCode, countryFrequency == null ? frequency : countryFrequency + frequency);
+	}
+	for (Map.Entry<String, Double> entry : frequenciesByCountry.entrySet()) {
+	    estimates.add(createEstimate(entry.getKey(), rowCount * entry.getValue(), shapeNullFraction));
+	}
+	double distinct = distinctCount >= 0 ? distinctCount : -distinctCount * rowCount;
+	double otherDistinct = distinct - mostCommonCount;
+	double otherFraction = 1 - nullFraction - mostCommonFraction;
+	if (otherDistinct >= 1 && otherFraction > 0) {
+	    estimates.add(createEstimate(null, rowCount * otherFraction / otherDistinct, shapeNullFraction));
+	}
+	return estimates;
+    }
+
+    private static CountryCountDto createEstimate(String countryCode, double count, double shapeNullFraction) {
+	return new CountryCountDto(countryCode, Math.round(count), Math.round(count * (1 - shapeNullFraction)));
+    }
+
+    /**
+     * @return the elements of a postgres array as text, the quotes are
+     *         removed
+     */
+    static String[] parseArray(String array) {
+	if (array == null || array.length() < 2 || "{}".equals(array)) {
+	    return new String[0];
+	}
+	String[] elements = array.substring(1, array.length() - 1).split(",");
+	for (int i = 0; i < elements.length; i++) {
+	    elements[i] = elements[i].replace("\"", "").trim();
+	}
+	return elements;
+    }
+
+    /**
+     * @return the table of the entity only, like
+     *         {@link GenericGisDao#countByCountryCode(String)} : the table
+     *         name of the persister of a union subclass (e.g GisFeature) is a
+     *         union of the tables of all the subclasses
+     */
+    String getTableName(Class<?> entityClass) {
+	if (getSessionFactory().getClassMetadata(entityClass) == null) {
+	    throw new IllegalArgumentException(entityClass.getName() + " is not an entity");
+	}
+	//the table names are not quoted, postgres stores them in lower case
+	return entityClass.getSimpleName().toLowerCase();
+    }
+
+    private static long toLong(Object value) {
+	if (value instanceof BigInteger) {
+	    return ((BigInteger) value).longValue();
+	}
+	return value == null ? 0 : ((Number) value).longValue();
+    }
+
+    private static double toDouble(Object value) {
+	return value == null ? 0 : ((Number) value).doubleValue();
+    }
+
+}
@@ -40,9 +40,12 @@ import org.apache.solr.common.SolrDocument;
 import org.hibernate.Criteria;
 import org.hibernate.Hibernate;
 import org.hibernate.Query;
+import org.hibernate.SQLQuery;
 import org.hibernate.Session;
 import org.hibernate.criterion.ProjectionList;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.persister.entity.AbstractEntityPersister;
 import org.hibernate.type.CustomType;
 import org.hibernate.type.Type;
 import org.hibernate.util.ArrayHelper;
@@ -110,6 +113,14 @@ public class GenericGisDao<T extends GisFeature> extends
 
     private EventManager eventManager;
 
+    /**
+     * The number of candidates (per expected result) that are retrieved with
+     * the KNN operator before the exact re-ranking
+     */
+    protected static final int KNN_CANDIDATES_FACTOR = 10;
+
+    private boolean useKnnForNearest = true;
+
     /**
      * Constructor
      * 
@@ -658,85 +669,178 @@ public class GenericGisDao<T extends GisFeature> extends
 			});
     }
     
-    @SuppressWarnings("unchecked")
-	public T getNearest(final Point location,final String countryCode,final boolean filterMunicipality,final int distance) {
-		Assert.notNull(location);
-		return (T) this.getHibernateTemplate().execute(new HibernateCallback() {
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.IGisDao#getNearest(com.vividsolutions.jts.geom.Point, java.lang.String, boolean, int)
+     */
+    public T getNearest(final Point location,final String countryCode,final boolean filterMunicipality,final int distance) {
+	List<T> results = getNearests(location, countryCode, filterMunicipality, distance, 1);
+	return results.isEmpty() ? null : results.get(0);
+    }
 
-		    public Object doInHibernate(Session session)
-			    throws PersistenceException {
-		    String pointAsString = "ST_GeometryFromText('POINT("+location.getX()+" "+location.getY()+")',"+SRID.WGS84_SRID.getSRID()+")";
-		   /* String bbox = "st_setSRID(cast ('BOX3D(39.875947845588854 -6.649904839690944,57.85738955675488 11.316505067046899)'as box3d), 4326)";
-		    String bbox2 = "ST_MakeEnvelope(39.875947845588854, -6.649904839690944,57.85738955675488, 11.316505067046899, 4326)";*/
-			String queryString = "from " + persistentClass.getSimpleName()
-				+ " as c  where st_distance_sphere(c.location,"+pointAsString+") < "+distance
-				//+" AND st_contains("+bbox2+",c.location)=true ";
-				+ " AND "+GisHelper.makeEnvelope("c", location.getY(),location.getX(), distance)
-	
-						//GisHelper.getBoundingBox(criteriaQuery.getSQLAlias(criteria), this.point
-							//	.getY(), this.point.getX(), distance)
-				
-				;//left outer join c.zipCodes z
-			if (filterMunicipality){
-				queryString+=" and c.municipality=true";
-			}
-			if (countryCode!=null ){
-				queryString+=" and c.countryCode='"+countryCode+"'";
-			}
-			queryString = queryString+ " order by st_distance_sphere(c.location,"+pointAsString+")";
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.IGisDao#getNearests(com.vividsolutions.jts.geom.Point, java.lang.String, boolean, int, int)
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> getNearests(final Point location,final String countryCode,final boolean filterMunicipality,final int distance,final  int limit) {
+	Assert.notNull(location);
+	return (List<T>) this.getHibernateTemplate().execute(new HibernateCallback() {
 
-			Query qry = session.createQuery(queryString).setMaxResults(1);
+	    public Object doInHibernate(Session session)
+		    throws PersistenceException {
+		List<T> results;
+		if (useKnnForNearest && limit > 0 && isKnnSupported(session)) {
+		    results = getNearestsWithKnn(session, location, countryCode, filterMunicipality, distance, limit);
+		} else {
+		    results = getNearestsWithDistanceSphere(session, location, countryCode, filterMunicipality, distance, limit);
+		}
+		if (results == null) {
+		    results = new ArrayList<T>();
+		}
+		return results;
+	    }
+	});
+    }
 
-			//qry.setParameter("point2", location);
-			T result = (T) qry.uniqueResult();
+    /**
+     * The KNN query is done in native SQL on the table of the persistent
+     * class, it is only possible if the class has its own table with all the
+     * columns (no subclasses)
+     */
+    private boolean isKnnSupported(Session session) {
+	ClassMetadata metadata = session.getSessionFactory().getClassMetadata(persistentClass);
+	return metadata instanceof AbstractEntityPersister
+		&& !((AbstractEntityPersister) metadata).hasSubclasses();
+    }
 
-			return result;
-		    }
-		});
+    /**
+     * Find the nearest features in two steps :
+     * <ol>
+     * <li>the ids of the {@link #KNN_CANDIDATES_FACTOR} * limit nearest
+     * features inside the bounding box are retrieved with the PostGIS KNN
+     * operator (&lt;-&gt;). The bounding box and the order both use the GIST
+     * index of the location column, so that only the candidates are read</li>
+     * <li>the candidates are filtered and ordered by their exact distance
+     * (st_distance_sphere)</li>
+     * </ol>
+     * The KNN distance is a planar distance in degrees, so the order of the
+     * candidates is not the order of the distances on the sphere. When the
+     * candidates are not all the features of the bounding box, the re-ranked
+     * results are only kept if the farthest one is nearer than any feature
+     * that is not a candidate (see {@link #getKnnLowerBound(double, double)}),
+     * otherwise the exact query is done.
+     */
+    @SuppressWarnings("unchecked")
+    protected List<T> getNearestsWithKnn(Session session, Point location, String countryCode, boolean filterMunicipality, int distance, int limit) {
+	AbstractEntityPersister persister = (AbstractEntityPersister) session.getSessionFactory().getClassMetadata(persistentClass);
+	String pointAsString = "ST_GeometryFromText('POINT("+location.getX()+" "+location.getY()+")',"+SRID.WGS84_SRID.getSRID()+")";
+	StringBuffer sqlString = new StringBuffer("select c.").append(persister.getIdentifierColumnNames()[0])
+		.append(", c.").append(GisFeature.LOCATION_COLUMN_NAME).append(" <-> ").append(pointAsString)
+		.append(" from ").append(persister.getTableName()).append(" c where ")
+		.append(GisHelper.getBoundingBox("c", location.getY(), location.getX(), distance));
+	if (filterMunicipality) {
+	    sqlString.append(" and c.").append(persister.getPropertyColumnNames("municipality")[0]).append("=true");
 	}
-    
+	if (countryCode != null) {
+	    sqlString.append(" and c.").append(persister.getPropertyColumnNames("countryCode")[0]).append("='").append(countryCode).append("'");
+	}
+	sqlString.append(" order by c.").append(GisFeature.LOCATION_COLUMN_NAME).append(" <-> ").append(pointAsString)
+		.append(" limit ").append(limit * KNN_CANDIDATES_FACTOR);
+	SQLQuery candidatesQuery = session.createSQLQuery(sqlString.toString());
+	//flush the pending changes of the class before the native query
+	candidatesQuery.addSynchronizedEntityClass(persistentClass);
+	List<Object[]> candidates = candidatesQuery.list();
+	if (candidates == null || candidates.isEmpty()) {
+	    return new ArrayList<T>();
+	}
+	List<Long> ids = new ArrayList<Long>(candidates.size());
+	for (Object[] candidate : candidates) {
+	    ids.add(((Number) candidate[0]).longValue());
+	}
+	String queryString = "from " + persistentClass.getSimpleName()
+		+ " as c where c.id in (:ids) and st_distance_sphere(c.location,"+pointAsString+") < "+distance
+		+ " order by st_distance_sphere(c.location,"+pointAsString+")";
+	Query qry = session.createQuery(queryString);
+	qry.setParameterList("ids", ids);
+	qry.setMaxResults(limit);
+	List<T> results = (List<T>) qry.list();
+	if (candidates.size() < limit * KNN_CANDIDATES_FACTOR) {
+	    //all the features of the bounding box are candidates
+	    return results;
+	}
+	double farthestCandidateInDegrees = ((Number) candidates.get(candidates.size() - 1)[1]).doubleValue();
+	double lowerBound = getKnnLowerBound(farthestCandidateInDegrees, location.getY());
+	if (results.size() == limit
+		&& GeolocHelper.distance(location, results.get(results.size() - 1).getLocation()) <= lowerBound) {
+	    return results;
+	}
+	logger.debug("the KNN candidates can not guarantee the nearest results, do the exact query");
+	return getNearestsWithDistanceSphere(session, location, countryCode, filterMunicipality, distance, limit);
+    }
+
+    /**
+     * A feature that is not a KNN candidate is at least at the given planar
+     * distance in degrees of the searched point : its latitude and longitude
+     * differences (dlat, dlon) verify dlat&sup2; + dlon&sup2; &ge;
+     * distance&sup2;. On the sphere a degree of latitude is always about
+     * 111 km and a degree of longitude is at least cos(maxLatitude) times
+     * that, so the distance on the sphere of such a feature is at least the
+     * returned value.
+     * 
+     * @param distanceInDegrees
+     *                the planar distance of the farthest KNN candidate
+     * @param latitude
+     *                the latitude of the searched point
+     * @return a lower bound, in meters, of the distance on the sphere of the
+     *         features that are not candidates
+     */
+    protected static double getKnnLowerBound(double distanceInDegrees, double latitude) {
+	double maxLatitude = Math.min(90D, Math.abs(latitude) + distanceInDegrees);
+	double lowerBound = Math.toRadians(distanceInDegrees) * Math.cos(Math.toRadians(maxLatitude))
+		* Constants.RADIUS_OF_EARTH_IN_METERS;
+	//the sphere of st_distance_sphere is a bit smaller than the one of the constant
+	return lowerBound * 0.99D;
+    }
+
+    /**
+     * Find the nearest features by ordering all the features of the bounding
+     * box by their exact distance. it is the fallback when the KNN query can
+     * not be used (no limit, class with subclasses)
+     */
     @SuppressWarnings("unchecked")
-  	public List<T> getNearests(final Point location,final String countryCode,final boolean filterMunicipality,final int distance,final  int limit) {
-  		Assert.notNull(location);
-  		return (List<T>) this.getHibernateTemplate().execute(new HibernateCallback() {
-
-  		    public Object doInHibernate(Session session)
-  			    throws PersistenceException {
-  		    String pointAsString = "ST_GeometryFromText('POINT("+location.getX()+" "+location.getY()+")',"+SRID.WGS84_SRID.getSRID()+")";
-  		  /*  String bbox = "st_setSRID(cast ('BOX3D(39.875947845588854 -6.649904839690944,57.85738955675488 11.316505067046899)'as box3d), 4326)";
-  		    String bbox2 = "ST_MakeEnvelope(39.875947845588854, -6.649904839690944,57.85738955675488, 11.316505067046899, 4326)";*/
-  			String queryString = "from " + persistentClass.getSimpleName()
-  				+ " as c  where st_distance_sphere(c.location,"+pointAsString+") < "+distance
-  				//+" AND st_contains("+bbox2+",c.location)=true ";
-  				+ " AND "+GisHelper.makeEnvelope("c", location.getY(),location.getX(), distance)
-  	
-  						//GisHelper.getBoundingBox(criteriaQuery.getSQLAlias(criteria), this.point
-  							//	.getY(), this.point.getX(), distance)
-  				
-  				;//left outer join c.zipCodes z
-  			if (filterMunicipality){
-  				queryString+=" and c.municipality=true";
-  			}
-  			if (countryCode!=null ){
-  				queryString+=" and c.countryCode='"+countryCode+"'";
-  			}
-  			queryString = queryString+ " order by st_distance_sphere(c.location,"+pointAsString+")";
-
-  			Query qry = session.createQuery(queryString);
-  			if (limit >0){
-  				qry.setMaxResults(limit);
-  			}
-
-  			//qry.setParameter("point2", location);
-  			List<T> results = (List<T>) qry.list();
-  			if (results == null) {
-			    results = new ArrayList<T>();
-			}
+    protected List<T> getNearestsWithDistanceSphere(Session session, Point location, String countryCode, boolean filterMunicipality, int distance, int limit) {
+	String pointAsString = "ST_GeometryFromText('POINT("+location.getX()+" "+location.getY()+")',"+SRID.WGS84_SRID.getSRID()+")";
+	String queryString = "from " + persistentClass.getSimpleName()
+		+ " as c  where st_distance_sphere(c.location,"+pointAsString+") < "+distance
+		+ " AND "+GisHelper.makeEnvelope("c", location.getY(),location.getX(), distance);
+	if (filterMunicipality){
+	    queryString+=" and c.municipality=true";
+	}
+	if (countryCode!=null ){
+	    queryString+=" and c.countryCode='"+countryCode+"'";
+	}
+	queryString = queryString+ " order by st_distance_sphere(c.location,"+pointAsString+")";
+
+	Query qry = session.createQuery(queryString);
+	if (limit >0){
+	    qry.setMaxResults(limit);
+	}
+	return (List<T>) qry.list();
+    }
 
-  			return results;
-  		    }
-  		});
-  	}
+    /**
+     * @param useKnnForNearest
+     *                whether {@link #getNearest(Point, String, boolean, int)}
+     *                and {@link #getNearests(Point, String, boolean, int, int)}
+     *                should use the KNN operator of PostGIS (PostGIS 2.0+).
+     *                Default to true
+     */
+    public void setUseKnnForNearest(boolean useKnnForNearest) {
+	this.useKnnForNearest = useKnnForNearest;
+    }
 
     public void createGISTIndexForShapeColumn() {
 		 this.getHibernateTemplate().execute(
@@ -22,12 +22,16 @@
  *******************************************************************************/
 package com.gisgraphy.domain.repository;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.persistence.PersistenceException;
 
 import org.hibernate.Query;
 import org.hibernate.Session;
 import org.springframework.orm.hibernate3.HibernateCallback;
 import org.springframework.stereotype.Repository;
+import org.springframework.util.Assert;
 
 import com.gisgraphy.domain.geoloc.entity.HouseNumber;
 
@@ -69,5 +73,65 @@ public class HouseNumberDao extends GenericDao<HouseNumber, Long> implements
 		return 0;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.gisgraphy.domain.repository.IhouseNumberDao#listPointsByStreetId(java.lang.Long)
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Object[]> listPointsByStreetId(final Long streetId) {
+		Assert.notNull(streetId, "can not list the house numbers of a null street id");
+		return (List<Object[]>) this.getHibernateTemplate().execute(
+				new HibernateCallback() {
+
+				    public Object doInHibernate(Session session)
+					    throws PersistenceException {
+					String queryString = "select h.id, h.number, h.name, h.location from "
+						+ persistentClass.getSimpleName()
+						+ " as h where h.street.id=?";
+
+					Query qry = session.createQuery(queryString);
+					qry.setParameter(0, streetId);
+
+					List<Object[]> results = (List<Object[]>) qry.list();
+					if (results == null) {
+					    results = new ArrayList<Object[]>();
+					}
+					return results;
+				    }
+				});
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.gisgraphy.domain.repository.IhouseNumberDao#listPointsByStreetIdRange(java.lang.Long, java.lang.Long)
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Object[]> listPointsByStreetIdRange(final Long fromStreetId, final Long toStreetId) {
+		Assert.notNull(fromStreetId, "can not list the house numbers from a null street id");
+		Assert.notNull(toStreetId, "can not list the house numbers to a null street id");
+		return (List<Object[]>) this.getHibernateTemplate().execute(
+				new HibernateCallback() {
+
+				    public Object doInHibernate(Session session)
+					    throws PersistenceException {
+					String queryString = "select h.street.id, h.id, h.number, h.name, h.location from "
+						+ persistentClass.getSimpleName()
+						+ " as h where h.street.id>=? and h.street.id<=? order by h.street.id";
+
+					Query qry = session.createQuery(queryString);
+					qry.setParameter(0, fromStreetId);
+					qry.setParameter(1, toStreetId);
+
+					List<Object[]> results = (List<Object[]>) qry.list();
+					if (results == null) {
+					    results = new ArrayList<Object[]>();
+					}
+					return results;
+				    }
+				});
+	}
+
 
 }
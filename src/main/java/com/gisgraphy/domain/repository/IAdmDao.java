@@ -305,6 +305,12 @@ public interface IAdmDao extends IGisDao<Adm> {
      * @return a list of all featureId
      */
     public List<Long> listFeatureIdByLevel(final int level);
+
+    /**
+     * List all the featureId of the Adms, whatever their level 
+     * @return a list of all featureId for all the Adms
+     */
+    public List<Long> listFeatureIds();
     
     /**
      * @param location
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.domain.repository;
+
+import java.util.List;
+
+/**
+ * Insert new entities with the PostgreSQL COPY protocol instead of an INSERT
+ * per entity. It is intended for the importers, that create hundreds of
+ * millions of entities that are never read back in the same session.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public interface IBulkCopyDao {
+
+    /**
+     * Insert new entities in the current transaction : the ids of the entities
+     * are generated with the hibernate generator of their class, the entities
+     * are copied (binary format) in a temporary staging table per class, then
+     * inserted in their table with one INSERT ... SELECT. A
+     * {@link com.gisgraphy.domain.geoloc.entity.event.GisFeatureStoredEvent}
+     * is then sent for each inserted GisFeature and OpenStreetMap, as if they
+     * had been saved with their dao.
+     * <p>
+     * The entities are not attached to the hibernate session and their
+     * collections are not cascaded : the dependent entities (alternate names,
+     * house numbers,...) must be in the list too. The classes are copied in
+     * the order of their first entity in the list, so the entities that are
+     * referenced by others should be first. The collections of the second
+     * level cache are evicted, since they don't contain the inserted rows.
+     * <p>
+     * If the copy fails, the changes done by this method are rolled back (to
+     * a savepoint), the generated ids are removed from the entities and the
+     * transaction can still be used, so the entities can be saved with their
+     * dao.
+     * 
+     * @param entities
+     *                the new entities, they can be of several classes
+     * @return the number of inserted rows
+     */
+    public int copy(List<?> entities);
+
+}
@@ -57,6 +57,51 @@ public interface ICityDao extends IGisDao<City> {
      * return the number of polygons modify
      */
     public int fixPolygons();
+
+    /**
+     * @param countryCode
+     *                the country code of the cities
+     * @return the id, the shape and the municipality flag (in this order) of
+     *         all the cities of the country that have a shape
+     */
+    public List<Object[]> listShapesByCountryCode(String countryCode);
+
+    /**
+     * List the fields of the cities, ordered by id (used to build in memory
+     * indexes : only the fields are read, no entity is loaded in the
+     * session). The pages are read by id (and not by offset), so reading a
+     * page doesn't scan the previous ones
+     * 
+     * @param countryCode
+     *                the country code of the cities
+     * @param afterId
+     *                the id of the last city of the previous page, null for
+     *                the first page
+     * @param maxResults
+     *                the maximum number of results
+     * @return the id, the feature id, the openstreetmap id, the name, the
+     *         shape, the location, the admin centre location, the country
+     *         code, the isInAdm and the adm1 to adm5 names (in this order) of
+     *         the cities
+     */
+    public List<Object[]> listReverseGeocodingFieldsByCountryCode(String countryCode, Long afterId, int maxResults);
+
+    /**
+     * @param fromId
+     *                the smallest id of the features (inclusive)
+     * @param toId
+     *                the greatest id of the features (inclusive)
+     * @return the feature id and the code (in this order) of all the zip
+     *         codes of the features whose id is in the range, ordered by
+     *         feature id
+     */
+    public List<Object[]> listZipCodesByIdRange(Long fromId, Long toId);
+
+    /**
+     * List all the featureId of cities 
+     * @return a list of all featureId for all the cities
+     */
+    public List<Long> listFeatureIds();
   
     
   
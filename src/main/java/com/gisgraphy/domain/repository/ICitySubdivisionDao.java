@@ -51,6 +51,14 @@ public interface ICitySubdivisionDao extends IGisDao<CitySubdivision> {
      * @return the city that the given point belongs by searching by shape. the countrycode is optionnal
      */
     public CitySubdivision getByShape(Point location,final String countryCode);
+
+    /**
+     * @param countryCode
+     *                the country code of the subdivisions
+     * @return the id and the shape (in this order) of all the subdivisions of
+     *         the country that have a shape
+     */
+    public List<Object[]> listShapesByCountryCode(String countryCode);
     
   
 }
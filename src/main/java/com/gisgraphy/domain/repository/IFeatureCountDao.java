@@ -0,0 +1,71 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.domain.repository;
+
+import java.util.List;
+
+import com.gisgraphy.domain.valueobject.CountryCountDto;
+
+/**
+ * Count the rows of the entity tables for all the country codes at once,
+ * instead of one count query per country and per table.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public interface IFeatureCountDao {
+
+    /**
+     * Count the rows of the table of an entity by country code, with one
+     * GROUP BY query (one scan of the table)
+     * 
+     * @param entityClass
+     *                the entity, it must have a countrycode column
+     * @param withShape
+     *                whether the rows with a shape should be counted too, the
+     *                entity must have a shape column
+     * @return the counts of each country code that has at least one row
+     */
+    public List<CountryCountDto> countByCountryCode(Class<?> entityClass, boolean withShape);
+
+    /**
+     * Estimate the rows of the table of an entity by country code, the same
+     * way the postgres planner does : with the number of rows and the most
+     * common values of the country code column in the statistics of the
+     * table (see ANALYZE). It does not read the table, so it is fast but the
+     * counts are only accurate if the statistics are up to date.
+     * <p>
+     * The countries that are not in the most common values get the average
+     * of the other rows, it is returned with a null country code.
+     * 
+     * @param entityClass
+     *                the entity, it must have a countrycode column
+     * @param withShape
+     *                whether the rows with a shape should be estimated too,
+     *                the entity must have a shape column
+     * @return the estimates of the most common country codes, and the one
+     *         of the other country codes (with a null country code). an
+     *         empty list if the table has no statistics
+     */
+    public List<CountryCountDto> estimateCountByCountryCode(Class<?> entityClass, boolean withShape);
+
+}
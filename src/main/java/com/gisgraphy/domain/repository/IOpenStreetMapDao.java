@@ -29,6 +29,7 @@ import com.gisgraphy.domain.valueobject.StreetDistance;
 import com.gisgraphy.street.StreetSearchMode;
 import com.gisgraphy.street.StreetType;
 import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
 
 public interface IOpenStreetMapDao extends IDao<OpenStreetMap, java.lang.Long> {
 
@@ -187,5 +188,62 @@ public interface IOpenStreetMapDao extends IDao<OpenStreetMap, java.lang.Long> {
     public long countByCountryCode(String countryCode);
     
     public long countShapeByCountryCode(String countryCode);
+
+    /**
+     * List the streets whose shape intersects the given bounding box, without
+     * loading the entities (used to build in memory indexes during the
+     * imports)
+     * 
+     * @param boundingBox
+     *                the polygon the shapes should intersect
+     * @return a list of {gid, openstreetmapId, name, countryCode, shape}
+     */
+    public List<Object[]> listStreetShapesInBoundingBox(Polygon boundingBox);
+
+    /**
+     * List the alternate names of the streets that
+     * {@link #listStreetShapesInBoundingBox(Polygon)} returns, without loading
+     * the entities
+     * 
+     * @param boundingBox
+     *                the polygon the shapes of the streets should intersect
+     * @return a list of {gid of the street, alternate name}
+     */
+    public List<Object[]> listStreetAlternateNamesInBoundingBox(Polygon boundingBox);
+
+    /**
+     * Count the streets that {@link #listStreetShapesInBoundingBox(Polygon)}
+     * would return (the bounding boxes of the shapes are used, so it can be a
+     * bit more), to estimate the memory they need before loading them
+     * 
+     * @param boundingBox
+     *                the polygon the shapes should intersect
+     * @return {number of streets, number of points of the shapes, number of
+     *         characters of the names and of the alternate names}
+     */
+    public long[] countStreetShapesInBoundingBox(Polygon boundingBox);
+
+    /**
+     * List the fields of the streets that have a shape, ordered by id (used
+     * to build in memory indexes : only the fields are read, no entity is
+     * loaded in the session). The pages are read by id (and not by offset),
+     * so reading a page doesn't scan the previous ones
+     * 
+     * @param countryCode
+     *                the country code of the streets
+     * @param afterId
+     *                the id of the last street of the previous page, null
+     *                for the first page
+     * @param maxResults
+     *                the maximum number of results
+     * @return the id, the gid, the openstreetmap id, the name, the street
+     *         type, the one way flag, the shape, the location, the country
+     *         code, the isIn, the isInPlace, the isInAdm, the adm1 to adm5
+     *         names, the zip code, the street ref, the length, the lanes, the
+     *         toll flag, the surface, the speed mode, the max speed, the max
+     *         speed backward, the azimuth start and the azimuth end (in this
+     *         order) of the streets
+     */
+    public List<Object[]> listReverseGeocodingFieldsByCountryCode(String countryCode, Long afterId, int maxResults);
     
 }
@@ -52,6 +52,27 @@ public interface ISolRSynchroniser {
      */
     public boolean commit();
 
+    /**
+     * Send the documents that are buffered (when the documents are sent by
+     * batch) or queued (when the documents are sent in background) to the
+     * full text search engine and wait until they are sent, without commit.
+     * It should be called before reading the index.
+     */
+    public void flush();
+
+    /**
+     * @return the number of documents that wait to be sent to the full text
+     *         search engine
+     */
+    public long getIndexingQueueSize();
+
+    /**
+     * @return the time in milliseconds the last sent documents have waited
+     *         before being sent, 0 if the documents are not sent in
+     *         background
+     */
+    public long getIndexingLag();
+
     /**
      * Send a optimize command to the full text search engine
      */
@@ -96,8 +96,13 @@ public class IdGenerator implements IIdGenerator {
 	
 	private AtomicLong openstreetmapGid;
 
+	/**
+	 * Set the ids to the max ones in the database. The ids never decrease, so
+	 * an importer that syncs while an other one is running can not reuse the
+	 * ids that are not committed yet
+	 */
 	@PostConstruct
-	public void sync() {
+	public synchronized void sync() {
 		//order is important
 		initFeatureId();
 		initGid();
@@ -109,7 +114,12 @@ public class IdGenerator implements IIdGenerator {
 		if (maxGidInDatabase<OPENSTREETMAP_GID_NO_CONFLICT){
 			maxGidInDatabase= OPENSTREETMAP_GID_NO_CONFLICT;
 		}
-		openstreetmapGid = new AtomicLong(Math.max(featureId.get(), maxGidInDatabase));
+		long gid = Math.max(featureId.get(), maxGidInDatabase);
+		if (openstreetmapGid == null){
+			openstreetmapGid = new AtomicLong(gid);
+		} else {
+			increaseTo(openstreetmapGid, gid);
+		}
 		
 	}
 
@@ -121,7 +131,21 @@ public class IdGenerator implements IIdGenerator {
 		if(maxFeatureIdInDatabase<FEATUREID_INCREMENT_NO_CONFLICT){
 		    maxFeatureIdInDatabase = FEATUREID_INCREMENT_NO_CONFLICT;
 		}
-		featureId = new AtomicLong(maxFeatureIdInDatabase);
+		if (featureId == null){
+			featureId = new AtomicLong(maxFeatureIdInDatabase);
+		} else {
+			increaseTo(featureId, maxFeatureIdInDatabase);
+		}
+	}
+
+	private void increaseTo(AtomicLong id, long value) {
+		long current;
+		do {
+			current = id.get();
+			if (current >= value){
+				return;
+			}
+		} while (!id.compareAndSet(current, value));
 	}
 
 
@@ -23,6 +23,7 @@
 package com.gisgraphy.domain.repository;
 
 import java.sql.SQLException;
+import java.util.List;
 
 import org.hibernate.HibernateException;
 
@@ -45,6 +46,26 @@ public interface IhouseNumberDao extends IDao<HouseNumber, Long> {
      */
 	 public long countByCountryCode(String countryCode);
 
+	/**
+	 * @param streetId
+	 *            the id of the {@link com.gisgraphy.domain.geoloc.entity.OpenStreetMap}
+	 * @return the id, the number, the name and the location (in this order)
+	 *         of all the house numbers of the street, without loading the
+	 *         {@link HouseNumber} entities
+	 */
+	 public List<Object[]> listPointsByStreetId(Long streetId);
+
+	/**
+	 * @param fromStreetId
+	 *            the smallest street id (inclusive)
+	 * @param toStreetId
+	 *            the greatest street id (inclusive)
+	 * @return the street id, the id, the number, the name and the location
+	 *         (in this order) of all the house numbers of the streets whose
+	 *         id is in the range, ordered by street id
+	 */
+	 public List<Object[]> listPointsByStreetIdRange(Long fromStreetId, Long toStreetId);
+
   
 
 }
@@ -36,6 +36,7 @@ import org.hibernate.FetchMode;
 import org.hibernate.Query;
 import org.hibernate.Session;
 import org.hibernate.criterion.ProjectionList;
+import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -753,4 +754,114 @@ public class OpenStreetMapDao extends GenericDao<OpenStreetMap, Long> implements
 
 
 
+	/* (non-Javadoc)
+	 * @see com.gisgraphy.domain.repository.IOpenStreetMapDao#listStreetShapesInBoundingBox(com.vividsolutions.jts.geom.Polygon)
+	 */
+	public List<Object[]> listStreetShapesInBoundingBox(final Polygon boundingBox) {
+		Assert.notNull(boundingBox);
+		return (List<Object[]>) this.getHibernateTemplate().execute(
+				new HibernateCallback() {
+
+					public Object doInHibernate(Session session)
+							throws PersistenceException {
+						Criteria criteria = session
+								.createCriteria(OpenStreetMap.class);
+						criteria.add(new IntersectsRestriction(OpenStreetMap.SHAPE_COLUMN_NAME, boundingBox));
+						criteria.setProjection(Projections.projectionList()
+								.add(Projections.property("gid"))
+								.add(Projections.property("openstreetmapId"))
+								.add(Projections.property("name"))
+								.add(Projections.property("countryCode"))
+								.add(Projections.property("shape")));
+						return criteria.list();
+					}
+				});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gisgraphy.domain.repository.IOpenStreetMapDao#listStreetAlternateNamesInBoundingBox(com.vividsolutions.jts.geom.Polygon)
+	 */
+	public List<Object[]> listStreetAlternateNamesInBoundingBox(final Polygon boundingBox) {
+		Assert.notNull(boundingBox);
+		return (List<Object[]>) this.getHibernateTemplate().execute(
+				new HibernateCallback() {
+
+					public Object doInHibernate(Session session)
+							throws PersistenceException {
+						String queryString = "select o.gid, a.name from "+AlternateOsmName.class.getSimpleName().toLowerCase()+" a, "
+								+ persistentClass.getSimpleName().toLowerCase()+" o where a.street=o.id and a.name is not null and o."+OpenStreetMap.SHAPE_COLUMN_NAME.toLowerCase()
+								+ " && ST_GeometryFromText('"+boundingBox.toText()+"',"+SRID.WGS84_SRID.getSRID()+")";
+						Query qry = session.createSQLQuery(queryString);
+						return qry.list();
+					}
+				});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gisgraphy.domain.repository.IOpenStreetMapDao#countStreetShapesInBoundingBox(com.vividsolutions.jts.geom.Polygon)
+	 */
+	public long[] countStreetShapesInBoundingBox(final Polygon boundingBox) {
+		Assert.notNull(boundingBox);
+		return (long[]) this.getHibernateTemplate().execute(
+				new HibernateCallback() {
+
+					public Object doInHibernate(Session session)
+							throws PersistenceException {
+						String intersects = " && ST_GeometryFromText('"+boundingBox.toText()+"',"+SRID.WGS84_SRID.getSRID()+")";
+						String queryString = "select count(*), coalesce(sum(st_npoints(o."+OpenStreetMap.SHAPE_COLUMN_NAME.toLowerCase()+")),0), coalesce(sum(length(o.name)),0)"
+								+ " + (select coalesce(sum(length(a.name)),0) from "+AlternateOsmName.class.getSimpleName().toLowerCase()+" a, "
+								+ persistentClass.getSimpleName().toLowerCase()+" s where a.street=s.id and s."+OpenStreetMap.SHAPE_COLUMN_NAME.toLowerCase()+intersects+")"
+								+ " from "+persistentClass.getSimpleName().toLowerCase()+" o where o."+OpenStreetMap.SHAPE_COLUMN_NAME.toLowerCase()
+								+ intersects;
+						Query qry = session.createSQLQuery(queryString);
+						Object[] result = (Object[]) qry.uniqueResult();
+						long[] counts = new long[3];
+						for (int i = 0; i < counts.length; i++) {
+							counts[i] = result[i] == null ? 0 : ((Number) result[i]).longValue();
+						}
+						return counts;
+					}
+				});
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.gisgraphy.domain.repository.IOpenStreetMapDao#listReverseGeocodingFieldsByCountryCode(java.lang.String, java.lang.Long, int)
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Object[]> listReverseGeocodingFieldsByCountryCode(final String countryCode, final Long afterId, final int maxResults) {
+		Assert.notNull(countryCode, "can not list the streets of a null country code");
+		return (List<Object[]>) this.getHibernateTemplate().execute(
+				new HibernateCallback() {
+
+					public Object doInHibernate(Session session)
+							throws PersistenceException {
+						String queryString = "select o.id, o.gid, o.openstreetmapId, o.name, o.streetType, o.oneWay, o.shape, o.location,"
+								+ " o.countryCode, o.isIn, o.isInPlace, o.isInAdm, o.adm1Name, o.adm2Name, o.adm3Name, o.adm4Name, o.adm5Name,"
+								+ " o.zipCode, o.streetRef, o.length, o.lanes, o.toll, o.surface, o.speedMode, o.maxSpeed, o.maxSpeedBackward,"
+								+ " o.azimuthStart, o.azimuthEnd from " + persistentClass.getSimpleName()
+								+ " as o where o.shape is not null and o.countryCode=?";
+						if (afterId != null) {
+							queryString += " and o.id>?";
+						}
+						queryString += " order by o.id";
+
+						Query qry = session.createQuery(queryString);
+						qry.setParameter(0, countryCode.toUpperCase());
+						if (afterId != null) {
+							qry.setParameter(1, afterId);
+						}
+						if (maxResults > 0) {
+							qry.setMaxResults(maxResults);
+						}
+						List<Object[]> results = (List<Object[]>) qry.list();
+						if (results == null) {
+							results = new ArrayList<Object[]>();
+						}
+						return results;
+					}
+				});
+	}
+
 }
@@ -0,0 +1,239 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.domain.repository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Date;
+import java.util.TimeZone;
+
+import com.gisgraphy.domain.valueobject.SRID;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.io.WKBWriter;
+
+/**
+ * Encode rows in the binary format of the PostgreSQL COPY command (see
+ * http://www.postgresql.org/docs/current/static/sql-copy.html). Each value is
+ * written according to the name of the postgres type of its column (
+ * <code>pg_type.typname</code>) : the binary format does not convert the
+ * values, so an int4 column has to receive 4 bytes. The geometries are written
+ * as EWKB, that PostGIS reads in binary mode.
+ * <p>
+ * The rows are kept in memory until {@link #toInputStream()} is called. This
+ * class is not thread safe.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public class PgBinaryCopyWriter {
+
+    /**
+     * The signature of the binary COPY format
+     */
+    static final byte[] SIGNATURE = new byte[] { 'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0 };
+
+    /**
+     * The postgres epoch (2000-01-01 UTC) in milliseconds since the java one
+     */
+    static final long POSTGRES_EPOCH_MILLIS = 946684800000L;
+
+    private static final long MILLIS_PER_DAY = 86400000L;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * 1024);
+
+    private final DataOutputStream out = new DataOutputStream(buffer);
+
+    private final WKBWriter wkbWriter = new WKBWriter(2, true);
+
+    private int rowCount = 0;
+
+    private boolean closed = false;
+
+    /**
+     * Create a writer and write the header of the COPY data
+     */
+    public PgBinaryCopyWriter() {
+	try {
+	    out.write(SIGNATURE);
+	    // flags
+	    out.writeInt(0);
+	    // header extension length
+	    out.writeInt(0);
+	} catch (IOException e) {
+	    throw new IllegalStateException(e);
+	}
+    }
+
+    /**
+     * Start a new row, it must be followed by exactly columnCount values
+     * 
+     * @param columnCount
+     *                the number of columns of the row
+     */
+    public void startRow(int columnCount) {
+	checkNotClosed();
+	try {
+	    out.writeShort(columnCount);
+	} catch (IOException e) {
+	    throw new IllegalStateException(e);
+	}
+	rowCount++;
+    }
+
+    /**
+     * Write a value in the current row
+     * 
+     * @param type
+     *                the name of the postgres type of the column (int8, text,
+     *                geometry,...)
+     * @param value
+     *                the value, can be null. the enums are written with their
+     *                name in the text columns and with their ordinal in the
+     *                numeric ones
+     * @throws IllegalArgumentException
+     *                 if the value can not be written in a column of this type
+     */
+    public void write(String type, Object value) {
+	checkNotClosed();
+	try {
+	    if (value == null) {
+		out.writeInt(-1);
+	    } else if ("int8".equals(type)) {
+		out.writeInt(8);
+		out.writeLong(toNumber(type, value).longValue());
+	    } else if ("int4".equals(type)) {
+		out.writeInt(4);
+		out.writeInt(toNumber(type, value).intValue());
+	    } else if ("int2".equals(type)) {
+		out.writeInt(2);
+		out.writeShort(toNumber(type, value).shortValue());
+	    } else if ("float8".equals(type)) {
+		out.writeInt(8);
+		out.writeDouble(toNumber(type, value).doubleValue());
+	    } else if ("float4".equals(type)) {
+		out.writeInt(4);
+		out.writeFloat(toNumber(type, value).floatValue());
+	    } else if ("bool".equals(type)) {
+		out.writeInt(1);
+		out.writeByte(((Boolean) cast(type, value, Boolean.class)) ? 1 : 0);
+	    } else if ("text".equals(type) || "varchar".equals(type) || "bpchar".equals(type)) {
+		String text = value instanceof Enum<?> ? ((Enum<?>) value).name() : value.toString();
+		writeBytes(removeNulCharacters(text).getBytes(UTF8));
+	    } else if ("geometry".equals(type)) {
+		Geometry geometry = (Geometry) cast(type, value, Geometry.class);
+		if (geometry.getSRID() == 0) {
+		    geometry = (Geometry) geometry.clone();
+		    geometry.setSRID(SRID.WGS84_SRID.getSRID());
+		}
+		writeBytes(wkbWriter.write(geometry));
+	    } else if ("timestamp".equals(type)) {
+		long millis = ((Date) cast(type, value, Date.class)).getTime();
+		out.writeInt(8);
+		out.writeLong((millis + TimeZone.getDefault().getOffset(millis) - POSTGRES_EPOCH_MILLIS) * 1000);
+	    } else if ("timestamptz".equals(type)) {
+		long millis = ((Date) cast(type, value, Date.class)).getTime();
+		out.writeInt(8);
+		out.writeLong((millis - POSTGRES_EPOCH_MILLIS) * 1000);
+	    } else if ("date".equals(type)) {
+		long millis = ((Date) cast(type, value, Date.class)).getTime();
+		long localMillis = millis + TimeZone.getDefault().getOffset(millis) - POSTGRES_EPOCH_MILLIS;
+		out.writeInt(4);
+		out.writeInt((int) Math.floor((double) localMillis / MILLIS_PER_DAY));
+	    } else if ("bytea".equals(type)) {
+		writeBytes((byte[]) cast(type, value, byte[].class));
+	    } else {
+		throw new IllegalArgumentException("can not copy a value in a column of type " + type);
+	    }
+	} catch (IOException e) {
+	    throw new IllegalStateException(e);
+	}
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+	out.writeInt(bytes.length);
+	out.write(bytes);
+    }
+
+    private static Number toNumber(String type, Object value) {
+	if (value instanceof Enum<?>) {
+	    return ((Enum<?>) value).ordinal();
+	}
+	return (Number) cast(type, value, Number.class);
+    }
+
+    private static Object cast(String type, Object value, Class<?> expectedClass) {
+	if (!expectedClass.isInstance(value)) {
+	    throw new IllegalArgumentException("can not copy a " + value.getClass().getSimpleName()
+		    + " in a column of type " + type);
+	}
+	return value;
+    }
+
+    /**
+     * postgres does not accept the NUL character in the text values
+     */
+    private static String removeNulCharacters(String text) {
+	if (text.indexOf('\u0000') == -1) {
+	    return text;
+	}
+	return text.replace("\u0000", "");
+    }
+
+    private void checkNotClosed() {
+	if (closed) {
+	    throw new IllegalStateException("The data has already been sent");
+	}
+    }
+
+    /**
+     * @return the number of rows that have been started
+     */
+    public int getRowCount() {
+	return rowCount;
+    }
+
+    /**
+     * Write the trailer of the COPY data, no more row can be added after this
+     * call
+     * 
+     * @return the COPY data, to give to the COPY FROM STDIN command
+     */
+    public InputStream toInputStream() {
+	if (!closed) {
+	    try {
+		out.writeShort(-1);
+		out.flush();
+	    } catch (IOException e) {
+		throw new IllegalStateException(e);
+	    }
+	    closed = true;
+	}
+	return new ByteArrayInputStream(buffer.toByteArray());
+    }
+
+}
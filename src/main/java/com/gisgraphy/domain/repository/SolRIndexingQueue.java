@@ -0,0 +1,279 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.domain.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.solr.common.SolrInputDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gisgraphy.geoloc.GisgraphyCommunicationException;
+
+/**
+ * A bounded queue of SolR documents that are sent in background by
+ * indexing threads, so the threads that save the features don't wait for
+ * SolR. Each indexing thread has its own lane and the documents of a same
+ * feature always go to the same lane, so the updates of a feature are sent
+ * in order. When a lane is full, {@link #put(long, SolrInputDocument)} blocks
+ * until there is some room (back-pressure).
+ * 
+ * @see SolRSynchroniser#setIndexingThreads(int)
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public class SolRIndexingQueue {
+
+    /**
+     * send a batch of documents to SolR
+     */
+    public interface BatchSender {
+	/**
+	 * @param batch
+	 *            the documents to send
+	 * @throws Exception
+	 *             if the documents can not be sent
+	 */
+	void send(List<SolrInputDocument> batch) throws Exception;
+    }
+
+    private static class QueuedDocument {
+	private final SolrInputDocument document;
+	private final long enqueuedTime;
+
+	QueuedDocument(SolrInputDocument document) {
+	    this.document = document;
+	    this.enqueuedTime = System.currentTimeMillis();
+	}
+    }
+
+    protected static final Logger logger = LoggerFactory
+	    .getLogger(SolRIndexingQueue.class);
+
+    private final List<BlockingQueue<QueuedDocument>> lanes;
+
+    private final ExecutorService executor;
+
+    private final int batchSize;
+
+    private final BatchSender sender;
+
+    /**
+     * the number of documents that are queued or being sent
+     */
+    private final AtomicLong pending = new AtomicLong();
+
+    private final AtomicLong indexed = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private volatile long lag = 0;
+
+    private volatile Exception lastError = null;
+
+    private volatile boolean stopped = false;
+
+    private final Object drainLock = new Object();
+
+    /**
+     * @param indexingThreads
+     *            the number of threads that send the documents
+     * @param capacity
+     *            the max number of documents that can be queued
+     * @param batchSize
+     *            the max number of documents sent at once
+     * @param sender
+     *            the object that send the documents
+     */
+    public SolRIndexingQueue(int indexingThreads, int capacity, int batchSize, BatchSender sender) {
+	if (indexingThreads <= 0) {
+	    throw new IllegalArgumentException("indexingThreads should be > 0");
+	}
+	this.batchSize = Math.max(batchSize, 1);
+	this.sender = sender;
+	int laneCapacity = Math.max(capacity / indexingThreads, 1);
+	lanes = new ArrayList<BlockingQueue<QueuedDocument>>(indexingThreads);
+	final AtomicInteger threadNumber = new AtomicInteger();
+	executor = Executors.newFixedThreadPool(indexingThreads, new ThreadFactory() {
+	    public Thread newThread(Runnable runnable) {
+		Thread thread = new Thread(runnable, "solr-indexing-" + threadNumber.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	    }
+	});
+	for (int i = 0; i < indexingThreads; i++) {
+	    final BlockingQueue<QueuedDocument> lane = new ArrayBlockingQueue<QueuedDocument>(laneCapacity);
+	    lanes.add(lane);
+	    executor.execute(new Runnable() {
+		public void run() {
+		    processLane(lane);
+		}
+	    });
+	}
+    }
+
+    /**
+     * Queue a document, wait if the queue is full
+     * 
+     * @param partitionKey
+     *            the documents with the same key are sent in the order they
+     *            are queued (typically the featureId)
+     * @param document
+     *            the document to send
+     * @throws InterruptedException
+     *             if the thread is interrupted while it waits for some room
+     */
+    public void put(long partitionKey, SolrInputDocument document) throws InterruptedException {
+	if (stopped) {
+	    throw new IllegalStateException("the indexing queue is stopped");
+	}
+	int laneIndex = (int) ((partitionKey & Long.MAX_VALUE) % lanes.size());
+	pending.incrementAndGet();
+	try {
+	    lanes.get(laneIndex).put(new QueuedDocument(document));
+	} catch (InterruptedException e) {
+	    documentsDone(1);
+	    throw e;
+	}
+    }
+
+    private void processLane(BlockingQueue<QueuedDocument> lane) {
+	List<QueuedDocument> batch = new ArrayList<QueuedDocument>(batchSize);
+	while (!stopped || !lane.isEmpty()) {
+	    try {
+		QueuedDocument first = lane.poll(1, TimeUnit.SECONDS);
+		if (first == null) {
+		    continue;
+		}
+		batch.add(first);
+		lane.drainTo(batch, batchSize - 1);
+		List<SolrInputDocument> documents = new ArrayList<SolrInputDocument>(batch.size());
+		for (QueuedDocument queued : batch) {
+		    documents.add(queued.document);
+		}
+		try {
+		    sender.send(documents);
+		    indexed.addAndGet(documents.size());
+		} catch (Exception e) {
+		    failed.addAndGet(documents.size());
+		    lastError = e;
+		    logger.error("Can not index a batch of " + documents.size() + " documents : " + e.getMessage(), e);
+		}
+		lag = System.currentTimeMillis() - first.enqueuedTime;
+		documentsDone(batch.size());
+		batch.clear();
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+		return;
+	    }
+	}
+    }
+
+    private void documentsDone(int count) {
+	if (pending.addAndGet(-count) == 0) {
+	    synchronized (drainLock) {
+		drainLock.notifyAll();
+	    }
+	}
+    }
+
+    /**
+     * Wait until all the queued documents are sent
+     * 
+     * @throws GisgraphyCommunicationException
+     *             if some documents could not be sent since the last drain
+     */
+    public void drain() {
+	synchronized (drainLock) {
+	    while (pending.get() > 0) {
+		try {
+		    drainLock.wait(1000);
+		} catch (InterruptedException e) {
+		    Thread.currentThread().interrupt();
+		    throw new GisgraphyCommunicationException("interrupted while waiting for the indexing queue", e);
+		}
+	    }
+	}
+	Exception error = lastError;
+	if (error != null) {
+	    lastError = null;
+	    throw new GisgraphyCommunicationException("Some documents could not be indexed (" + failed.get() + " failed documents since startup) : " + error.getMessage(), error);
+	}
+    }
+
+    /**
+     * Send the queued documents and stop the indexing threads
+     */
+    public void shutdown() {
+	stopped = true;
+	executor.shutdown();
+	try {
+	    if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+		logger.error("the indexing queue is not empty after 60 seconds, " + pending.get() + " documents are not indexed");
+		executor.shutdownNow();
+	    }
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    executor.shutdownNow();
+	}
+    }
+
+    /**
+     * @return the number of documents that are queued or being sent
+     */
+    public long getSize() {
+	return pending.get();
+    }
+
+    /**
+     * @return the time in milliseconds the last sent batch has waited in the
+     *         queue
+     */
+    public long getLag() {
+	return lag;
+    }
+
+    /**
+     * @return the number of documents sent since the queue has been created
+     */
+    public long getIndexedCount() {
+	return indexed.get();
+    }
+
+    /**
+     * @return the number of documents that could not be sent since the queue
+     *         has been created
+     */
+    public long getFailedCount() {
+	return failed.get();
+    }
+
+}
@@ -30,6 +30,13 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.apache.solr.common.SolrInputDocument;
 import org.slf4j.Logger;
@@ -59,7 +66,10 @@ import com.gisgraphy.geoloc.GisgraphyCommunicationException;
 import com.gisgraphy.helper.ClassNameHelper;
 import com.gisgraphy.helper.EncodingHelper;
 import com.gisgraphy.helper.RetryOnErrorTemplate;
+import com.gisgraphy.street.HouseNumberPacker;
 import com.gisgraphy.street.HouseNumberSerializer;
+import com.gisgraphy.street.HouseNumbersEncoding;
+import com.gisgraphy.street.PackedHouseNumbers;
 
 /**
  * Interface of data access object for {@link Language}
@@ -70,12 +80,51 @@ import com.gisgraphy.street.HouseNumberSerializer;
 public class SolRSynchroniser implements ISolRSynchroniser {
 	
 	HouseNumberSerializer houseNumberListSerializer = new HouseNumberSerializer();
+	HouseNumberPacker houseNumberPacker = new HouseNumberPacker();
 	Decompounder decompounder = new Decompounder();
 	
 	
 	
     private static int numberOfRetryOnFailure = 3;
 
+    /**
+     * Default value for {@link #setBatchSize(int)}, 1 means that the
+     * documents are sent one by one
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1;
+
+    /**
+     * Default value for {@link #setMaxBatchAge(long)}
+     */
+    public static final long DEFAULT_MAX_BATCH_AGE = 5000;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private long maxBatchAge = DEFAULT_MAX_BATCH_AGE;
+
+    private HouseNumbersEncoding houseNumbersEncoding = HouseNumbersEncoding.LEGACY;
+
+    private List<SolrInputDocument> buffer = new ArrayList<SolrInputDocument>();
+
+    private long oldestBufferedDocumentTime = 0;
+
+    private final Object bufferLock = new Object();
+
+    private final Object flushLock = new Object();
+
+    private ScheduledExecutorService flusher;
+
+    /**
+     * Default value for {@link #setIndexingQueueCapacity(int)}
+     */
+    public static final int DEFAULT_INDEXING_QUEUE_CAPACITY = 10000;
+
+    private int indexingThreads = 0;
+
+    private int indexingQueueCapacity = DEFAULT_INDEXING_QUEUE_CAPACITY;
+
+    private SolRIndexingQueue indexingQueue;
+
     /**
      * Needed by cglib
      */
@@ -100,6 +149,7 @@ public class SolRSynchroniser implements ISolRSynchroniser {
      * @param gisFeatureEvent
      */
     private void handleEvent(final GisFeatureDeletedEvent gisFeatureEvent) {
+	flush();
 	try {
 	    RetryOnErrorTemplate<Object> retryOnError = new RetryOnErrorTemplate<Object>() {
 		    @Override
@@ -125,6 +175,7 @@ public class SolRSynchroniser implements ISolRSynchroniser {
      * @see com.gisgraphy.domain.repository.ISolRSynchroniser#deleteAll()
      */
     public void deleteAll() {
+	flush();
 	try {
 	    RetryOnErrorTemplate<Object> retryOnError = new RetryOnErrorTemplate<Object>() {
 		    @Override
@@ -155,6 +206,7 @@ public class SolRSynchroniser implements ISolRSynchroniser {
     }
 
     public void deleteAllByPlaceType(final Class<? extends GisFeature> placetype) {
+	flush();
 	try {
 	    RetryOnErrorTemplate<Object> retryOnError = new RetryOnErrorTemplate<Object>() {
 		    @Override
@@ -179,6 +231,7 @@ public class SolRSynchroniser implements ISolRSynchroniser {
     }
 
     private void handleEvent(final GisFeatureDeleteAllEvent gisFeatureDeleteAllEvent) {
+	flush();
 	try {
 	    RetryOnErrorTemplate<Object> retryOnError = new RetryOnErrorTemplate<Object>() {
 		    @Override
@@ -227,6 +280,12 @@ public class SolRSynchroniser implements ISolRSynchroniser {
      * @see com.gisgraphy.domain.repository.ISolRSynchroniser#commit()
      */
     public boolean commit() {
+	try {
+	    flush();
+	} catch (GisgraphyCommunicationException e) {
+	    logger.error("Can not synchronise SolR : can not send the buffered documents before commit ",e.getCause());
+	    return false;
+	}
 	try {
 	    RetryOnErrorTemplate<Boolean> retryOnError = new RetryOnErrorTemplate<Boolean>() {
 		    @Override
@@ -251,6 +310,7 @@ public class SolRSynchroniser implements ISolRSynchroniser {
      * @see com.gisgraphy.domain.repository.ISolRSynchroniser#optimize()
      */
     public void optimize() {
+	flush();
 	try {
 	    RetryOnErrorTemplate<Boolean> retryOnError = new RetryOnErrorTemplate<Boolean>() {
 		    @Override
@@ -269,22 +329,210 @@ public class SolRSynchroniser implements ISolRSynchroniser {
     }
 
     private void handleEvent(final GisFeatureStoredEvent gisfeatureCreatedEventEvent) {
+	final SolrInputDocument document;
+	try {
+	    document = createDocument(gisfeatureCreatedEventEvent.getGisFeature());
+	} catch (RuntimeException e) {
+	    throw new GisgraphyCommunicationException("Can not synchronise SolR : can not create the document for "+gisfeatureCreatedEventEvent.getGisFeature()+":" +e,e);
+	}
+	if (document == null) {
+	    return;
+	}
+	if (indexingQueue != null) {
+	    try {
+		indexingQueue.put(gisfeatureCreatedEventEvent.getGisFeature().getFeatureId(), document);
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+		throw new GisgraphyCommunicationException("Can not synchronise SolR : interrupted while queuing "+gisfeatureCreatedEventEvent.getGisFeature(),e);
+	    }
+	    return;
+	}
+	if (batchSize > 1) {
+	    addToBuffer(document);
+	    return;
+	}
 	try {
 	    RetryOnErrorTemplate<Boolean> retryOnError = new RetryOnErrorTemplate<Boolean>() {
 		    @Override
 		    public Boolean tryThat() throws Exception {
+			solClient.getServer().add(document);
+			return true;
+		    }
+		};
+		retryOnError.setLoggingSentence("Synchronise SolR : Add feature with id "+gisfeatureCreatedEventEvent.getGisFeature());
+		retryOnError.times(numberOfRetryOnFailure);
+	    
+	    
+	} catch (Exception e) {
+	  throw new GisgraphyCommunicationException("Can not synchronise SolR : can not synchronize  "+gisfeatureCreatedEventEvent.getGisFeature()+":" +e,e.getCause());
+	}
+    }
+
+    /**
+     * Add a document to the buffer and send the buffer if it is full
+     */
+    private void addToBuffer(SolrInputDocument document) {
+	boolean full;
+	synchronized (bufferLock) {
+	    if (buffer.isEmpty()) {
+		oldestBufferedDocumentTime = System.currentTimeMillis();
+	    }
+	    buffer.add(document);
+	    full = buffer.size() >= batchSize;
+	}
+	if (full) {
+	    flush();
+	}
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.ISolRSynchroniser#flush()
+     */
+    public void flush() {
+	if (indexingQueue != null) {
+	    indexingQueue.drain();
+	    return;
+	}
+	// the batches are taken and sent one after the other to keep the
+	// order of the updates of a same feature : a batch can not be sent
+	// before the batch taken before it
+	synchronized (flushLock) {
+	    final List<SolrInputDocument> batch;
+	    synchronized (bufferLock) {
+		if (buffer.isEmpty()) {
+		    return;
+		}
+		batch = buffer;
+		buffer = new ArrayList<SolrInputDocument>(batchSize);
+	    }
+	    try {
+		sendBatch(batch);
+	    } catch (Exception e) {
+		throw new GisgraphyCommunicationException("Can not synchronise SolR : can not add a batch of " + batch.size() + " features : " + e, e.getCause());
+	    }
+	}
+    }
+
+    private void sendBatch(final List<SolrInputDocument> batch) throws Exception {
+	RetryOnErrorTemplate<Boolean> retryOnError = new RetryOnErrorTemplate<Boolean>() {
+	    @Override
+	    public Boolean tryThat() throws Exception {
+		solClient.getServer().add(batch);
+		return true;
+	    }
+	};
+	retryOnError.setLoggingSentence("Synchronise SolR : Add a batch of " + batch.size() + " features");
+	retryOnError.times(numberOfRetryOnFailure);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.ISolRSynchroniser#getIndexingQueueSize()
+     */
+    public long getIndexingQueueSize() {
+	if (indexingQueue != null) {
+	    return indexingQueue.getSize();
+	}
+	synchronized (bufferLock) {
+	    return buffer.size();
+	}
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.ISolRSynchroniser#getIndexingLag()
+     */
+    public long getIndexingLag() {
+	return indexingQueue == null ? 0 : indexingQueue.getLag();
+    }
+
+    /**
+     * Send the buffer if the oldest buffered document is older than
+     * {@link #setMaxBatchAge(long)}. it is called periodically when the
+     * documents are sent by batch
+     */
+    protected void flushIfTooOld() {
+	boolean tooOld;
+	synchronized (bufferLock) {
+	    tooOld = !buffer.isEmpty() && System.currentTimeMillis() - oldestBufferedDocumentTime >= maxBatchAge;
+	}
+	if (tooOld) {
+	    try {
+		flush();
+	    } catch (RuntimeException e) {
+		logger.error("Can not send the buffered documents to SolR : " + e.getMessage(), e);
+	    }
+	}
+    }
+
+    /**
+     * Start the thread that sends the buffered documents when they are too
+     * old
+     */
+    @PostConstruct
+    public void init() {
+	if (indexingThreads > 0 && indexingQueue == null) {
+	    logger.info("SolR documents will be sent in background by " + indexingThreads + " threads");
+	    indexingQueue = new SolRIndexingQueue(indexingThreads, indexingQueueCapacity, batchSize, new SolRIndexingQueue.BatchSender() {
+		public void send(List<SolrInputDocument> batch) throws Exception {
+		    sendBatch(batch);
+		}
+	    });
+	} else if (batchSize > 1 && flusher == null) {
+	    logger.info("SolR documents will be sent by batch of " + batchSize + " documents or every " + maxBatchAge + " ms");
+	    flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable runnable) {
+		    Thread thread = new Thread(runnable, "solr-batch-flusher");
+		    thread.setDaemon(true);
+		    return thread;
+		}
+	    });
+	    flusher.scheduleWithFixedDelay(new Runnable() {
+		public void run() {
+		    flushIfTooOld();
+		}
+	    }, maxBatchAge, maxBatchAge, TimeUnit.MILLISECONDS);
+	}
+    }
+
+    /**
+     * Stop the flusher thread and send the buffered documents
+     */
+    @PreDestroy
+    public void destroy() {
+	if (flusher != null) {
+	    flusher.shutdown();
+	    flusher = null;
+	}
+	if (indexingQueue != null) {
+	    indexingQueue.shutdown();
+	    indexingQueue = null;
+	}
+	flush();
+    }
+
+    /**
+     * @param gisFeature
+     *            the feature to index
+     * @return the solr document for the specified feature or null if it can
+     *         not or should not be indexed
+     */
+    protected SolrInputDocument createDocument(GisFeature gisFeature) {
 			SolrInputDocument ex = new SolrInputDocument();
-			GisFeature gisFeature = gisfeatureCreatedEventEvent.getGisFeature();
 
 			if (gisFeature == null) {
 			    logger.info("Can not synchronize a null gisFeature");
-			    return false;
+			    return null;
 			}
 			if (gisFeature.getFeatureId() == null || gisFeature.getFeatureId() <= 0) {
 			    logger
 				    .info("Can not synchronize GisFeature with wrong featureId : "
 					    + gisFeature.getFeatureId());
-			    return false;
+			    return null;
 			}
 
 			if (gisFeature.getLatitude() == 0 && gisFeature.getLongitude() == 0) {
@@ -292,14 +540,14 @@ public class SolRSynchroniser implements ISolRSynchroniser {
 				    + gisFeature.getFeatureId() + " with wrong Location "
 				    + gisFeature.getName() + ": [" + gisFeature.getLongitude()
 				    + "," + gisFeature.getLatitude() + "]");
-			    return false;
+			    return null;
 			}
 			
 			
 			if (!gisFeature.isFullTextSearchable()) {
 			    logger.debug(gisFeature.getClass().getSimpleName()
 				    + " is not FullTextSearchable");
-			    return false;
+			    return null;
 			}
 
 			ex.setField(FullTextFields.FEATUREID.getValue(), gisFeature
@@ -384,12 +632,24 @@ public class SolRSynchroniser implements ISolRSynchroniser {
 		    	if (houseNumbersFromEntity!=null && houseNumbersFromEntity.size()!=0){
 			    	//SortedSet<HouseNumber> houseNumbers = new TreeSet<HouseNumber>(houseNumberComparator);
 					//houseNumbers.addAll(houseNumbersFromEntity);
+					boolean packingFailed = false;
+					if (houseNumbersEncoding.writePacked()){
+						try {
+							ex.setField(PackedHouseNumbers.FIELD_NAME, houseNumberPacker.packToBase64(houseNumbersFromEntity));
+						} catch (IllegalArgumentException e) {
+							//the readers use the legacy field when there is no packed one
+							logger.warn("The house numbers of street " + gisFeature.getFeatureId() + " are stored in the legacy format : " + e.getMessage());
+							packingFailed = true;
+						}
+					}
+					if (houseNumbersEncoding.writeLegacy() || packingFailed){
 						 List<String> houseNumbersToAdd= new ArrayList<String>();
 						// Collections.sort(houseNumbers,houseNumberComparator);
 			    		for (HouseNumber houseNumber:houseNumbersFromEntity){
 			    			houseNumbersToAdd.add(houseNumberListSerializer.serialize(houseNumber));
 			    		}
 			    		ex.setField(FullTextFields.HOUSE_NUMBERS.getValue(),houseNumbersToAdd );
+					}
 		    	}
 				populateAlternateNamesForStreet(gisFeature.getAlternateNames(),ex);
 				ex.setField(FullTextFields.ADM1NAME.getValue(), gisFeature.getAdm1Name());
@@ -542,19 +802,72 @@ public class SolRSynchroniser implements ISolRSynchroniser {
 				}
 			}
 			}
-			solClient.getServer().add(ex);
-			return true;
-		    }
-		};
-		retryOnError.setLoggingSentence("Synchronise SolR : Add feature with id "+gisfeatureCreatedEventEvent.getGisFeature());
-		retryOnError.times(numberOfRetryOnFailure);
-	    
-	    
-	} catch (Exception e) {
-	  throw new GisgraphyCommunicationException("Can not synchronise SolR : can not synchronize  "+gisfeatureCreatedEventEvent.getGisFeature()+":" +e,e.getCause());
-	}
+			return ex;
     }
     
+    /**
+     * @param batchSize
+     *            the number of documents that are sent to SolR at once.
+     *            Default to {@link #DEFAULT_BATCH_SIZE} : the documents are
+     *            sent one by one. The buffered documents are sent when the
+     *            buffer is full, when they are older than
+     *            {@link #setMaxBatchAge(long)}, and before any commit,
+     *            optimize or delete
+     */
+    public void setBatchSize(int batchSize) {
+	this.batchSize = batchSize;
+    }
+
+    /**
+     * @param maxBatchAge
+     *            the max time in milliseconds a document can be buffered
+     *            before it is sent to SolR. Default to
+     *            {@link #DEFAULT_MAX_BATCH_AGE}
+     * @see #setBatchSize(int)
+     */
+    public void setMaxBatchAge(long maxBatchAge) {
+	if (maxBatchAge <= 0) {
+	    throw new IllegalArgumentException("maxBatchAge should be > 0");
+	}
+	this.maxBatchAge = maxBatchAge;
+    }
+
+    /**
+     * @param indexingThreads
+     *            the number of threads that send the documents to SolR in
+     *            background. The documents are still created by the thread
+     *            that saves the feature (they need the hibernate session) but
+     *            they are sent by the indexing threads, so the saves don't
+     *            wait for SolR. 0 (the default) to send them in the thread
+     *            that saves the feature. {@link #flush()} waits until all
+     *            the queued documents are sent, it is called before commit,
+     *            optimize and deletes
+     */
+    public void setIndexingThreads(int indexingThreads) {
+	this.indexingThreads = indexingThreads;
+    }
+
+    /**
+     * @param indexingQueueCapacity
+     *            the max number of documents that wait to be sent when
+     *            {@link #setIndexingThreads(int)} is greater than 0. When the
+     *            queue is full, the saves wait. Default to
+     *            {@link #DEFAULT_INDEXING_QUEUE_CAPACITY}
+     */
+    public void setIndexingQueueCapacity(int indexingQueueCapacity) {
+	this.indexingQueueCapacity = indexingQueueCapacity;
+    }
+
+    /**
+     * @param houseNumbersEncoding
+     *            how the house numbers of the streets are indexed : legacy,
+     *            packed or both (case insensitive). Default to legacy
+     * @see HouseNumbersEncoding
+     */
+    public void setHouseNumbersEncoding(String houseNumbersEncoding) {
+	this.houseNumbersEncoding = HouseNumbersEncoding.valueOf(houseNumbersEncoding.trim().toUpperCase());
+    }
+
     //Same as gisfeature but ignore language 
     private void populateAlternateNamesForStreet(Collection<AlternateName> alternateNames, SolrInputDocument ex) {
     	if (alternateNames == null || alternateNames.size() == 0) {
@@ -0,0 +1,86 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.domain.valueobject;
+
+/**
+ * The number of rows of a table for a country code, and how many of them
+ * have a shape
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public class CountryCountDto {
+
+    private final String countryCode;
+
+    private final long count;
+
+    private final long shapeCount;
+
+    /**
+     * @param countryCode
+     *                The country code, null for the estimate of each country
+     *                that has no count of its own
+     * @param count
+     *                The number of rows
+     * @param shapeCount
+     *                The number of rows with a shape
+     */
+    public CountryCountDto(String countryCode, long count, long shapeCount) {
+	this.countryCode = countryCode;
+	this.count = count;
+	this.shapeCount = shapeCount;
+    }
+
+    /**
+     * @return the country code, null for the estimate of each country that
+     *         has no count of its own
+     */
+    public String getCountryCode() {
+	return countryCode;
+    }
+
+    /**
+     * @return the number of rows
+     */
+    public long getCount() {
+	return count;
+    }
+
+    /**
+     * @return the number of rows with a shape
+     */
+    public long getShapeCount() {
+	return shapeCount;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+	return countryCode + "=" + count + "(" + shapeCount + " shapes)";
+    }
+
+}
@@ -26,17 +26,15 @@ import static com.gisgraphy.helper.StringHelper.isEmptyString;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
-import java.net.MalformedURLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
-import org.apache.commons.httpclient.HttpClient;
 import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
-import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
 import org.apache.solr.client.solrj.SolrServerException;
-import org.apache.solr.client.solrj.impl.CommonsHttpSolrServer;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.params.ModifiableSolrParams;
@@ -55,18 +53,23 @@ import com.gisgraphy.domain.repository.GisFeatureDao;
 import com.gisgraphy.domain.valueobject.Constants;
 import com.gisgraphy.domain.valueobject.HouseNumberAddressDto;
 import com.gisgraphy.fulltext.suggest.GisgraphySearchEntry;
+import com.gisgraphy.fulltext.suggest.ISearchEntryFilter;
 import com.gisgraphy.fulltext.suggest.GisgraphySearchResponse;
 import com.gisgraphy.fulltext.suggest.GisgraphySearchResponseHeader;
 import com.gisgraphy.fulltext.suggest.GisgraphySearchResult;
+import com.gisgraphy.fulltext.suggest.SuggestFeedStreamer;
 import com.gisgraphy.geocoding.GeocodingHelper;
 import com.gisgraphy.geoloc.ZipcodeNormalizer;
 import com.gisgraphy.helper.CountryInfo;
 import com.gisgraphy.helper.GeolocHelper;
 import com.gisgraphy.service.IStatsUsageService;
 import com.gisgraphy.service.ServiceException;
+import com.gisgraphy.stats.LatencyStats;
 import com.gisgraphy.stats.StatsUsageType;
 import com.gisgraphy.street.HouseNumberDeserializer;
 import com.gisgraphy.street.HouseNumberDto;
+import com.gisgraphy.street.HouseNumberSerializer;
+import com.gisgraphy.street.PackedHouseNumbers;
 import com.vividsolutions.jts.geom.Point;
 
 /**
@@ -86,15 +89,19 @@ public class FullTextSearchEngine implements IFullTextSearchEngine {
 	protected static final Logger logger = LoggerFactory
 			.getLogger(FullTextSearchEngine.class);
 
-	private HttpClient httpClient;
-
 	private IsolrClient solrClient;
 
 	FulltextResultDtoBuilder builder = new FulltextResultDtoBuilder();
 	HouseNumberDeserializer houseNumberDeserializer = new HouseNumberDeserializer();
 
+	HouseNumberSerializer houseNumberSerializer = new HouseNumberSerializer();
+
 	private ObjectMapper mapper = new ObjectMapper();
 
+	private SuggestFeedStreamer suggestFeedStreamer = new SuggestFeedStreamer(mapper);
+
+	private LatencyStats latencyStats = LatencyStats.getInstance();
+
 	@Autowired
 	@Qualifier("gisFeatureDao")
 	private GisFeatureDao gisFeatureDao;
@@ -125,16 +132,6 @@ public class FullTextSearchEngine implements IFullTextSearchEngine {
 					throws FullTextSearchException {
 		Assert.notNull(multiThreadedHttpConnectionManager,
 				"multiThreadedHttpConnectionManager can not be null");
-		HttpConnectionManagerParams p = new HttpConnectionManagerParams();
-		p.setSoTimeout(0);
-		p.setConnectionTimeout(0);
-		multiThreadedHttpConnectionManager.setParams(p);
-		this.httpClient = new HttpClient(multiThreadedHttpConnectionManager);
-		if (this.httpClient == null) {
-			throw new FullTextSearchException(
-					"Can not instanciate http client with multiThreadedHttpConnectionManager : "
-							+ multiThreadedHttpConnectionManager);
-		}
 	}
 
 	/*
@@ -145,6 +142,16 @@ public class FullTextSearchEngine implements IFullTextSearchEngine {
 	 */
 	public void executeAndSerialize(FulltextQuery query,
 			OutputStream outputStream) throws FullTextSearchException {
+		long start = System.nanoTime();
+		try {
+			executeAndSerializeWithSuggest(query, outputStream);
+		} finally {
+			latencyStats.record(StatsUsageType.FULLTEXT, LatencyStats.TOTAL, start);
+		}
+	}
+
+	private void executeAndSerializeWithSuggest(FulltextQuery query,
+			OutputStream outputStream) throws FullTextSearchException {
 		statsUsageService.increaseUsage(StatsUsageType.FULLTEXT);
 		Assert.notNull(query, "Can not execute a null query");
 		Assert.notNull(outputStream,
@@ -156,29 +163,22 @@ public class FullTextSearchEngine implements IFullTextSearchEngine {
 			if (dto !=null && dto.getHouseNumber()!=null){
 				if (!dto.getAddressWithoutHouseNumber().trim().isEmpty()){
 					query.withQuery(dto.getAddressWithoutHouseNumber());
-					try {
-						ByteArrayOutputStream outputStreamString = new ByteArrayOutputStream();
-						doExecuteAndSerialize(query, outputStreamString);
-						String feed  = outputStreamString.toString(Constants.CHARSET);
-						//	String feed = executeQueryToString(query);
-						GisgraphySearchResult feedAsObj = mapper.readValue(feed, GisgraphySearchResult.class);
-						/*for (GisgraphySearchEntry entry:feedAsObj.getResponse().getDocs()){
-							logger.error(entry.toString());
-						}*/
-						feedAsObj = updateFeed(feedAsObj,dto.getHouseNumber());
-						//logger.debug("----------------------------------------------------------------------------------------");
-						/*for (GisgraphySearchEntry entry:feedAsObj.getResponse().getDocs()){
-							logger.error(entry.toString());
-						}*/
-						mapper.writeValue(outputStream, feedAsObj);
-						return;
-					} catch (Exception e) {
-						String message = e.getCause()!=null?e.getCause().getMessage():e.getMessage();
-						logger
-						.error("An error has occurred during suggest search of query "
-								+ query + " : " + message,e);
-						throw new FullTextSearchException(message,e);
-					}
+					//the response is rewritten into the output stream while it
+					//is received (see updateFeed for the rules), without being
+					//read as objects. An error that is found before the first
+					//byte is written (an error of the fulltext engine, a response
+					//that is not valid) is thrown with nothing written, so that
+					//the servlet can send the error status
+					final HouseNumberEntryFilter filter = new HouseNumberEntryFilter(dto.getHouseNumber());
+					final OutputStream rewrittenResponse = outputStream;
+					doExecuteAndProcess(query, new IResponseStreamHandler() {
+						public void handle(InputStream inputStream, String encoding) throws IOException {
+							long start = System.nanoTime();
+							suggestFeedStreamer.stream(inputStream, rewrittenResponse, filter);
+							latencyStats.record(StatsUsageType.FULLTEXT, LatencyStats.HOUSE_NUMBER, start);
+						}
+					});
+					return;
 				} else {
 					//query is empty after HN removal
 					GisgraphySearchResult result = new GisgraphySearchResult();
@@ -232,17 +232,38 @@ public class FullTextSearchEngine implements IFullTextSearchEngine {
 		if (number == null || number.isEmpty() || feedAsObj ==null || feedAsObj.getResponse() == null || feedAsObj.getResponse().getDocs() ==null){
 			return feedAsObj;	
 		}
-		
-		String lastName=null;
-		String lastIsin=null;
-		Point lastLocation=null;
-		boolean housenumberFound =false;
-		GisgraphySearchEntry candidate =null; 
-		
-		
+		HouseNumberEntryFilter filter = new HouseNumberEntryFilter(number);
 		List<GisgraphySearchEntry> docs = feedAsObj.getResponse().getDocs();
 		List<GisgraphySearchEntry> filtereddocs = new ArrayList<GisgraphySearchEntry>();
 		for (GisgraphySearchEntry entry : docs){
+			filter.filter(entry, filtereddocs);
+		}
+		filter.end(filtereddocs);
+		feedAsObj.getResponse().setDocs(filtereddocs);
+		return feedAsObj;
+	}
+
+	/**
+	 * Keep the segment of each street that has the house number (or the
+	 * first segment if none has it) and set the location of the house number
+	 * on it. The entries are processed in the order of the response, so it
+	 * is used on the whole feed ({@link #updateFeed(GisgraphySearchResult, String)})
+	 * as well as while the response is streamed ({@link SuggestFeedStreamer})
+	 */
+	protected class HouseNumberEntryFilter implements ISearchEntryFilter {
+
+		private final String number;
+		private String lastName=null;
+		private String lastIsin=null;
+		private Point lastLocation=null;
+		private boolean housenumberFound =false;
+		private GisgraphySearchEntry candidate =null; 
+
+		public HouseNumberEntryFilter(String number) {
+			this.number = number;
+		}
+
+		public void filter(GisgraphySearchEntry entry, List<GisgraphySearchEntry> filtereddocs) {
 			Point curLoc = GeolocHelper.createPoint(entry.getLng(),entry.getLat());
 			if (!isEmptyString(entry.getName())){ 
 				double distance;
@@ -254,10 +275,10 @@ public class FullTextSearchEngine implements IFullTextSearchEngine {
 				if(entry.getName().equalsIgnoreCase(lastName) && ((entry.getIsIn()!=null && entry.getIsIn().equalsIgnoreCase(lastIsin) && (lastLocation!=null && !(distance>12000))) || (lastLocation!=null && !(distance>12000)))){
 					//logger.debug("same street : "+entry.getFeatureId()+" - "+entry.getName()+","+entry.getIsIn()+"(dist="+distance+")");
 					if (housenumberFound){
-						continue;
+						return;
 						//do nothing it has already been found in the street
 					}else {
-						
+					
 						housenumberFound = updateHouseNumber(number, entry);
 						if (housenumberFound){
 							//logger.debug("find hn for same name "+number+" for "+entry.getFeatureId()+" - "+entry.getLabel());
@@ -302,8 +323,8 @@ public class FullTextSearchEngine implements IFullTextSearchEngine {
 					//logger.debug("don't find hn for null name "+number+" for "+entry.getFeatureId()+" - "+entry.getLabel());
 					candidate = entry;
 				}
-				
-				
+			
+			
 			}
 			lastName=entry.getName();
 			lastIsin = entry.getIsIn();
@@ -312,13 +333,16 @@ public class FullTextSearchEngine implements IFullTextSearchEngine {
 	                entry.setCountry(CountryInfo.countryLookupMap.get(entry.getCountryCode().toUpperCase()));
 	         }
 			entry.setLabel(GeocodingHelper.processLabel(entry));
+			unpackHouseNumbers(entry);
 		}
-		if (candidate!=null){
-			//logger.debug("adding last candidate"+candidate.getFeatureId()+" - "+candidate.getLabel());
-			filtereddocs.add(candidate);
+
+		public void end(List<GisgraphySearchEntry> filtereddocs) {
+			if (candidate!=null){
+				//logger.debug("adding last candidate"+candidate.getFeatureId()+" - "+candidate.getLabel());
+				filtereddocs.add(candidate);
+				candidate = null;
+			}
 		}
-		feedAsObj.getResponse().setDocs(filtereddocs);
-		return feedAsObj;
 	}
 
 	/**
@@ -342,7 +366,48 @@ public class FullTextSearchEngine implements IFullTextSearchEngine {
 		}
 	}
 
+	/**
+	 * Write the packed house numbers of the entry in the legacy house_numbers
+	 * field, that is the one the clients read
+	 */
+	protected void unpackHouseNumbers(GisgraphySearchEntry entry) {
+		if (entry.getPackedHouseNumbers() == null) {
+			return;
+		}
+		try {
+			PackedHouseNumbers packedHouseNumbers = PackedHouseNumbers.fromBase64(entry.getPackedHouseNumbers());
+			if (packedHouseNumbers != null && (entry.getHouseNumbers() == null || entry.getHouseNumbers().isEmpty())) {
+				List<String> houseNumbers = new ArrayList<String>(packedHouseNumbers.size());
+				for (int i = 0; i < packedHouseNumbers.size(); i++) {
+					houseNumbers.add(houseNumberSerializer.serialize(packedHouseNumbers.getNumber(i),
+							packedHouseNumbers.getLongitude(i), packedHouseNumbers.getLatitude(i)));
+				}
+				entry.setHouseNumbers(houseNumbers);
+			}
+		} catch (IllegalArgumentException e) {
+			logger.error("can not decode the packed house numbers of " + entry.getFeatureId() + " : " + e.getMessage());
+		}
+		entry.setPackedHouseNumbers(null);
+	}
+
 	protected boolean updateHouseNumber(String number, GisgraphySearchEntry entry) {
+		if (entry.getPackedHouseNumbers() != null) {
+			try {
+				PackedHouseNumbers packedHouseNumbers = PackedHouseNumbers.fromBase64(entry.getPackedHouseNumbers());
+				if (packedHouseNumbers != null) {
+					int index = packedHouseNumbers.indexOf(number);
+					if (index >= 0) {
+						entry.setHouseNumber(packedHouseNumbers.getNumber(index));
+						entry.setLat(packedHouseNumbers.getLatitude(index));
+						entry.setLng(packedHouseNumbers.getLongitude(index));
+						return true;
+					}
+					return false;
+				}
+			} catch (IllegalArgumentException e) {
+				logger.error("can not decode the packed house numbers of " + entry.getFeatureId() + " : " + e.getMessage());
+			}
+		}
 		List<String> house_numbers = entry.getHouseNumbers();
 		if (house_numbers !=null ) {
 			/*String hnstring = "will check ";
@@ -371,7 +436,6 @@ public class FullTextSearchEngine implements IFullTextSearchEngine {
 
 
 
-	@SuppressWarnings("deprecation")
 	protected void doExecuteAndSerialize(FulltextQuery query,
 			OutputStream outputStream) {
 		try {
@@ -380,19 +444,14 @@ public class FullTextSearchEngine implements IFullTextSearchEngine {
 			}
 
 			ModifiableSolrParams params = FulltextQuerySolrHelper.parameterize(query);
-			CommonsHttpSolrServer server = new CommonsHttpSolrServer(solrClient
-					.getURL(), this.httpClient,
-					new OutputstreamResponseWrapper(outputStream, params
-							.get(Constants.OUTPUT_FORMAT_PARAMETER)));
-			server.query(params);
+			long start = System.nanoTime();
+			solrClient.executeAndSerialize(params, outputStream);
+			latencyStats.record(StatsUsageType.FULLTEXT, LatencyStats.SOLR, start);
 		} catch (SolrServerException e) {
 			logger.error("Can not execute query " + FulltextQuerySolrHelper.toQueryString(query)
 					+ "for URL : " + solrClient.getURL() + " : "
 					+ e.getCause().getMessage(),e);
 			throw new FullTextSearchException(e.getCause().getMessage());
-		} catch (MalformedURLException e1) {
-			logger.error("The URL " + solrClient.getURL() + " is incorrect",e1);
-			throw new FullTextSearchException(e1);
 		} catch (RuntimeException e2) {
 			String message = e2.getCause()!=null?e2.getCause().getMessage():e2.getMessage();
 			logger
@@ -404,6 +463,52 @@ public class FullTextSearchEngine implements IFullTextSearchEngine {
 
 
 
+	/**
+	 * Execute the query and give the response to the handler while it is
+	 * received. The time recorded in the {@link LatencyStats#SOLR} stage
+	 * includes the time spent in the handler
+	 */
+	/**
+	 * The packed house numbers are not in the field lists of the output
+	 * styles, because the responses of the fulltext engine are sent as is to
+	 * the clients. They are only requested when the response is read by
+	 * gisgraphy, with the legacy house numbers
+	 */
+	protected ModifiableSolrParams parameterizeWithPackedHouseNumbers(FulltextQuery query) {
+		ModifiableSolrParams params = FulltextQuerySolrHelper.parameterize(query);
+		String fieldList = params.get(Constants.FL_PARAMETER);
+		if (fieldList != null && Arrays.asList(fieldList.split(",")).contains(FullTextFields.HOUSE_NUMBERS.getValue())) {
+			params.set(Constants.FL_PARAMETER, fieldList + "," + PackedHouseNumbers.FIELD_NAME);
+		}
+		return params;
+	}
+
+	protected void doExecuteAndProcess(FulltextQuery query,
+			IResponseStreamHandler handler) {
+		try {
+			if (!disableLogging){
+				logger.info(query.toString());
+			}
+
+			ModifiableSolrParams params = parameterizeWithPackedHouseNumbers(query);
+			long start = System.nanoTime();
+			solrClient.executeAndProcess(params, handler);
+			latencyStats.record(StatsUsageType.FULLTEXT, LatencyStats.SOLR, start);
+		} catch (SolrServerException e) {
+			String message = e.getCause()!=null?e.getCause().getMessage():e.getMessage();
+			logger.error("Can not execute query " + FulltextQuerySolrHelper.toQueryString(query)
+					+ "for URL : " + solrClient.getURL() + " : "
+					+ message,e);
+			throw new FullTextSearchException(message,e);
+		} catch (RuntimeException e2) {
+			String message = e2.getCause()!=null?e2.getCause().getMessage():e2.getMessage();
+			logger
+			.error("An error has occurred during suggest search of query "
+					+ query + " : " + message,e2);
+			throw new FullTextSearchException(message,e2);
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -465,8 +570,9 @@ public class FullTextSearchEngine implements IFullTextSearchEngine {
 		Assert.notNull(query, "Can not execute a null query");
 		String queryString = ZipcodeNormalizer.normalize(query.getQuery(), query.getCountryCode());
 		query.withQuery(queryString);
-		ModifiableSolrParams params = FulltextQuerySolrHelper.parameterize(query);
+		ModifiableSolrParams params = parameterizeWithPackedHouseNumbers(query);
 		QueryResponse response = null;
+		long start = System.nanoTime();
 		try {
 			response = solrClient.getServer().query(params);
 		} catch (SolrServerException e) {
@@ -474,6 +580,7 @@ public class FullTextSearchEngine implements IFullTextSearchEngine {
 		} catch (RuntimeException e) {
 			throw new FullTextSearchException(e.getMessage(), e);
 		}
+		latencyStats.record(StatsUsageType.FULLTEXT, LatencyStats.SOLR, start);
 		if (response != null) {
 			long numberOfResults = response.getResults() != null ? response
 					.getResults().getNumFound() : 0;
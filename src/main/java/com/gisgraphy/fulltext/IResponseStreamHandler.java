@@ -0,0 +1,46 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.fulltext;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Callback that reads the raw response of the fulltext engine while it is
+ * received, see {@link IsolrClient#executeAndProcess(org.apache.solr.common.params.SolrParams, IResponseStreamHandler)}
+ */
+public interface IResponseStreamHandler {
+
+    /**
+     * @param inputStream
+     *                the response of the server, it must not be used after
+     *                the method has returned
+     * @param encoding
+     *                the encoding of the response
+     * @throws IOException
+     *                 if the response can not be read or processed
+     */
+    public void handle(InputStream inputStream, String encoding)
+	    throws IOException;
+
+}
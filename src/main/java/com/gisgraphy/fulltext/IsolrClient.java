@@ -22,9 +22,12 @@
  *******************************************************************************/
 package com.gisgraphy.fulltext;
 
+import java.io.OutputStream;
 import java.util.logging.Level;
 
 import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.params.SolrParams;
 
 /**
  * Wrap a SolrServer
@@ -62,6 +65,40 @@ public interface IsolrClient {
      * @param level the level to set
      */
     public void setSolRLogLevel(Level level);
+
+    /**
+     * Execute a query on the shared (pooled) connection of the client and
+     * stream the raw response of the server into the given outputStream,
+     * without parsing it
+     * 
+     * @param params
+     *                The query parameters. the format of the response is
+     *                given by the {@link com.gisgraphy.domain.valueobject.Constants#OUTPUT_FORMAT_PARAMETER} parameter
+     * @param outputStream
+     *                The outputStream to write the response in, it will be
+     *                flushed and closed when the response has been written
+     * @throws SolrServerException
+     *                 If an error occurred when querying the server
+     */
+    public void executeAndSerialize(SolrParams params, OutputStream outputStream)
+	    throws SolrServerException;
+
+    /**
+     * Execute a query on the shared (pooled) connection of the client and
+     * give the raw response of the server to the handler while it is
+     * received
+     * 
+     * @param params
+     *                The query parameters. the format of the response is
+     *                given by the {@link com.gisgraphy.domain.valueobject.Constants#OUTPUT_FORMAT_PARAMETER} parameter
+     * @param handler
+     *                The handler that reads the response
+     * @throws SolrServerException
+     *                 If an error occurred when querying the server or if
+     *                 the handler has thrown an {@link java.io.IOException}
+     */
+    public void executeAndProcess(SolrParams params, IResponseStreamHandler handler)
+	    throws SolrServerException;
     
 
 }
\ No newline at end of file
@@ -22,6 +22,8 @@
  *******************************************************************************/
 package com.gisgraphy.fulltext;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.logging.Level;
@@ -35,14 +37,19 @@ import org.apache.commons.httpclient.HttpClient;
 import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
 import org.apache.commons.httpclient.methods.PostMethod;
 import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.CommonsHttpSolrServer;
+import org.apache.solr.client.solrj.request.QueryRequest;
 import org.apache.solr.client.solrj.response.SolrPingResponse;
+import org.apache.solr.common.params.SolrParams;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.util.Assert;
 
+import com.gisgraphy.domain.valueobject.Constants;
+
 /**
  * Default implementation for IsolrClient.it represent a client to connect to
  * solR server
@@ -99,7 +106,13 @@ public class SolrClient implements IsolrClient {
      */
     public void bindToUrl(String solrUrl) {
 	try {
-	    this.server = new CommonsHttpSolrServer(new URL(solrUrl));
+	    if (multiThreadedHttpConnectionManager != null) {
+		//keep using the shared pool of connections
+		this.server = new CommonsHttpSolrServer(new URL(solrUrl),
+			new HttpClient(multiThreadedHttpConnectionManager));
+	    } else {
+		this.server = new CommonsHttpSolrServer(new URL(solrUrl));
+	    }
 	    this.URL = !solrUrl.endsWith("/") ? solrUrl + "/" : solrUrl ;
 	    logger
 		    .info("fulltextSearchUrl for FullTextSearchEngine is changed to "
@@ -127,6 +140,46 @@ public class SolrClient implements IsolrClient {
 	return URL;
     }
 
+    /* (non-Javadoc)
+     * @see com.gisgraphy.fulltext.IsolrClient#executeAndSerialize(org.apache.solr.common.params.SolrParams, java.io.OutputStream)
+     */
+    public void executeAndSerialize(SolrParams params,
+	    OutputStream outputStream) throws SolrServerException {
+	Assert.notNull(params, "can not execute a query with null params");
+	Assert.notNull(outputStream, "can not serialize a query in a null outputStream");
+	//the response parser is set on the request, so the server (and its
+	//pooled connections) can be shared between all the queries
+	QueryRequest request = new QueryRequest(params);
+	request.setResponseParser(new OutputstreamResponseWrapper(
+		outputStream, params.get(Constants.OUTPUT_FORMAT_PARAMETER)));
+	try {
+	    getServer().request(request);
+	} catch (IOException e) {
+	    throw new SolrServerException(e);
+	}
+    }
+
+    /* (non-Javadoc)
+     * @see com.gisgraphy.fulltext.IsolrClient#executeAndProcess(org.apache.solr.common.params.SolrParams, com.gisgraphy.fulltext.IResponseStreamHandler)
+     */
+    public void executeAndProcess(SolrParams params,
+	    IResponseStreamHandler handler) throws SolrServerException {
+	Assert.notNull(params, "can not execute a query with null params");
+	Assert.notNull(handler, "can not process a query with a null handler");
+	QueryRequest request = new QueryRequest(params);
+	StreamResponseParser parser = new StreamResponseParser(handler,
+		params.get(Constants.OUTPUT_FORMAT_PARAMETER));
+	request.setResponseParser(parser);
+	try {
+	    getServer().request(request);
+	} catch (IOException e) {
+	    throw new SolrServerException(e);
+	}
+	if (parser.getException() != null) {
+	    throw new SolrServerException(parser.getException());
+	}
+    }
+
     public boolean isServerAlive() {
 	try {
 	    DocumentBuilder builder = DocumentBuilderFactory.newInstance()
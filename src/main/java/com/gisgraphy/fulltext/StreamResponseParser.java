@@ -0,0 +1,122 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.fulltext;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.solr.client.solrj.ResponseParser;
+import org.apache.solr.common.util.NamedList;
+import org.springframework.util.Assert;
+
+import com.gisgraphy.domain.valueobject.Constants;
+
+/**
+ * Parser that gives the response of the fulltext engine to an
+ * {@link IResponseStreamHandler} instead of copying it (see
+ * {@link OutputstreamResponseWrapper}), so it can be transformed while it is
+ * received
+ * 
+ * @see IsolrClient#executeAndProcess(org.apache.solr.common.params.SolrParams,
+ *      IResponseStreamHandler)
+ */
+public class StreamResponseParser extends ResponseParser {
+
+    private final IResponseStreamHandler handler;
+    private final String writerType;
+
+    /**
+     * The exception thrown by the handler, if any
+     */
+    private IOException exception;
+
+    /**
+     * @param handler
+     *                The handler to give the response to
+     * @param writerType
+     *                The writerType (aka : the wt parameter)
+     */
+    public StreamResponseParser(IResponseStreamHandler handler,
+	    String writerType) {
+	super();
+	Assert.notNull(handler, "handler can not be null");
+	this.handler = handler;
+	this.writerType = writerType == null ? "XML" : writerType;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.apache.solr.client.solrj.ResponseParser#getWriterType()
+     */
+    @Override
+    public String getWriterType() {
+	return this.writerType;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.apache.solr.client.solrj.ResponseParser#processResponse(java.io.Reader)
+     */
+    @Override
+    public NamedList<Object> processResponse(Reader reader) {
+	try {
+	    handler.handle(new ByteArrayInputStream(IOUtils.toString(reader)
+		    .getBytes(Constants.CHARSET)), Constants.CHARSET);
+	} catch (IOException e) {
+	    this.exception = e;
+	}
+	return new NamedList<Object>();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.apache.solr.client.solrj.ResponseParser#processResponse(java.io.InputStream,
+     *      java.lang.String)
+     */
+    @Override
+    public NamedList<Object> processResponse(InputStream inputStream,
+	    String encoding) {
+	try {
+	    handler.handle(inputStream, encoding == null ? Constants.CHARSET
+		    : encoding);
+	} catch (IOException e) {
+	    this.exception = e;
+	}
+	return new NamedList<Object>();
+    }
+
+    /**
+     * @return the exception thrown by the handler or null if the response
+     *         has been processed
+     */
+    public IOException getException() {
+	return exception;
+    }
+
+}
@@ -12,6 +12,7 @@ import org.apache.solr.common.SolrDocument;
 import com.gisgraphy.domain.repository.exception.RepositoryException;
 import com.gisgraphy.street.HouseNumberDeserializer;
 import com.gisgraphy.street.HouseNumberDto;
+import com.gisgraphy.street.PackedHouseNumbers;
 
 public class solrResponseDtoBuilder {
 	
@@ -176,6 +177,21 @@ public class solrResponseDtoBuilder {
     
     
 	private List<HouseNumberDto> getHouseNumber(SolrDocument solrDocument) {
+		Object packed = solrDocument.getFieldValue(PackedHouseNumbers.FIELD_NAME);
+		if (packed != null) {
+			//the packed field is preferred, the legacy one is only read for
+			//the documents indexed before the packed encoding was enabled
+			try {
+				PackedHouseNumbers packedHouseNumbers = PackedHouseNumbers.fromBase64(packed.toString());
+				if (packedHouseNumbers != null) {
+					//decoded when read, the geocoder searches the packed bytes
+					return packedHouseNumbers.asList();
+				}
+			} catch (IllegalArgumentException e) {
+				throw new RepositoryException(PackedHouseNumbers.FIELD_NAME
+						+ " can not be decoded : " + e.getMessage(), e);
+			}
+		}
 		List<HouseNumberDto> housenumbers = new ArrayList<HouseNumberDto>();
 		String fieldname = FullTextFields.HOUSE_NUMBERS.getValue();
 		if (solrDocument.getFieldValues(fieldname) != null) {
@@ -3,6 +3,7 @@ package com.gisgraphy.fulltext.suggest;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.codehaus.jackson.annotate.JsonIgnore;
 import org.codehaus.jackson.annotate.JsonIgnoreProperties;
 import org.codehaus.jackson.annotate.JsonProperty;
 
@@ -51,6 +52,25 @@ public class GisgraphySearchEntry {
         this.houseNumbers = houseNumbers;
     }
 
+    private String packedHouseNumbers;
+
+    /**
+     * @return the house numbers encoded by
+     *         {@link com.gisgraphy.street.HouseNumberPacker}, in base64, or
+     *         null if the street has been indexed with the legacy encoding.
+     *         It is read from the fulltext engine but never written to the
+     *         clients, that read the house numbers
+     */
+    @JsonIgnore
+    public String getPackedHouseNumbers() {
+        return packedHouseNumbers;
+    }
+
+    @JsonProperty("house_numbers_packed")
+    public void setPackedHouseNumbers(String packedHouseNumbers) {
+        this.packedHouseNumbers = packedHouseNumbers;
+    }
+
     @JsonProperty("house_number")
     private String houseNumber;
 
@@ -0,0 +1,29 @@
+package com.gisgraphy.fulltext.suggest;
+
+import java.util.List;
+
+/**
+ * Filter the entries of a {@link GisgraphySearchResponse} one by one, in the
+ * order of the response, see {@link SuggestFeedStreamer}
+ */
+public interface ISearchEntryFilter {
+
+	/**
+	 * @param entry
+	 *            the next entry of the response
+	 * @param entriesToWrite
+	 *            the list to add the entries that are ready to be written
+	 *            to (zero, one or more entries, that can have been given to
+	 *            a previous call)
+	 */
+	public void filter(GisgraphySearchEntry entry, List<GisgraphySearchEntry> entriesToWrite);
+
+	/**
+	 * Called after the last entry
+	 * 
+	 * @param entriesToWrite
+	 *            the list to add the entries that are still to be written
+	 */
+	public void end(List<GisgraphySearchEntry> entriesToWrite);
+
+}
@@ -0,0 +1,171 @@
+package com.gisgraphy.fulltext.suggest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParseException;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.map.ObjectMapper;
+
+/**
+ * Rewrite a JSON fulltext response while it is read : the docs are bound to
+ * {@link GisgraphySearchEntry} one at a time, given to an
+ * {@link ISearchEntryFilter} and written as soon as the filter returns them,
+ * so the memory used doesn't depend on the number of results.
+ * <p>
+ * The output is the same as reading the whole response as a
+ * {@link GisgraphySearchResult}, filtering the docs and writing it back : the
+ * fields that are not mapped by {@link GisgraphySearchResult} and
+ * {@link GisgraphySearchResponse} are dropped, and numFound, start and
+ * maxScore are always written (with the default values of
+ * {@link GisgraphySearchResponse} when they are not in the response).
+ * <p>
+ * The output is streamed into the output stream while the response is read,
+ * it is not buffered (except by the JSON generator, a few kilobytes at
+ * most). When the response is not valid, nothing more is written : if the
+ * error is found before the first byte is written (e.g. the response is not
+ * a JSON object), the output stream is left untouched and the caller can
+ * still write an error status, otherwise the client receives a partial
+ * response.
+ */
+public class SuggestFeedStreamer {
+
+	private static final String RESPONSE = "response";
+	private static final String RESPONSE_HEADER = "responseHeader";
+	private static final String DOCS = "docs";
+	private static final String NUM_FOUND = "numFound";
+	private static final String START = "start";
+	private static final String MAX_SCORE = "maxScore";
+
+	private final ObjectMapper mapper;
+
+	public SuggestFeedStreamer(ObjectMapper mapper) {
+		this.mapper = mapper;
+	}
+
+	/**
+	 * @param inputStream
+	 *            the JSON response of the fulltext engine
+	 * @param outputStream
+	 *            the stream to write the rewritten response to, it is flushed
+	 *            (but not closed) when the response has been written
+	 * @param filter
+	 *            the filter to apply to the docs
+	 * @throws IOException
+	 *             if the response is not valid JSON or can not be written
+	 */
+	public void stream(InputStream inputStream, OutputStream outputStream, ISearchEntryFilter filter) throws IOException {
+		JsonFactory factory = mapper.getJsonFactory();
+		JsonParser parser = factory.createJsonParser(inputStream);
+		JsonGenerator generator = factory.createJsonGenerator(outputStream, JsonEncoding.UTF8);
+		//the stream belongs to the caller (e.g. the servlet response)
+		generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+		try {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new JsonParseException("the fulltext response is not a JSON object", parser.getCurrentLocation());
+			}
+			boolean responseWritten = false;
+			boolean responseHeaderWritten = false;
+			generator.writeStartObject();
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String name = parser.getCurrentName();
+				JsonToken token = parser.nextToken();
+				if (RESPONSE.equals(name) && token == JsonToken.START_OBJECT && !responseWritten) {
+					generator.writeFieldName(name);
+					streamResponse(parser, generator, filter);
+					responseWritten = true;
+				} else if (RESPONSE_HEADER.equals(name) && !responseHeaderWritten) {
+					generator.writeFieldName(name);
+					mapper.writeValue(generator, mapper.readValue(parser, GisgraphySearchResponseHeader.class));
+					responseHeaderWritten = true;
+				} else {
+					parser.skipChildren();
+				}
+			}
+			//as the null properties of GisgraphySearchResult
+			if (!responseWritten) {
+				generator.writeNullField(RESPONSE);
+			}
+			if (!responseHeaderWritten) {
+				generator.writeNullField(RESPONSE_HEADER);
+			}
+			generator.writeEndObject();
+			//flush. Not in a finally block : the output that is buffered when
+			//the response is not valid is dropped, and close() would end the JSON
+			generator.close();
+		} finally {
+			parser.close();
+		}
+	}
+
+	/**
+	 * The docs are written first and the scalars at the end, so that the
+	 * scalars that are after the docs in the response are not lost
+	 */
+	private void streamResponse(JsonParser parser, JsonGenerator generator, ISearchEntryFilter filter) throws IOException {
+		//holds the scalars, with the same defaults as when the response is read as an object
+		GisgraphySearchResponse response = new GisgraphySearchResponse();
+		boolean docsWritten = false;
+		generator.writeStartObject();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			if (DOCS.equals(name) && token == JsonToken.START_ARRAY && !docsWritten) {
+				generator.writeFieldName(name);
+				streamDocs(parser, generator, filter);
+				docsWritten = true;
+			} else if (NUM_FOUND.equals(name) && token.isNumeric()) {
+				response.setNumFound(parser.getIntValue());
+			} else if (START.equals(name) && token.isNumeric()) {
+				response.setStart(parser.getIntValue());
+			} else if (MAX_SCORE.equals(name) && token.isNumeric()) {
+				response.setMaxScore(parser.getFloatValue());
+			} else {
+				parser.skipChildren();
+			}
+		}
+		if (!docsWritten) {
+			generator.writeArrayFieldStart(DOCS);
+			generator.writeEndArray();
+		}
+		generator.writeNumberField(NUM_FOUND, response.getNumFound());
+		generator.writeNumberField(START, response.getStart());
+		generator.writeNumberField(MAX_SCORE, response.getMaxScore());
+		generator.writeEndObject();
+	}
+
+	private void streamDocs(JsonParser parser, JsonGenerator generator, ISearchEntryFilter filter) throws IOException {
+		List<GisgraphySearchEntry> entriesToWrite = new ArrayList<GisgraphySearchEntry>();
+		generator.writeStartArray();
+		JsonToken token;
+		while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+			if (token == null) {
+				throw new JsonParseException("unexpected end of the fulltext response", parser.getCurrentLocation());
+			}
+			if (token != JsonToken.START_OBJECT) {
+				parser.skipChildren();
+				continue;
+			}
+			filter.filter(mapper.readValue(parser, GisgraphySearchEntry.class), entriesToWrite);
+			write(generator, entriesToWrite);
+		}
+		filter.end(entriesToWrite);
+		write(generator, entriesToWrite);
+		generator.writeEndArray();
+	}
+
+	private void write(JsonGenerator generator, List<GisgraphySearchEntry> entries) throws IOException {
+		for (GisgraphySearchEntry entry : entries) {
+			mapper.writeValue(generator, entry);
+		}
+		entries.clear();
+	}
+
+}
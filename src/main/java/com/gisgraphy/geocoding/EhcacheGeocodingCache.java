@@ -0,0 +1,270 @@
+/*******************************************************************************
+ * Gisgraphy Project 
+ *  
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *  
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *    Lesser General Public License for more details.
+ *  
+ *    You should have received a copy of the GNU Lesser General Public
+ *    License along with this library; if not, write to the Free Software
+ *    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ *  
+ *   Copyright 2008  Gisgraphy project 
+ * 
+ *   David Masclet <davidmasclet@gisgraphy.com>
+ ******************************************************************************/
+package com.gisgraphy.geocoding;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+
+import org.codehaus.jackson.map.DeserializationConfig;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gisgraphy.addressparser.AddressResultsDto;
+import com.gisgraphy.domain.geoloc.entity.event.IEvent;
+import com.gisgraphy.domain.geoloc.entity.event.IEventListener;
+import com.gisgraphy.domain.geoloc.entity.event.IGisRepositoryEvent;
+
+/**
+ * {@link IGeocodingCache} backed by an ehcache {@link Cache}. The cache is
+ * bounded (LRU) and the entries expire after a time to live.
+ * <p>
+ * It is an {@link IEventListener} : every change in the gis repository
+ * (stored or deleted features) invalidates the cache. The invalidation is
+ * lazy (the entries are removed on the next read) so that an import that
+ * stores millions of features does not clear the cache for each of them.
+ * The changes are only visible in the fulltext engine after a commit, the
+ * results cached between a change and the commit are removed when the time
+ * to live expires.
+ * <p>
+ * The results are stored serialized (JSON), so that they can not be modified
+ * once cached, and each hit returns its own copy.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public class EhcacheGeocodingCache implements IGeocodingCache, IEventListener {
+
+    protected static final Logger logger = LoggerFactory
+	    .getLogger(EhcacheGeocodingCache.class);
+
+    public static final String DEFAULT_CACHE_NAME = "geocodingCache";
+
+    public static final int DEFAULT_MAX_ELEMENTS = 10000;
+
+    public static final long DEFAULT_TIME_TO_LIVE = 3600;
+
+    private boolean enabled = false;
+
+    private String cacheName = DEFAULT_CACHE_NAME;
+
+    private int maxElements = DEFAULT_MAX_ELEMENTS;
+
+    private long timeToLive = DEFAULT_TIME_TO_LIVE;
+
+    private Cache cache;
+
+    private final AtomicBoolean invalidated = new AtomicBoolean(false);
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final ObjectMapper mapper = new ObjectMapper().configure(
+	    DeserializationConfig.Feature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @PostConstruct
+    public void init() {
+	if (enabled && cache == null) {
+	    CacheManager cacheManager = CacheManager.create();
+	    if (!cacheManager.cacheExists(cacheName)) {
+		cacheManager.addCache(new Cache(cacheName, maxElements, false,
+			false, timeToLive, 0));
+	    }
+	    cache = cacheManager.getCache(cacheName);
+	    logger.info("geocoding cache is enabled (maxElements="
+		    + maxElements + ", timeToLive=" + timeToLive + "s)");
+	}
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.geocoding.IGeocodingCache#isEnabled()
+     */
+    public boolean isEnabled() {
+	return cache != null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.geocoding.IGeocodingCache#get(java.lang.String)
+     */
+    public AddressResultsDto get(String key) {
+	if (cache == null || key == null) {
+	    return null;
+	}
+	removeAllIfInvalidated();
+	Element element = cache.get(key);
+	if (element == null) {
+	    missCount.incrementAndGet();
+	    return null;
+	}
+	try {
+	    AddressResultsDto results = mapper.readValue(
+		    (byte[]) element.getObjectValue(), AddressResultsDto.class);
+	    hitCount.incrementAndGet();
+	    return results;
+	} catch (IOException e) {
+	    logger.warn("can not read the cached results for " + key + " : "
+		    + e.getMessage());
+	    cache.remove(key);
+	    missCount.incrementAndGet();
+	    return null;
+	}
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.geocoding.IGeocodingCache#put(java.lang.String,
+     *      com.gisgraphy.addressparser.AddressResultsDto)
+     */
+    public void put(String key, AddressResultsDto results) {
+	if (cache == null || key == null || results == null) {
+	    return;
+	}
+	byte[] serialized;
+	try {
+	    serialized = mapper.writeValueAsBytes(results);
+	} catch (IOException e) {
+	    logger.warn("can not cache the results for " + key + " : "
+		    + e.getMessage());
+	    return;
+	}
+	removeAllIfInvalidated();
+	cache.put(new Element(key, serialized));
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.geocoding.IGeocodingCache#invalidate()
+     */
+    public void invalidate() {
+	invalidated.set(true);
+    }
+
+    private void removeAllIfInvalidated() {
+	if (invalidated.compareAndSet(true, false)) {
+	    logger.info("geocoding cache has been invalidated, all entries are removed");
+	    cache.removeAll();
+	}
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.geocoding.IGeocodingCache#getHitCount()
+     */
+    public long getHitCount() {
+	return hitCount.get();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.geocoding.IGeocodingCache#getMissCount()
+     */
+    public long getMissCount() {
+	return missCount.get();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.geocoding.IGeocodingCache#getSize()
+     */
+    public long getSize() {
+	if (cache == null) {
+	    return 0;
+	}
+	removeAllIfInvalidated();
+	return cache.getSize();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.geoloc.entity.event.IEventListener#handleEvent(com.gisgraphy.domain.geoloc.entity.event.IEvent)
+     */
+    public void handleEvent(IEvent event) {
+	invalidate();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.geoloc.entity.event.IEventListener#supports(com.gisgraphy.domain.geoloc.entity.event.IEvent)
+     */
+    public boolean supports(IEvent event) {
+	return cache != null && event instanceof IGisRepositoryEvent;
+    }
+
+    /**
+     * @param enabled
+     *                whether the results of the geocoder should be cached.
+     *                Default to false
+     */
+    public void setEnabled(boolean enabled) {
+	this.enabled = enabled;
+    }
+
+    /**
+     * @param cacheName
+     *                the name of the ehcache cache
+     */
+    public void setCacheName(String cacheName) {
+	this.cacheName = cacheName;
+    }
+
+    /**
+     * @param maxElements
+     *                the maximum number of results in the cache, the least
+     *                recently used are evicted
+     */
+    public void setMaxElements(int maxElements) {
+	if (maxElements <= 0) {
+	    throw new IllegalArgumentException("the maximum number of elements should be greater than 0");
+	}
+	this.maxElements = maxElements;
+    }
+
+    /**
+     * @param timeToLive
+     *                the time (in seconds) a result stays in the cache
+     */
+    public void setTimeToLive(long timeToLive) {
+	if (timeToLive <= 0) {
+	    throw new IllegalArgumentException("the time to live should be greater than 0");
+	}
+	this.timeToLive = timeToLive;
+    }
+
+}
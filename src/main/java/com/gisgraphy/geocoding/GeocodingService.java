@@ -30,6 +30,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -78,9 +80,11 @@ import com.gisgraphy.reversegeocoding.AddressHelper;
 import com.gisgraphy.serializer.UniversalSerializer;
 import com.gisgraphy.serializer.common.UniversalSerializerConstant;
 import com.gisgraphy.service.IStatsUsageService;
+import com.gisgraphy.stats.LatencyStats;
 import com.gisgraphy.stats.StatsUsageType;
 import com.gisgraphy.street.HouseNumberDto;
 import com.gisgraphy.street.HouseNumberUtil;
+import com.gisgraphy.street.PackedHouseNumbers;
 import com.vividsolutions.jts.geom.Point;
 
 /**
@@ -108,9 +112,12 @@ public class GeocodingService implements IGeocodingService {
 	private IAddressParserService addressParser;
 	private FullTextSearchEngine fullTextSearchEngine;
 	private GisgraphyConfig gisgraphyConfig;
+	private GeocodingSubQueryExecutor subQueryExecutor;
+	private IGeocodingCache geocodingCache;
 	
 	private LabelGenerator labelGenerator = LabelGenerator.getInstance();
 	private BasicAddressFormater addressFormater = BasicAddressFormater.getInstance();
+	private LatencyStats latencyStats = LatencyStats.getInstance();
 	
 	CountryDetector countryDetector = new CountryDetector();
 	
@@ -141,6 +148,12 @@ public class GeocodingService implements IGeocodingService {
 
     protected static final long LONG_REQUEST_THRESHOLD = 4000;
 
+    /**
+     * the points of the queries are rounded to 1/1000 degree (~100m) in the
+     * keys of the cache
+     */
+    protected static final double CACHE_POINT_BUCKETS = 1000;
+
 
 
 	/*
@@ -158,11 +171,13 @@ public class GeocodingService implements IGeocodingService {
 			throw new GeocodingException("Can not serialize into a null outputStream");
 		}
 		AddressResultsDto geolocResultsDto = geocode(query);
+		long start = System.nanoTime();
 		Map<String, Object> extraParameter = new HashMap<String, Object>();
 		// extraParameter.put(GeolocResultsDtoSerializer.START_PAGINATION_INDEX_EXTRA_PARAMETER,
 		// query.getFirstPaginationIndex());
 		extraParameter.put(UniversalSerializerConstant.CALLBACK_METHOD_NAME, query.getCallback());
 		UniversalSerializer.getInstance().write(outputStream, geolocResultsDto, false, extraParameter, query.getFormat());
+		latencyStats.record(StatsUsageType.GEOCODING, LatencyStats.SERIALIZATION, start);
 	}
 
 	/*
@@ -191,6 +206,15 @@ public class GeocodingService implements IGeocodingService {
 	 * @see com.gisgraphy.geocoding.IGeocodingService#geocode(java.lang.String)
 	 */
 	public AddressResultsDto geocode(AddressQuery query) throws GeocodingException {
+		long start = System.nanoTime();
+		try {
+			return geocodeQuery(query);
+		} finally {
+			latencyStats.record(StatsUsageType.GEOCODING, LatencyStats.TOTAL, start);
+		}
+	}
+
+	private AddressResultsDto geocodeQuery(AddressQuery query) throws GeocodingException {
 		if (query == null) {
 			throw new GeocodingException("Can not geocode a null query");
 		}
@@ -217,7 +241,9 @@ public class GeocodingService implements IGeocodingService {
 		}
 		//rawAddress = prepareQuery(rawAddress);
 		//always search for country to remove it
+			long countryDetectionStart = System.nanoTime();
 			CountryDetectorDto detectorDto = countryDetector.detectAndRemoveCountry(rawAddress);
+			latencyStats.record(StatsUsageType.GEOCODING, LatencyStats.COUNTRY_DETECTION, countryDetectionStart);
 			if (detectorDto != null && detectorDto.getCountryCode()!=null){
 				if (detectorDto.getAddress()!= null && !detectorDto.getAddress().trim().equals("")){
 				    logger.debug("found country code "+detectorDto.getCountryCode());
@@ -237,7 +263,53 @@ public class GeocodingService implements IGeocodingService {
 		if (countryCode !=null  && countryCode.trim().length() != 2) {
 			throw new GeocodingException("countrycode should have two letters : " + countryCode);
 		}
-		
+		String cacheKey = null;
+		if (geocodingCache != null && geocodingCache.isEnabled()){
+			cacheKey = buildCacheKey(query, rawAddress, countryCode);
+			AddressResultsDto cachedResults = geocodingCache.get(cacheKey);
+			if (cachedResults != null){
+				statsUsageService.increaseUsage(StatsUsageType.GEOCODING);
+				if (logger.isDebugEnabled()) {
+					logger.debug("found "+query+" in cache");
+				}
+				cachedResults.setQTime(System.currentTimeMillis() - startTime);
+				return cachedResults;
+			}
+		}
+		AddressResultsDto results = doGeocode(query, rawAddress, countryCode, startTime);
+		if (cacheKey != null){
+			geocodingCache.put(cacheKey, results);
+		}
+		return results;
+	}
+
+	/**
+	 * Build the key of a query for the {@link IGeocodingCache}, the key is
+	 * built from the normalized address (after the country detection), the
+	 * country code, the point (rounded to ~100m), the radius and all the
+	 * options of the query that change the results
+	 */
+	protected String buildCacheKey(AddressQuery query, String rawAddress, String countryCode) {
+		String normalizedAddress = StringHelper.prepareQuery(rawAddress);
+		normalizedAddress = normalizedAddress == null ? "" : normalizedAddress.trim().replaceAll("\\s+", " ").toLowerCase();
+		StringBuilder key = new StringBuilder(normalizedAddress.length() + 64);
+		key.append(normalizedAddress)
+		.append('|').append(countryCode == null ? "" : countryCode.trim().toUpperCase())
+		.append('|').append(query.isFuzzy())
+		.append('|').append(query.isPostal())
+		.append('|').append(needParsing(query.getAddress()))
+		.append('|').append(shouldSetParseAddress(query))
+		.append('|').append(query.getLimitNbResult());
+		Point point = query.getPoint();
+		if (point != null){
+			key.append('|').append(Math.round(point.getY() * CACHE_POINT_BUCKETS))
+			.append(',').append(Math.round(point.getX() * CACHE_POINT_BUCKETS))
+			.append('|').append(query.getRadius());
+		}
+		return key.toString();
+	}
+
+	protected AddressResultsDto doGeocode(AddressQuery query, String rawAddress, String countryCode, Long startTime) {
 		if (logger.isDebugEnabled()) {
 			logger.debug("Raw address to geocode : '" + rawAddress + "' for country code : " + countryCode);
 		}
@@ -248,7 +320,9 @@ public class GeocodingService implements IGeocodingService {
 		if ((gisgraphyConfig.useAddressParserWhenGeocoding && query.isPostal()) && needParsing) {
 			try {
 				logger.debug("address parser is enabled");
+				long parsingStart = System.nanoTime();
 				addressResultDto = addressParser.execute(addressQuery);
+				latencyStats.record(StatsUsageType.GEOCODING, LatencyStats.ADDRESS_PARSING, parsingStart);
 			} catch (AddressParserException e) {
 				logger.error("An error occurs during parsing of address" + e.getMessage(), e);
 			}
@@ -324,16 +398,30 @@ public class GeocodingService implements IGeocodingService {
 				    }
 				}
 			}
+			Future<AddressResultsDto> speculativeFuzzy = null;
+			long fuzzyDeadline = 0;
+			if (query.isFuzzy() && subQueryExecutor != null && subQueryExecutor.isSpeculativeFuzzy()){
+			    //send the fuzzy search now, we will ignore it if the exact one is good enough
+			    fuzzyDeadline = subQueryExecutor.getDeadline();
+			    speculativeFuzzy = submitFuzzySearch(newAddress,alternativeGermanAddress, countryCode,
+			            needParsing,houseNumber, query.getPoint(), query.getRadius(), smartstreetdetected);
+			}
 			results = doSearch(newAddress,alternativeGermanAddress, countryCode, 
 					needParsing,houseNumber, false, query.getPoint(), query.getRadius(), smartstreetdetected);
 			//try in fuzzy
 			if (query.isFuzzy()){
 			    AddressResultsDto resultsFuzzy;
 			    if(results.getNumFound()==0 || (results.getResult().size()>0 && results.getResult().get(0).getScore()< MIN_SCORE_THRESHOLD_FUZZY )){
-			        resultsFuzzy = doSearch(newAddress,alternativeGermanAddress, countryCode,
+			        if (speculativeFuzzy != null){
+			            resultsFuzzy = subQueryExecutor.get(speculativeFuzzy, fuzzyDeadline, null);
+			        } else {
+			            resultsFuzzy = doSearch(newAddress,alternativeGermanAddress, countryCode,
 			                needParsing,houseNumber, true, query.getPoint(), query.getRadius(), smartstreetdetected);
+			        }
 			        results = mergeExactAndFuzzy(results, newAddress,
                             resultsFuzzy); 
+			    } else if (speculativeFuzzy != null){
+			        subQueryExecutor.cancel(speculativeFuzzy);
 			    }
 			}	
 				
@@ -350,7 +438,9 @@ public class GeocodingService implements IGeocodingService {
 			if (shouldSetParseAddress(query)){
 			    try {
 	                logger.error("address parser is forced");
+	                long parsingStart = System.nanoTime();
 	                addressResultDto = addressParser.execute(addressQuery);
+	                latencyStats.record(StatsUsageType.GEOCODING, LatencyStats.ADDRESS_PARSING, parsingStart);
 	                if (addressResultDto.getResult()!=null && addressResultDto.getResult().size() >=1){
 	                    results.setParsedAddress(addressResultDto.getResult().get(0));
 	                }
@@ -430,8 +520,54 @@ public class GeocodingService implements IGeocodingService {
 	
 	protected AddressResultsDto doSearch( String rawaddress,String alternativeStreetAddress,
 			String countryCode, boolean needParsing,String houseNumber, boolean fuzzy, Point point, Double radius, boolean smartStreetDetected) {
+		boolean parallel = subQueryExecutor != null && subQueryExecutor.isEnabled();
+		return doSearch(rawaddress, alternativeStreetAddress, countryCode, needParsing, houseNumber, fuzzy, point, radius, smartStreetDetected, parallel);
+	}
+
+	/**
+	 * Send the fuzzy search in the background, the sub-queries of the fuzzy
+	 * search are executed sequentially by the thread of the executor, so that
+	 * a task never waits for other tasks of the same pool
+	 */
+	protected Future<AddressResultsDto> submitFuzzySearch(final String rawaddress,final String alternativeStreetAddress,
+			final String countryCode, final boolean needParsing,final String houseNumber, final Point point, final Double radius, final boolean smartStreetDetected) {
+		return subQueryExecutor.submit(new Callable<AddressResultsDto>() {
+			public AddressResultsDto call() throws Exception {
+				return doSearch(rawaddress, alternativeStreetAddress, countryCode, needParsing, houseNumber, true, point, radius, smartStreetDetected, false);
+			}
+		});
+	}
+
+	protected Future<List<SolrResponseDto>> submitSearchStreet(final String rawaddress,
+			final String countryCode, final boolean fuzzy, final Point point, final Double radius) {
+		return subQueryExecutor.submit(new Callable<List<SolrResponseDto>>() {
+			public List<SolrResponseDto> call() throws Exception {
+				return doSearchStreet(rawaddress, countryCode, fuzzy, point, radius);
+			}
+		});
+	}
+
+	/**
+	 * @param parallel
+	 *            if true, the street searches are sent to the
+	 *            {@link GeocodingSubQueryExecutor} while the exact search is
+	 *            executed by the current thread. The results are merged the
+	 *            same way as in sequential mode
+	 */
+	private AddressResultsDto doSearch( String rawaddress,String alternativeStreetAddress,
+			String countryCode, boolean needParsing,String houseNumber, boolean fuzzy, Point point, Double radius, boolean smartStreetDetected, boolean parallel) {
 		AddressResultsDto results;
 		List<SolrResponseDto> exactMatches  ;
+		Future<List<SolrResponseDto>> streetFuture = null;
+		Future<List<SolrResponseDto>> alternativeFuture = null;
+		long deadline = 0;
+		if (parallel){
+			deadline = subQueryExecutor.getDeadline();
+			streetFuture = submitSearchStreet(rawaddress, countryCode, fuzzy, point, radius);
+			if (alternativeStreetAddress!=null){
+				alternativeFuture = submitSearchStreet(alternativeStreetAddress, countryCode, fuzzy, point, radius);
+			}
+		}
 		if (!smartStreetDetected  || houseNumber==null){
 			 exactMatches = doSearchExact(rawaddress,
 					countryCode, fuzzy, point, radius, null);
@@ -443,17 +579,32 @@ public class GeocodingService implements IGeocodingService {
 			//have been probably found by exact match, so we search for address and so a street*/
 			if (!needParsing && exactMatches!=null && exactMatches.size() >=1){
 				//only one word and exact match ok
+				if (parallel){
+					//the street searches were speculative
+					subQueryExecutor.cancel(streetFuture);
+					subQueryExecutor.cancel(alternativeFuture);
+				}
 				results = buildAddressResultDtoFromSolrResponseDto(exactMatches, houseNumber);
 			} else {
 				
-				List<SolrResponseDto> fulltextResultsDto = doSearchStreet(
+				List<SolrResponseDto> fulltextResultsDto;
+				if (streetFuture != null){
+					fulltextResultsDto = subQueryExecutor.get(streetFuture, deadline, new ArrayList<SolrResponseDto>());
+				} else {
+					fulltextResultsDto = doSearchStreet(
 						rawaddress, countryCode, fuzzy, point, radius);
+				}
 				if(alternativeStreetAddress!=null){
 				    if (logger.isDebugEnabled()){
 				        logger.debug("will search for altenative german Address : "+alternativeStreetAddress);
 				    }
-					List<SolrResponseDto> alternativeResults = doSearchStreet(
+					List<SolrResponseDto> alternativeResults;
+					if (alternativeFuture != null){
+						alternativeResults = subQueryExecutor.get(alternativeFuture, deadline, new ArrayList<SolrResponseDto>());
+					} else {
+						alternativeResults = doSearchStreet(
 							alternativeStreetAddress, countryCode, fuzzy, point, radius);
+					}
 					if (fulltextResultsDto.size()==0 ||(alternativeResults!=null && alternativeResults.size()>0 && fulltextResultsDto!=null && fulltextResultsDto.size() > 0 
 							&& alternativeResults.get(0)!=null && fulltextResultsDto.get(0)!=null
 							&& alternativeResults.get(0).getScore()>fulltextResultsDto.get(0).getScore())){
@@ -677,6 +828,9 @@ public class GeocodingService implements IGeocodingService {
 			logger.info("no house number to search : ");
 			return null;
 		}
+		if (houseNumbersList instanceof PackedHouseNumbers.HouseNumberDtoList && !("SK".equalsIgnoreCase(countryCode) || "CZ".equalsIgnoreCase(countryCode))){
+			return searchHouseNumber(houseNumberToFindAsInt, ((PackedHouseNumbers.HouseNumberDtoList) houseNumbersList).getPackedHouseNumbers(), doInterpolation);
+		}
 		Integer nearestLower = null;
 		Integer nearestUpper = null;
 		HouseNumberDto nearestHouseLower = null;
@@ -727,8 +881,85 @@ public class GeocodingService implements IGeocodingService {
 		if (logger.isDebugEnabled()){
 		    logger.debug("no exact house number candidate found for "+houseNumberToFindAsInt);
 		}
+		return buildApproximativeHouseNumber(houseNumberToFindAsInt, nearestLower, nearestHouseLower == null ? null : nearestHouseLower.getLocation(),
+				nearestUpper, nearestHouseUpper == null ? null : nearestHouseUpper.getLocation(), doInterpolation);
+	}
+
+	/**
+	 * Same as {@link #searchHouseNumber(Integer, List, String, boolean)}
+	 * with a binary search in the packed house numbers, that are sorted by
+	 * the numeric part of the number. The numeric part is the number of
+	 * {@link HouseNumberUtil#normalizeNumberToInt(String)}, except for the
+	 * numbers that don't start with a digit, whose key is 0 : they are the
+	 * first ones and are normalized one by one.
+	 */
+	protected HouseNumberDtoInterpolation searchHouseNumber(Integer houseNumberToFindAsInt, PackedHouseNumbers packedHouseNumbers, boolean doInterpolation) {
+		Integer nearestLower = null;
+		Integer nearestUpper = null;
+		int nearestHouseLower = -1;
+		int nearestHouseUpper = -1;
+		int size = packedHouseNumbers.size();
+		int firstWithKey = 0;
+		for (; firstWithKey < size && packedHouseNumbers.getKey(firstWithKey) == 0; firstWithKey++) {
+			Integer candidateNormalized = HouseNumberUtil.normalizeNumberToInt(packedHouseNumbers.getNumber(firstWithKey));
+			if (candidateNormalized != null) {
+				if (candidateNormalized.intValue() == houseNumberToFindAsInt.intValue()) {
+					return createExactHouseNumber(houseNumberToFindAsInt, packedHouseNumbers, firstWithKey);
+				} else if (candidateNormalized < houseNumberToFindAsInt) {
+					if (nearestLower == null || candidateNormalized > nearestLower) {
+						nearestLower = candidateNormalized;
+						nearestHouseLower = firstWithKey;
+					}
+				} else if (nearestUpper == null || candidateNormalized < nearestUpper) {
+					nearestUpper = candidateNormalized;
+					nearestHouseUpper = firstWithKey;
+				}
+			}
+		}
+		int upper = firstWithKey;
+		if (houseNumberToFindAsInt > 0) {
+			int index = packedHouseNumbers.indexOfKey(houseNumberToFindAsInt);
+			if (index >= 0) {
+				return createExactHouseNumber(houseNumberToFindAsInt, packedHouseNumbers, index);
+			}
+			upper = -(index + 1);
+			if (upper - 1 >= firstWithKey) {
+				//the first house number with the nearest lower key, as in the list
+				int lower = packedHouseNumbers.indexOfKey(packedHouseNumbers.getKey(upper - 1));
+				if (nearestLower == null || packedHouseNumbers.getKey(lower) > nearestLower) {
+					nearestLower = packedHouseNumbers.getKey(lower);
+					nearestHouseLower = lower;
+				}
+			}
+		}
+		if (upper < size && (nearestUpper == null || packedHouseNumbers.getKey(upper) < nearestUpper)) {
+			nearestUpper = packedHouseNumbers.getKey(upper);
+			nearestHouseUpper = upper;
+		}
+		return buildApproximativeHouseNumber(houseNumberToFindAsInt, nearestLower, getLocation(packedHouseNumbers, nearestHouseLower),
+				nearestUpper, getLocation(packedHouseNumbers, nearestHouseUpper), doInterpolation);
+	}
+
+	private HouseNumberDtoInterpolation createExactHouseNumber(Integer houseNumberToFindAsInt, PackedHouseNumbers packedHouseNumbers, int index) {
+		if (logger.isDebugEnabled()){
+			logger.debug("house number candidate found : "+packedHouseNumbers.getNumber(index));
+		}
+		HouseNumberDtoInterpolation result = new HouseNumberDtoInterpolation(getLocation(packedHouseNumbers, index),houseNumberToFindAsInt);
+		result.setApproximative(false);
+		return result;
+	}
+
+	private Point getLocation(PackedHouseNumbers packedHouseNumbers, int index) {
+		if (index < 0) {
+			return null;
+		}
+		return GeolocHelper.createPoint(packedHouseNumbers.getLongitude(index), packedHouseNumbers.getLatitude(index));
+	}
+
+	private HouseNumberDtoInterpolation buildApproximativeHouseNumber(Integer houseNumberToFindAsInt, Integer nearestLower, Point nearestLowerLocation,
+			Integer nearestUpper, Point nearestUpperLocation, boolean doInterpolation) {
 		//do interpolation
-		if (nearestHouseLower == null && nearestHouseUpper ==null){
+		if (nearestLowerLocation == null && nearestUpperLocation ==null){
 		    if (logger.isDebugEnabled()){
 		        logger.debug(" no lower, nor upper house number found");
 		    }
@@ -736,19 +967,19 @@ public class GeocodingService implements IGeocodingService {
 		}
 		HouseNumberDtoInterpolation result = new HouseNumberDtoInterpolation();
 		result.setApproximative(true);
-		if (nearestHouseUpper !=null){
+		if (nearestUpperLocation !=null){
 		    if (logger.isDebugEnabled()){
 		        logger.debug(" higher : "+nearestUpper);
 		    }
-			result.setHigherLocation(nearestHouseUpper.getLocation());
+			result.setHigherLocation(nearestUpperLocation);
 			result.setHigherNumber(nearestUpper);
 			result.setHouseNumberDif(nearestUpper - houseNumberToFindAsInt);
 		}
-		if (nearestHouseLower != null){
+		if (nearestLowerLocation != null){
 		    if (logger.isDebugEnabled()){
 		        logger.debug(" lower : "+nearestLower);
 		    }
-			result.setLowerLocation(nearestHouseLower.getLocation());
+			result.setLowerLocation(nearestLowerLocation);
 			result.setLowerNumber(nearestLower);
 			if (nearestUpper==null || Math.abs(nearestLower - houseNumberToFindAsInt)< Math.abs(result.getHouseNumberDif())){
 			    result.setHouseNumberDif(nearestLower - houseNumberToFindAsInt);
@@ -756,8 +987,8 @@ public class GeocodingService implements IGeocodingService {
 		}
 			//Do interpolation, but if the street is not a line or is curve the point will be out
 			if (doInterpolation){
-				if (nearestHouseLower !=null && nearestHouseUpper != null){
-					Point location = GeolocHelper.interpolatedPoint(nearestHouseLower.getLocation(), nearestHouseUpper.getLocation(), nearestUpper, nearestLower, houseNumberToFindAsInt);
+				if (nearestLowerLocation !=null && nearestUpperLocation != null){
+					Point location = GeolocHelper.interpolatedPoint(nearestLowerLocation, nearestUpperLocation, nearestUpper, nearestLower, houseNumberToFindAsInt);
 					if (location !=null){
 					    if (logger.isDebugEnabled()){
 					        logger.debug("interpolated : ok");
@@ -799,8 +1030,21 @@ public class GeocodingService implements IGeocodingService {
 	}
 	
 	
-//yes, this method is ugly, but works :)
+	/**
+	 * Search the house number in the streets and build the addresses, the
+	 * time spent is recorded as {@link LatencyStats#HOUSE_NUMBER}
+	 */
 	protected AddressResultsDto buildAddressResultDtoFromSolrResponseDto(List<SolrResponseDto> solResponseDtos, String houseNumberToFind) {
+		long start = System.nanoTime();
+		try {
+			return doBuildAddressResultDtoFromSolrResponseDto(solResponseDtos, houseNumberToFind);
+		} finally {
+			latencyStats.record(StatsUsageType.GEOCODING, LatencyStats.HOUSE_NUMBER, start);
+		}
+	}
+
+//yes, this method is ugly, but works :)
+	private AddressResultsDto doBuildAddressResultDtoFromSolrResponseDto(List<SolrResponseDto> solResponseDtos, String houseNumberToFind) {
 	    List<Address> addresses = new ArrayList<Address>();
 	    if (solResponseDtos != null && solResponseDtos.size() > 0) {
 	        if (logger.isDebugEnabled()) {
@@ -1232,7 +1476,9 @@ protected String replaceGermanSynonyms(String alternativeGermanAddress) {
 				query.withRadius(radius);
 			}
 		}
+		long start = System.nanoTime();
 		FulltextResultsDto results = fullTextSearchEngine.executeQuery(query);
+		latencyStats.record(StatsUsageType.GEOCODING, LatencyStats.SOLR + ".inText", start);
 		if (results.getResultsSize() >= 1) {
 			return results.getResults();
 		} else {
@@ -1256,7 +1502,9 @@ protected String replaceGermanSynonyms(String alternativeGermanAddress) {
 			query.around(point);
 			query.withRadius(radius);
 		}
+		long start = System.nanoTime();
 		FulltextResultsDto results = fullTextSearchEngine.executeQuery(query);
+		latencyStats.record(StatsUsageType.GEOCODING, LatencyStats.SOLR + ".exactMatches", start);
 		if (results.getResultsSize() >= 1) {
 			return results.getResults();
 		} else {
@@ -1291,4 +1539,22 @@ protected String replaceGermanSynonyms(String alternativeGermanAddress) {
 		this.gisgraphyConfig = gisgraphyConfig;
 	}
 
+	/**
+	 * @param geocodingCache the cache for the results of the geocoder, if
+	 * null, the results are not cached
+	 */
+	@Autowired(required=false)
+	public void setGeocodingCache(IGeocodingCache geocodingCache) {
+		this.geocodingCache = geocodingCache;
+	}
+
+	/**
+	 * @param subQueryExecutor the executor used to send the sub-queries
+	 * concurrently, if null, the sub-queries are executed sequentially
+	 */
+	@Autowired(required=false)
+	public void setSubQueryExecutor(GeocodingSubQueryExecutor subQueryExecutor) {
+		this.subQueryExecutor = subQueryExecutor;
+	}
+
 }
@@ -0,0 +1,256 @@
+/*******************************************************************************
+ * Gisgraphy Project 
+ *  
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *  
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *    Lesser General Public License for more details.
+ *  
+ *    You should have received a copy of the GNU Lesser General Public
+ *    License along with this library; if not, write to the Free Software
+ *    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ *  
+ *   Copyright 2008  Gisgraphy project 
+ * 
+ *   David Masclet <davidmasclet@gisgraphy.com>
+ ******************************************************************************/
+package com.gisgraphy.geocoding;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded executor used by the {@link GeocodingService} to send the
+ * independent fulltext sub-queries of a geocoding request (exact, street,
+ * alternative street and speculative fuzzy search) concurrently.
+ * <p>
+ * When the pool and its queue are full, the sub-query is executed by the
+ * calling thread, so a burst of requests never fails and never waits for a
+ * free slot. If the number of threads is 0 (the default), every sub-query is
+ * executed by the calling thread, as before.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public class GeocodingSubQueryExecutor {
+
+    protected static final Logger logger = LoggerFactory
+	    .getLogger(GeocodingSubQueryExecutor.class);
+
+    /**
+     * Default number of threads, 0 means that the sub-queries are executed
+     * sequentially by the calling thread
+     */
+    public static final int DEFAULT_THREADS = 0;
+
+    /**
+     * Default number of sub-queries that can wait for a free thread
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 200;
+
+    /**
+     * Default maximum time (in ms) a geocoding request waits for its
+     * sub-queries
+     */
+    public static final long DEFAULT_TIMEOUT = 5000;
+
+    private int threads = DEFAULT_THREADS;
+
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+    private long timeout = DEFAULT_TIMEOUT;
+
+    private boolean speculativeFuzzy = false;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+	if (threads > 0 && executor == null) {
+	    final AtomicInteger threadNumber = new AtomicInteger();
+	    executor = new ThreadPoolExecutor(threads, threads, 60,
+		    TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(
+			    queueCapacity), new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+			    Thread thread = new Thread(runnable,
+				    "geocoding-subquery-"
+					    + threadNumber.incrementAndGet());
+			    thread.setDaemon(true);
+			    return thread;
+			}
+		    }, new ThreadPoolExecutor.CallerRunsPolicy());
+	    logger.info("geocoding sub-queries will be executed by " + threads
+		    + " threads (timeout=" + timeout + " ms)");
+	}
+    }
+
+    @PreDestroy
+    public void destroy() {
+	if (executor != null) {
+	    executor.shutdownNow();
+	    executor = null;
+	}
+    }
+
+    /**
+     * @return true if the sub-queries are executed concurrently
+     */
+    public boolean isEnabled() {
+	return executor != null;
+    }
+
+    /**
+     * @return true if the fuzzy search should be sent at the same time as
+     *         the exact one, rather than when the exact one gives no good
+     *         results
+     */
+    public boolean isSpeculativeFuzzy() {
+	return speculativeFuzzy && isEnabled();
+    }
+
+    /**
+     * @return the deadline (in ms since epoch) of a request that starts now
+     */
+    public long getDeadline() {
+	return System.currentTimeMillis() + timeout;
+    }
+
+    /**
+     * Submit a sub-query. If the executor is not enabled, the sub-query is
+     * executed immediately by the calling thread
+     * 
+     * @param subQuery
+     *                the sub-query to execute
+     * @return the future result of the sub-query
+     */
+    public <T> Future<T> submit(Callable<T> subQuery) {
+	if (executor == null) {
+	    FutureTask<T> task = new FutureTask<T>(subQuery);
+	    task.run();
+	    return task;
+	}
+	return executor.submit(subQuery);
+    }
+
+    /**
+     * Wait for the result of a sub-query until the deadline
+     * 
+     * @param future
+     *                the future returned by {@link #submit(Callable)}
+     * @param deadline
+     *                the deadline returned by {@link #getDeadline()}
+     * @param defaultValue
+     *                the value to return if the sub-query is not done before
+     *                the deadline
+     * @return the result of the sub-query or the default value if the
+     *         deadline is reached
+     * @throws GeocodingException
+     *                 if the sub-query fails with a checked exception, runtime
+     *                 exceptions are rethrown as is
+     */
+    public <T> T get(Future<T> future, long deadline, T defaultValue) {
+	try {
+	    long remaining = Math.max(0, deadline - System.currentTimeMillis());
+	    return future.get(remaining, TimeUnit.MILLISECONDS);
+	} catch (TimeoutException e) {
+	    future.cancel(true);
+	    logger.warn("a geocoding sub-query has not finished before the deadline ("
+		    + timeout + " ms), it is ignored");
+	    return defaultValue;
+	} catch (InterruptedException e) {
+	    future.cancel(true);
+	    Thread.currentThread().interrupt();
+	    throw new GeocodingException("interrupted while waiting for a geocoding sub-query");
+	} catch (ExecutionException e) {
+	    Throwable cause = e.getCause();
+	    if (cause instanceof RuntimeException) {
+		throw (RuntimeException) cause;
+	    }
+	    if (cause instanceof Error) {
+		throw (Error) cause;
+	    }
+	    logger.error("a geocoding sub-query has failed : " + cause.getMessage(), cause);
+	    throw new GeocodingException("a geocoding sub-query has failed : "
+		    + cause.getMessage());
+	}
+    }
+
+    /**
+     * Cancel a sub-query whose result is not needed anymore
+     * 
+     * @param future
+     *                the future of the sub-query, can be null
+     */
+    public void cancel(Future<?> future) {
+	if (future != null) {
+	    future.cancel(true);
+	}
+    }
+
+    /**
+     * @param threads
+     *                the number of threads that execute the sub-queries, 0
+     *                means that they are executed by the calling thread
+     */
+    public void setThreads(int threads) {
+	if (threads < 0) {
+	    throw new IllegalArgumentException("the number of threads can not be negative");
+	}
+	this.threads = threads;
+    }
+
+    /**
+     * @param queueCapacity
+     *                the number of sub-queries that can wait for a free
+     *                thread, when the queue is full the sub-query is
+     *                executed by the calling thread
+     */
+    public void setQueueCapacity(int queueCapacity) {
+	if (queueCapacity <= 0) {
+	    throw new IllegalArgumentException("the queue capacity should be greater than 0");
+	}
+	this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * @param timeout
+     *                the maximum time (in ms) a geocoding request waits for
+     *                its sub-queries, the results of the sub-queries that
+     *                are not done are ignored
+     */
+    public void setTimeout(long timeout) {
+	if (timeout <= 0) {
+	    throw new IllegalArgumentException("the timeout should be greater than 0");
+	}
+	this.timeout = timeout;
+    }
+
+    /**
+     * @param speculativeFuzzy
+     *                whether the fuzzy search should be sent at the same
+     *                time as the exact one (only for fuzzy queries and when
+     *                the executor is enabled)
+     */
+    public void setSpeculativeFuzzy(boolean speculativeFuzzy) {
+	this.speculativeFuzzy = speculativeFuzzy;
+    }
+
+}
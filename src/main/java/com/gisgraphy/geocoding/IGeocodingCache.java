@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Gisgraphy Project 
+ *  
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *  
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *    Lesser General Public License for more details.
+ *  
+ *    You should have received a copy of the GNU Lesser General Public
+ *    License along with this library; if not, write to the Free Software
+ *    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ *  
+ *   Copyright 2008  Gisgraphy project 
+ * 
+ *   David Masclet <davidmasclet@gisgraphy.com>
+ ******************************************************************************/
+package com.gisgraphy.geocoding;
+
+import com.gisgraphy.addressparser.AddressResultsDto;
+
+/**
+ * A cache for the results of the {@link GeocodingService}. The keys are
+ * built by the service from the normalized query, so two queries that only
+ * differ by their case, their spaces or the position of the point (in the
+ * same bucket) share the same entry.
+ * <p>
+ * The cache keeps its own copy of the results : the results given to
+ * {@link #put(String, AddressResultsDto)} can be modified afterward and each
+ * call to {@link #get(String)} returns a new copy.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public interface IGeocodingCache {
+
+    /**
+     * @return true if the cache should be used
+     */
+    public boolean isEnabled();
+
+    /**
+     * @param key
+     *                the normalized key of the query
+     * @return a copy of the cached results or null if there is no (valid)
+     *         entry for the key
+     */
+    public AddressResultsDto get(String key);
+
+    /**
+     * @param key
+     *                the normalized key of the query
+     * @param results
+     *                the results to cache
+     */
+    public void put(String key, AddressResultsDto results);
+
+    /**
+     * Remove all the entries, should be called when the data that the
+     * geocoder uses change (import, edition,...)
+     */
+    public void invalidate();
+
+    /**
+     * @return the number of queries that have been found in the cache
+     */
+    public long getHitCount();
+
+    /**
+     * @return the number of queries that have not been found in the cache
+     */
+    public long getMissCount();
+
+    /**
+     * @return the number of entries in the cache
+     */
+    public long getSize();
+
+}
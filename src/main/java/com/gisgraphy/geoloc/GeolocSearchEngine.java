@@ -47,6 +47,7 @@ import com.gisgraphy.geocoloc.IGeolocSearchEngine;
 import com.gisgraphy.serializer.common.UniversalSerializerConstant;
 import com.gisgraphy.service.IStatsUsageService;
 import com.gisgraphy.service.ServiceException;
+import com.gisgraphy.stats.LatencyStats;
 import com.gisgraphy.stats.StatsUsageType;
 
 /**
@@ -74,6 +75,8 @@ public class GeolocSearchEngine implements IGeolocSearchEngine {
     IRepositoryStrategy repositoryStrategy;
     
     protected static final long LONG_REQUEST_THRESHOLD = 4000;
+
+    private LatencyStats latencyStats = LatencyStats.getInstance();
     
 
     /**
@@ -94,20 +97,26 @@ public class GeolocSearchEngine implements IGeolocSearchEngine {
 	statsUsageService.increaseUsage(StatsUsageType.GEOLOC);
 	Assert.notNull(query, "Can not execute a null query");
 	long start = System.currentTimeMillis();
-	Class<?> placetype = query.getPlaceType();
-	IGisDao<?> dao = repositoryStrategy
-		.getDao(GisFeature.class);
-	if (placetype != null) {
-	    dao = repositoryStrategy.getDao(placetype);
-	}
-	if (dao == null) {
-	    throw new GeolocSearchException(
-		    "No gisFeatureDao or no placetype can be found for "
-			    + placetype + " can be found.");
+	long startNanos = System.nanoTime();
+	List<GisFeatureDistance> results;
+	try {
+	    Class<?> placetype = query.getPlaceType();
+	    IGisDao<?> dao = repositoryStrategy
+		    .getDao(GisFeature.class);
+	    if (placetype != null) {
+		dao = repositoryStrategy.getDao(placetype);
+	    }
+	    if (dao == null) {
+		throw new GeolocSearchException(
+			"No gisFeatureDao or no placetype can be found for "
+				+ placetype + " can be found.");
+	    }
+	    results = dao.getNearestAndDistanceFrom(query
+		    .getPoint(), query.getRadius(),
+		    query.getFirstPaginationIndex(), query.getMaxNumberOfResults(),query.hasDistanceField(), query.hasMunicipalityFilter());
+	} finally {
+	    latencyStats.record(StatsUsageType.GEOLOC, LatencyStats.TOTAL, startNanos);
 	}
-	List<GisFeatureDistance> results = dao.getNearestAndDistanceFrom(query
-		.getPoint(), query.getRadius(),
-		query.getFirstPaginationIndex(), query.getMaxNumberOfResults(),query.hasDistanceField(), query.hasMunicipalityFilter());
 
 	long end = System.currentTimeMillis();
 	long qTime = end - start;
@@ -136,10 +145,12 @@ public class GeolocSearchEngine implements IGeolocSearchEngine {
 	Assert.notNull(outputStream,
 		"Can not serialize into a null outputStream");
 	GeolocResultsDto geolocResultsDto = executeQuery(query);
+	long start = System.nanoTime();
 	Map<String, Object> extraParameter = new HashMap<String, Object>();
 	extraParameter.put(GeolocResultsDtoSerializer.START_PAGINATION_INDEX_EXTRA_PARAMETER, query.getFirstPaginationIndex());
 	extraParameter.put(UniversalSerializerConstant.CALLBACK_METHOD_NAME, query.getCallback());
 	geolocResultsDtoSerializer.serialize(outputStream, query.getOutputFormat(), geolocResultsDto, query.isOutputIndented(),extraParameter);
+	latencyStats.record(StatsUsageType.GEOLOC, LatencyStats.SERIALIZATION, start);
     }
 
     /*
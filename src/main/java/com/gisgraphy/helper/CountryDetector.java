@@ -22,9 +22,8 @@
  *******************************************************************************/
 package com.gisgraphy.helper;
 
+import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,6 +31,12 @@ import org.slf4j.LoggerFactory;
 /**
  * 
  * Detect Country
+ * <p>
+ * The country names of {@link CountriesStaticData#countryAlternateNames} are
+ * stored, reversed, in a trie that is built once. The country is detected by
+ * walking the address from its end, so the longest country name that ends
+ * the address is found in one pass whatever the number of countries and
+ * alternate names.
  * 
  * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
  * 
@@ -43,38 +48,150 @@ public class CountryDetector {
 	 */
 	public static final Logger logger = LoggerFactory.getLogger(CountryDetector.class);
 
-	 public CountryDetectorDto detectAndRemoveCountry(String address) {
-		 for (String countryCode: com.gisgraphy.helper.CountriesStaticData.countryCodeSortedByPopularity){
-	    	if (countryCode == null || "SG".equalsIgnoreCase(countryCode) || "PA".equalsIgnoreCase(countryCode)) {
-	    		// shortcut for specific country that got countryname and city is
-	    		// the same (panama, singapour
-	    		continue;
-	    	}
-	    	List<String> alternateNames = CountriesStaticData.countryAlternateNames.get(countryCode.toUpperCase());
-	    	if (alternateNames != null) {
-	    		String sanitarizeAddress = address.replaceAll("[\\s\\-\\']+", " ").trim().toLowerCase();
-	    		for (String alternateName : alternateNames) {
-	    			if (alternateName!=null && alternateName.toLowerCase().contains("mexico")){
-	    				 //special case for mexico =>we should not remove because it is also a city and a sate
-	    				continue;
-	    			}
-	    			if (sanitarizeAddress.endsWith(alternateName.toLowerCase())) {
-	    				//String pattern = "(?i)" + alternateName + "\\s*$";
-	    				Matcher matcher = Pattern.compile("(?i)" + alternateName + "\\s*$").matcher(sanitarizeAddress);
-	    				if (matcher.find()){
-	    					int index = matcher.start();
-	    					String result = address.substring(0, index).trim();
-	    					if (result != null && Pattern.matches(".*[,-]$", result) ){
-	    						result = result.substring(0, result.length()-1).trim();
-	    					}
-	    					logger.info("'"+alternateName +"' has been detected as a country name and removed from "+address +" : "+result);
-	    					return new CountryDetectorDto(result, countryCode);
-	    				}
-	    			}
-	    		}
-	    	}
+	private static final SuffixNode COUNTRY_NAMES = buildCountryNamesTrie(CountriesStaticData.countryCodeSortedByPopularity);
 
-	    }
-		 return new CountryDetectorDto(address, null);
-	 }
+	/**
+	 * A node of the trie of the reversed country names. The children are
+	 * sorted by char to be found with a binary search.
+	 */
+	static final class SuffixNode {
+		private char[] keys = new char[0];
+		private SuffixNode[] children = new SuffixNode[0];
+		/**
+		 * the country code if a country name ends at this node
+		 */
+		String countryCode;
+		String alternateName;
+
+		SuffixNode get(char c) {
+			int index = Arrays.binarySearch(keys, c);
+			return index < 0 ? null : children[index];
+		}
+
+		SuffixNode getOrCreate(char c) {
+			int index = Arrays.binarySearch(keys, c);
+			if (index >= 0) {
+				return children[index];
+			}
+			index = -(index + 1);
+			char[] newKeys = new char[keys.length + 1];
+			SuffixNode[] newChildren = new SuffixNode[keys.length + 1];
+			System.arraycopy(keys, 0, newKeys, 0, index);
+			System.arraycopy(children, 0, newChildren, 0, index);
+			System.arraycopy(keys, index, newKeys, index + 1, keys.length - index);
+			System.arraycopy(children, index, newChildren, index + 1, keys.length - index);
+			newKeys[index] = c;
+			newChildren[index] = new SuffixNode();
+			keys = newKeys;
+			children = newChildren;
+			return newChildren[index];
+		}
+	}
+
+	/**
+	 * @param countryCodes
+	 *            the country codes sorted by popularity. When a name is shared
+	 *            by several countries, the most popular one is kept
+	 */
+	static SuffixNode buildCountryNamesTrie(List<String> countryCodes) {
+		SuffixNode root = new SuffixNode();
+		for (String countryCode : countryCodes) {
+			if (countryCode == null || "SG".equalsIgnoreCase(countryCode) || "PA".equalsIgnoreCase(countryCode)) {
+				// shortcut for specific country that got countryname and city is
+				// the same (panama, singapour
+				continue;
+			}
+			List<String> alternateNames = CountriesStaticData.countryAlternateNames.get(countryCode.toUpperCase());
+			if (alternateNames == null) {
+				continue;
+			}
+			for (String alternateName : alternateNames) {
+				if (alternateName == null || alternateName.toLowerCase().contains("mexico")) {
+					//special case for mexico =>we should not remove because it is also a city and a sate
+					continue;
+				}
+				SuffixNode node = root;
+				int i = alternateName.length() - 1;
+				while (i >= 0 && isSeparator(alternateName.charAt(i))) {
+					i--;
+				}
+				if (i < 0) {
+					continue;
+				}
+				while (i >= 0) {
+					char c = alternateName.charAt(i);
+					if (isSeparator(c)) {
+						c = ' ';
+						while (i > 0 && isSeparator(alternateName.charAt(i - 1))) {
+							i--;
+						}
+					} else {
+						c = normalize(c);
+					}
+					node = node.getOrCreate(c);
+					i--;
+				}
+				if (node.countryCode == null) {
+					node.countryCode = countryCode;
+					node.alternateName = alternateName;
+				}
+			}
+		}
+		return root;
+	}
+
+	/**
+	 * same chars as the '[\s\-\']' class used to sanitize the country names
+	 */
+	private static boolean isSeparator(char c) {
+		return c == ' ' || c == '-' || c == '\'' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == '\u000B';
+	}
+
+	private static char normalize(char c) {
+		char lower = Character.toLowerCase(c);
+		// String.toLowerCase() gives a final sigma at the end of a word
+		return lower == '\u03C2' ? '\u03C3' : lower;
+	}
+
+	public CountryDetectorDto detectAndRemoveCountry(String address) {
+		if (address == null) {
+			return new CountryDetectorDto(address, null);
+		}
+		int i = address.length() - 1;
+		while (i >= 0 && isSeparator(address.charAt(i))) {
+			i--;
+		}
+		SuffixNode node = COUNTRY_NAMES;
+		SuffixNode found = null;
+		int index = -1;
+		while (i >= 0) {
+			char c = address.charAt(i);
+			if (isSeparator(c)) {
+				c = ' ';
+				while (i > 0 && isSeparator(address.charAt(i - 1))) {
+					i--;
+				}
+			} else {
+				c = normalize(c);
+			}
+			node = node.get(c);
+			if (node == null) {
+				break;
+			}
+			if (node.countryCode != null) {
+				found = node;
+				index = i;
+			}
+			i--;
+		}
+		if (found == null) {
+			return new CountryDetectorDto(address, null);
+		}
+		String result = address.substring(0, index).trim();
+		if (result.endsWith(",") || result.endsWith("-")) {
+			result = result.substring(0, result.length() - 1).trim();
+		}
+		logger.info("'" + found.alternateName + "' has been detected as a country name and removed from " + address + " : " + result);
+		return new CountryDetectorDto(result, found.countryCode);
+	}
 }
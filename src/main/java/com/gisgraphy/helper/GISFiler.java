@@ -156,4 +156,48 @@ public class GISFiler {
     public String getCurrentFileNameIntoArchive() {
 	return currentFileNameIntoArchiveExtracted;
     }
+
+    /**
+     * Open the archive as a stream, so that the files can be read entry by
+     * entry without being extracted on the disk. the .gis and .tar.bz2 files
+     * are bunzipped (concatenated bzip2 streams are supported), the .gz files
+     * are gunzipped and the .tar files are read as is.
+     * 
+     * @param readAhead
+     *                if true the archive is decompressed in a background
+     *                thread (see {@link ReadAheadInputStream}), so that the
+     *                decompression and the processing of the lines use two
+     *                cores
+     * @return the tar stream of the archive, the caller has to close it
+     * @throws IOException
+     *                 if the archive can not be read or the format is not
+     *                 supported
+     */
+    public TarArchiveInputStream openArchiveStream(boolean readAhead) throws IOException {
+	if (gisFileName == null) {
+	    throw new IllegalArgumentException("fileName to stream can not be null");
+	}
+	String name = gisFileName.toLowerCase();
+	InputStream fileStream = new BufferedInputStream(new FileInputStream(new File(gisFileName)));
+	InputStream decompressed;
+	try {
+	    if (name.endsWith(".gis") || name.endsWith(".bz2")) {
+		decompressed = new BZip2CompressorInputStream(fileStream, true);
+	    } else if (name.endsWith("gzip") || name.endsWith("gz")) {
+		decompressed = new GZIPInputStream(fileStream);
+	    } else if (name.endsWith("tar")) {
+		decompressed = fileStream;
+	    } else {
+		throw new IOException("can not detect the format of " + gisFileName);
+	    }
+	} catch (IOException e) {
+	    fileStream.close();
+	    throw e;
+	}
+	logger.info("streaming " + gisFileName + (readAhead ? " with a background decompression" : ""));
+	if (readAhead) {
+	    decompressed = new ReadAheadInputStream(decompressed, "decompress-" + new File(gisFileName).getName());
+	}
+	return new TarArchiveInputStream(decompressed);
+    }
 }
\ No newline at end of file
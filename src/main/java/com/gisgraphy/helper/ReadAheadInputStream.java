@@ -0,0 +1,204 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.helper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * An {@link InputStream} that reads the wrapped stream in a background
+ * thread, a few blocks in advance. It is used to decompress an archive on one
+ * core while the importer parses the lines on an other one.
+ * <p>
+ * The wrapped stream is closed when the end of the stream is reached or when
+ * this stream is closed. An {@link IOException} thrown by the wrapped stream
+ * is thrown by the next read.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public class ReadAheadInputStream extends InputStream {
+
+    public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+    public static final int DEFAULT_BLOCKS_IN_ADVANCE = 8;
+
+    private static final byte[] END_OF_STREAM = new byte[0];
+
+    private final BlockingQueue<byte[]> blocks;
+
+    private final Thread reader;
+
+    private volatile IOException readException;
+
+    private volatile boolean closed = false;
+
+    private byte[] currentBlock;
+
+    private int position = 0;
+
+    /**
+     * @param in
+     *                the stream to read in background
+     * @param name
+     *                the name of the reading thread
+     */
+    public ReadAheadInputStream(InputStream in, String name) {
+	this(in, name, DEFAULT_BLOCK_SIZE, DEFAULT_BLOCKS_IN_ADVANCE);
+    }
+
+    /**
+     * @param in
+     *                the stream to read in background
+     * @param name
+     *                the name of the reading thread
+     * @param blockSize
+     *                the size of the blocks read in advance
+     * @param blocksInAdvance
+     *                the number of blocks that can be read in advance
+     */
+    public ReadAheadInputStream(final InputStream in, String name, final int blockSize, int blocksInAdvance) {
+	if (in == null) {
+	    throw new IllegalArgumentException("can not read ahead a null stream");
+	}
+	if (blockSize <= 0 || blocksInAdvance <= 0) {
+	    throw new IllegalArgumentException("the block size and the number of blocks should be greater than 0");
+	}
+	this.blocks = new ArrayBlockingQueue<byte[]>(blocksInAdvance);
+	this.reader = new Thread(new Runnable() {
+	    public void run() {
+		try {
+		    while (!closed) {
+			byte[] block = new byte[blockSize];
+			int length = readFully(in, block);
+			if (length <= 0) {
+			    break;
+			}
+			if (length < blockSize) {
+			    byte[] lastBlock = new byte[length];
+			    System.arraycopy(block, 0, lastBlock, 0, length);
+			    block = lastBlock;
+			}
+			blocks.put(block);
+		    }
+		} catch (IOException e) {
+		    readException = e;
+		} catch (InterruptedException e) {
+		    //closed
+		} finally {
+		    try {
+			in.close();
+		    } catch (IOException ignore) {
+		    }
+		    if (!closed) {
+			try {
+			    blocks.put(END_OF_STREAM);
+			} catch (InterruptedException ignore) {
+			}
+		    }
+		}
+	    }
+	}, name);
+	reader.setDaemon(true);
+	reader.start();
+    }
+
+    private static int readFully(InputStream in, byte[] block) throws IOException {
+	int length = 0;
+	while (length < block.length) {
+	    int read = in.read(block, length, block.length - length);
+	    if (read == -1) {
+		break;
+	    }
+	    length += read;
+	}
+	return length;
+    }
+
+    /**
+     * @return false if the end of the stream is reached
+     */
+    private boolean nextBlockIfNeeded() throws IOException {
+	if (currentBlock == END_OF_STREAM) {
+	    return false;
+	}
+	if (currentBlock != null && position < currentBlock.length) {
+	    return true;
+	}
+	if (closed) {
+	    throw new IOException("the stream is closed");
+	}
+	try {
+	    currentBlock = blocks.take();
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new IOException("interrupted while waiting for the next block");
+	}
+	position = 0;
+	if (currentBlock == END_OF_STREAM) {
+	    if (readException != null) {
+		throw readException;
+	    }
+	    return false;
+	}
+	return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+	if (!nextBlockIfNeeded()) {
+	    return -1;
+	}
+	return currentBlock[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+	if (len == 0) {
+	    return 0;
+	}
+	if (!nextBlockIfNeeded()) {
+	    return -1;
+	}
+	int length = Math.min(len, currentBlock.length - position);
+	System.arraycopy(currentBlock, position, b, off, length);
+	position += length;
+	return length;
+    }
+
+    @Override
+    public int available() throws IOException {
+	return currentBlock == null || currentBlock == END_OF_STREAM ? 0 : currentBlock.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+	if (!closed) {
+	    closed = true;
+	    reader.interrupt();
+	    blocks.clear();
+	}
+    }
+
+}
@@ -12,13 +12,19 @@
 package com.gisgraphy.hibernate.criterion;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
-import org.hibernate.transform.AliasToBeanResultTransformer;
-import org.hibernate.transform.ResultTransformer;
+import org.hibernate.HibernateException;
+import org.hibernate.property.ChainedPropertyAccessor;
+import org.hibernate.property.PropertyAccessor;
+import org.hibernate.property.PropertyAccessorFactory;
+import org.hibernate.property.Setter;
 
 import com.gisgraphy.domain.valueobject.GisFeatureDistance;
 import com.gisgraphy.domain.valueobject.GisFeatureDistanceFactory;
@@ -33,9 +39,78 @@ public class ResultTransformerUtil<T> {
 
     
     	protected static GisFeatureDistanceFactory gisFeatureDistanceFactory = new GisFeatureDistanceFactory();
+
+	/**
+	 * The mappers already compiled, by result class and alias list
+	 */
+	private static final Map<List<Object>, TupleMapper<?>> mappers = new ConcurrentHashMap<List<Object>, TupleMapper<?>>();
+
+	/**
+	 * Map a tuple to a bean by the index of the aliases. The setters are
+	 * resolved once (the same way {@link org.hibernate.transform.AliasToBeanResultTransformer}
+	 * does : property setter, then field), instead of once per query.
+	 */
+	static class TupleMapper<T> {
+
+		private final Class<T> resultClass;
+
+		private final Setter[] setters;
+
+		TupleMapper(Class<T> resultClass, String[] aliasList) {
+			this.resultClass = resultClass;
+			PropertyAccessor propertyAccessor = new ChainedPropertyAccessor(new PropertyAccessor[] {
+					PropertyAccessorFactory.getPropertyAccessor(resultClass, null),
+					PropertyAccessorFactory.getPropertyAccessor("field") });
+			setters = new Setter[aliasList.length];
+			for (int i = 0; i < aliasList.length; i++) {
+				if (aliasList[i] != null) {
+					setters[i] = propertyAccessor.getSetter(resultClass, aliasList[i]);
+				}
+			}
+		}
+
+		T map(Object[] tuple) {
+			T result;
+			try {
+				result = resultClass.newInstance();
+			} catch (InstantiationException e) {
+				throw new HibernateException("Could not instantiate resultclass: " + resultClass.getName());
+			} catch (IllegalAccessException e) {
+				throw new HibernateException("Could not instantiate resultclass: " + resultClass.getName());
+			}
+			for (int i = 0; i < setters.length; i++) {
+				if (setters[i] != null) {
+					setters[i].set(result, tuple[i], null);
+				}
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * @return the mapper for the given class and aliases, it is compiled on
+	 *         the first call and then reused
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> TupleMapper<T> getTupleMapper(Class<T> resultClass, String[] aliasList) {
+		List<Object> key = new ArrayList<Object>(aliasList.length + 1);
+		key.add(resultClass);
+		key.addAll(Arrays.asList(aliasList));
+		TupleMapper<T> mapper = (TupleMapper<T>) mappers.get(key);
+		if (mapper == null) {
+			mapper = new TupleMapper<T>(resultClass, aliasList);
+			mappers.put(key, mapper);
+		}
+		return mapper;
+	}
+
 	/**
 	 * Transform to bean. See bug
 	 * http://opensource.atlassian.com/projects/hibernate/browse/HHH-2463
+	 * The duplicated rows are removed and the order is kept. Two rows are
+	 * duplicated if their beans are equals once the fields and the zip codes
+	 * are updated. The fields only depend on the row, so identical rows give
+	 * equal beans.
 	 * 
 	 * @param aliasList
 	 *                the alias list
@@ -44,24 +119,24 @@ public class ResultTransformerUtil<T> {
 	 * 
 	 * @return the list of GisFeatureDistance
 	 */
-	//TODO tests zip test
 	public static List<GisFeatureDistance> transformToGisFeatureDistance(String aliasList[], List<?> resultList, Map<Long, Set<String>> featureIdToZipCodesMap,Class clazz) {
 		List<GisFeatureDistance> results = new ArrayList<GisFeatureDistance>();
 		if (aliasList != null && !resultList.isEmpty()) {
-			ResultTransformer tr = new AliasToBeanResultTransformer(GisFeatureDistance.class);
+			TupleMapper<GisFeatureDistance> mapper = getTupleMapper(GisFeatureDistance.class, aliasList);
+			//the beans are not modified once they are in the set
+			Set<GisFeatureDistance> alreadyAdded = new HashSet<GisFeatureDistance>(resultList.size() * 2);
 			Iterator<?> it = resultList.iterator();
 			Object[] obj;
 			GisFeatureDistance gisFeatureDistance;
 			while (it.hasNext()) {
 				obj = (Object[]) it.next();
-				gisFeatureDistance = (GisFeatureDistance) tr.transformTuple(obj, aliasList);
-				int indexInList = results.indexOf(gisFeatureDistance);
-				if (indexInList == -1) {
-				    gisFeatureDistanceFactory.updateFields(gisFeatureDistance,clazz);
+				gisFeatureDistance = mapper.map(obj);
+				gisFeatureDistanceFactory.updateFields(gisFeatureDistance,clazz);
+				if (featureIdToZipCodesMap != null){
+				    gisFeatureDistance.setZipCodes(featureIdToZipCodesMap.get(gisFeatureDistance.getId()));
+				}
+				if (alreadyAdded.add(gisFeatureDistance)) {
 					results.add(gisFeatureDistance);
-					if (featureIdToZipCodesMap != null){
-					    gisFeatureDistance.setZipCodes(featureIdToZipCodesMap.get(gisFeatureDistance.getId()));
-					}
 				}
 			}
 		}
@@ -83,12 +158,12 @@ public class ResultTransformerUtil<T> {
 	public static List<StreetDistance> transformToStreetDistance(String aliasList[], List<?> resultList) {
 		List<StreetDistance> transformList = new ArrayList<StreetDistance>();
 		if (aliasList != null && !resultList.isEmpty()) {
-			AliasToBeanResultTransformer tr = new AliasToBeanResultTransformer(StreetDistance.class);
+			TupleMapper<StreetDistance> mapper = getTupleMapper(StreetDistance.class, aliasList);
 			Iterator<?> it = resultList.iterator();
 			Object[] obj;
 			while (it.hasNext()) {
 				obj = (Object[]) it.next();
-				StreetDistance streetDistance = (StreetDistance) tr.transformTuple(obj, aliasList);
+				StreetDistance streetDistance = mapper.map(obj);
 				streetDistance.updateFields();
 				transformList.add(streetDistance);
 			}
@@ -89,8 +89,12 @@ public abstract class AbstractFileRetriever implements IImporterProcessor {
 		    logger
 			.info("DownloadFiles option is set to false, we won't download but decompress files");
 		}
-		statusMessage = internationalisationService.getString("import.extract.info");
-		decompressFiles();
+		if (importerConfig.isArchiveStreamingEnabled() && isArchiveStreamingSupported()) {
+		    logger.info("the archives won't be decompressed, they will be read by the importers");
+		} else {
+		    statusMessage = internationalisationService.getString("import.extract.info");
+		    decompressFiles();
+		}
 		this.status = ImporterStatus.PROCESSED ;
 	    } else {
 		this.status = ImporterStatus.SKIPPED;
@@ -149,6 +153,26 @@ public abstract class AbstractFileRetriever implements IImporterProcessor {
 	return importerConfig.isRetrieveFiles();
     }
 
+    /**
+     * @return true if all the files to download are archives (.gis, .tar.bz2)
+     *         that the importers can read directly (see
+     *         {@link AbstractSimpleImporterProcessor#getArchivesToStream()}),
+     *         the files are then not decompressed when
+     *         {@link ImporterConfig#isArchiveStreamingEnabled()}
+     */
+    protected boolean isArchiveStreamingSupported() {
+	List<String> filesToDownload = getFilesToDownload();
+	if (filesToDownload == null || filesToDownload.isEmpty()) {
+	    return false;
+	}
+	for (String file : filesToDownload) {
+	    if (!ImporterHelper.isGisFileName(file)) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
     /**
      * Method to call if files must be decompress (untar or unzip)
      * @throws IOException
@@ -35,7 +35,25 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
-
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.utils.CountingInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -47,8 +65,11 @@ import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.support.DefaultTransactionDefinition;
 
 import com.gisgraphy.domain.repository.GisFeatureDao;
+import com.gisgraphy.domain.repository.IBulkCopyDao;
+import com.gisgraphy.domain.repository.ISolRSynchroniser;
 import com.gisgraphy.domain.valueobject.Constants;
 import com.gisgraphy.domain.valueobject.ImporterStatus;
+import com.gisgraphy.helper.GISFiler;
 import com.gisgraphy.service.IInternationalisationService;
 
 /**
@@ -72,6 +93,40 @@ public abstract class AbstractSimpleImporterProcessor implements IImporterProces
      */
     int numberOfLinesToProcess = 0;
 
+    /**
+     * Whether the archives to stream have been scanned
+     * 
+     * @see #scanArchives(File[])
+     */
+    private boolean archivesScanned = false;
+
+    /**
+     * The names of the entries of the archives to import, null if all the
+     * country files should be imported
+     * 
+     * @see #scanArchives(File[])
+     */
+    private Set<String> archiveEntriesToImport;
+
+    /**
+     * The size (in bytes) of the entries of the archives to import
+     * 
+     * @see #scanArchives(File[])
+     */
+    private long archiveBytesToProcess = 0;
+
+    /**
+     * The size (in bytes) of the entries of the archives that have been
+     * processed
+     */
+    private long archiveBytesProcessed = 0;
+
+    /**
+     * The stream of the entry that is processed, to know how many bytes of it
+     * have been read
+     */
+    private volatile CountingInputStream currentEntryStream;
+
     /**
      * This fields is use to generate unique featureid when importing features
      * because we don't know yet the featureId and this field is required. it
@@ -114,6 +169,22 @@ public abstract class AbstractSimpleImporterProcessor implements IImporterProces
      */
     protected PlatformTransactionManager transactionManager;
 
+    /**
+     * The dao that inserts the entities when {@link #isBulkCopied()}
+     */
+    protected IBulkCopyDao bulkCopyDao;
+
+    /**
+     * The entities that wait for the next bulk copy
+     */
+    private final List<Object> bulkCopyEntities = new ArrayList<Object>();
+
+    /**
+     * The entities that wait for the next bulk copy and that reference one of
+     * {@link #bulkCopyEntities}, they are copied after them
+     */
+    private final List<Object> bulkCopyDependentEntities = new ArrayList<Object>();
+
     /**
      * Template Method : Whether the processor should ignore the first line of
      * the input
@@ -184,10 +255,40 @@ public abstract class AbstractSimpleImporterProcessor implements IImporterProces
     }
 
     /**
-     * @return The files to be process
+     * Template method that can be override by the importers of the country
+     * files of a directory. Those files are downloaded as archives (.gis,
+     * .tar.bz2) that are extracted in the same directory, or read directly
+     * when {@link ImporterConfig#isArchiveStreamingEnabled()}
+     * 
+     * @return the directory of the country files, null by default
+     * @see ImporterHelper#listCountryFilesToImport(String)
+     */
+    protected String getCountryFilesDirectory() {
+	return null;
+    }
+
+    /**
+     * @return The files to be process, the country files of
+     *         {@link #getCountryFilesDirectory()} by default
      * @see ImporterHelper
      */
-    protected abstract File[] getFiles();
+    protected File[] getFiles() {
+	String directory = getCountryFilesDirectory();
+	return directory == null ? new File[0] : ImporterHelper.listCountryFilesToImport(directory);
+    }
+
+    /**
+     * @return The archives to read when the streaming is enabled : the
+     *         archives of {@link #getCountryFilesDirectory()}, none if the
+     *         streaming is disabled
+     */
+    protected File[] getArchivesToStream() {
+	if (!importerConfig.isArchiveStreamingEnabled()) {
+	    return new File[0];
+	}
+	String directory = getCountryFilesDirectory();
+	return directory == null ? new File[0] : ImporterHelper.listGisFiles(directory);
+    }
 
     /*
      * (non-Javadoc)
@@ -233,33 +334,8 @@ public abstract class AbstractSimpleImporterProcessor implements IImporterProces
 		} else {
 		    try {
 			this.processData(input);
-		    } catch (MissingRequiredFieldException mrfe) {
-			if (this.importerConfig.isMissingRequiredFieldThrows()) {
-			    logger.error("A requrired field is missing "
-				    + mrfe.getMessage());
-			    throw new ImporterException(
-				    "A requrired field is missing "
-					    + mrfe.getMessage(), mrfe);
-			} else {
-			    logger.warn(mrfe.getMessage());
-			}
-		    } catch (WrongNumberOfFieldsException wnofe) {
-			if (this.importerConfig.isWrongNumberOfFieldsThrows()) {
-			    logger
-				    .error("wrong number of fields during import "
-					    + wnofe.getMessage());
-			    throw new ImporterException(
-				    "Wrong number of fields during import "
-					    + wnofe.getMessage(), wnofe);
-			} else {
-			    logger.warn(wnofe.getMessage());
-			}
 		    } catch (Exception e) {
-			String message= "An Error occurred on Line "
-				+ readFileLine + " for " + dumpFields(input.split("\t")) + " : "
-				+ e.getMessage();
-			throw new ImporterException(
-				message, e);
+			handleProcessingError(input, e);
 		    }
 		}
 	    }
@@ -270,6 +346,47 @@ public abstract class AbstractSimpleImporterProcessor implements IImporterProces
 	return readFileLine;
     }
 
+    /**
+     * Apply the error policy defined in the {@link ImporterConfig} to an
+     * exception thrown when a line is processed : missing fields and wrong
+     * number of fields are only logged if the config says so, other errors are
+     * always thrown
+     * 
+     * @param input
+     *                the line that was processed
+     * @param e
+     *                the exception thrown during the process
+     * @throws ImporterException
+     *                 if the error should stop the import
+     */
+    private void handleProcessingError(String input, Exception e)
+	    throws ImporterException {
+	if (e instanceof MissingRequiredFieldException) {
+	    if (this.importerConfig.isMissingRequiredFieldThrows()) {
+		logger.error("A requrired field is missing " + e.getMessage());
+		throw new ImporterException("A requrired field is missing "
+			+ e.getMessage(), e);
+	    } else {
+		logger.warn(e.getMessage());
+	    }
+	} else if (e instanceof WrongNumberOfFieldsException) {
+	    if (this.importerConfig.isWrongNumberOfFieldsThrows()) {
+		logger.error("wrong number of fields during import "
+			+ e.getMessage());
+		throw new ImporterException(
+			"Wrong number of fields during import "
+				+ e.getMessage(), e);
+	    } else {
+		logger.warn(e.getMessage());
+	    }
+	} else {
+	    String message = "An Error occurred on Line " + readFileLine
+		    + " for " + dumpFields(input.split("\t")) + " : "
+		    + e.getMessage();
+	    throw new ImporterException(message, e);
+	}
+    }
+
    
 
     /**
@@ -282,6 +399,132 @@ public abstract class AbstractSimpleImporterProcessor implements IImporterProces
     protected abstract void processData(String line)
 	    throws ImporterException;
 
+    /**
+     * Template method that can be override. Whether the processor can be run
+     * with the multi-threaded pipeline (see
+     * {@link ImporterConfig#getImporterWorkerThreads()}). If true,
+     * {@link #prepareData(String)} and {@link #processPreparedData(Object)}
+     * must be implemented.
+     * 
+     * @return true if the processor supports the pipelined mode, default to
+     *         false
+     */
+    protected boolean isPipelineSupported() {
+	return false;
+    }
+
+    /**
+     * Template method that can be override. Whether the processor can give
+     * its new entities to {@link #addToBulkCopy(Object, Collection...)}
+     * instead of saving them, so that they are inserted with the COPY protocol
+     * before each commit (see {@link ImporterConfig#isBulkCopyEnabled()}).
+     * 
+     * @return how to save the entities whose copy has failed, or null if the
+     *         processor doesn't support the bulk copy. Default to null
+     */
+    protected BulkCopySupport getBulkCopySupport() {
+	return null;
+    }
+
+    /**
+     * @return true if the new entities should be given to
+     *         {@link #addToBulkCopy(Object, Collection...)} rather than saved
+     */
+    protected boolean isBulkCopied() {
+	return getBulkCopySupport() != null && importerConfig.isBulkCopyEnabled()
+		&& bulkCopyDao != null;
+    }
+
+    /**
+     * Buffer a new entity, it will be inserted with the COPY protocol before
+     * the next commit
+     * 
+     * @param entity
+     *                the new entity
+     * @param dependentEntities
+     *                the new entities that reference it and that should have
+     *                been saved by cascade (alternate names,...), can be null
+     * @see #isBulkCopied()
+     */
+    protected void addToBulkCopy(Object entity,
+	    Collection<?>... dependentEntities) {
+	bulkCopyEntities.add(entity);
+	for (Collection<?> dependents : dependentEntities) {
+	    if (dependents != null) {
+		bulkCopyDependentEntities.addAll(dependents);
+	    }
+	}
+    }
+
+    /**
+     * Insert the buffered entities with the COPY protocol. It is called
+     * before each commit, in the transaction. If the copy fails, the entities
+     * are saved one by one with
+     * {@link BulkCopySupport#saveWithoutBulkCopy(Object)}
+     */
+    protected void bulkCopy() {
+	if (bulkCopyEntities.isEmpty()) {
+	    return;
+	}
+	List<Object> entities = new ArrayList<Object>(bulkCopyEntities);
+	List<Object> allEntities = new ArrayList<Object>(entities.size()
+		+ bulkCopyDependentEntities.size());
+	allEntities.addAll(entities);
+	allEntities.addAll(bulkCopyDependentEntities);
+	bulkCopyEntities.clear();
+	bulkCopyDependentEntities.clear();
+	try {
+	    bulkCopyDao.copy(allEntities);
+	} catch (Exception e) {
+	    logger.error("can not copy " + allEntities.size()
+		    + " entities, they will be saved one by one : "
+		    + e.getMessage(), e);
+	    for (Object entity : entities) {
+		try {
+		    getBulkCopySupport().saveWithoutBulkCopy(entity);
+		} catch (Exception e2) {
+		    logger.error("Can not save " + entity
+			    + " we continue anyway but you should consider this : "
+			    + e2.getMessage(), e2);
+		}
+	    }
+	}
+    }
+
+    /**
+     * Template method that can be override. First step of the pipelined
+     * process : parse the line and do the CPU work that doesn't need the
+     * database (geometry decoding, string manipulations,...). It is called
+     * concurrently by the worker threads, without any transaction, so it must
+     * be thread safe and must not use the daos.
+     * 
+     * @param line
+     *                the line to process
+     * @return an object that will be given to
+     *         {@link #processPreparedData(Object)}, or null if the line should
+     *         be ignored. Default to the line itself
+     * @see #isPipelineSupported()
+     */
+    protected Object prepareData(String line) throws ImporterException {
+	return line;
+    }
+
+    /**
+     * Template method that can be override. Second step of the pipelined
+     * process : enrich and save the data returned by
+     * {@link #prepareData(String)}. It is called by the writer thread, in the
+     * same order as the lines of the file, in the current transaction.
+     * 
+     * @param preparedData
+     *                the object returned by {@link #prepareData(String)},
+     *                never null
+     * @see #isPipelineSupported()
+     */
+    protected void processPreparedData(Object preparedData)
+	    throws ImporterException {
+	processData((String) preparedData);
+    }
+
     /**
      * Manage the transaction, flush Daos, and process all files to be processed
      */
@@ -294,6 +537,13 @@ public abstract class AbstractSimpleImporterProcessor implements IImporterProces
 	    this.status = ImporterStatus.PROCESSING;
 	    this.getNumberOfLinesToProcess();
 	    setup();
+	    File[] archives = getArchivesToStream();
+	    if (archives.length != 0) {
+		for (int i = 0; i < archives.length; i++) {
+		    processArchive(archives[i]);
+		}
+		return;
+	    }
 	    this.filesToProcess = getFiles();
 	    if (this.filesToProcess.length == 0) {
 	    	logger.info("there is 0 file to process for "
@@ -386,6 +636,114 @@ public abstract class AbstractSimpleImporterProcessor implements IImporterProces
 	}
     }
 
+    /**
+     * Process the country files of an archive, entry by entry, without
+     * extracting them
+     */
+    private void processArchive(File archive) throws IOException, ImporterException {
+	TarArchiveInputStream archiveStream = new GISFiler(archive.getAbsolutePath(), archive.getParentFile())
+		.openArchiveStream(importerConfig.isArchiveStreamingReadAhead());
+	try {
+	    TarArchiveEntry entry;
+	    while ((entry = archiveStream.getNextTarEntry()) != null) {
+		String entryName = new File(entry.getName()).getName();
+		if (entry.isDirectory() || !ImporterHelper.isCountryFileName(entryName)
+			|| (archiveEntriesToImport != null && !archiveEntriesToImport.contains(entryName))) {
+		    logger.info("ignoring " + entry.getName() + " in " + archive.getName());
+		    continue;
+		}
+		currentFile = new File(archive.getParentFile(), entryName);
+		this.endOfDocument = false;
+		currentEntryStream = new CountingInputStream(archiveStream);
+		//the reader is not closed at the end of the entry, it would close the archive
+		this.in = new BufferedReader(new InputStreamReader(currentEntryStream, Constants.CHARSET));
+		processFile();
+		archiveBytesProcessed += entry.getSize();
+		currentEntryStream = null;
+		onFileProcessed(currentFile);
+	    }
+	} finally {
+	    this.in = null;
+	    currentEntryStream = null;
+	    archiveStream.close();
+	}
+    }
+
+    /**
+     * Read the headers of the entries of the archives to find the country
+     * files to import (see
+     * {@link ImporterHelper#selectCountryFileNamesToImport(List)}) from their
+     * names, and their size from the headers : the data of the entries is
+     * skipped, not read. The progress of the import is estimated from the
+     * number of bytes read, see {@link #getNumberOfLinesToProcess()}
+     * 
+     * @return the size (in bytes) of the country files to import
+     */
+    protected long scanArchives(File[] archives) {
+	logger.info("listing the entries of the archives");
+	Map<String, Long> sizeByEntry = new LinkedHashMap<String, Long>();
+	for (int i = 0; i < archives.length; i++) {
+	    TarArchiveInputStream archiveStream = null;
+	    try {
+		archiveStream = new GISFiler(archives[i].getAbsolutePath(), archives[i].getParentFile())
+			.openArchiveStream(importerConfig.isArchiveStreamingReadAhead());
+		TarArchiveEntry entry;
+		while ((entry = archiveStream.getNextTarEntry()) != null) {
+		    String entryName = new File(entry.getName()).getName();
+		    if (entry.isDirectory() || !ImporterHelper.isCountryFileName(entryName)) {
+			continue;
+		    }
+		    Long previousSize = sizeByEntry.get(entryName);
+		    sizeByEntry.put(entryName, previousSize == null ? entry.getSize() : previousSize + entry.getSize());
+		}
+	    } catch (IOException e) {
+		//all the country files will be imported
+		logger.warn("can not list the entries of " + archives[i].getName() + " : " + e.getMessage(), e);
+		archiveEntriesToImport = null;
+		archiveBytesToProcess = 0;
+		return 0;
+	    } finally {
+		if (archiveStream != null) {
+		    try {
+			archiveStream.close();
+		    } catch (IOException e) {
+
+		    }
+		}
+	    }
+	}
+	List<String> entriesToImport = ImporterHelper.selectCountryFileNamesToImport(new ArrayList<String>(sizeByEntry.keySet()));
+	long bytes = 0;
+	for (String entryName : entriesToImport) {
+	    bytes += sizeByEntry.get(entryName);
+	}
+	archiveEntriesToImport = new HashSet<String>(entriesToImport);
+	archiveBytesToProcess = bytes;
+	logger.info("There is " + bytes + " bytes to process for " + this.getClass().getSimpleName());
+	return bytes;
+    }
+
+    /**
+     * @param linesRead
+     *            the number of lines that have been read
+     * @param bytesRead
+     *            the number of bytes of these lines
+     * @param bytesToProcess
+     *            the number of bytes of all the lines
+     * @return the number of lines of all the bytes, estimated from the mean
+     *         size of the lines that have been read. The number of bytes if
+     *         nothing has been read (a line has one byte at least)
+     */
+    static long estimateNumberOfLines(long linesRead, long bytesRead, long bytesToProcess) {
+	if (linesRead <= 0 || bytesRead <= 0) {
+	    return bytesToProcess;
+	}
+	if (bytesRead >= bytesToProcess) {
+	    return linesRead;
+	}
+	return Math.max(linesRead, linesRead * bytesToProcess / bytesRead);
+    }
+
     private void processFile() throws ImporterException {
 	try {
 	    hasConsumedFirstLine = false;
@@ -400,23 +758,18 @@ public abstract class AbstractSimpleImporterProcessor implements IImporterProces
 
 	    startTransaction();
 	    setCommitFlushMode();
-	    while (!isEndOfDocument()) {
-		this.readLineAndProcessData();
-		incrementReadedFileLine(1);
-		if (needCommit()) {
-		    logger
-			    .info("We need to commit, flushing and clearing: "
-				    + totalReadLine);
-		    // and commit !
-		    commit();
-		    startTransaction();
-		    setCommitFlushMode();
-
+	    if (isPipelined()) {
+		processFilePipelined();
+	    } else {
+		while (!isEndOfDocument()) {
+		    this.readLineAndProcessData();
+		    incrementReadedFileLine(1);
+		    commitIfNeeded();
 		}
+		commit();
+		decrementReadedFileLine(1);// remove a processed line because it has been
+		// incremented on time more
 	    }
-	    commit();
-	    decrementReadedFileLine(1);// remove a processed line because it has been
-	    // incremented on time more
 	} catch (Exception e) {
 	    rollbackTransaction();
 	    throw new ImporterException(
@@ -425,6 +778,177 @@ public abstract class AbstractSimpleImporterProcessor implements IImporterProces
 	}
     }
 
+    private void commitIfNeeded() {
+	if (needCommit()) {
+	    logger.info("We need to commit, flushing and clearing: "
+		    + totalReadLine);
+	    // and commit !
+	    commit();
+	    startTransaction();
+	    setCommitFlushMode();
+	}
+    }
+
+    /**
+     * @return true if the current file should be processed with the
+     *         multi-threaded pipeline
+     */
+    protected boolean isPipelined() {
+	return isPipelineSupported()
+		&& importerConfig.getImporterWorkerThreads() > 1;
+    }
+
+    /**
+     * A line read by the reader thread, and the result of its preparation by
+     * a worker
+     */
+    static class PreparedLine {
+	final String input;
+	final int lineNumber;
+	final boolean skipped;
+	Object preparedData;
+	Exception error;
+
+	PreparedLine(String input, int lineNumber, boolean skipped) {
+	    this.input = input;
+	    this.lineNumber = lineNumber;
+	    this.skipped = skipped;
+	}
+    }
+
+    /**
+     * Process the current file with three stages : a reader thread that reads
+     * the lines and group them in batches of
+     * {@link ImporterConfig#getImporterPipelineBatchSize()} lines, a pool of
+     * workers that call {@link #prepareData(String)} on each batch, and the
+     * current thread (the writer) that calls
+     * {@link #processPreparedData(Object)} in the order of the file. the
+     * stages are connected by a bounded queue, so the reader can not be too
+     * far ahead of the writer. The transaction and the commit/flush policy
+     * stay the ones of the sequential mode because only the writer uses the
+     * daos.
+     */
+    private void processFilePipelined() throws Exception {
+	final int workers = importerConfig.getImporterWorkerThreads();
+	final int batchSize = importerConfig.getImporterPipelineBatchSize();
+	final BlockingQueue<Future<List<PreparedLine>>> batches = new ArrayBlockingQueue<Future<List<PreparedLine>>>(
+		workers * 2);
+	final ExecutorService workerPool = Executors.newFixedThreadPool(workers);
+	final FutureTask<List<PreparedLine>> endOfDocumentMarker = new FutureTask<List<PreparedLine>>(
+		new Callable<List<PreparedLine>>() {
+		    public List<PreparedLine> call() {
+			return null;
+		    }
+		});
+	endOfDocumentMarker.run();
+	final Exception[] readerError = new Exception[1];
+	logger.info("will process " + getCurrentFileName() + " with "
+		+ workers + " workers");
+	Thread reader = new Thread(new Runnable() {
+	    public void run() {
+		try {
+		    int lineNumber = 0;
+		    boolean firstLineConsumed = false;
+		    List<PreparedLine> batch = new ArrayList<PreparedLine>(
+			    batchSize);
+		    String input;
+		    while ((input = getInput(in.readLine())) != null) {
+			lineNumber++;
+			boolean skipped = !isNotComment(input);
+			if (!skipped && shouldIgnoreFirstLine()
+				&& !firstLineConsumed) {
+			    firstLineConsumed = true;
+			    skipped = true;
+			}
+			batch.add(new PreparedLine(input, lineNumber, skipped));
+			if (batch.size() == batchSize) {
+			    batches.put(workerPool.submit(new PrepareTask(batch)));
+			    batch = new ArrayList<PreparedLine>(batchSize);
+			}
+		    }
+		    if (!batch.isEmpty()) {
+			batches.put(workerPool.submit(new PrepareTask(batch)));
+		    }
+		} catch (InterruptedException e) {
+		    // the writer has stopped
+		    return;
+		} catch (Exception e) {
+		    readerError[0] = e;
+		}
+		try {
+		    batches.put(endOfDocumentMarker);
+		} catch (InterruptedException e) {
+		    // the writer has stopped
+		}
+	    }
+	}, this.getClass().getSimpleName() + "-reader");
+	reader.setDaemon(true);
+	reader.start();
+	try {
+	    Future<List<PreparedLine>> future;
+	    while ((future = batches.take()) != endOfDocumentMarker) {
+		List<PreparedLine> batch;
+		try {
+		    batch = future.get();
+		} catch (ExecutionException e) {
+		    throw new ImporterException("can not prepare data : "
+			    + e.getCause().getMessage(), e.getCause());
+		}
+		for (PreparedLine line : batch) {
+		    readFileLine = line.lineNumber;
+		    if (!line.skipped) {
+			try {
+			    if (line.error != null) {
+				throw line.error;
+			    }
+			    if (line.preparedData != null) {
+				processPreparedData(line.preparedData);
+			    }
+			} catch (Exception e) {
+			    handleProcessingError(line.input, e);
+			}
+		    }
+		    incrementReadedFileLine(1);
+		    commitIfNeeded();
+		}
+	    }
+	    if (readerError[0] != null) {
+		throw new ImporterException("can not read line ",
+			readerError[0]);
+	    }
+	    commit();
+	    this.endOfDocument = true;
+	} finally {
+	    reader.interrupt();
+	    workerPool.shutdownNow();
+	}
+    }
+
+    /**
+     * Call {@link AbstractSimpleImporterProcessor#prepareData(String)} on a
+     * batch of lines, errors are kept to be handled by the writer
+     */
+    private class PrepareTask implements Callable<List<PreparedLine>> {
+	private final List<PreparedLine> batch;
+
+	PrepareTask(List<PreparedLine> batch) {
+	    this.batch = batch;
+	}
+
+	public List<PreparedLine> call() {
+	    for (PreparedLine line : batch) {
+		if (!line.skipped) {
+		    try {
+			line.preparedData = prepareData(line.input);
+		    } catch (Exception e) {
+			line.error = e;
+		    }
+		}
+	    }
+	    return batch;
+	}
+    }
+
     protected int incrementReadedFileLine(int increment) {
 	totalReadLine = totalReadLine+increment;
 	return totalReadLine;
@@ -438,6 +962,8 @@ public abstract class AbstractSimpleImporterProcessor implements IImporterProces
     }
 
     protected void rollbackTransaction() {
+	bulkCopyEntities.clear();
+	bulkCopyDependentEntities.clear();
 	transactionManager.rollback(txStatus);
     }
 
@@ -464,6 +990,24 @@ public abstract class AbstractSimpleImporterProcessor implements IImporterProces
 	closeBufferReader();
     }
 
+    /**
+     * Send the features that are still buffered by the synchroniser to the
+     * fulltext engine. Errors are logged and not thrown, so the tearDown can
+     * go on.
+     * 
+     * @param solRSynchroniser
+     *            the synchroniser to flush, can be null
+     */
+    protected void flushSolRBuffer(ISolRSynchroniser solRSynchroniser) {
+	if (solRSynchroniser != null) {
+	    try {
+		solRSynchroniser.flush();
+	    } catch (Exception e) {
+		logger.error("can not send the last buffered features to the fulltext engine : " + e.getMessage(), e);
+	    }
+	}
+    }
+
     private void closeBufferReader() {
 	if (in != null) {
 	    try {
@@ -485,6 +1029,7 @@ public abstract class AbstractSimpleImporterProcessor implements IImporterProces
     }
 
     protected void commit() {
+		bulkCopy();
 		flushAndClear();
 		transactionManager.commit(this.txStatus);
     }
@@ -627,6 +1172,14 @@ public abstract class AbstractSimpleImporterProcessor implements IImporterProces
 	this.importerConfig = importerConfig;
     }
 
+    /**
+     * @param bulkCopyDao
+     *                the dao used when {@link #isBulkCopied()}
+     */
+    public void setBulkCopyDao(IBulkCopyDao bulkCopyDao) {
+	this.bulkCopyDao = bulkCopyDao;
+    }
+
     /**
      * @return the number of line to process
      */
@@ -681,9 +1234,25 @@ public abstract class AbstractSimpleImporterProcessor implements IImporterProces
      * @see com.gisgraphy.domain.geoloc.importer.IGeonamesProcessor#getNumberOfLinesToProcess()
      */
     public long getNumberOfLinesToProcess() {
-	if (this.numberOfLinesToProcess == 0 && this.status == ImporterStatus.PROCESSING) {
+	if (this.numberOfLinesToProcess == 0 && this.status == ImporterStatus.PROCESSING && !archivesScanned) {
 	    // it may not have been calculated yet
-	    this.numberOfLinesToProcess = countLines(getFiles());
+	    File[] archives = getArchivesToStream();
+	    if (archives.length != 0) {
+		//the archives are listed once, even if they have no entry
+		archivesScanned = true;
+		scanArchives(archives);
+	    } else {
+		this.numberOfLinesToProcess = countLines(getFiles());
+	    }
+	}
+	if (archivesScanned) {
+	    //the lines of the archives are not counted before the import, it would decompress them twice
+	    long bytesRead = archiveBytesProcessed;
+	    CountingInputStream entryStream = currentEntryStream;
+	    if (entryStream != null) {
+		bytesRead += entryStream.getBytesRead();
+	    }
+	    return estimateNumberOfLines(totalReadLine, bytesRead, archiveBytesToProcess);
 	}
 	return this.numberOfLinesToProcess;
     }
@@ -710,6 +1279,11 @@ public abstract class AbstractSimpleImporterProcessor implements IImporterProces
 	this.readFileLine = 0;
 	this.totalReadLine = 0;
 	this.numberOfLinesToProcess = 0;
+	this.archivesScanned = false;
+	this.archiveEntriesToImport = null;
+	this.archiveBytesToProcess = 0;
+	this.archiveBytesProcessed = 0;
+	this.currentEntryStream = null;
 	this.status = ImporterStatus.WAITING;
 	this.statusMessage = "";
     }
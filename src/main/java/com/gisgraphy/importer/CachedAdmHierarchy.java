@@ -0,0 +1,389 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.importer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import com.gisgraphy.domain.geoloc.entity.Adm;
+import com.gisgraphy.domain.geoloc.entity.GisFeature;
+import com.gisgraphy.domain.repository.IAdmDao;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.prep.PreparedGeometry;
+import com.vividsolutions.jts.geom.prep.PreparedGeometryFactory;
+import com.vividsolutions.jts.index.strtree.STRtree;
+
+/**
+ * Immutable in memory copy of the Adm hierarchy, used by the importers that
+ * search the Adm of each line (features, zip codes) instead of sending one or
+ * more queries per line, the Adms don't change during those imports.
+ * <p>
+ * The Adms are found by their codes with hash maps and by their shape with a
+ * {@link STRtree}. The methods have the same semantics as the ones of
+ * {@link IAdmDao} with the same name, except that an ambiguous result (more
+ * than one Adm with the same codes) returns null instead of throwing.
+ * <p>
+ * The Adms are detached from the session that has loaded them : they can be
+ * linked to the new features but their lazy collections (children) can not
+ * be read.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public class CachedAdmHierarchy {
+
+    protected static final Logger logger = LoggerFactory.getLogger(CachedAdmHierarchy.class);
+
+    /**
+     * The adm1Code that means that the adm1Code is unknown and must be
+     * ignored
+     */
+    private static final String FLEX_ADM1_CODE = "00";
+
+    private static final PreparedGeometryFactory preparedGeometryFactory = new PreparedGeometryFactory();
+
+    /**
+     * Sort the Adms by area, the largest first, like
+     * {@link IAdmDao#ListByShape(Point, String)}
+     */
+    private static final Comparator<IndexedAdm> LARGEST_FIRST = new Comparator<IndexedAdm>() {
+	public int compare(IndexedAdm o1, IndexedAdm o2) {
+	    return Double.compare(o2.area, o1.area);
+	}
+    };
+
+    /**
+     * The Adms by level, country code and codes (until the level)
+     */
+    private final Map<String, List<Adm>> admsByCodes = new HashMap<String, List<Adm>>();
+
+    /**
+     * The Adms with a level greater than 1 by level, country code and codes
+     * without the adm1code, for the '00' adm1code
+     */
+    private final Map<String, List<Adm>> admsByCodesWithoutAdm1 = new HashMap<String, List<Adm>>();
+
+    /**
+     * The Adms by level, country code and code of their level
+     */
+    private final Map<String, List<Adm>> admsByLevelCode = new HashMap<String, List<Adm>>();
+
+    private final STRtree shapeIndex = new STRtree();
+
+    private final int size;
+
+    /**
+     * An Adm with a shape
+     */
+    static class IndexedAdm {
+	final Adm adm;
+	final PreparedGeometry shape;
+	final double area;
+
+	IndexedAdm(Adm adm, Geometry shape) {
+	    this.adm = adm;
+	    this.shape = preparedGeometryFactory.create(shape);
+	    this.area = shape.getArea();
+	}
+    }
+
+    /**
+     * @param adms
+     *                all the Adms, with their parent
+     */
+    public CachedAdmHierarchy(List<Adm> adms) {
+	int count = 0;
+	if (adms != null) {
+	    for (Adm adm : adms) {
+		if (adm == null || adm.getLevel() == null || adm.getCountryCode() == null) {
+		    continue;
+		}
+		int level = adm.getLevel();
+		String countryCode = adm.getCountryCode().toUpperCase();
+		add(admsByCodes, key(level, countryCode, adm.getAdm1Code(), adm.getAdm2Code(), adm.getAdm3Code(), adm.getAdm4Code()), adm);
+		if (level > 1) {
+		    add(admsByCodesWithoutAdm1, key(level, countryCode, null, adm.getAdm2Code(), adm.getAdm3Code(), adm.getAdm4Code()), adm);
+		}
+		String levelCode = getCode(level, adm.getAdm1Code(), adm.getAdm2Code(), adm.getAdm3Code(), adm.getAdm4Code());
+		if (levelCode != null) {
+		    add(admsByLevelCode, level + "|" + countryCode + "|" + levelCode, adm);
+		}
+		Geometry shape = adm.getShape();
+		if (shape != null && !shape.isEmpty()) {
+		    shapeIndex.insert(shape.getEnvelopeInternal(), new IndexedAdm(adm, shape));
+		}
+		count++;
+	    }
+	}
+	//build it now, the tree can not be modified after
+	shapeIndex.build();
+	size = count;
+    }
+
+    /**
+     * Load all the Adms with the dao
+     * 
+     * @param admDao
+     *                the dao to load the Adms with
+     * @return the hierarchy of all the Adms
+     */
+    public static CachedAdmHierarchy load(IAdmDao admDao) {
+	long start = System.currentTimeMillis();
+	CachedAdmHierarchy hierarchy = new CachedAdmHierarchy(admDao.getAll());
+	logger.info(hierarchy.size() + " adms have been cached in " + (System.currentTimeMillis() - start) + " ms");
+	return hierarchy;
+    }
+
+    private static void add(Map<String, List<Adm>> map, String key, Adm adm) {
+	List<Adm> adms = map.get(key);
+	if (adms == null) {
+	    adms = new ArrayList<Adm>(1);
+	    map.put(key, adms);
+	}
+	adms.add(adm);
+    }
+
+    private static String key(int level, String countryCode, String adm1Code, String adm2Code, String adm3Code, String adm4Code) {
+	String[] codes = new String[] { adm1Code, adm2Code, adm3Code, adm4Code };
+	StringBuilder key = new StringBuilder().append(level).append('|').append(countryCode.toUpperCase());
+	for (int i = 0; i < level && i < codes.length; i++) {
+	    key.append('|');
+	    if (codes[i] != null) {
+		key.append(codes[i]);
+	    }
+	}
+	return key.toString();
+    }
+
+    private static String getCode(int level, String adm1Code, String adm2Code, String adm3Code, String adm4Code) {
+	switch (level) {
+	case 1:
+	    return adm1Code;
+	case 2:
+	    return adm2Code;
+	case 3:
+	    return adm3Code;
+	case 4:
+	    return adm4Code;
+	default:
+	    return null;
+	}
+    }
+
+    private static boolean isAdmCodeEmpty(String admCode) {
+	return admCode == null || admCode.trim().equals("");
+    }
+
+    private Adm getUnique(int level, String countryCode, String adm1Code, String adm2Code, String adm3Code, String adm4Code) {
+	List<Adm> adms;
+	if (level > 1 && FLEX_ADM1_CODE.equals(adm1Code)) {
+	    adms = admsByCodesWithoutAdm1.get(key(level, countryCode, null, adm2Code, adm3Code, adm4Code));
+	} else {
+	    adms = admsByCodes.get(key(level, countryCode, adm1Code, adm2Code, adm3Code, adm4Code));
+	}
+	if (adms == null || adms.isEmpty()) {
+	    return null;
+	}
+	if (adms.size() > 1) {
+	    logger.error("Can not retrieve Adm for countrycode=" + countryCode + " and codes " + adm1Code + "." + adm2Code + "." + adm3Code + "." + adm4Code
+		    + " : result is ambiguous");
+	    return null;
+	}
+	return adms.get(0);
+    }
+
+    /**
+     * @see IAdmDao#getAdm1(String, String)
+     */
+    public Adm getAdm1(String countryCode, String adm1Code) {
+	Assert.notNull(countryCode);
+	Assert.notNull(adm1Code);
+	return getUnique(1, countryCode, adm1Code, null, null, null);
+    }
+
+    /**
+     * @see IAdmDao#getAdm2(String, String, String)
+     */
+    public Adm getAdm2(String countryCode, String adm1Code, String adm2Code) {
+	Assert.notNull(countryCode);
+	Assert.notNull(adm1Code);
+	Assert.notNull(adm2Code);
+	return getUnique(2, countryCode, adm1Code, adm2Code, null, null);
+    }
+
+    /**
+     * @see IAdmDao#getAdm3(String, String, String, String)
+     */
+    public Adm getAdm3(String countryCode, String adm1Code, String adm2Code, String adm3Code) {
+	Assert.notNull(countryCode);
+	Assert.notNull(adm1Code);
+	Assert.notNull(adm2Code);
+	Assert.notNull(adm3Code);
+	return getUnique(3, countryCode, adm1Code, adm2Code, adm3Code, null);
+    }
+
+    /**
+     * @see IAdmDao#getAdm4(String, String, String, String, String)
+     */
+    public Adm getAdm4(String countryCode, String adm1Code, String adm2Code, String adm3Code, String adm4Code) {
+	Assert.notNull(countryCode);
+	Assert.notNull(adm1Code);
+	Assert.notNull(adm2Code);
+	Assert.notNull(adm3Code);
+	Assert.notNull(adm4Code);
+	return getUnique(4, countryCode, adm1Code, adm2Code, adm3Code, adm4Code);
+    }
+
+    /**
+     * @see IAdmDao#getAdm(String, String, String, String, String)
+     */
+    public Adm getAdm(String countryCode, String adm1Code, String adm2Code, String adm3Code, String adm4Code) {
+	Assert.notNull(countryCode);
+	if (isAdmCodeEmpty(countryCode) || isAdmCodeEmpty(adm1Code)) {
+	    return null;
+	}
+	if (isAdmCodeEmpty(adm2Code)) {
+	    return getAdm1(countryCode, adm1Code);
+	}
+	if (isAdmCodeEmpty(adm3Code)) {
+	    return getAdm2(countryCode, adm1Code, adm2Code);
+	}
+	if (isAdmCodeEmpty(adm4Code)) {
+	    return getAdm3(countryCode, adm1Code, adm2Code, adm3Code);
+	}
+	return getAdm4(countryCode, adm1Code, adm2Code, adm3Code, adm4Code);
+    }
+
+    /**
+     * @see IAdmDao#getAdmByCountryAndCodeAndLevel(String, String, int)
+     */
+    public List<Adm> getAdmByCountryAndCodeAndLevel(String countryCode, String admCode, int level) {
+	Assert.notNull(countryCode);
+	Assert.notNull(admCode);
+	List<Adm> adms = admsByLevelCode.get(level + "|" + countryCode.toUpperCase() + "|" + admCode);
+	if (adms == null) {
+	    return new ArrayList<Adm>();
+	}
+	return new ArrayList<Adm>(adms);
+    }
+
+    /**
+     * @see IAdmDao#getAdmOrFirstValidParentIfNotFound(String, String, String,
+     *      String, String)
+     */
+    public Adm getAdmOrFirstValidParentIfNotFound(String countryCode, String adm1Code, String adm2Code, String adm3Code, String adm4Code) {
+	Assert.notNull(countryCode);
+	String[] codes = new String[] { adm1Code, adm2Code, adm3Code, adm4Code };
+	for (int last = codes.length - 1; last >= 1; last--) {
+	    Adm adm = getAdm(countryCode, codes[0], codes[1], codes[2], codes[3]);
+	    if (adm != null) {
+		return adm;
+	    }
+	    // downgrade the admvalue to search a lower level
+	    codes[last] = null;
+	}
+	return getAdm1(countryCode, adm1Code);
+    }
+
+    /**
+     * @see IAdmDao#suggestMostAccurateAdm(String, String, String, String,
+     *      String, GisFeature)
+     */
+    public Adm suggestMostAccurateAdm(String countryCode, String adm1Code, String adm2Code, String adm3Code, String adm4Code, GisFeature gisfeature) {
+	Assert.notNull(countryCode);
+	Adm adm = getAdm(countryCode, adm1Code, adm2Code, adm3Code, adm4Code);
+	if (adm != null) {
+	    return adm;
+	}
+	// must get the most accurate adm
+	String codes = adm1Code + "." + adm2Code + "." + adm3Code + "." + adm4Code;
+	int level = Adm.getProcessedLevelFromCodes(adm1Code, adm2Code, adm3Code, adm4Code);
+	String lowestNotNullAdmCode = level == 0 ? null : getCode(level, adm1Code, adm2Code, adm3Code, adm4Code);
+	if (lowestNotNullAdmCode == null) {
+	    logger.warn("No adm can be found for [" + codes + "]");
+	    return null;
+	}
+	List<Adm> levelAdms = getAdmByCountryAndCodeAndLevel(countryCode, lowestNotNullAdmCode, level);
+	Adm levelAdm = levelAdms.size() == 1 ? levelAdms.get(0) : null;
+	Adm nearestParentAdm = getAdmOrFirstValidParentIfNotFound(countryCode, adm1Code, adm2Code, adm3Code, adm4Code);
+	if (levelAdm == null) {
+	    // there is no adm with this code for this level, we return the
+	    // nearest parent
+	    logger.warn("[wrong adm codes] The adm" + level + "Code for " + gisfeature + "[" + codes + "] is not well set. The nearest parent found is "
+		    + nearestParentAdm);
+	    return nearestParentAdm;
+	}
+	if (nearestParentAdm == null) {
+	    logger.error("[Wrong adm codes] an Adm" + level + " exists but no parent for " + codes + " : all the code before adm" + level + " are wrong");
+	    return levelAdm;
+	}
+	if (level - nearestParentAdm.getLevel() <= 2) {
+	    // the admcode of the lowestlevel is probably not well set, return
+	    // the specified level Adm
+	    logger.warn("[wrong adm" + (level - 1) + "code] : The adm" + (level - 1) + "Code for " + gisfeature + "[" + codes
+		    + "] is wrong. Please correct it to " + levelAdm);
+	    return levelAdm;
+	}
+	logger.warn("[wrong adm codes] : " + ((level - nearestParentAdm.getLevel()) - 1) + " admCodes are wrong for " + gisfeature + "[" + codes
+		+ "] but the adm" + level + "code is corect. The suggested Adm is " + nearestParentAdm);
+	return nearestParentAdm;
+    }
+
+    /**
+     * @see IAdmDao#ListByShape(Point, String)
+     * @return the Adms whose shape contains the location, the largest first
+     */
+    @SuppressWarnings("unchecked")
+    public List<Adm> listByShape(Point location, String countryCode) {
+	Assert.notNull(location);
+	List<IndexedAdm> candidates = shapeIndex.query(location.getEnvelopeInternal());
+	List<IndexedAdm> containing = new ArrayList<IndexedAdm>();
+	for (IndexedAdm candidate : candidates) {
+	    if ((countryCode == null || countryCode.equals(candidate.adm.getCountryCode())) && candidate.shape.contains(location)) {
+		containing.add(candidate);
+	    }
+	}
+	Collections.sort(containing, LARGEST_FIRST);
+	List<Adm> adms = new ArrayList<Adm>(containing.size());
+	for (IndexedAdm indexedAdm : containing) {
+	    adms.add(indexedAdm.adm);
+	}
+	return adms;
+    }
+
+    /**
+     * @return the number of cached Adms
+     */
+    public int size() {
+	return size;
+    }
+
+}
@@ -0,0 +1,303 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.importer;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gisgraphy.domain.geoloc.entity.Adm;
+import com.gisgraphy.domain.geoloc.entity.City;
+import com.gisgraphy.domain.geoloc.entity.CitySubdivision;
+import com.gisgraphy.domain.geoloc.entity.GisFeature;
+import com.gisgraphy.domain.geoloc.entity.ZipCode;
+import com.gisgraphy.domain.repository.ICityDao;
+import com.gisgraphy.domain.repository.ICitySubdivisionDao;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.prep.PreparedGeometry;
+import com.vividsolutions.jts.geom.prep.PreparedGeometryFactory;
+import com.vividsolutions.jts.index.strtree.STRtree;
+
+/**
+ * In memory index of the shapes of the cities and of the city subdivisions,
+ * used by the importers to find the city of a feature without sending a
+ * point in polygon query for each of them.
+ * <p>
+ * The shapes of a country are loaded the first time a feature of this country
+ * is searched, in a {@link STRtree} of prepared geometries. Only the ids are
+ * kept in memory, the entities are loaded with the dao (by primary key), so
+ * that they belong to the current session. the least recently used country
+ * is removed from the index when more than maxCountries countries are loaded.
+ * <p>
+ * The results are the same as {@link ICityDao#getByShape(Point, String, boolean)}
+ * and {@link ICitySubdivisionDao#getByShape(Point, String)} (the smallest shape
+ * that contains the point). If the country code is null, the index can not be
+ * used and the dao is called.
+ * <p>
+ * This class is not thread safe, it is intended to be used by the thread
+ * that saves the features of an importer.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public class CityShapeIndex {
+
+    protected static final Logger logger = LoggerFactory.getLogger(CityShapeIndex.class);
+
+    private final ICityDao cityDao;
+
+    private final ICitySubdivisionDao citySubdivisionDao;
+
+    private final Map<String, ShapeTree> cityShapes;
+
+    private final Map<String, ShapeTree> subdivisionShapes;
+
+    private long lookupCount = 0;
+
+    private long fallbackCount = 0;
+
+    /**
+     * A shape of the index
+     */
+    static class IndexedShape {
+	final long id;
+	final PreparedGeometry shape;
+	final double area;
+	final boolean municipality;
+
+	IndexedShape(long id, Geometry shape, boolean municipality) {
+	    this.id = id;
+	    this.shape = PreparedGeometryFactory.prepare(shape);
+	    this.area = shape.getArea();
+	    this.municipality = municipality;
+	}
+    }
+
+    /**
+     * The shapes of a country
+     */
+    static class ShapeTree {
+	private final STRtree tree = new STRtree();
+	private int size = 0;
+
+	void add(IndexedShape shape) {
+	    tree.insert(shape.shape.getGeometry().getEnvelopeInternal(), shape);
+	    size++;
+	}
+
+	/**
+	 * @return the id of the smallest shape that contains the point or
+	 *         null if none contains it
+	 */
+	@SuppressWarnings("unchecked")
+	Long findSmallestContaining(Point point, boolean filterMunicipality) {
+	    if (size == 0) {
+		return null;
+	    }
+	    List<IndexedShape> candidates = tree.query(point.getEnvelopeInternal());
+	    IndexedShape best = null;
+	    for (IndexedShape candidate : candidates) {
+		if (filterMunicipality && !candidate.municipality) {
+		    continue;
+		}
+		if (best != null && candidate.area >= best.area) {
+		    continue;
+		}
+		if (candidate.shape.contains(point)) {
+		    best = candidate;
+		}
+	    }
+	    return best == null ? null : best.id;
+	}
+    }
+
+    /**
+     * @param cityDao
+     *                the dao used to load the shapes and the cities
+     * @param citySubdivisionDao
+     *                the dao used to load the shapes and the subdivisions,
+     *                can be null if the subdivisions are not searched
+     * @param maxCountries
+     *                the maximum number of countries in memory
+     */
+    public CityShapeIndex(ICityDao cityDao, ICitySubdivisionDao citySubdivisionDao, int maxCountries) {
+	if (cityDao == null) {
+	    throw new IllegalArgumentException("can not create a city shape index without cityDao");
+	}
+	if (maxCountries <= 0) {
+	    throw new IllegalArgumentException("the maximum number of countries should be greater than 0");
+	}
+	this.cityDao = cityDao;
+	this.citySubdivisionDao = citySubdivisionDao;
+	this.cityShapes = createLruMap(maxCountries);
+	this.subdivisionShapes = createLruMap(maxCountries);
+    }
+
+    @SuppressWarnings("serial")
+    private static Map<String, ShapeTree> createLruMap(final int maxCountries) {
+	return new LinkedHashMap<String, ShapeTree>(maxCountries + 1, 0.75f, true) {
+	    @Override
+	    protected boolean removeEldestEntry(Entry<String, ShapeTree> eldest) {
+		if (size() > maxCountries) {
+		    logger.info("removing the shapes of " + eldest.getKey() + " from the city shape index");
+		    return true;
+		}
+		return false;
+	    }
+	};
+    }
+
+    /**
+     * @see ICityDao#getByShape(Point, String, boolean)
+     */
+    public City getByShape(Point location, String countryCode, boolean filterMunicipality) {
+	if (location == null) {
+	    return null;
+	}
+	lookupCount++;
+	if (countryCode == null) {
+	    fallbackCount++;
+	    return cityDao.getByShape(location, countryCode, filterMunicipality);
+	}
+	String key = countryCode.toUpperCase();
+	ShapeTree tree = cityShapes.get(key);
+	if (tree == null) {
+	    tree = loadCityShapes(key);
+	    cityShapes.put(key, tree);
+	}
+	Long id = tree.findSmallestContaining(location, filterMunicipality);
+	if (id == null) {
+	    return null;
+	}
+	City city = cityDao.get(id);
+	initialize(city);
+	return city;
+    }
+
+    /**
+     * @see ICitySubdivisionDao#getByShape(Point, String)
+     */
+    public CitySubdivision getSubdivisionByShape(Point location, String countryCode) {
+	if (location == null || citySubdivisionDao == null) {
+	    return null;
+	}
+	lookupCount++;
+	if (countryCode == null) {
+	    fallbackCount++;
+	    return citySubdivisionDao.getByShape(location, countryCode);
+	}
+	String key = countryCode.toUpperCase();
+	ShapeTree tree = subdivisionShapes.get(key);
+	if (tree == null) {
+	    tree = loadSubdivisionShapes(key);
+	    subdivisionShapes.put(key, tree);
+	}
+	Long id = tree.findSmallestContaining(location, false);
+	if (id == null) {
+	    return null;
+	}
+	CitySubdivision subdivision = citySubdivisionDao.get(id);
+	initialize(subdivision);
+	return subdivision;
+    }
+
+    /**
+     * Initialize the zip codes and the adm of the feature, as
+     * {@link ICityDao#getByShape(Point, String, boolean)} does, so that they
+     * can be read once the session is closed or cleared
+     */
+    private void initialize(GisFeature feature) {
+	if (feature == null) {
+	    return;
+	}
+	Set<ZipCode> zipCodes = feature.getZipCodes();
+	if (zipCodes != null) {
+	    zipCodes.size();
+	}
+	Adm adm = feature.getAdm();
+	if (adm != null) {
+	    adm.getName();
+	}
+    }
+
+    private ShapeTree loadCityShapes(String countryCode) {
+	long start = System.currentTimeMillis();
+	ShapeTree tree = new ShapeTree();
+	for (Object[] row : cityDao.listShapesByCountryCode(countryCode)) {
+	    addShape(tree, row, Boolean.TRUE.equals(row[2]));
+	}
+	tree.tree.build();
+	logger.info("loaded " + tree.size + " city shapes for " + countryCode + " in "
+		+ (System.currentTimeMillis() - start) + " ms");
+	return tree;
+    }
+
+    private ShapeTree loadSubdivisionShapes(String countryCode) {
+	long start = System.currentTimeMillis();
+	ShapeTree tree = new ShapeTree();
+	for (Object[] row : citySubdivisionDao.listShapesByCountryCode(countryCode)) {
+	    addShape(tree, row, false);
+	}
+	tree.tree.build();
+	logger.info("loaded " + tree.size + " subdivision shapes for " + countryCode + " in "
+		+ (System.currentTimeMillis() - start) + " ms");
+	return tree;
+    }
+
+    private void addShape(ShapeTree tree, Object[] row, boolean municipality) {
+	Geometry shape = (Geometry) row[1];
+	if (row[0] == null || shape == null || shape.isEmpty()) {
+	    return;
+	}
+	tree.add(new IndexedShape(((Number) row[0]).longValue(), shape, municipality));
+    }
+
+    /**
+     * Remove all the shapes from memory
+     */
+    public void clear() {
+	cityShapes.clear();
+	subdivisionShapes.clear();
+    }
+
+    /**
+     * @return the number of lookups
+     */
+    public long getLookupCount() {
+	return lookupCount;
+    }
+
+    /**
+     * @return the number of lookups that could not use the index and have
+     *         been sent to the dao
+     */
+    public long getFallbackCount() {
+	return fallbackCount;
+    }
+
+}
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.importer;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * In memory index of the featureIds of the cities and of the adms, used by the
+ * alternate names importer to know which dao should load a feature, rather
+ * than trying the city, the adm and then the generic dao.
+ * <p>
+ * The featureIds are stored in sorted arrays of primitive longs (8 bytes per
+ * feature instead of a map entry with a boxed key) and searched by
+ * dichotomy. The index is immutable once built.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public class FeatureTypeIndex {
+
+    /**
+     * The type of the features that are neither a city nor an adm
+     */
+    public static final int OTHER = 0;
+
+    /**
+     * The type of the cities
+     */
+    public static final int CITY = 1;
+
+    /**
+     * The type of the adms
+     */
+    public static final int ADM = 2;
+
+    private final long[] cityFeatureIds;
+
+    private final long[] admFeatureIds;
+
+    /**
+     * @param cityFeatureIds
+     *            the featureIds of the cities, in any order
+     * @param admFeatureIds
+     *            the featureIds of the adms, in any order
+     */
+    public FeatureTypeIndex(List<Long> cityFeatureIds, List<Long> admFeatureIds) {
+	this.cityFeatureIds = toSortedArray(cityFeatureIds);
+	this.admFeatureIds = toSortedArray(admFeatureIds);
+    }
+
+    private static long[] toSortedArray(List<Long> featureIds) {
+	if (featureIds == null) {
+	    return new long[0];
+	}
+	long[] result = new long[featureIds.size()];
+	int size = 0;
+	for (Long featureId : featureIds) {
+	    if (featureId != null) {
+		result[size++] = featureId;
+	    }
+	}
+	if (size != result.length) {
+	    result = Arrays.copyOf(result, size);
+	}
+	Arrays.sort(result);
+	return result;
+    }
+
+    /**
+     * @param featureId
+     *            the featureId of a feature
+     * @return {@link #CITY}, {@link #ADM} or {@link #OTHER} if the featureId
+     *         is not the one of a city or of an adm
+     */
+    public int getType(long featureId) {
+	if (Arrays.binarySearch(cityFeatureIds, featureId) >= 0) {
+	    return CITY;
+	}
+	if (Arrays.binarySearch(admFeatureIds, featureId) >= 0) {
+	    return ADM;
+	}
+	return OTHER;
+    }
+
+    /**
+     * @return the number of indexed features
+     */
+    public int size() {
+	return cityFeatureIds.length + admFeatureIds.length;
+    }
+
+}
@@ -63,8 +63,6 @@ public class GeonamesAlternateNamesSimpleImporter extends AbstractSimpleImporter
 
     protected ISolRSynchroniser solRSynchroniser;
 
-    private static final Long defaultFeatureId = Long.valueOf(-1);
-    
     protected ISpellCheckerIndexer spellCheckerIndexer;
 
 
@@ -75,6 +73,54 @@ public class GeonamesAlternateNamesSimpleImporter extends AbstractSimpleImporter
 	super();
     }
 
+    /**
+     * The language of the lines that are zip codes
+     */
+    private static final String ZIP_CODE_LANGUAGE = "post";
+
+    /**
+     * Whether the consecutive lines of a feature are saved together
+     * 
+     * @see ImporterConfig#isAlternateNamesGroupedByFeature()
+     */
+    private boolean groupedByFeature = false;
+
+    /**
+     * The type of the features, only built when the lines are grouped by
+     * feature
+     */
+    protected FeatureTypeIndex featureTypeIndex;
+
+    /**
+     * The featureId of the lines that are waiting to be saved
+     */
+    private Long pendingFeatureId;
+
+    /**
+     * The alternate names and zip codes of {@link #pendingFeatureId} that are
+     * waiting to be saved
+     */
+    private final List<AlternateName> pendingAlternateNames = new ArrayList<AlternateName>();
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.importer.AbstractSimpleImporterProcessor#setup()
+     */
+    @Override
+    protected void setup() {
+	super.setup();
+	pendingFeatureId = null;
+	pendingAlternateNames.clear();
+	featureTypeIndex = null;
+	groupedByFeature = importerConfig.isAlternateNamesGroupedByFeature();
+	if (groupedByFeature) {
+	    logger.info("loading the featureIds of the cities and of the adms");
+	    featureTypeIndex = new FeatureTypeIndex(cityDao.listFeatureIds(), admDao.listFeatureIds());
+	    logger.info(featureTypeIndex.size() + " featureIds of cities and adms have been loaded");
+	}
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -91,85 +137,73 @@ public class GeonamesAlternateNamesSimpleImporter extends AbstractSimpleImporter
 	 * alternate name 4 : isPreferredName 5 : isShortName
 	 */
 
-	AlternateName alternateName = null;
 	// we don't check length because some fields like preferredname or
 	// shortname are not mandatory
 	// checkNumberOfColumn(fields);
-	if (!isEmptyField(fields, 0, true)) {
-	    // check if need to be inserted or updated
-	    // alternateName = this.alternateNameDao.get(new Long(fields[0]));
-	    // if (alternateName == null) {
-	    alternateName = new AlternateName();
-	    alternateName.setAlternateNameId(new Integer(fields[0]));
-	    // }
-
+	isEmptyField(fields, 0, true);
+	isEmptyField(fields, 1, true);
+	Long gisFeatureId;
+	try {
+	    gisFeatureId = new Long(fields[1]);
+	} catch (NumberFormatException e) {
+	    logger.warn("The featureId " + fields[1] + " is not a number");
+	    return;
 	}
 
-	GisFeature gisFeature = null;
+	AlternateName alternateName = createAlternateName(fields);
+	if (alternateName == null) {
+	    return;
+	}
 
-	Long gisFeatureId = defaultFeatureId;
-	if (!isEmptyField(fields, 1, true)) {
-	    try {
-		gisFeatureId = new Long(fields[1]);
-	    } catch (NumberFormatException e) {
-		logger.warn("The featureId " + fields[1] + " is not a number");
-		return;
-	    }
-	    // get the features
-	   // to improve performance we first search in cities then adm and finally in all features
-	    gisFeature = cityDao.getByFeatureId(gisFeatureId);
-	    if (gisFeature == null){
-		gisFeature = this.admDao.getByFeatureId(gisFeatureId);
+	if (groupedByFeature) {
+	    // the file is sorted by geonameid : when it changes, all the
+	    // lines of the previous feature have been read
+	    if (!gisFeatureId.equals(pendingFeatureId)) {
+		savePendingAlternateNames();
+		pendingFeatureId = gisFeatureId;
 	    }
-	    if (gisFeature == null){
-		gisFeature = this.gisFeatureDao.getByFeatureId(gisFeatureId);
-	    }
-	    if (gisFeature == null) {
-		return;
-	    }
-
+	    pendingAlternateNames.add(alternateName);
+	    return;
 	}
 
-	alternateName.setGisFeature(gisFeature);
-	alternateName.setCountryCode(gisFeature.getCountryCode());
-	if (isAnUnWantedLanguageField(fields[2])) {
+	GisFeature gisFeature = getFeature(gisFeatureId);
+	if (gisFeature == null) {
 	    return;
 	}
-
-	// it is not an empty field =>will save the alternatename
-
-	// set name and sources
-	if (!isEmptyField(fields, 3, true)) {
-	    alternateName.setName(fields[3].trim());
+	if (addToFeature(gisFeature, alternateName)) {
+	    // Hibernate will save the feature according to his
+	    // class even if it is cast in an other class
+	    this.gisFeatureDao.save(gisFeature);
 	}
+    }
 
-	alternateName.setSource(AlternateNameSource.ALTERNATENAMES_FILE);
-
-	// if it is a post=>update zipCode
-	if (fields[2].equals("post")) {
-	    // it is a zip code :set and save gisfeature
-	    if (!isEmptyField(fields, 3, false)) {
-		// if it is a city we update the city
-		    if (!(gisFeature instanceof ZipCodesAware)) {
-		    	logger.error("We've got a zipCode for a feature ("+gisFeature+") but "+gisFeature.getClass().getSimpleName()+
-						" is not 'zipCodes aware'," +
-						" that mean that zipcode is added but the field" +
-						" will not be added in the feed of the web service");
-		    } 
-		    gisFeature.addZipCode(new ZipCode(fields[3],gisFeature.getCountryCode()));
-			// Hibernate will save the feature according to his
-			// class even if it is cast in an other class
-			this.gisFeatureDao.save(gisFeature);
-			return;
-	    } else {
-		logger.warn("could not set ZipCode for GisFeature["
-			+ gisFeatureId + "] because zipCode is null");
-		return;
+    /**
+     * @param fields
+     *            the fields of a line
+     * @return the alternate name of the line, not attached to its feature, or
+     *         null if the language of the line is not wanted or if the name
+     *         is empty. the zip codes are returned as alternate names with
+     *         the 'post' language
+     */
+    protected AlternateName createAlternateName(String[] fields) {
+	if (isAnUnWantedLanguageField(fields[2])) {
+	    return null;
+	}
+	if (isEmptyField(fields, 3, false)) {
+	    if (ZIP_CODE_LANGUAGE.equals(fields[2])) {
+		logger.warn("could not set ZipCode for GisFeature[" + fields[1]
+			+ "] because zipCode is null");
 	    }
-	} else {
-	    // it is probably a language field;
-	    alternateName.setLanguage(fields[2]);
+	    return null;
 	}
+	AlternateName alternateName = new AlternateName();
+	alternateName.setAlternateNameId(new Integer(fields[0]));
+
+	// set name and sources
+	alternateName.setName(fields[3].trim());
+	alternateName.setSource(AlternateNameSource.ALTERNATENAMES_FILE);
+	// it is a language field or 'post'
+	alternateName.setLanguage(fields[2]);
 
 	// preferred name
 	if (!isEmptyField(fields, 4, false)) {
@@ -189,16 +223,88 @@ public class GeonamesAlternateNamesSimpleImporter extends AbstractSimpleImporter
 		alternateName.setShortName(false);
 	    }
 	}
+	return alternateName;
+    }
 
-	/*List<AlternateName> alternateNames = gisFeature.getAlternateNames();
-	if (alternateNames == null) {
-	    alternateNames = new ArrayList<AlternateName>();
+    /**
+     * Add an alternate name or a zip code to a feature, without saving it
+     * 
+     * @param gisFeature
+     *            the feature of the line
+     * @param alternateName
+     *            the alternate name created by
+     *            {@link #createAlternateName(String[])}
+     * @return true if the feature has been modified and should be saved
+     */
+    protected boolean addToFeature(GisFeature gisFeature, AlternateName alternateName) {
+	// if it is a post=>update zipCode
+	if (ZIP_CODE_LANGUAGE.equals(alternateName.getLanguage())) {
+	    if (!(gisFeature instanceof ZipCodesAware)) {
+		logger.error("We've got a zipCode for a feature ("+gisFeature+") but "+gisFeature.getClass().getSimpleName()+
+			" is not 'zipCodes aware'," +
+			" that mean that zipcode is added but the field" +
+			" will not be added in the feed of the web service");
+	    }
+	    gisFeature.addZipCode(new ZipCode(alternateName.getName(),gisFeature.getCountryCode()));
+	    return true;
 	}
-	alternateNames.add(alternateName);*/
+	alternateName.setCountryCode(gisFeature.getCountryCode());
 	gisFeature.addAlternateName(alternateName);
+	return true;
+    }
 
-	this.gisFeatureDao.save(gisFeature);
+    /**
+     * Load a feature with the dao of its type. When the type is not known,
+     * we first search in cities then adm and finally in all features
+     * 
+     * @param gisFeatureId
+     *            the featureId
+     * @return the feature or null if it does not exist
+     */
+    protected GisFeature getFeature(Long gisFeatureId) {
+	if (featureTypeIndex != null) {
+	    switch (featureTypeIndex.getType(gisFeatureId)) {
+	    case FeatureTypeIndex.CITY:
+		return cityDao.getByFeatureId(gisFeatureId);
+	    case FeatureTypeIndex.ADM:
+		return admDao.getByFeatureId(gisFeatureId);
+	    default:
+		return gisFeatureDao.getByFeatureId(gisFeatureId);
+	    }
+	}
+	GisFeature gisFeature = cityDao.getByFeatureId(gisFeatureId);
+	if (gisFeature == null) {
+	    gisFeature = this.admDao.getByFeatureId(gisFeatureId);
+	}
+	if (gisFeature == null) {
+	    gisFeature = this.gisFeatureDao.getByFeatureId(gisFeatureId);
+	}
+	return gisFeature;
+    }
 
+    /**
+     * Add the pending alternate names and zip codes to their feature and save
+     * it once, so that it is indexed once
+     */
+    protected void savePendingAlternateNames() {
+	if (pendingAlternateNames.isEmpty()) {
+	    return;
+	}
+	try {
+	    GisFeature gisFeature = getFeature(pendingFeatureId);
+	    if (gisFeature == null) {
+		return;
+	    }
+	    boolean modified = false;
+	    for (AlternateName alternateName : pendingAlternateNames) {
+		modified = addToFeature(gisFeature, alternateName) || modified;
+	    }
+	    if (modified) {
+		this.gisFeatureDao.save(gisFeature);
+	    }
+	} finally {
+	    pendingAlternateNames.clear();
+	}
     }
 
     protected boolean isAnUnWantedLanguageField(String languageField) {
@@ -244,8 +350,16 @@ public class GeonamesAlternateNamesSimpleImporter extends AbstractSimpleImporter
 	this.alternateNameDao.setFlushMode(FlushMode.COMMIT);
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.importer.AbstractSimpleImporterProcessor#flushAndClear()
+     */
     @Override
     protected void flushAndClear() {
+	// the pending lines are saved before each commit, a feature whose lines
+	// are split by a commit is saved twice
+	savePendingAlternateNames();
 	this.gisFeatureDao.flushAndClear();
 	this.cityDao.flushAndClear();
 	this.alternateNameDao.flushAndClear();
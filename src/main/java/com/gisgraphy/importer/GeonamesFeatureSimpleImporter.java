@@ -79,6 +79,12 @@ public class GeonamesFeatureSimpleImporter extends AbstractSimpleImporterProcess
     protected IAlternateNameDao alternateNameDao;
 
     protected IAdmDao admDao;
+
+    /**
+     * The in memory copy of the adms, null if
+     * {@link ImporterConfig#isAdmHierarchyCached()} is false
+     */
+    protected CachedAdmHierarchy admHierarchy;
   
     protected ICountryDao countryDao;
 
@@ -369,7 +375,7 @@ public class GeonamesFeatureSimpleImporter extends AbstractSimpleImporterProcess
 	    }
 
 	}*/
-	List<Adm > adms = admDao.ListByShape(gisFeature.getLocation(), countryCode);
+	List<Adm > adms = listAdmsByShape(gisFeature.getLocation(), countryCode);
 	if (adms.size()>0){
 		adm = adms.get(adms.size()-1);
 	} else {
@@ -925,6 +931,21 @@ public class GeonamesFeatureSimpleImporter extends AbstractSimpleImporterProcess
 	super.setup();
 	acceptedPatterns = ImporterHelper.compileRegex(importerConfig
 		.getAcceptRegExString());
+	//the adm importers create the adms, they can not be cached
+	if (importerConfig.isAdmHierarchyCached() && !isAdmMode()) {
+	    admHierarchy = CachedAdmHierarchy.load(admDao);
+	}
+    }
+
+    /**
+     * @return the adms whose shape contains the location, with the cached
+     *         hierarchy if any, the largest first
+     */
+    protected List<Adm> listAdmsByShape(Point location, String countryCode) {
+	if (admHierarchy != null) {
+	    return admHierarchy.listByShape(location, countryCode);
+	}
+	return admDao.ListByShape(location, countryCode);
     }
 
     /*
@@ -938,6 +959,7 @@ public class GeonamesFeatureSimpleImporter extends AbstractSimpleImporterProcess
     this.statusMessage=internationalisationService.getString("import.teardown");
     try {
 	super.tearDown();
+	admHierarchy = null;
 	if (!solRSynchroniser.commit()){
 	    logger.warn("The commit in tearDown of "+this.getClass().getSimpleName()+" has failed, the uncommitted changes will be commited with the auto commit of solr in few minuts");
 	}
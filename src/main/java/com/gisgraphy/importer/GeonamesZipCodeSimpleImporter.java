@@ -27,7 +27,9 @@ import static com.gisgraphy.fulltext.FulltextQuerySolrHelper.MIN_SCORE;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.hibernate.FlushMode;
 import org.slf4j.Logger;
@@ -74,6 +76,30 @@ public class GeonamesZipCodeSimpleImporter extends AbstractSimpleImporterProcess
 
     protected IAdmDao admDao;
 
+    /**
+     * The in memory copy of the adms, null if
+     * {@link ImporterConfig#isAdmHierarchyCached()} is false
+     */
+    protected CachedAdmHierarchy admHierarchy;
+
+    /**
+     * The index of the shapes of the cities and subdivisions, null if
+     * {@link ImporterConfig#isCityShapeIndexEnabled()} is false
+     */
+    protected CityShapeIndex cityShapeIndex;
+
+    /**
+     * The cities that have received a zip code by shape since the last flush,
+     * they are saved (and indexed) once per transaction whatever the number
+     * of zip codes they receive
+     */
+    private Set<City> citiesToSave = new LinkedHashSet<City>();
+
+    /**
+     * Same as {@link #citiesToSave} for the subdivisions
+     */
+    private Set<CitySubdivision> subdivisionsToSave = new LinkedHashSet<CitySubdivision>();
+
     protected IFullTextSearchEngine fullTextSearchEngine;
 
     protected ISolRSynchroniser solRSynchroniser;
@@ -197,35 +223,64 @@ public class GeonamesZipCodeSimpleImporter extends AbstractSimpleImporterProcess
 
 	protected boolean processByShape(String countryCode, String code, Point zipPoint) {
 		boolean found = false;
-		GisFeature cityByShape = cityDao.getByShape(zipPoint,countryCode,true);
+		City cityByShape = getCityByShape(zipPoint,countryCode,true);
 		if (cityByShape!=null){
 			ZipCode zipCode = new ZipCode(code,countryCode);
 			//if (feature.getZipCodes() == null || !feature.getZipCodes().contains(zipCode)) {
 			cityByShape.addZipCode(zipCode);
-			cityDao.save((City)cityByShape);
+			citiesToSave.add(cityByShape);
 			found=true;
 		} else {
-			 cityByShape = cityDao.getByShape(zipPoint,countryCode,false);
+			 cityByShape = getCityByShape(zipPoint,countryCode,false);
 			 if (cityByShape!=null){
 					ZipCode zipCode = new ZipCode(code,countryCode);
 					//if (feature.getZipCodes() == null || !feature.getZipCodes().contains(zipCode)) {
 					cityByShape.addZipCode(zipCode);
-					cityDao.save((City)cityByShape);
+					citiesToSave.add(cityByShape);
 					found=true;
 				} 
 		}
 		
 		//try with subdivision too (in addition)
-		CitySubdivision citySubdivision = citySubdivisionDao.getByShape(zipPoint, countryCode);
+		CitySubdivision citySubdivision = getSubdivisionByShape(zipPoint, countryCode);
 		if (citySubdivision!=null){
 			ZipCode zipCode = new ZipCode(code,countryCode);
 			citySubdivision.addZipCode(zipCode);
-			citySubdivisionDao.save(citySubdivision);
+			subdivisionsToSave.add(citySubdivision);
 			found = true;
 		} 
 		return found;
 	}
 
+	protected City getCityByShape(Point location, String countryCode, boolean filterMunicipality) {
+		if (cityShapeIndex != null) {
+			return cityShapeIndex.getByShape(location, countryCode, filterMunicipality);
+		}
+		return cityDao.getByShape(location, countryCode, filterMunicipality);
+	}
+
+	protected CitySubdivision getSubdivisionByShape(Point location, String countryCode) {
+		if (cityShapeIndex != null) {
+			return cityShapeIndex.getSubdivisionByShape(location, countryCode);
+		}
+		return citySubdivisionDao.getByShape(location, countryCode);
+	}
+
+	/**
+	 * Save the cities and the subdivisions that have received a zip code by
+	 * shape since the last call, once each
+	 */
+	protected void savePendingZipCodes() {
+		for (City city : citiesToSave) {
+			cityDao.save(city);
+		}
+		citiesToSave.clear();
+		for (CitySubdivision citySubdivision : subdivisionsToSave) {
+			citySubdivisionDao.save(citySubdivision);
+		}
+		subdivisionsToSave.clear();
+	}
+
     protected Long findFeature(String[] fields,  Point zipPoint,int maxDistance) {
     
 	String query;
@@ -371,7 +426,7 @@ public class GeonamesZipCodeSimpleImporter extends AbstractSimpleImporterProcess
 	} else {
 	    adm = this.admDao.getAdm(fields[0], fields[4], fields[6], fields[8], null);
 	}*/
-	List<Adm > adms = admDao.ListByShape(location, countryCode);
+	List<Adm > adms = listAdmsByShape(location, countryCode);
 	if (adms.size()>0){
 		adm = adms.get(adms.size()-1);
 	}
@@ -565,6 +620,7 @@ public class GeonamesZipCodeSimpleImporter extends AbstractSimpleImporterProcess
      */
     @Override
     protected void flushAndClear() {
+	savePendingZipCodes();
 	this.gisFeatureDao.flushAndClear();
 	this.cityDao.flushAndClear();
 	this.admDao.flushAndClear();
@@ -630,6 +686,35 @@ public class GeonamesZipCodeSimpleImporter extends AbstractSimpleImporterProcess
     	super.setup();
     	FullTextSearchEngine.disableLogging=true;
     	IdGenerator.sync();
+    	if (importerConfig.isAdmHierarchyCached()) {
+    	    admHierarchy = CachedAdmHierarchy.load(admDao);
+    	}
+    	if (importerConfig.isCityShapeIndexEnabled()) {
+    	    cityShapeIndex = new CityShapeIndex(cityDao, citySubdivisionDao, importerConfig.getCityShapeIndexMaxCountries());
+    	}
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.importer.AbstractSimpleImporterProcessor#rollbackTransaction()
+     */
+    @Override
+    protected void rollbackTransaction() {
+    	citiesToSave.clear();
+    	subdivisionsToSave.clear();
+    	super.rollbackTransaction();
+    }
+
+    /**
+     * @return the adms whose shape contains the location, with the cached
+     *         hierarchy if any, the largest first
+     */
+    protected List<Adm> listAdmsByShape(Point location, String countryCode) {
+	if (admHierarchy != null) {
+	    return admHierarchy.listByShape(location, countryCode);
+	}
+	return admDao.ListByShape(location, countryCode);
     }
 
     /*
@@ -646,6 +731,12 @@ public class GeonamesZipCodeSimpleImporter extends AbstractSimpleImporterProcess
 				.getString("import.teardown");
 		try {
 			super.tearDown();
+			admHierarchy = null;
+			if (cityShapeIndex != null) {
+				logger.info("city shape index : " + cityShapeIndex.getLookupCount() + " lookups, " + cityShapeIndex.getFallbackCount() + " sent to the database");
+				cityShapeIndex.clear();
+				cityShapeIndex = null;
+			}
 			if (!solRSynchroniser.commit()) {
 				logger.warn("The commit in tearDown of "
 						+ this.getClass().getSimpleName()
@@ -105,6 +105,111 @@ public class ImporterConfig {
      */
     private int maxInsertsBeforeFlush = DEFAULT_MAX_INSERT_BEFORE_FLUSH;
 
+    /**
+     * Default value for {@link #importerWorkerThreads}, 1 means that the lines
+     * are processed sequentially
+     */
+    public final static int DEFAULT_IMPORTER_WORKER_THREADS = 1;
+
+    /**
+     * Default value for {@link #importerPipelineBatchSize}
+     */
+    public final static int DEFAULT_IMPORTER_PIPELINE_BATCH_SIZE = 100;
+
+    /**
+     * How many threads parse the lines for the importers that support the
+     * pipelined mode
+     * 
+     * @see #DEFAULT_IMPORTER_WORKER_THREADS
+     */
+    private int importerWorkerThreads = DEFAULT_IMPORTER_WORKER_THREADS;
+
+    /**
+     * How many lines are given to a worker at once in the pipelined mode
+     * 
+     * @see #DEFAULT_IMPORTER_PIPELINE_BATCH_SIZE
+     */
+    private int importerPipelineBatchSize = DEFAULT_IMPORTER_PIPELINE_BATCH_SIZE;
+
+    /**
+     * Default value for {@link #maxConcurrentImporters}, 1 means that the
+     * importers are processed one after the other
+     */
+    public final static int DEFAULT_MAX_CONCURRENT_IMPORTERS = 1;
+
+    /**
+     * How many importers can be processed at the same time
+     * 
+     * @see #DEFAULT_MAX_CONCURRENT_IMPORTERS
+     */
+    private int maxConcurrentImporters = DEFAULT_MAX_CONCURRENT_IMPORTERS;
+
+    /**
+     * Default value for {@link #cityShapeIndexMaxCountries}
+     */
+    public final static int DEFAULT_CITY_SHAPE_INDEX_MAX_COUNTRIES = 2;
+
+    /**
+     * Whether the openstreetmap importers should load the shapes of the
+     * cities in memory to find the city of the streets and pois
+     */
+    private boolean cityShapeIndexEnabled = false;
+
+    /**
+     * How many countries are kept in the in memory shape index
+     * 
+     * @see #DEFAULT_CITY_SHAPE_INDEX_MAX_COUNTRIES
+     */
+    private int cityShapeIndexMaxCountries = DEFAULT_CITY_SHAPE_INDEX_MAX_COUNTRIES;
+
+    /**
+     * Default value for {@link #houseNumberStreetIndexMaxMemory}
+     */
+    public final static int DEFAULT_HOUSE_NUMBER_STREET_INDEX_MAX_MEMORY = 512;
+
+    /**
+     * Whether the housenumber importer should load the streets in memory to
+     * find the street of the house numbers
+     */
+    private boolean houseNumberStreetIndexEnabled = false;
+
+    /**
+     * The memory (in Mb) the in memory street index can use
+     * 
+     * @see #DEFAULT_HOUSE_NUMBER_STREET_INDEX_MAX_MEMORY
+     */
+    private int houseNumberStreetIndexMaxMemory = DEFAULT_HOUSE_NUMBER_STREET_INDEX_MAX_MEMORY;
+
+    /**
+     * Whether the importers should read the lines directly from the
+     * downloaded archives instead of extracting them
+     */
+    private boolean archiveStreamingEnabled = false;
+
+    /**
+     * Whether the archives are decompressed in a background thread when they
+     * are streamed
+     */
+    private boolean archiveStreamingReadAhead = true;
+
+    /**
+     * Whether the alternate names importer groups the lines of a feature
+     * to save it only once
+     */
+    private boolean alternateNamesGroupedByFeature = false;
+
+    /**
+     * Whether the importers that support it insert the new entities with the
+     * COPY protocol
+     */
+    private boolean bulkCopyEnabled = false;
+
+    /**
+     * Whether the importers that search the adm of each line use an in memory
+     * copy of the adms
+     */
+    private boolean admHierarchyCached = false;
+
     public final static String OPENSTREETMAP_DEFAULT_FILES_TO_DOWNLOAD = "allcountries.gis";
     
     public final static String OPENADDRESSES_DEFAULT_FILES_TO_DOWNLOAD = "allcountries.gis";
@@ -2037,6 +2142,279 @@ public class ImporterConfig {
     	return this.maxInsertsBeforeFlush;
     }
 
+    /**
+     * @return The option
+     * @see #setImporterWorkerThreads(int)
+     */
+    public int getImporterWorkerThreads() {
+    	return importerWorkerThreads;
+    }
+
+    /**
+     * Optional setting that allows to specify the number of threads that
+     * parse the lines (geometry decoding, labels,...) for the importers that
+     * support it. The lines are still saved by one thread, in the order of
+     * the file. A value lower or equals to 1 means that the lines are
+     * processed sequentially. default value is
+     * {@link #DEFAULT_IMPORTER_WORKER_THREADS}
+     * 
+     * @param importerWorkerThreads
+     *            The option
+     */
+    public void setImporterWorkerThreads(int importerWorkerThreads) {
+    	this.importerWorkerThreads = importerWorkerThreads;
+    }
+
+    /**
+     * @return The option
+     * @see #setImporterPipelineBatchSize(int)
+     */
+    public int getImporterPipelineBatchSize() {
+    	return importerPipelineBatchSize;
+    }
+
+    /**
+     * Optional setting that allows to specify the number of lines that are
+     * given to a worker at once when {@link #getImporterWorkerThreads()} is
+     * greater than 1. default value is
+     * {@link #DEFAULT_IMPORTER_PIPELINE_BATCH_SIZE}
+     * 
+     * @param importerPipelineBatchSize
+     *            The option
+     */
+    public void setImporterPipelineBatchSize(int importerPipelineBatchSize) {
+    	if (importerPipelineBatchSize <= 0) {
+    	    throw new IllegalArgumentException(
+    		    "importerPipelineBatchSize should be > 0");
+    	}
+    	this.importerPipelineBatchSize = importerPipelineBatchSize;
+    }
+
+    /**
+     * @return The option
+     * @see #setMaxConcurrentImporters(int)
+     */
+    public int getMaxConcurrentImporters() {
+    	return maxConcurrentImporters;
+    }
+
+    /**
+     * Optional setting that allows to specify how many importers can be
+     * processed at the same time. The importers that depend on each others
+     * are always processed one after the other (see
+     * {@link ImporterManager#setImporterDependencies(java.util.Map)}). A
+     * value lower or equals to 1 means that the importers are processed
+     * sequentially in the order of the list. default value is
+     * {@link #DEFAULT_MAX_CONCURRENT_IMPORTERS}
+     * 
+     * @param maxConcurrentImporters
+     *            The option
+     */
+    public void setMaxConcurrentImporters(int maxConcurrentImporters) {
+    	this.maxConcurrentImporters = maxConcurrentImporters;
+    }
+
+    /**
+     * @return The option
+     * @see #setCityShapeIndexEnabled(boolean)
+     */
+    public boolean isCityShapeIndexEnabled() {
+    	return cityShapeIndexEnabled;
+    }
+
+    /**
+     * Optional setting that tells if the openstreetmap importers and the
+     * geonames zip codes importer should find the city (and the subdivision)
+     * of the streets, pois and zip codes with an in memory index of the
+     * shapes rather than with a query for each feature
+     * (see {@link CityShapeIndex}). It is faster but needs memory to store the
+     * shapes of {@link #getCityShapeIndexMaxCountries()} countries. default
+     * to false
+     * 
+     * @param cityShapeIndexEnabled
+     *            The option
+     */
+    public void setCityShapeIndexEnabled(boolean cityShapeIndexEnabled) {
+    	this.cityShapeIndexEnabled = cityShapeIndexEnabled;
+    }
+
+    /**
+     * @return The option
+     * @see #setCityShapeIndexMaxCountries(int)
+     */
+    public int getCityShapeIndexMaxCountries() {
+    	return cityShapeIndexMaxCountries;
+    }
+
+    /**
+     * Optional setting that tells how many countries are kept in the in
+     * memory shape index, the least recently used country is removed when a
+     * new one is loaded. default value is
+     * {@link #DEFAULT_CITY_SHAPE_INDEX_MAX_COUNTRIES}
+     * 
+     * @param cityShapeIndexMaxCountries
+     *            The option
+     */
+    public void setCityShapeIndexMaxCountries(int cityShapeIndexMaxCountries) {
+    	if (cityShapeIndexMaxCountries <= 0) {
+    		throw new IllegalArgumentException("cityShapeIndexMaxCountries should be greater than 0");
+    	}
+    	this.cityShapeIndexMaxCountries = cityShapeIndexMaxCountries;
+    }
+
+    /**
+     * @return The option
+     * @see #setHouseNumberStreetIndexEnabled(boolean)
+     */
+    public boolean isHouseNumberStreetIndexEnabled() {
+    	return houseNumberStreetIndexEnabled;
+    }
+
+    /**
+     * Optional setting that tells if the housenumber importer should find
+     * the streets of the house numbers with an in memory index of the
+     * streets (see {@link StreetSpatialIndex}) rather than with a fulltext
+     * and a database query for each line. default to false
+     * 
+     * @param houseNumberStreetIndexEnabled
+     *            The option
+     */
+    public void setHouseNumberStreetIndexEnabled(boolean houseNumberStreetIndexEnabled) {
+    	this.houseNumberStreetIndexEnabled = houseNumberStreetIndexEnabled;
+    }
+
+    /**
+     * @return The option
+     * @see #setHouseNumberStreetIndexMaxMemory(int)
+     */
+    public int getHouseNumberStreetIndexMaxMemory() {
+    	return houseNumberStreetIndexMaxMemory;
+    }
+
+    /**
+     * Optional setting that tells how much memory (in Mb) the in memory
+     * street index can use. When it is reached, the areas that are not
+     * loaded yet are searched with the queries. default value is
+     * {@link #DEFAULT_HOUSE_NUMBER_STREET_INDEX_MAX_MEMORY}
+     * 
+     * @param houseNumberStreetIndexMaxMemory
+     *            The option
+     */
+    public void setHouseNumberStreetIndexMaxMemory(int houseNumberStreetIndexMaxMemory) {
+    	if (houseNumberStreetIndexMaxMemory <= 0) {
+    		throw new IllegalArgumentException("houseNumberStreetIndexMaxMemory should be greater than 0");
+    	}
+    	this.houseNumberStreetIndexMaxMemory = houseNumberStreetIndexMaxMemory;
+    }
+
+    /**
+     * @return The option
+     * @see #setArchiveStreamingEnabled(boolean)
+     */
+    public boolean isArchiveStreamingEnabled() {
+    	return archiveStreamingEnabled;
+    }
+
+    /**
+     * Optional setting that tells if the importers of the .gis files should
+     * read the lines directly from the archives (entry by entry) rather than
+     * extracting them on the disk first. The file retrievers don't decompress
+     * the archives when it is true. default to false
+     * 
+     * @param archiveStreamingEnabled
+     *            The option
+     */
+    public void setArchiveStreamingEnabled(boolean archiveStreamingEnabled) {
+    	this.archiveStreamingEnabled = archiveStreamingEnabled;
+    }
+
+    /**
+     * @return The option
+     * @see #setArchiveStreamingReadAhead(boolean)
+     */
+    public boolean isArchiveStreamingReadAhead() {
+    	return archiveStreamingReadAhead;
+    }
+
+    /**
+     * Optional setting that tells if the streamed archives should be
+     * decompressed in a background thread, so that the decompression and the
+     * import use two cores. default to true
+     * 
+     * @param archiveStreamingReadAhead
+     *            The option
+     */
+    public void setArchiveStreamingReadAhead(boolean archiveStreamingReadAhead) {
+    	this.archiveStreamingReadAhead = archiveStreamingReadAhead;
+    }
+
+    /**
+     * @return The option
+     * @see #setAlternateNamesGroupedByFeature(boolean)
+     */
+    public boolean isAlternateNamesGroupedByFeature() {
+    	return alternateNamesGroupedByFeature;
+    }
+
+    /**
+     * Optional setting that tells if the alternate names importer should
+     * accumulate the consecutive lines of a feature (the alternate names file
+     * is sorted by geonameid) and save the feature (and so index it) only
+     * once with all its alternate names and zip codes, rather than once per
+     * line. default to false
+     * 
+     * @param alternateNamesGroupedByFeature
+     *            The option
+     */
+    public void setAlternateNamesGroupedByFeature(boolean alternateNamesGroupedByFeature) {
+    	this.alternateNamesGroupedByFeature = alternateNamesGroupedByFeature;
+    }
+
+    /**
+     * @return The option
+     * @see #setBulkCopyEnabled(boolean)
+     */
+    public boolean isBulkCopyEnabled() {
+    	return bulkCopyEnabled;
+    }
+
+    /**
+     * Optional setting that tells if the importers that support it (the
+     * openstreetmap streets, pois and house numbers importers) should buffer
+     * the new entities and insert them with the postgres COPY protocol at
+     * each commit (see {@link com.gisgraphy.domain.repository.IBulkCopyDao}),
+     * rather than with an INSERT per entity. it needs the postgres driver 8.4
+     * or later. default to false
+     * 
+     * @param bulkCopyEnabled
+     *            The option
+     */
+    public void setBulkCopyEnabled(boolean bulkCopyEnabled) {
+    	this.bulkCopyEnabled = bulkCopyEnabled;
+    }
+
+    /**
+     * @return The option
+     * @see #setAdmHierarchyCached(boolean)
+     */
+    public boolean isAdmHierarchyCached() {
+    	return admHierarchyCached;
+    }
+
+    /**
+     * Optional setting that tells if the geonames features and zip codes
+     * importers should load all the adms (with their shape) in memory at
+     * startup (see {@link CachedAdmHierarchy}) and search the adm of each line
+     * in it, rather than with one or more queries per line. the adms must
+     * fit in the memory of the JVM. default to false
+     * 
+     * @param admHierarchyCached
+     *            The option
+     */
+    public void setAdmHierarchyCached(boolean admHierarchyCached) {
+    	this.admHierarchyCached = admHierarchyCached;
+    }
+
     /**
      * @param directoryPath
      *            The directory to check. it can be absolute or relative
@@ -179,17 +179,74 @@ public class ImporterHelper {
   		setParams(params);
   	}};
 
+    private static final Pattern PATTERN_GEONAMES_COUNTRY_FILE = Pattern.compile(GEONAMES_COUNTRY_FILE_ACCEPT_REGEX_STRING,Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern PATTERN_GEONAMES_UK_FULLFILE = Pattern.compile(GEONAMES_UK_FULLFILE_ACCEPT_REGEX_STRING,Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern PATTERN_OPENSTREETMAP_FILE = Pattern.compile(OPENSTREETMAP_FILE_ACCEPT_REGEX_STRING,Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern PATTERN_QUATTROSHAPES_FILE = Pattern.compile(QUATTROSHAPES_FILE_ACCEPT_REGEX_STRING,Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern PATTERN_GIS_FILE = Pattern.compile(GIS_FILE_ACCEPT_REGEX_STRING);
+
     public static FileFilter countryFileFilter = new FileFilter() {
 	public boolean accept(File file) {
-	    Pattern patternGeonames = Pattern.compile(GEONAMES_COUNTRY_FILE_ACCEPT_REGEX_STRING,Pattern.CASE_INSENSITIVE);
-	    Pattern patternUKFullZipGeonames = Pattern.compile(GEONAMES_UK_FULLFILE_ACCEPT_REGEX_STRING,Pattern.CASE_INSENSITIVE);
-	    Pattern patternOpenStreetMapUS = Pattern.compile(OPENSTREETMAP_FILE_ACCEPT_REGEX_STRING,Pattern.CASE_INSENSITIVE);
-	    Pattern patternQuattroshapes = Pattern.compile(QUATTROSHAPES_FILE_ACCEPT_REGEX_STRING,Pattern.CASE_INSENSITIVE);
-
-	    return (file.isFile() && file.exists()) && !EXCLUDED_README_FILENAME.equals(file.getName())
-		    && ( patternGeonames.matcher(file.getName()).matches() || patternUKFullZipGeonames.matcher(file.getName()).matches() || ALLCOUTRY_FILENAME.equals(file.getName()) || patternOpenStreetMapUS.matcher(file.getName()).matches() || patternQuattroshapes.matcher(file.getName()).matches());
+	    return (file.isFile() && file.exists()) && isCountryFileName(file.getName());
 	}
     };
+
+    /**
+     * @param fileName
+     *            the name of a file (without directory), typically the name of
+     *            an entry of an archive
+     * @return true if the file is a country file that should be imported
+     * @see #countryFileFilter
+     */
+    public static boolean isCountryFileName(String fileName) {
+	if (fileName == null) {
+	    return false;
+	}
+	return !EXCLUDED_README_FILENAME.equals(fileName)
+		&& ( PATTERN_GEONAMES_COUNTRY_FILE.matcher(fileName).matches() || PATTERN_GEONAMES_UK_FULLFILE.matcher(fileName).matches() || ALLCOUTRY_FILENAME.equals(fileName) || PATTERN_OPENSTREETMAP_FILE.matcher(fileName).matches() || PATTERN_QUATTROSHAPES_FILE.matcher(fileName).matches());
+    }
+
+    /**
+     * @param fileName
+     *            the name of a file
+     * @return true if the file is an archive that can be read by the
+     *         importers (.gis, .tar.bz2)
+     * @see #GIS_FILE_ACCEPT_REGEX_STRING
+     */
+    public static boolean isGisFileName(String fileName) {
+	return fileName != null && PATTERN_GIS_FILE.matcher(fileName).matches();
+    }
+
+    /**
+     * Select the country files to import, the same way as
+     * {@link #listCountryFilesToImport(String)} : if there is an
+     * {@link #ALLCOUTRY_FILENAME} file, only this one (and
+     * {@link ImporterConfig#GEONAMES_UK_FULL_ZIPCODE_FILE} if present) is
+     * imported
+     * 
+     * @param fileNames
+     *            the names of the country files (see
+     *            {@link #isCountryFileName(String)})
+     * @return the names of the files to import, in the same order
+     */
+    public static List<String> selectCountryFileNamesToImport(List<String> fileNames) {
+	if (!fileNames.contains(ALLCOUTRY_FILENAME)) {
+	    return fileNames;
+	}
+	List<String> selected = new ArrayList<String>();
+	selected.add(ALLCOUTRY_FILENAME);
+	if (fileNames.contains(ImporterConfig.GEONAMES_UK_FULL_ZIPCODE_FILE)) {
+	    selected.add(ImporterConfig.GEONAMES_UK_FULL_ZIPCODE_FILE);
+	    logger.info(ALLCOUTRY_FILENAME + " is present. Only this file and "+ImporterConfig.GEONAMES_UK_FULL_ZIPCODE_FILE+" will be imported. all other country files will be ignore");
+	} else {
+	    logger.info(ALLCOUTRY_FILENAME + " is present. Only this file will be imported. all other country files will be ignore");
+	}
+	return selected;
+    }
     
 
 	public static FileFilter splitedFileFilter = new FileFilter() {
@@ -212,9 +269,7 @@ public class ImporterHelper {
 
     private static FileFilter gisFileFilter = new FileFilter() {
 	public boolean accept(File file) {
-	    Pattern pattern = Pattern.compile(GIS_FILE_ACCEPT_REGEX_STRING);
-
-	    return (file.isFile() && file.exists()) && pattern.matcher(file.getName()).matches();
+	    return (file.isFile() && file.exists()) && isGisFileName(file.getName());
 	}
     };
 
@@ -237,29 +292,17 @@ public class ImporterHelper {
     	}
 
 
-    	File ukfullZipfile = null;
+    	List<String> fileNames = new ArrayList<String>(files.length);
     	for (File file : files) {
-    		if (ImporterConfig.GEONAMES_UK_FULL_ZIPCODE_FILE.equals(file.getName())) {
-    			logger.info(ImporterConfig.GEONAMES_UK_FULL_ZIPCODE_FILE + " is present.");
-    			ukfullZipfile=file;
-    			break;
-    		}
+    		fileNames.add(file.getName());
     	}
-
-    	for (File file : files) {
-    		if (ALLCOUTRY_FILENAME.equals(file.getName())) {
-    			if (ukfullZipfile!=null){
-    				files = new File[2];
-    				files[0] = file;
-    				files[1] = ukfullZipfile;
-    				logger.info(ALLCOUTRY_FILENAME + " is present. Only this file and "+ImporterConfig.GEONAMES_UK_FULL_ZIPCODE_FILE+" will be imported. all other country files will be ignore");
-    			} else {
-    				files = new File[1];
-    				files[0] = file;
-    				logger.info(ALLCOUTRY_FILENAME + " is present. Only this file will be imported. all other country files will be ignore");
-    			}
-    			break;
+    	List<String> fileNamesToImport = selectCountryFileNamesToImport(fileNames);
+    	if (fileNamesToImport.size() != files.length) {
+    		File[] selectedFiles = new File[fileNamesToImport.size()];
+    		for (int i = 0; i < selectedFiles.length; i++) {
+    			selectedFiles[i] = new File(dir, fileNamesToImport.get(i));
     		}
+    		files = selectedFiles;
     	}
 
     	if (files.length==0){
@@ -25,7 +25,18 @@ package com.gisgraphy.importer;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 
 import org.slf4j.Logger;
@@ -41,6 +52,8 @@ import com.gisgraphy.domain.repository.ISolRSynchroniser;
 import com.gisgraphy.domain.valueobject.ImporterStatusDto;
 import com.gisgraphy.fulltext.IsolrClient;
 import com.gisgraphy.helper.FileHelper;
+import com.gisgraphy.reversegeocoding.HouseNumberIndexCache;
+import com.gisgraphy.reversegeocoding.InMemoryReverseGeocodingIndex;
 import com.gisgraphy.service.impl.StatsUsageServiceImpl;
 import com.gisgraphy.stats.IStatsDataManager;
 
@@ -53,6 +66,8 @@ public class ImporterManager implements IImporterManager {
 
     private List<IImporterProcessor> importers = null;
 
+    private Map<IImporterProcessor, List<IImporterProcessor>> importerDependencies = null;
+
     private ImporterConfig importerConfig;
 
     @Autowired
@@ -78,6 +93,12 @@ public class ImporterManager implements IImporterManager {
     @Autowired
     private IDatabaseHelper databaseHelper;
     
+    @Autowired(required=false)
+    private HouseNumberIndexCache houseNumberIndexCache;
+    
+    @Autowired(required=false)
+    private InMemoryReverseGeocodingIndex inMemoryReverseGeocodingIndex;
+    
     private String hookURL="";
 
   
@@ -132,10 +153,14 @@ public class ImporterManager implements IImporterManager {
 	    logger.info("temporarily disabling stats");
 	    StatsUsageServiceImpl.disabled=true;
 	    this.inProgress = true;
-	    for (IImporterProcessor importer : importers) {
-		logger.info("will now process "
-			+ importer.getClass().getSimpleName());
-		importer.process();
+	    if (importerConfig.getMaxConcurrentImporters() > 1) {
+		processImportersConcurrently(importerConfig.getMaxConcurrentImporters());
+	    } else {
+		for (IImporterProcessor importer : importers) {
+		    logger.info("will now process "
+			    + importer.getClass().getSimpleName());
+		    importer.process();
+		}
 	    }
 	    try {
 			statsDataManager.exportStats();
@@ -160,9 +185,122 @@ public class ImporterManager implements IImporterManager {
 		} catch (Exception e) {
 			logger.error("The import is done but we can not persist the already done status : "+e.getMessage(),e);
 		}
+		//the indexes of the house numbers are cached by street id, the streets can have been imported again
+		if (houseNumberIndexCache != null) {
+			houseNumberIndexCache.clear();
+		}
+		refreshReverseGeocodingIndexes();
+	}
+    }
+
+    /**
+     * The in memory indexes of the reverse geocoding are built from the
+     * database, they are refreshed once the data is imported
+     */
+    protected void refreshReverseGeocodingIndexes() {
+	try {
+	    if (inMemoryReverseGeocodingIndex != null) {
+		inMemoryReverseGeocodingIndex.rebuildInBackground();
+	    }
+	} catch (RuntimeException e) {
+	    logger.error("Can not refresh the reverse geocoding indexes : " + e.getMessage(), e);
 	}
     }
 
+    /**
+     * Process the importers as a graph : an importer is started as soon as all
+     * the importers it depends on are processed (see
+     * {@link #getDependencies()}), so independent importers run at the same
+     * time. If an importer fails, no other importer is started, the running
+     * ones are awaited and the error is thrown, like in the sequential mode.
+     * 
+     * @param maxConcurrentImporters
+     *                the maximum number of importers that run at the same time
+     */
+    protected void processImportersConcurrently(int maxConcurrentImporters) {
+	Map<IImporterProcessor, Set<IImporterProcessor>> dependencies = getDependencies();
+	ExecutorService executor = Executors.newFixedThreadPool(maxConcurrentImporters);
+	CompletionService<IImporterProcessor> completionService = new ExecutorCompletionService<IImporterProcessor>(executor);
+	Set<IImporterProcessor> done = new HashSet<IImporterProcessor>();
+	Set<IImporterProcessor> submitted = new HashSet<IImporterProcessor>();
+	RuntimeException error = null;
+	int running = 0;
+	try {
+	    while (done.size() < importers.size()) {
+		if (error == null) {
+		    for (final IImporterProcessor importer : importers) {
+			if (!submitted.contains(importer) && done.containsAll(dependencies.get(importer))) {
+			    logger.info("will now process " + importer.getClass().getSimpleName());
+			    submitted.add(importer);
+			    running++;
+			    completionService.submit(new Callable<IImporterProcessor>() {
+				public IImporterProcessor call() {
+				    importer.process();
+				    return importer;
+				}
+			    });
+			}
+		    }
+		}
+		if (running == 0) {
+		    break;
+		}
+		Future<IImporterProcessor> future;
+		try {
+		    future = completionService.take();
+		} catch (InterruptedException e) {
+		    Thread.currentThread().interrupt();
+		    throw new ImporterException("the import has been interrupted", e);
+		}
+		running--;
+		try {
+		    done.add(future.get());
+		} catch (ExecutionException e) {
+		    if (error == null) {
+			error = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new ImporterException(e.getCause().getMessage(), e.getCause());
+			logger.error("An importer has failed, no other importer will be started : " + e.getCause().getMessage());
+		    }
+		} catch (InterruptedException e) {
+		    Thread.currentThread().interrupt();
+		    throw new ImporterException("the import has been interrupted", e);
+		}
+	    }
+	} finally {
+	    executor.shutdown();
+	}
+	if (error != null) {
+	    throw error;
+	}
+    }
+
+    /**
+     * @return the importers each importer has to wait for. an importer that
+     *         is not in {@link #setImporterDependencies(Map)} depends on all
+     *         the importers that are before it in the importer list. the
+     *         declared dependencies must be before the importer in the list
+     */
+    Map<IImporterProcessor, Set<IImporterProcessor>> getDependencies() {
+	Map<IImporterProcessor, Set<IImporterProcessor>> dependencies = new HashMap<IImporterProcessor, Set<IImporterProcessor>>();
+	Set<IImporterProcessor> previous = new HashSet<IImporterProcessor>();
+	for (IImporterProcessor importer : importers) {
+	    if (importerDependencies != null && importerDependencies.containsKey(importer)) {
+		Set<IImporterProcessor> declared = new HashSet<IImporterProcessor>();
+		if (importerDependencies.get(importer) != null) {
+		    declared.addAll(importerDependencies.get(importer));
+		}
+		if (!previous.containsAll(declared)) {
+		    throw new ImporterException("the dependencies of " + importer.getClass().getSimpleName()
+			    + " must be declared before it in the importer list");
+		}
+		dependencies.put(importer, declared);
+	    } else {
+		dependencies.put(importer, new HashSet<IImporterProcessor>(previous));
+	    }
+	    previous.add(importer);
+	}
+	return dependencies;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -278,6 +416,12 @@ public class ImporterManager implements IImporterManager {
 	    warningAndErrorMessage.addAll(creationErrorMessage);
 	    
 	    resetFullTextSearchEngine();
+	    if (houseNumberIndexCache != null) {
+		houseNumberIndexCache.clear();
+	    }
+	    if (inMemoryReverseGeocodingIndex != null) {
+		inMemoryReverseGeocodingIndex.clear();
+	    }
 	    setAlreadyDone(false);
 	    for (IImporterProcessor importer :importers){
 		importer.resetStatus();
@@ -335,6 +479,18 @@ public class ImporterManager implements IImporterManager {
 	this.importers = importers;
     }
 
+    /**
+     * @param importerDependencies
+     *                the importers each importer depends on, it is only used
+     *                when {@link ImporterConfig#getMaxConcurrentImporters()}
+     *                is greater than 1. An importer that is not a key of the
+     *                map depends on all the importers before it
+     * @see #getDependencies()
+     */
+    public void setImporterDependencies(Map<IImporterProcessor, List<IImporterProcessor>> importerDependencies) {
+	this.importerDependencies = importerDependencies;
+    }
+
     /**
      * @param daos
      *                the iDaos to set
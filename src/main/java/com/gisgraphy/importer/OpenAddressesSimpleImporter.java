@@ -22,7 +22,6 @@
  *******************************************************************************/
 package com.gisgraphy.importer;
 
-import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
@@ -53,6 +52,7 @@ import com.gisgraphy.fulltext.IFullTextSearchEngine;
 import com.gisgraphy.fulltext.SolrResponseDto;
 import com.gisgraphy.helper.GeolocHelper;
 import com.gisgraphy.helper.StringHelper;
+import com.gisgraphy.reversegeocoding.HouseNumberIndexCache;
 import com.vividsolutions.jts.geom.Point;
 
 /**
@@ -71,6 +71,8 @@ public class OpenAddressesSimpleImporter extends AbstractSimpleImporterProcessor
 
 	protected ISolRSynchroniser solRSynchroniser;
 
+	protected HouseNumberIndexCache houseNumberIndexCache;
+
 	protected IFullTextSearchEngine fullTextSearchEngine;
 
 	@Autowired
@@ -160,15 +162,12 @@ public class OpenAddressesSimpleImporter extends AbstractSimpleImporterProcessor
 		super.setup();
 	}
 
-	/*
-	 * (non-Javadoc)
-	 * 
-	 * @see
-	 * com.gisgraphy.domain.geoloc.importer.AbstractImporterProcessor#getFiles()
+	/* (non-Javadoc)
+	 * @see com.gisgraphy.importer.AbstractSimpleImporterProcessor#getCountryFilesDirectory()
 	 */
 	@Override
-	protected File[] getFiles() {
-		return ImporterHelper.listCountryFilesToImport(importerConfig.getOpenAddressesDir());
+	protected String getCountryFilesDirectory() {
+		return importerConfig.getOpenAddressesDir();
 	}
 
 
@@ -615,6 +614,11 @@ public class OpenAddressesSimpleImporter extends AbstractSimpleImporterProcessor
 	protected void tearDown() {
 		super.tearDown();
 		FullTextSearchEngine.disableLogging=false;
+		flushSolRBuffer(solRSynchroniser);
+		//the reverse geocoding must not use the indexes built before the import
+		if (houseNumberIndexCache != null) {
+			houseNumberIndexCache.clear();
+		}
 	}
 
 
@@ -638,6 +642,15 @@ public class OpenAddressesSimpleImporter extends AbstractSimpleImporterProcessor
 		this.solRSynchroniser = solRSynchroniser;
 	}
 
+	/**
+	 * @param houseNumberIndexCache
+	 *            the cache of the reverse geocoding, it is cleared when the
+	 *            house numbers are imported (optional)
+	 */
+	public void setHouseNumberIndexCache(HouseNumberIndexCache houseNumberIndexCache) {
+		this.houseNumberIndexCache = houseNumberIndexCache;
+	}
+
 	@Required
 	public void setOpenStreetMapImporterHelper(
 			OpenStreetMapSimpleImporter openStreetMapImporterHelper) {
@@ -25,7 +25,6 @@ package com.gisgraphy.importer;
 import static com.gisgraphy.domain.geoloc.entity.GisFeature.NAME_MAX_LENGTH;
 import static com.gisgraphy.fulltext.Constants.ONLY_ADM_PLACETYPE;
 
-import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -124,11 +123,11 @@ public class OpenStreetMapAdmSimpleImporter extends AbstractSimpleImporterProces
 
 
 	/* (non-Javadoc)
-	 * @see com.gisgraphy.domain.geoloc.importer.AbstractImporterProcessor#getFiles()
+	 * @see com.gisgraphy.importer.AbstractSimpleImporterProcessor#getCountryFilesDirectory()
 	 */
 	@Override
-	protected File[] getFiles() {
-		return ImporterHelper.listCountryFilesToImport(importerConfig.getOpenStreetMapAdmDir());
+	protected String getCountryFilesDirectory() {
+		return importerConfig.getOpenStreetMapAdmDir();
 	}
 
 	/* (non-Javadoc)
@@ -26,7 +26,6 @@ import static com.gisgraphy.domain.geoloc.entity.GisFeature.NAME_MAX_LENGTH;
 import static com.gisgraphy.fulltext.Constants.ONLY_ADM_PLACETYPE;
 import static com.gisgraphy.fulltext.FulltextQuerySolrHelper.MIN_SCORE;
 
-import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -127,11 +126,11 @@ public class OpenStreetMapCitiesSimpleImporter extends AbstractSimpleImporterPro
     
 
     /* (non-Javadoc)
-     * @see com.gisgraphy.domain.geoloc.importer.AbstractImporterProcessor#getFiles()
+     * @see com.gisgraphy.importer.AbstractSimpleImporterProcessor#getCountryFilesDirectory()
      */
     @Override
-    protected File[] getFiles() {
-	return ImporterHelper.listCountryFilesToImport(importerConfig.getOpenStreetMapCitiesDir());
+    protected String getCountryFilesDirectory() {
+	return importerConfig.getOpenStreetMapCitiesDir();
     }
 
     /* (non-Javadoc)
@@ -24,10 +24,16 @@ package com.gisgraphy.importer;
 
 import static com.gisgraphy.street.HouseNumberUtil.normalizeNumber;
 
-import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -63,6 +69,8 @@ import com.gisgraphy.importer.dto.InterpolationHouseNumber;
 import com.gisgraphy.importer.dto.InterpolationMember;
 import com.gisgraphy.importer.dto.InterpolationType;
 import com.gisgraphy.importer.dto.NodeHouseNumber;
+import com.gisgraphy.reversegeocoding.HouseNumberIndexCache;
+import com.gisgraphy.street.HouseNumberComparator;
 import com.vividsolutions.jts.geom.Point;
 
 /**
@@ -82,6 +90,9 @@ public class OpenStreetMapHouseNumberSimpleImporter extends AbstractSimpleImport
 	//the fulltext has to be greater than the db one since the fulltext use boundingbox nd midle point (db use cross and can be lower)
 	public static final long DEFAULT_FULLTEXT_SEARCH_DISTANCE = 5000L;
 
+	//the distance used by openStreetMapDao.getNearestByosmIds
+	public static final long ASSOCIATED_STREET_SEARCH_DISTANCE = 7000L;
+
 	protected static final Logger logger = LoggerFactory.getLogger(OpenStreetMapHouseNumberSimpleImporter.class);
 
 	protected IOpenStreetMapDao openStreetMapDao;
@@ -90,7 +101,37 @@ public class OpenStreetMapHouseNumberSimpleImporter extends AbstractSimpleImport
 
 	protected ISolRSynchroniser solRSynchroniser;
 
+	protected HouseNumberIndexCache houseNumberIndexCache;
+
+	/**
+	 * When the house numbers are bulk copied : the new house numbers of the
+	 * current transaction, by street id, to not copy the same number twice
+	 */
+	private Map<Long, SortedSet<HouseNumber>> bulkCopiedHouseNumbers = new HashMap<Long, SortedSet<HouseNumber>>();
+
+	/**
+	 * When the house numbers are bulk copied : the ids of the streets that
+	 * have new house numbers in the current transaction and have to be
+	 * indexed again once the house numbers are copied
+	 */
+	private Set<Long> streetIdsToIndex = new LinkedHashSet<Long>();
+
+	/**
+	 * save the house numbers whose copy has failed with their dao
+	 */
+	private final BulkCopySupport bulkCopySupport = new BulkCopySupport() {
+		public void saveWithoutBulkCopy(Object entity) {
+			houseNumberDao.save((HouseNumber) entity);
+		}
+	};
+
 	protected IFullTextSearchEngine fullTextSearchEngine;
+
+	/**
+	 * in memory index of the streets, only set during the import when
+	 * {@link ImporterConfig#isHouseNumberStreetIndexEnabled()}
+	 */
+	protected StreetSpatialIndex streetIndex;
 																//id		location	number			 name				streetname		city                zip				  suburb           shape             tpe		role	
 	private static final String ASSOCIATED_HOUSE_NUMBER_REGEXP = "([0-9]+)___([^_]*)___((?:(?!___).)*)___((?:(?!___).)*)___((?:(?!___).)*)___((?:(?!___).)*)___((?:(?!___).)*)___((?:(?!___).)*)___((?:(?!___).)*)___([NW])___([^_]*)(?:___)?";
 
@@ -122,7 +163,19 @@ public class OpenStreetMapHouseNumberSimpleImporter extends AbstractSimpleImport
 	 */
 	@Override
 	protected void flushAndClear() {
-
+		if (!streetIdsToIndex.isEmpty()) {
+			//the house numbers have been copied, reload the streets
+			//with them to index them once
+			openStreetMapDao.flushAndClear();
+			for (Long streetId : streetIdsToIndex) {
+				OpenStreetMap street = openStreetMapDao.get(streetId);
+				if (street != null) {
+					openStreetMapDao.save(street);
+				}
+			}
+			streetIdsToIndex.clear();
+		}
+		bulkCopiedHouseNumbers.clear();
 	}
 
 	@Override
@@ -130,17 +183,17 @@ public class OpenStreetMapHouseNumberSimpleImporter extends AbstractSimpleImport
 		//temporary disable logging when importing
 		FullTextSearchEngine.disableLogging=true;
 		super.setup();
+		if (importerConfig.isHouseNumberStreetIndexEnabled()) {
+			streetIndex = new StreetSpatialIndex(openStreetMapDao, importerConfig.getHouseNumberStreetIndexMaxMemory() * 1024L * 1024L);
+		}
 	}
 
-	/*
-	 * (non-Javadoc)
-	 * 
-	 * @see
-	 * com.gisgraphy.domain.geoloc.importer.AbstractImporterProcessor#getFiles()
+	/* (non-Javadoc)
+	 * @see com.gisgraphy.importer.AbstractSimpleImporterProcessor#getCountryFilesDirectory()
 	 */
 	@Override
-	protected File[] getFiles() {
-		return ImporterHelper.listCountryFilesToImport(importerConfig.getOpenStreetMapHouseNumberDir());
+	protected String getCountryFilesDirectory() {
+		return importerConfig.getOpenStreetMapHouseNumberDir();
 	}
 
 	/*
@@ -571,7 +624,7 @@ ___W___house"} SHAPE"
 				
 				if (houseMember!=null && houseMember.getLocation()!=null){
 					HouseNumber houseNumber = buildHouseNumberFromAssociatedHouseNumber(houseMember);
-				OpenStreetMap associatedStreet = openStreetMapDao.getNearestByosmIds(houseMember.getLocation(), streetIds);
+				OpenStreetMap associatedStreet = getNearestByosmIds(houseMember.getLocation(), streetIds);
 				if (associatedStreet!=null && houseMember!=null && houseMember.getZipCode()!=null){
 					associatedStreet.setZipCode(houseMember.getZipCode());
 				}
@@ -636,9 +689,45 @@ ___W___house"} SHAPE"
 	}
 
 	protected void saveOsm(OpenStreetMap osm) {
+		if (isBulkCopied() && osm.getId() != null) {
+			bulkCopyNewHouseNumbers(osm);
+			return;
+		}
 		openStreetMapDao.save(osm);
 	}
 
+	/**
+	 * Remove the new house numbers of the street from its collection (they
+	 * would be cascaded on flush) and add them to the bulk copy. The street
+	 * is only indexed once per transaction, when the house numbers are
+	 * copied
+	 * 
+	 * @param osm
+	 *            a street that is already in the database
+	 */
+	private void bulkCopyNewHouseNumbers(OpenStreetMap osm) {
+		SortedSet<HouseNumber> houseNumbers = osm.getHouseNumbers();
+		if (houseNumbers == null) {
+			return;
+		}
+		SortedSet<HouseNumber> copied = bulkCopiedHouseNumbers.get(osm.getId());
+		if (copied == null) {
+			copied = new TreeSet<HouseNumber>(new HouseNumberComparator());
+			bulkCopiedHouseNumbers.put(osm.getId(), copied);
+		}
+		Iterator<HouseNumber> iterator = houseNumbers.iterator();
+		while (iterator.hasNext()) {
+			HouseNumber houseNumber = iterator.next();
+			if (houseNumber.getId() == null) {
+				iterator.remove();
+				if (copied.add(houseNumber)) {
+					addToBulkCopy(houseNumber);
+				}
+			}
+		}
+		streetIdsToIndex.add(osm.getId());
+	}
+
 	protected List<HouseNumber> processInterpolationHouseNumber(InterpolationHouseNumber house) {
 			//the results
 			List<HouseNumber> houseNumbers = new ArrayList<HouseNumber>();
@@ -800,12 +889,21 @@ ___W___house"} SHAPE"
 		}
 		if (streetName==null || "".equals(streetName.trim()) || "\"\"".equals(streetName.trim()) || "-".equals(streetName.trim()) || "---".equals(streetName.trim()) || "--".equals(streetName.trim())){
 				logger.warn("findNearestStreet : no streetname, we search by location "+location);
+				if (streetIndex != null && streetIndex.isIndexed(location, DEFAULT_SEARCH_DISTANCE)) {
+					return getStreetByGid(streetIndex.findNearestStreet(null, location, DEFAULT_SEARCH_DISTANCE));
+				}
 				OpenStreetMap osm =	openStreetMapDao.getNearestFrom(location,DEFAULT_SEARCH_DISTANCE);
 				logger.error("findNearestStreet :getNearestFrom return "+osm);
 				
 				return osm;
 		}
-		
+		if (streetIndex != null && streetIndex.isIndexed(location, DEFAULT_SEARCH_DISTANCE)) {
+			Long gid = streetIndex.findNearestStreet(streetName, location, DEFAULT_SEARCH_DISTANCE);
+			if (gid != null) {
+				return getStreetByGid(gid);
+			}
+			//the fulltext search does not require all the words, it can find a street the index does not
+		}
 		
 		FulltextQuery query;
 		try {
@@ -849,6 +947,20 @@ ___W___house"} SHAPE"
 	}
 	
 
+	protected OpenStreetMap getNearestByosmIds(Point location, List<Long> streetIds) {
+		if (streetIndex != null && streetIndex.isIndexed(location, ASSOCIATED_STREET_SEARCH_DISTANCE)) {
+			return getStreetByGid(streetIndex.findNearestByOpenstreetmapIds(location, streetIds, ASSOCIATED_STREET_SEARCH_DISTANCE));
+		}
+		return openStreetMapDao.getNearestByosmIds(location, streetIds);
+	}
+
+	protected OpenStreetMap getStreetByGid(Long gid) {
+		if (gid == null) {
+			return null;
+		}
+		return openStreetMapDao.getByGid(gid);
+	}
+
 	protected boolean areTooCloseDistance(Double distance, Double distance2) {
 		if (distance!=null && distance2!=null ){
 			double min = Math.min(distance, distance2);
@@ -1079,17 +1191,38 @@ ___W___house"} SHAPE"
 			deletedObjectInfo.add(new NameValueDTO<Integer>(houseNumberDao.getPersistenceClass().getSimpleName(), deleted));
 		}
 		logger.info(deleted + " house number entities have been deleted");
+		if (houseNumberIndexCache != null) {
+			houseNumberIndexCache.clear();
+		}
 		resetStatus();
 		return deletedObjectInfo;
 	}
 
 	
 
+	/* (non-Javadoc)
+	 * @see com.gisgraphy.importer.AbstractSimpleImporterProcessor#getBulkCopySupport()
+	 */
+	@Override
+	protected BulkCopySupport getBulkCopySupport() {
+		return bulkCopySupport;
+	}
+
 	@Override
 	// TODO test
 	protected void tearDown() {
 		super.tearDown();
 		FullTextSearchEngine.disableLogging=false;
+		if (streetIndex != null) {
+			logger.info("street index : " + streetIndex.getLookupCount() + " lookups, " + streetIndex.getFallbackCount() + " sent to the fulltext engine and the database, " + streetIndex.getEvictionCount() + " tiles evicted");
+			streetIndex.clear();
+			streetIndex = null;
+		}
+		flushSolRBuffer(solRSynchroniser);
+		//the reverse geocoding must not use the indexes built before the import
+		if (houseNumberIndexCache != null) {
+			houseNumberIndexCache.clear();
+		}
 	}
 
 
@@ -1113,5 +1246,14 @@ ___W___house"} SHAPE"
 		this.solRSynchroniser = solRSynchroniser;
 	}
 
+	/**
+	 * @param houseNumberIndexCache
+	 *            the cache of the reverse geocoding, it is cleared when the
+	 *            house numbers are imported (optional)
+	 */
+	public void setHouseNumberIndexCache(HouseNumberIndexCache houseNumberIndexCache) {
+		this.houseNumberIndexCache = houseNumberIndexCache;
+	}
+
 
 }
@@ -22,7 +22,6 @@
  *******************************************************************************/
 package com.gisgraphy.importer;
 
-import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
@@ -86,12 +85,27 @@ public class OpenStreetMapPoisSimpleImporter extends AbstractSimpleImporterProce
     
     @Autowired
     protected ISolRSynchroniser solRSynchroniser;
+
+    /**
+     * save the pois whose copy has failed with their dao
+     */
+    private final BulkCopySupport bulkCopySupport = new BulkCopySupport() {
+	public void saveWithoutBulkCopy(Object entity) {
+	    gisFeatureDao.save((GisFeature) entity);
+	}
+    };
   
     
     OsmAmenityToPlacetype osmAmenityToPlacetype = new OsmAmenityToPlacetype();
     
     @Autowired
     protected ICityDao cityDao;
+
+    /**
+     * in memory index of the city shapes, only set during the import when
+     * {@link ImporterConfig#isCityShapeIndexEnabled()}
+     */
+    protected CityShapeIndex cityShapeIndex;
     
     protected boolean shouldFillIsInField(){
     	return importerConfig.isOpenStreetMapFillIsIn(); 
@@ -105,6 +119,14 @@ public class OpenStreetMapPoisSimpleImporter extends AbstractSimpleImporterProce
     protected void flushAndClear() {
     	gisFeatureDao.flushAndClear();
     }
+
+    /* (non-Javadoc)
+     * @see com.gisgraphy.importer.AbstractSimpleImporterProcessor#getBulkCopySupport()
+     */
+    @Override
+    protected BulkCopySupport getBulkCopySupport() {
+	return bulkCopySupport;
+    }
     
     @Override
     protected void setup() {
@@ -112,15 +134,18 @@ public class OpenStreetMapPoisSimpleImporter extends AbstractSimpleImporterProce
         //temporary disable logging when importing
         FullTextSearchEngine.disableLogging=true;
         idGenerator.sync();
+        if (importerConfig.isCityShapeIndexEnabled()) {
+            cityShapeIndex = new CityShapeIndex(cityDao, null, importerConfig.getCityShapeIndexMaxCountries());
+        }
     }
     
 
     /* (non-Javadoc)
-     * @see com.gisgraphy.domain.geoloc.importer.AbstractImporterProcessor#getFiles()
+     * @see com.gisgraphy.importer.AbstractSimpleImporterProcessor#getCountryFilesDirectory()
      */
     @Override
-    protected File[] getFiles() {
-    	return ImporterHelper.listCountryFilesToImport(importerConfig.getOpenStreetMapPoisDir());
+    protected String getCountryFilesDirectory() {
+    	return importerConfig.getOpenStreetMapPoisDir();
     }
 
     /* (non-Javadoc)
@@ -158,7 +183,11 @@ public class OpenStreetMapPoisSimpleImporter extends AbstractSimpleImporterProce
 	}
 	try {
 		for (GisFeature poi:pois){
-			gisFeatureDao.save(poi);
+			if (isBulkCopied()) {
+				addToBulkCopy(poi, poi.getAlternateNames(), poi.getZipCodes());
+			} else {
+				gisFeatureDao.save(poi);
+			}
 		}
 	} catch (ConstraintViolationException e) {
 		logger.error("Can not save "+dumpFields(fields)+"(ConstraintViolationException) we continue anyway but you should consider this",e);
@@ -269,10 +298,17 @@ public class OpenStreetMapPoisSimpleImporter extends AbstractSimpleImporterProce
 	}
 
 	
+	protected City getCityByShape(Point location, String countryCode, boolean filterMunicipality) {
+		if (cityShapeIndex != null) {
+			return cityShapeIndex.getByShape(location, countryCode, filterMunicipality);
+		}
+		return cityDao.getByShape(location, countryCode, filterMunicipality);
+	}
+
 	 protected void setIsInFields(GisFeature poi) {
 	    	if (poi != null && poi.getLocation() != null) {
 	    		//first searchByShape because it is the more reliable :
-	    		City cityByShape = cityDao.getByShape(poi.getLocation(),poi.getCountryCode(),true);
+	    		City cityByShape = getCityByShape(poi.getLocation(),poi.getCountryCode(),true);
 	    		if (cityByShape != null){
 	    			poi.setIsIn(cityByShape.getName());
 	    			poi.setCityId(cityByShape.getId());
@@ -473,6 +509,11 @@ public class OpenStreetMapPoisSimpleImporter extends AbstractSimpleImporterProce
     //TODO test
     protected void tearDown() {
     	super.tearDown();
+    	if (cityShapeIndex != null) {
+    		logger.info("city shape index : " + cityShapeIndex.getLookupCount() + " lookups, " + cityShapeIndex.getFallbackCount() + " sent to the database");
+    		cityShapeIndex.clear();
+    		cityShapeIndex = null;
+    	}
     	String savedMessage = this.statusMessage;
     	/*try {
     		 FullTextSearchEngine.disableLogging=true;
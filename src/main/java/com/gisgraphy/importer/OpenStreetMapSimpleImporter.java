@@ -22,7 +22,6 @@
  *******************************************************************************/
 package com.gisgraphy.importer;
 
-import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
@@ -91,6 +90,21 @@ public class OpenStreetMapSimpleImporter extends AbstractSimpleImporterProcessor
     
     @Autowired
     protected ICitySubdivisionDao citySubdivisionDao;
+
+    /**
+     * in memory index of the shapes, only set during the import when
+     * {@link ImporterConfig#isCityShapeIndexEnabled()}
+     */
+    protected CityShapeIndex cityShapeIndex;
+
+    /**
+     * save the streets whose copy has failed with their dao
+     */
+    private final BulkCopySupport bulkCopySupport = new BulkCopySupport() {
+	public void saveWithoutBulkCopy(Object entity) {
+	    openStreetMapDao.save((OpenStreetMap) entity);
+	}
+    };
     
     private static final Pattern pattern = Pattern.compile("(\\w+)\\s\\d+.*",Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
     
@@ -116,6 +130,9 @@ public class OpenStreetMapSimpleImporter extends AbstractSimpleImporterProcessor
         GeolocSearchEngine.disableLogging=true;
         logger.info("reseting Openstreetmap generatedId");
         idGenerator.sync();
+        if (importerConfig.isCityShapeIndexEnabled()) {
+            cityShapeIndex = new CityShapeIndex(cityDao, citySubdivisionDao, importerConfig.getCityShapeIndexMaxCountries());
+        }
     }
     
     @Override
@@ -125,6 +142,12 @@ public class OpenStreetMapSimpleImporter extends AbstractSimpleImporterProcessor
     	super.tearDown();
     	FullTextSearchEngine.disableLogging=false;
     	GeolocSearchEngine.disableLogging=false;
+    	if (cityShapeIndex != null) {
+    		logger.info("city shape index : " + cityShapeIndex.getLookupCount() + " lookups, " + cityShapeIndex.getFallbackCount() + " sent to the database");
+    		cityShapeIndex.clear();
+    		cityShapeIndex = null;
+    	}
+    	flushSolRBuffer(solRSynchroniser);
     	 String savedMessage = this.statusMessage;
      	try {
      		this.statusMessage = internationalisationService.getString("import.message.createIndex");
@@ -142,11 +165,11 @@ public class OpenStreetMapSimpleImporter extends AbstractSimpleImporterProcessor
     
 
     /* (non-Javadoc)
-     * @see com.gisgraphy.domain.geoloc.importer.AbstractImporterProcessor#getFiles()
+     * @see com.gisgraphy.importer.AbstractSimpleImporterProcessor#getCountryFilesDirectory()
      */
     @Override
-    protected File[] getFiles() {
-    	return ImporterHelper.listCountryFilesToImport(importerConfig.getOpenStreetMapDir());
+    protected String getCountryFilesDirectory() {
+    	return importerConfig.getOpenStreetMapDir();
     }
 
     /* (non-Javadoc)
@@ -164,6 +187,54 @@ public class OpenStreetMapSimpleImporter extends AbstractSimpleImporterProcessor
      */
     @Override
     protected void processData(String line) throws ImporterException {
+	OpenStreetMap street = parseStreet(line);
+	if (street != null) {
+	    saveStreet(street);
+	}
+    }
+
+    /* (non-Javadoc)
+     * @see com.gisgraphy.importer.AbstractSimpleImporterProcessor#isPipelineSupported()
+     */
+    @Override
+    protected boolean isPipelineSupported() {
+	return true;
+    }
+
+    /* (non-Javadoc)
+     * @see com.gisgraphy.importer.AbstractSimpleImporterProcessor#getBulkCopySupport()
+     */
+    @Override
+    protected BulkCopySupport getBulkCopySupport() {
+	return bulkCopySupport;
+    }
+
+    /* (non-Javadoc)
+     * @see com.gisgraphy.importer.AbstractSimpleImporterProcessor#prepareData(java.lang.String)
+     */
+    @Override
+    protected Object prepareData(String line) throws ImporterException {
+	return parseStreet(line);
+    }
+
+    /* (non-Javadoc)
+     * @see com.gisgraphy.importer.AbstractSimpleImporterProcessor#processPreparedData(java.lang.Object)
+     */
+    @Override
+    protected void processPreparedData(Object preparedData)
+	    throws ImporterException {
+	saveStreet((OpenStreetMap) preparedData);
+    }
+
+    /**
+     * Parse a line of the file. it doesn't use any dao so it can be called by
+     * several threads
+     * 
+     * @param line
+     *                the line to parse
+     * @return the street or null if the line can not be imported
+     */
+    protected OpenStreetMap parseStreet(String line) {
 	String[] fields = line.split("\t");
 
 	//
@@ -175,18 +246,16 @@ public class OpenStreetMapSimpleImporter extends AbstractSimpleImporterProcessor
 	checkNumberOfColumn(fields);
 	OpenStreetMap street = new OpenStreetMap();
 	street.setSource(GISSource.OSM);
+	Long openstreetmapId= null;
 	// set id
 	if (!isEmptyField(fields, 0, false)) {
-	    Long openstreetmapId= null;
 	    try {
 		openstreetmapId = new Long(fields[0].trim());
-		currentId = openstreetmapId;
 	    } catch (NumberFormatException e) {
 		logger.warn("can not get openstreetmap id for "+fields[0]);
 	    }
 	    street.setOpenstreetmapId(openstreetmapId);
 	}
-	//logger.error("will process openstreetmapId="+currentId );
 	
 	// set name
 	if (!isEmptyField(fields, 1, false)) {
@@ -200,8 +269,8 @@ public class OpenStreetMapSimpleImporter extends AbstractSimpleImporterProcessor
 		Point location = (Point) GeolocHelper.convertFromHEXEWKBToGeometry(fields[2]);
 		street.setLocation(location);
 	    } catch (RuntimeException e) {
-	    	logger.warn(currentId+" can not parse location for "+fields[1]+" : "+e);
-	    	return;
+	    	logger.warn(openstreetmapId+" can not parse location for "+fields[1]+" : "+e);
+	    	return null;
 	    }
 	}
 	
@@ -236,7 +305,7 @@ public class OpenStreetMapSimpleImporter extends AbstractSimpleImporterProcessor
 		type = StreetType.valueOf(fields[8].toUpperCase());
 		street.setStreetType(type);
 	    } catch (Exception e) {
-		logger.warn(currentId+" can not determine streetType for "+fields[0]+"/"+fields[8]+" : "+e);
+		logger.warn(openstreetmapId+" can not determine streetType for "+fields[0]+"/"+fields[8]+" : "+e);
 		street.setStreetType(StreetType.UNCLASSIFIED);
 	    }
 	    
@@ -249,7 +318,7 @@ public class OpenStreetMapSimpleImporter extends AbstractSimpleImporterProcessor
 		oneWay  = fields[9].equals("t");
 		street.setOneWay(oneWay);
 	    } catch (Exception e) {
-		logger.warn(currentId+" can not determine oneway for "+fields[1]+"/"+fields[9]+" : "+e);
+		logger.warn(openstreetmapId+" can not determine oneway for "+fields[1]+"/"+fields[9]+" : "+e);
 	    }
 	    
 	}
@@ -258,8 +327,8 @@ public class OpenStreetMapSimpleImporter extends AbstractSimpleImporterProcessor
 	    try {
 	    	street.setShape((LineString)GeolocHelper.convertFromHEXEWKBToGeometry(fields[10]));
 	    } catch (RuntimeException e) {
-		logger.warn(currentId+" can not parse shape for "+fields[0]+"/"+fields[10] +" : "+e);
-		return;
+		logger.warn(openstreetmapId+" can not parse shape for "+fields[0]+"/"+fields[10] +" : "+e);
+		return null;
 	    }
 	}
 	
@@ -274,7 +343,7 @@ public class OpenStreetMapSimpleImporter extends AbstractSimpleImporterProcessor
 			Integer lanes = Integer.parseInt(fields[12]);
 			street.setLanes(lanes);
 		} catch (NumberFormatException e) {
-			logger.warn(currentId+" can not parse lanes for "+fields[0]+"/"+fields[12] +" : "+e);
+			logger.warn(openstreetmapId+" can not parse lanes for "+fields[0]+"/"+fields[12] +" : "+e);
 		}
   
 	}
@@ -296,15 +365,6 @@ public class OpenStreetMapSimpleImporter extends AbstractSimpleImporterProcessor
 	/*if (!isEmptyField(fields, 5, false)) {
 		street.setIsIn(fields[5].trim());
 	}*/
-	if (shouldFillIsInField()) {
-		//we try to process is_in fields, because we want to fill adm and zip too
-		setIsInFields(street);
-	}
-	
-	
-	long generatedId= idGenerator.getNextGId();
-	street.setGid(new Long(generatedId));
-
 	
 	//azimuth *2
 	if (!isEmptyField(fields, 15, false)){
@@ -322,7 +382,29 @@ public class OpenStreetMapSimpleImporter extends AbstractSimpleImporterProcessor
 	if (fields.length == 19 && !isEmptyField(fields, 18, false)){
 		populateAlternateNames(street,fields[18]);
 	}
+	return street;
+    }
+
+    /**
+     * Fill the is_in fields, the gid and the labels of a parsed street and save
+     * it. it uses the daos so it must be called in the import transaction
+     * 
+     * @param street
+     *                the street returned by {@link #parseStreet(String)}
+     */
+    protected void saveStreet(OpenStreetMap street) {
+	if (street.getOpenstreetmapId() != null) {
+	    currentId = street.getOpenstreetmapId();
+	}
+	if (shouldFillIsInField()) {
+		//we try to process is_in fields, because we want to fill adm and zip too
+		setIsInFields(street);
+	}
+	
 	
+	long generatedId= idGenerator.getNextGId();
+	street.setGid(new Long(generatedId));
+
 	//labels
 	if (street.getName() !=null){
 	street.setAlternateLabels(labelGenerator.generateLabels(street));
@@ -332,15 +414,17 @@ public class OpenStreetMapSimpleImporter extends AbstractSimpleImporterProcessor
 	}
 	
 		
+	if (isBulkCopied()) {
+		addToBulkCopy(street, street.getAlternateNames());
+		return;
+	}
 	try {
 		openStreetMapDao.save(street);
 	} catch (ConstraintViolationException e) {
-		logger.error(currentId+" Can not save "+dumpFields(fields)+"(ConstraintViolationException) we continue anyway but you should consider this",e);
+		logger.error("Can not save openstreetmapId "+street.getOpenstreetmapId()+"(ConstraintViolationException) we continue anyway but you should consider this",e);
 	}catch (Exception e) {
-		logger.error(currentId+" Can not save "+dumpFields(fields)+" we continue anyway but you should consider this",e);
+		logger.error("Can not save openstreetmapId "+street.getOpenstreetmapId()+" we continue anyway but you should consider this",e);
 	}
-	//logger.error("finish process of openstreetmapId="+currentId );
-
 
     }
     
@@ -376,7 +460,7 @@ public class OpenStreetMapSimpleImporter extends AbstractSimpleImporterProcessor
 			return azimuth.intValue();
 			
 		} catch (NumberFormatException e) {
-			logger.warn(currentId+" can not parse azimuth "+azimutStr +" : "+e);
+			logger.warn("can not parse azimuth "+azimutStr +" : "+e);
 			return null;
 		}
 	}
@@ -421,7 +505,7 @@ public class OpenStreetMapSimpleImporter extends AbstractSimpleImporterProcessor
     protected void setIsInFields(OpenStreetMap street) {
     	if (street != null && street.getLocation() != null) {
     		//first search By Shape because it is the more reliable :
-    		City cityByShape = cityDao.getByShape(street.getLocation(),street.getCountryCode(),true);
+    		City cityByShape = getCityByShape(street.getLocation(),street.getCountryCode(),true);
     		if (cityByShape != null){
     			street.setIsIn(cityByShape.getName());
     			street.setCityId(cityByShape.getId());
@@ -447,7 +531,7 @@ public class OpenStreetMapSimpleImporter extends AbstractSimpleImporterProcessor
     				//AFTER setting admnames, we took the best one
     				street.setIsInAdm(getBestAdmName(cityByShape));//cityByShape.getAdm().getName()
     				//set the is_in_place
-    				CitySubdivision subdivision = citySubdivisionDao.getByShape(street.getLocation(),cityByShape.getCountryCode());
+    				CitySubdivision subdivision = getSubdivisionByShape(street.getLocation(),cityByShape.getCountryCode());
     				if (subdivision !=null){
     					street.setIsInPlace(subdivision.getName());
     				}
@@ -621,6 +705,20 @@ public class OpenStreetMapSimpleImporter extends AbstractSimpleImporterProcessor
 		return cityDao.getNearest(location, countryCode, filterMunicipality, DISTANCE);
 	}*/
 	
+	protected City getCityByShape(Point location, String countryCode, boolean filterMunicipality) {
+		if (cityShapeIndex != null) {
+			return cityShapeIndex.getByShape(location, countryCode, filterMunicipality);
+		}
+		return cityDao.getByShape(location, countryCode, filterMunicipality);
+	}
+
+	protected CitySubdivision getSubdivisionByShape(Point location, String countryCode) {
+		if (cityShapeIndex != null) {
+			return cityShapeIndex.getSubdivisionByShape(location, countryCode);
+		}
+		return citySubdivisionDao.getByShape(location, countryCode);
+	}
+
 	protected List<City> getNearestCities(Point location, String countryCode) {
 		if (location ==null){
 			return null;
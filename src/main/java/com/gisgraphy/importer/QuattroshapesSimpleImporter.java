@@ -22,7 +22,6 @@
  *******************************************************************************/
 package com.gisgraphy.importer;
 
-import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -66,11 +65,11 @@ public class QuattroshapesSimpleImporter extends AbstractSimpleImporterProcessor
 
 
 	/* (non-Javadoc)
-	 * @see com.gisgraphy.domain.geoloc.importer.AbstractImporterProcessor#getFiles()
+	 * @see com.gisgraphy.importer.AbstractSimpleImporterProcessor#getCountryFilesDirectory()
 	 */
 	@Override
-	protected File[] getFiles() {
-		return ImporterHelper.listCountryFilesToImport(importerConfig.getQuattroshapesDir());
+	protected String getCountryFilesDirectory() {
+		return importerConfig.getQuattroshapesDir();
 	}
 	
 	 @Override
@@ -0,0 +1,501 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.importer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gisgraphy.domain.repository.IOpenStreetMapDao;
+import com.gisgraphy.domain.valueobject.SRID;
+import com.gisgraphy.helper.GeolocHelper;
+import com.gisgraphy.helper.StringHelper;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.geom.PrecisionModel;
+import com.vividsolutions.jts.index.strtree.STRtree;
+import com.vividsolutions.jts.operation.distance.DistanceOp;
+
+/**
+ * In memory index of the streets, used by the housenumber importer to find
+ * the street of a house number without sending a fulltext query and a spatial
+ * query for each line.
+ * <p>
+ * The streets are loaded by tiles of {@link #TILE_SIZE} degrees, the first
+ * time a house number of the tile is searched, in a {@link STRtree} of the
+ * shapes and a map of the normalized names and alternate names. Only the gids
+ * are returned, the
+ * entities are loaded with the dao so that they belong to the current
+ * session.
+ * <p>
+ * The memory used by the loaded tiles is estimated and can not be more than
+ * maxMemory. The size of a tile is estimated with a count query before it is
+ * loaded, and the least recently used tiles are removed until it fits. When
+ * a tile is bigger than maxMemory, it is marked as not indexed and
+ * {@link #isIndexed(Point, double)} returns false for the points around it,
+ * so that the caller uses the queries for this tile.
+ * <p>
+ * This class is not thread safe, it is intended to be used by the thread
+ * that saves the house numbers.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public class StreetSpatialIndex {
+
+    protected static final Logger logger = LoggerFactory.getLogger(StreetSpatialIndex.class);
+
+    /**
+     * The size of the tiles in degrees
+     */
+    public static final double TILE_SIZE = 0.5;
+
+    /**
+     * Estimated size of a street in memory without its coordinates and its
+     * name (objects, index node and maps entries)
+     */
+    static final int STREET_BYTES = 300;
+
+    /**
+     * Estimated size of a coordinate of a shape in memory
+     */
+    static final int COORDINATE_BYTES = 40;
+
+    /**
+     * Estimated size of an alternate name in memory without its characters
+     * (string, list and map entries)
+     */
+    static final int ALTERNATE_NAME_BYTES = 100;
+
+    private static final int TILES_BY_ROW = (int) Math.ceil(360 / TILE_SIZE);
+
+    private static final GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(), SRID.WGS84_SRID.getSRID());
+
+    /**
+     * Marker for the tiles that can not be loaded
+     */
+    private static final Tile NOT_INDEXED = new Tile();
+
+    private final IOpenStreetMapDao openStreetMapDao;
+
+    private final long maxMemory;
+
+    /**
+     * The tiles in access order, the first one is the least recently used
+     */
+    private final LinkedHashMap<Long, Tile> tiles = new LinkedHashMap<Long, Tile>(16, 0.75f, true);
+
+    private long usedMemory = 0;
+
+    private long evictionCount = 0;
+
+    private long lookupCount = 0;
+
+    private long fallbackCount = 0;
+
+    /**
+     * A street of the index
+     */
+    static class IndexedStreet {
+	final long gid;
+	final Long openstreetmapId;
+	final String name;
+	final String countryCode;
+	final Geometry shape;
+	List<String> alternateNames;
+
+	IndexedStreet(long gid, Long openstreetmapId, String name, String countryCode, Geometry shape) {
+	    this.gid = gid;
+	    this.openstreetmapId = openstreetmapId;
+	    this.name = name;
+	    this.countryCode = countryCode;
+	    this.shape = shape;
+	}
+
+	boolean hasSimilarName(String streetName) {
+	    if (name != null && StringHelper.isSameStreetName(streetName, name, countryCode)) {
+		return true;
+	    }
+	    if (alternateNames != null) {
+		for (String alternateName : alternateNames) {
+		    if (StringHelper.isSameStreetName(streetName, alternateName, countryCode)) {
+			return true;
+		    }
+		}
+	    }
+	    return false;
+	}
+    }
+
+    /**
+     * The streets of a tile
+     */
+    static class Tile {
+	private final STRtree tree = new STRtree();
+	private final Map<String, List<IndexedStreet>> byName = new HashMap<String, List<IndexedStreet>>();
+	private int size = 0;
+	private long memory = 0;
+
+	void add(IndexedStreet street) {
+	    tree.insert(street.shape.getEnvelopeInternal(), street);
+	    if (street.name != null) {
+		addName(street, street.name);
+	    }
+	    size++;
+	}
+
+	void addAlternateName(IndexedStreet street, String alternateName) {
+	    if (street.alternateNames == null) {
+		street.alternateNames = new ArrayList<String>(1);
+	    }
+	    street.alternateNames.add(alternateName);
+	    addName(street, alternateName);
+	}
+
+	private void addName(IndexedStreet street, String name) {
+	    String normalizedName = normalizeName(name);
+	    List<IndexedStreet> streets = byName.get(normalizedName);
+	    if (streets == null) {
+		streets = new ArrayList<IndexedStreet>(1);
+		byName.put(normalizedName, streets);
+	    }
+	    if (!streets.contains(street)) {
+		streets.add(street);
+	    }
+	}
+
+	@SuppressWarnings("unchecked")
+	List<IndexedStreet> query(Envelope envelope) {
+	    if (size == 0) {
+		return new ArrayList<IndexedStreet>();
+	    }
+	    return tree.query(envelope);
+	}
+    }
+
+    /**
+     * @param openStreetMapDao
+     *                the dao used to load the streets
+     * @param maxMemory
+     *                the estimated memory (in bytes) the index can use
+     */
+    public StreetSpatialIndex(IOpenStreetMapDao openStreetMapDao, long maxMemory) {
+	if (openStreetMapDao == null) {
+	    throw new IllegalArgumentException("can not create a street index without openStreetMapDao");
+	}
+	if (maxMemory <= 0) {
+	    throw new IllegalArgumentException("the maximum memory should be greater than 0");
+	}
+	this.openStreetMapDao = openStreetMapDao;
+	this.maxMemory = maxMemory;
+    }
+
+    static String normalizeName(String name) {
+	return StringHelper.normalize(name).trim();
+    }
+
+    /**
+     * Load the tiles around the location if needed
+     * 
+     * @param location
+     *                the location to search around
+     * @param distance
+     *                the search distance in meters
+     * @return true if all the streets at less than distance meters from the
+     *         location are in memory, false if the queries should be used
+     */
+    public boolean isIndexed(Point location, double distance) {
+	if (location == null) {
+	    return false;
+	}
+	lookupCount++;
+	for (Tile tile : getTiles(getSearchEnvelope(location, distance))) {
+	    if (tile == NOT_INDEXED) {
+		fallbackCount++;
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    /**
+     * Search the street of a house number, the tiles should be indexed (see
+     * {@link #isIndexed(Point, double)}) : the nearest street whose
+     * normalized name or alternate name is the given one, or the nearest
+     * street whose name or alternate name
+     * {@link StringHelper#isSameStreetName(String, String, String)}. This is
+     * stricter than the fulltext search, that does not require all the words,
+     * so when no street is found with a name, the caller should use the
+     * fulltext search (it is counted in {@link #getFallbackCount()})
+     * 
+     * @param streetName
+     *                the name of the street, if null, the nearest street is
+     *                returned
+     * @param location
+     *                the location of the house number
+     * @param distance
+     *                the maximum distance (in meters) between the location
+     *                and the street
+     * @return the gid of the street, or null if there is no street
+     */
+    public Long findNearestStreet(String streetName, Point location, double distance) {
+	if (location == null) {
+	    return null;
+	}
+	Envelope envelope = getSearchEnvelope(location, distance);
+	List<Tile> tilesToSearch = getTiles(envelope);
+	if (streetName == null) {
+	    return getNearest(getCandidates(tilesToSearch, envelope), location, distance);
+	}
+	List<IndexedStreet> sameName = new ArrayList<IndexedStreet>();
+	String normalizedName = normalizeName(streetName);
+	for (Tile tile : tilesToSearch) {
+	    List<IndexedStreet> streets = tile.byName.get(normalizedName);
+	    if (streets != null) {
+		sameName.addAll(streets);
+	    }
+	}
+	Long gid = getNearest(sameName, location, distance);
+	if (gid != null) {
+	    return gid;
+	}
+	List<IndexedStreet> similarName = new ArrayList<IndexedStreet>();
+	for (IndexedStreet candidate : getCandidates(tilesToSearch, envelope)) {
+	    if (candidate.hasSimilarName(streetName)) {
+		similarName.add(candidate);
+	    }
+	}
+	gid = getNearest(similarName, location, distance);
+	if (gid == null) {
+	    fallbackCount++;
+	}
+	return gid;
+    }
+
+    /**
+     * Same as {@link IOpenStreetMapDao#getNearestByosmIds(Point, List)}, the
+     * tiles should be indexed (see {@link #isIndexed(Point, double)})
+     * 
+     * @return the gid of the nearest street of the given openstreetmap ids
+     */
+    public Long findNearestByOpenstreetmapIds(Point location, List<Long> openstreetmapIds, double distance) {
+	if (location == null || openstreetmapIds == null || openstreetmapIds.isEmpty()) {
+	    return null;
+	}
+	Envelope envelope = getSearchEnvelope(location, distance);
+	List<IndexedStreet> candidates = new ArrayList<IndexedStreet>();
+	for (IndexedStreet candidate : getCandidates(getTiles(envelope), envelope)) {
+	    if (candidate.openstreetmapId != null && openstreetmapIds.contains(candidate.openstreetmapId)) {
+		candidates.add(candidate);
+	    }
+	}
+	return getNearest(candidates, location, distance);
+    }
+
+    private Long getNearest(List<IndexedStreet> candidates, Point location, double distance) {
+	IndexedStreet nearest = null;
+	double nearestDistance = distance;
+	for (IndexedStreet candidate : candidates) {
+	    double candidateDistance = distance(candidate, location);
+	    if (candidateDistance <= nearestDistance) {
+		nearest = candidate;
+		nearestDistance = candidateDistance;
+	    }
+	}
+	return nearest == null ? null : nearest.gid;
+    }
+
+    /**
+     * @return the distance in meters between the location and the nearest
+     *         point of the shape of the street
+     */
+    static double distance(IndexedStreet street, Point location) {
+	Coordinate[] nearestPoints = DistanceOp.nearestPoints(street.shape, location);
+	return GeolocHelper.distance(location, GeolocHelper.createPoint((float) nearestPoints[0].x, (float) nearestPoints[0].y));
+    }
+
+    /**
+     * @return the streets of the tiles that intersects the envelope, without
+     *         duplicates (a street can be in several tiles)
+     */
+    private List<IndexedStreet> getCandidates(List<Tile> tilesToSearch, Envelope envelope) {
+	Map<Long, IndexedStreet> candidates = new LinkedHashMap<Long, IndexedStreet>();
+	for (Tile tile : tilesToSearch) {
+	    for (IndexedStreet street : tile.query(envelope)) {
+		candidates.put(street.gid, street);
+	    }
+	}
+	return new ArrayList<IndexedStreet>(candidates.values());
+    }
+
+    private Envelope getSearchEnvelope(Point location, double distance) {
+	return GeolocHelper.createPolygonBox(location.getX(), location.getY(), distance).getEnvelopeInternal();
+    }
+
+    private List<Tile> getTiles(Envelope envelope) {
+	List<Tile> result = new ArrayList<Tile>();
+	int minX = getTileIndex(envelope.getMinX(), 180);
+	int maxX = getTileIndex(envelope.getMaxX(), 180);
+	int minY = getTileIndex(envelope.getMinY(), 90);
+	int maxY = getTileIndex(envelope.getMaxY(), 90);
+	for (int x = minX; x <= maxX; x++) {
+	    for (int y = minY; y <= maxY; y++) {
+		long key = ((long) y) * TILES_BY_ROW + x;
+		Tile tile = tiles.get(key);
+		if (tile == null) {
+		    tile = loadTile(x, y);
+		    tiles.put(key, tile);
+		}
+		result.add(tile);
+	    }
+	}
+	return result;
+    }
+
+    private int getTileIndex(double coordinate, int offset) {
+	return (int) Math.floor((coordinate + offset) / TILE_SIZE);
+    }
+
+    private Tile loadTile(int x, int y) {
+	long start = System.currentTimeMillis();
+	Envelope tileEnvelope = new Envelope(x * TILE_SIZE - 180, (x + 1) * TILE_SIZE - 180, y * TILE_SIZE - 90, (y + 1) * TILE_SIZE - 90);
+	Polygon boundingBox = (Polygon) geometryFactory.toGeometry(tileEnvelope);
+	long[] counts = openStreetMapDao.countStreetShapesInBoundingBox(boundingBox);
+	long estimatedMemory = estimateMemory(counts[0], counts[1], counts[2]);
+	if (!makeRoomFor(estimatedMemory)) {
+	    logger.warn("the streets of " + tileEnvelope + " need about " + (estimatedMemory / 1024 / 1024)
+		    + " Mb, more than the maximum memory of the street index (" + (maxMemory / 1024 / 1024) + " Mb), they will be searched with queries");
+	    return NOT_INDEXED;
+	}
+	List<Object[]> rows = openStreetMapDao.listStreetShapesInBoundingBox(boundingBox);
+	Tile tile = new Tile();
+	Map<Long, IndexedStreet> streetsByGid = new HashMap<Long, IndexedStreet>(rows.size());
+	for (Object[] row : rows) {
+	    Geometry shape = (Geometry) row[4];
+	    if (row[0] == null || shape == null || shape.isEmpty()) {
+		continue;
+	    }
+	    String name = (String) row[2];
+	    tile.memory += estimateMemory(1, shape.getNumPoints(), name == null ? 0 : name.length());
+	    IndexedStreet street = new IndexedStreet(((Number) row[0]).longValue(), row[1] == null ? null : ((Number) row[1]).longValue(), name,
+		    (String) row[3], shape);
+	    tile.add(street);
+	    streetsByGid.put(street.gid, street);
+	}
+	for (Object[] row : openStreetMapDao.listStreetAlternateNamesInBoundingBox(boundingBox)) {
+	    IndexedStreet street = row[0] == null ? null : streetsByGid.get(((Number) row[0]).longValue());
+	    String alternateName = (String) row[1];
+	    if (street == null || alternateName == null) {
+		continue;
+	    }
+	    tile.memory += estimateMemory(0, 0, alternateName.length()) + ALTERNATE_NAME_BYTES;
+	    tile.addAlternateName(street, alternateName);
+	}
+	//the estimation is done on the bounding boxes, it should not be less
+	if (tile.memory > estimatedMemory && !makeRoomFor(tile.memory)) {
+	    logger.warn("the street index has reached its maximum memory (" + (maxMemory / 1024 / 1024)
+		    + " Mb), the streets of " + tileEnvelope + " will be searched with queries");
+	    return NOT_INDEXED;
+	}
+	tile.tree.build();
+	usedMemory += tile.memory;
+	logger.info("loaded " + tile.size + " streets for " + tileEnvelope + " in " + (System.currentTimeMillis() - start)
+		+ " ms, the street index uses " + (usedMemory / 1024 / 1024) + " Mb");
+	return tile;
+    }
+
+    static long estimateMemory(long streets, long points, long nameCharacters) {
+	return streets * STREET_BYTES + points * COORDINATE_BYTES + nameCharacters * 4;
+    }
+
+    /**
+     * Remove the least recently used tiles until the given memory is
+     * available
+     * 
+     * @return false if the memory is more than the maximum memory
+     */
+    private boolean makeRoomFor(long memory) {
+	if (memory > maxMemory) {
+	    return false;
+	}
+	Iterator<Tile> iterator = tiles.values().iterator();
+	while (usedMemory + memory > maxMemory && iterator.hasNext()) {
+	    Tile tile = iterator.next();
+	    if (tile != NOT_INDEXED) {
+		usedMemory -= tile.memory;
+		evictionCount++;
+		iterator.remove();
+	    }
+	}
+	return usedMemory + memory <= maxMemory;
+    }
+
+    /**
+     * Remove all the streets from memory
+     */
+    public void clear() {
+	tiles.clear();
+	usedMemory = 0;
+    }
+
+    /**
+     * @return the number of tiles that have been removed from memory to load
+     *         other tiles
+     */
+    public long getEvictionCount() {
+	return evictionCount;
+    }
+
+    /**
+     * @return the estimated memory used by the index, in bytes
+     */
+    public long getUsedMemory() {
+	return usedMemory;
+    }
+
+    /**
+     * @return the number of lookups
+     */
+    public long getLookupCount() {
+	return lookupCount;
+    }
+
+    /**
+     * @return the number of lookups that could not use the index or did not
+     *         find a street with the name, and have been sent to the fulltext
+     *         engine and the dao
+     */
+    public long getFallbackCount() {
+	return fallbackCount;
+    }
+
+}
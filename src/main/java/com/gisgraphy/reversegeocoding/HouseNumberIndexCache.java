@@ -0,0 +1,135 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.reversegeocoding;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gisgraphy.domain.repository.IhouseNumberDao;
+
+/**
+ * Cache of the {@link HouseNumberPointIndex} of the streets, by street id.
+ * The least recently used streets are evicted when there are more than
+ * {@link #setMaxStreets(int)} streets in the cache. The indexes are not
+ * updated when the house numbers are modified, the cache should be cleared
+ * (or the application restarted) after an import.
+ */
+public class HouseNumberIndexCache {
+
+    protected static final Logger logger = LoggerFactory.getLogger(HouseNumberIndexCache.class);
+
+    public static final int DEFAULT_MAX_STREETS = 10000;
+
+    private IhouseNumberDao houseNumberDao;
+
+    private int maxStreets = DEFAULT_MAX_STREETS;
+
+    private Map<Long, HouseNumberPointIndex> indexes = createLruMap(DEFAULT_MAX_STREETS);
+
+    private final Object lock = new Object();
+
+    /**
+     * @param streetId
+     *            the id of the street
+     * @return the index of the house numbers of the street (
+     *         {@link HouseNumberPointIndex#EMPTY} if the street has no house
+     *         number), it is loaded if it is not in the cache
+     */
+    public HouseNumberPointIndex getIndex(Long streetId) {
+	if (streetId == null) {
+	    return HouseNumberPointIndex.EMPTY;
+	}
+	HouseNumberPointIndex index;
+	synchronized (lock) {
+	    index = indexes.get(streetId);
+	}
+	if (index == null) {
+	    //loaded outside the lock, two requests can load the same street
+	    index = HouseNumberPointIndex.fromPoints(houseNumberDao.listPointsByStreetId(streetId));
+	    synchronized (lock) {
+		indexes.put(streetId, index);
+	    }
+	}
+	return index;
+    }
+
+    /**
+     * @return true if the indexes are used, false if the house numbers of
+     *         the streets should be loaded
+     */
+    public boolean isEnabled() {
+	return maxStreets > 0;
+    }
+
+    /**
+     * remove all the indexes
+     */
+    public void clear() {
+	synchronized (lock) {
+	    indexes.clear();
+	}
+    }
+
+    /**
+     * @return the number of streets in the cache
+     */
+    public int size() {
+	synchronized (lock) {
+	    return indexes.size();
+	}
+    }
+
+    @SuppressWarnings("serial")
+    private static Map<Long, HouseNumberPointIndex> createLruMap(final int maxStreets) {
+	return new LinkedHashMap<Long, HouseNumberPointIndex>(16, 0.75f, true) {
+	    @Override
+	    protected boolean removeEldestEntry(Entry<Long, HouseNumberPointIndex> eldest) {
+		return size() > maxStreets;
+	    }
+	};
+    }
+
+    /**
+     * @param maxStreets
+     *            the maximum number of streets in the cache, 0 to disable
+     *            the indexes (the house numbers of the street are loaded for
+     *            each request). Default to {@link #DEFAULT_MAX_STREETS}
+     */
+    public void setMaxStreets(int maxStreets) {
+	this.maxStreets = maxStreets;
+	synchronized (lock) {
+	    Map<Long, HouseNumberPointIndex> newIndexes = createLruMap(Math.max(maxStreets, 0));
+	    newIndexes.putAll(indexes);
+	    indexes = newIndexes;
+	}
+    }
+
+    public void setHouseNumberDao(IhouseNumberDao houseNumberDao) {
+	this.houseNumberDao = houseNumberDao;
+    }
+
+}
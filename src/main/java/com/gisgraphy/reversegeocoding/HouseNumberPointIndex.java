@@ -0,0 +1,259 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.reversegeocoding;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import com.gisgraphy.domain.geoloc.entity.HouseNumber;
+import com.gisgraphy.domain.geoloc.entity.OpenStreetMap;
+import com.gisgraphy.helper.GeolocHelper;
+import com.vividsolutions.jts.geom.Point;
+
+/**
+ * Compact index of the house numbers of a street, to find the nearest house
+ * number of a point in logarithmic time, without loading the
+ * {@link HouseNumber} entities.
+ * <p>
+ * The points are stored in parallel arrays laid out as an implicit KD-tree :
+ * the median point of a range (alternatively by x and y) is in the middle of
+ * the range, the points before it are on one side and the points after it
+ * are on the other side. The coordinates are projected on a plane tangent
+ * to the street (x = longitude * cos(latitude of the street), y = latitude)
+ * which keeps the order of the distances at the scale of a street, the
+ * returned distance is the real one ({@link GeolocHelper#distance(Point, Point)}).
+ * <p>
+ * The index is immutable and threadsafe.
+ * 
+ * @see HouseNumberIndexCache
+ */
+public class HouseNumberPointIndex {
+
+	/**
+	 * An index without house number
+	 */
+	public static final HouseNumberPointIndex EMPTY = new HouseNumberPointIndex(new long[0], new String[0], new String[0], new double[0], new double[0]);
+
+	private final long[] ids;
+	private final String[] numbers;
+	private final String[] names;
+	private final double[] longitudes;
+	private final double[] latitudes;
+	private final double[] xs;
+	private final double[] ys;
+	private final double cosLatitude;
+
+	/**
+	 * @param points
+	 *            the id, the number, the name and the location of the house
+	 *            numbers, as returned by
+	 *            {@link com.gisgraphy.domain.repository.IhouseNumberDao#listPointsByStreetId(Long)}
+	 *            , the rows without location are ignored
+	 * @return the index of the points
+	 */
+	public static HouseNumberPointIndex fromPoints(List<Object[]> points) {
+		if (points == null || points.size() == 0) {
+			return EMPTY;
+		}
+		int size = 0;
+		for (Object[] point : points) {
+			if (point != null && point.length >= 4 && point[3] instanceof Point) {
+				size++;
+			}
+		}
+		long[] ids = new long[size];
+		String[] numbers = new String[size];
+		String[] names = new String[size];
+		double[] longitudes = new double[size];
+		double[] latitudes = new double[size];
+		int i = 0;
+		for (Object[] point : points) {
+			if (point != null && point.length >= 4 && point[3] instanceof Point) {
+				ids[i] = point[0] == null ? 0 : ((Number) point[0]).longValue();
+				numbers[i] = (String) point[1];
+				names[i] = (String) point[2];
+				longitudes[i] = ((Point) point[3]).getX();
+				latitudes[i] = ((Point) point[3]).getY();
+				i++;
+			}
+		}
+		return new HouseNumberPointIndex(ids, numbers, names, longitudes, latitudes);
+	}
+
+	/**
+	 * The arrays must have the same length, they are not modified
+	 */
+	public HouseNumberPointIndex(long[] ids, String[] numbers, String[] names, double[] longitudes, double[] latitudes) {
+		int size = ids.length;
+		if (numbers.length != size || names.length != size || longitudes.length != size || latitudes.length != size) {
+			throw new IllegalArgumentException("the arrays of the house numbers must have the same length");
+		}
+		double latitudeSum = 0;
+		for (double latitude : latitudes) {
+			latitudeSum += latitude;
+		}
+		this.cosLatitude = size == 0 ? 1 : Math.cos(Math.toRadians(latitudeSum / size));
+		final double[] x = new double[size];
+		final double[] y = latitudes;
+		for (int i = 0; i < size; i++) {
+			x[i] = longitudes[i] * cosLatitude;
+		}
+		Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+		}
+		sort(order, 0, size, 0, x, y);
+
+		this.ids = new long[size];
+		this.numbers = new String[size];
+		this.names = new String[size];
+		this.longitudes = new double[size];
+		this.latitudes = new double[size];
+		this.xs = new double[size];
+		this.ys = new double[size];
+		for (int i = 0; i < size; i++) {
+			int from = order[i];
+			this.ids[i] = ids[from];
+			this.numbers[i] = numbers[from];
+			this.names[i] = names[from];
+			this.longitudes[i] = longitudes[from];
+			this.latitudes[i] = latitudes[from];
+			this.xs[i] = x[from];
+			this.ys[i] = y[from];
+		}
+	}
+
+	/**
+	 * sort the range by the axis of the depth, then the two halves around
+	 * the median by the other axis
+	 */
+	private static void sort(Integer[] order, int from, int to, int depth, final double[] x, final double[] y) {
+		if (to - from <= 1) {
+			return;
+		}
+		final double[] coordinates = depth % 2 == 0 ? x : y;
+		Arrays.sort(order, from, to, new Comparator<Integer>() {
+			public int compare(Integer o1, Integer o2) {
+				return Double.compare(coordinates[o1], coordinates[o2]);
+			}
+		});
+		int median = (from + to) >>> 1;
+		sort(order, from, median, depth + 1, x, y);
+		sort(order, median + 1, to, depth + 1, x, y);
+	}
+
+	/**
+	 * @return the number of house numbers in the index
+	 */
+	public int size() {
+		return ids.length;
+	}
+
+	/**
+	 * @return the index of the nearest house number of the location or -1 if
+	 *         the index is empty
+	 */
+	public int nearest(double longitude, double latitude) {
+		if (size() == 0) {
+			return -1;
+		}
+		double[] best = new double[] { -1, Double.MAX_VALUE };
+		nearest(0, size(), 0, longitude * cosLatitude, latitude, best);
+		return (int) best[0];
+	}
+
+	private void nearest(int from, int to, int depth, double x, double y, double[] best) {
+		if (from >= to) {
+			return;
+		}
+		int median = (from + to) >>> 1;
+		double dx = xs[median] - x;
+		double dy = ys[median] - y;
+		double distance = dx * dx + dy * dy;
+		if (distance < best[1]) {
+			best[0] = median;
+			best[1] = distance;
+		}
+		double diff = depth % 2 == 0 ? x - xs[median] : y - ys[median];
+		if (diff < 0) {
+			nearest(from, median, depth + 1, x, y, best);
+			if (diff * diff < best[1]) {
+				nearest(median + 1, to, depth + 1, x, y, best);
+			}
+		} else {
+			nearest(median + 1, to, depth + 1, x, y, best);
+			if (diff * diff < best[1]) {
+				nearest(from, median, depth + 1, x, y, best);
+			}
+		}
+	}
+
+	/**
+	 * @param location
+	 *            the location to search the nearest house number of
+	 * @param street
+	 *            the street of the house numbers, it is set on the returned
+	 *            house number
+	 * @return the nearest house number (a {@link HouseNumber} that is not
+	 *         attached to the session) and its distance to the location, or
+	 *         null if the index is empty or the location is null
+	 */
+	public HouseNumberDistance getNearestHouse(Point location, OpenStreetMap street) {
+		if (location == null) {
+			return null;
+		}
+		int index = nearest(location.getX(), location.getY());
+		if (index == -1) {
+			return null;
+		}
+		HouseNumber houseNumber = new HouseNumber();
+		houseNumber.setId(ids[index]);
+		houseNumber.setNumber(numbers[index]);
+		houseNumber.setName(names[index]);
+		houseNumber.setLocation(GeolocHelper.createPoint(longitudes[index], latitudes[index]));
+		houseNumber.setStreet(street);
+		return new HouseNumberDistance(houseNumber, GeolocHelper.distance(houseNumber.getLocation(), location));
+	}
+
+	public long getId(int index) {
+		return ids[index];
+	}
+
+	public String getNumber(int index) {
+		return numbers[index];
+	}
+
+	public String getName(int index) {
+		return names[index];
+	}
+
+	public double getLongitude(int index) {
+		return longitudes[index];
+	}
+
+	public double getLatitude(int index) {
+		return latitudes[index];
+	}
+
+}
@@ -0,0 +1,712 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.reversegeocoding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gisgraphy.domain.geoloc.entity.City;
+import com.gisgraphy.domain.geoloc.entity.OpenStreetMap;
+import com.gisgraphy.domain.geoloc.entity.ZipCode;
+import com.gisgraphy.domain.repository.ICityDao;
+import com.gisgraphy.domain.repository.IOpenStreetMapDao;
+import com.gisgraphy.domain.repository.IhouseNumberDao;
+import com.gisgraphy.domain.valueobject.SpeedMode;
+import com.gisgraphy.helper.GeolocHelper;
+import com.gisgraphy.street.StreetType;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.geom.prep.PreparedGeometry;
+import com.vividsolutions.jts.geom.prep.PreparedGeometryFactory;
+import com.vividsolutions.jts.index.strtree.STRtree;
+import com.vividsolutions.jts.operation.distance.DistanceOp;
+
+/**
+ * In memory copy of the data used by the {@link ReverseGeocodingService}
+ * (the shapes of the streets, the house numbers, the shapes and the
+ * locations of the cities), to reverse geocode without querying the
+ * database. The queries give the same results as the ones of the DAOs :
+ * <ul>
+ * <li>{@link #getNearestStreet(Point, boolean, boolean, double)} as
+ * {@link IOpenStreetMapDao#getNearestFrom(Point, boolean, boolean, double)}</li>
+ * <li>{@link #getCityByShape(Point)} as
+ * {@link ICityDao#getByShape(Point, String, boolean)}</li>
+ * <li>{@link #getNearestCity(Point, int)} as
+ * {@link ICityDao#getNearest(Point, String, boolean, int)}</li>
+ * </ul>
+ * The index is disabled by default. When it is enabled, it is built in
+ * background at startup (and should be rebuilt after an import, see
+ * {@link #rebuildInBackground()}), the service uses the database until the
+ * index is ready. The data of the whole planet doesn't fit in the heap : the
+ * countries to load must be set with {@link #setCountries(String)}, the index
+ * is not built without them (the service then uses the database for the
+ * points that are not covered, see {@link #covers(Point)}).
+ * <p>
+ * Only the fields used to build the addresses are loaded (page by page, no
+ * entity is loaded in the session) and kept in compact records, the
+ * {@link OpenStreetMap} and {@link City} returned by the queries are detached
+ * copies created from them.
+ * <p>
+ * The data is replaced at once when the index is rebuilt, the queries are
+ * threadsafe.
+ */
+public class InMemoryReverseGeocodingIndex {
+
+    protected static final Logger logger = LoggerFactory.getLogger(InMemoryReverseGeocodingIndex.class);
+
+    public static final int DEFAULT_PAGE_SIZE = 10000;
+
+    private IOpenStreetMapDao openStreetMapDao;
+
+    private ICityDao cityDao;
+
+    private IhouseNumberDao houseNumberDao;
+
+    private boolean enabled = false;
+
+    private List<String> countries = new ArrayList<String>();
+
+    private int pageSize = DEFAULT_PAGE_SIZE;
+
+    private volatile Snapshot snapshot;
+
+    private ExecutorService builder;
+
+    /**
+     * The data of the index, never modified once built
+     */
+    static class Snapshot {
+	final STRtree streets = new STRtree();
+	final Map<Long, HouseNumberPointIndex> houseNumbers = new HashMap<Long, HouseNumberPointIndex>();
+	final STRtree cityShapes = new STRtree();
+	final STRtree cityLocations = new STRtree();
+	int numberOfStreets = 0;
+	int numberOfCities = 0;
+    }
+
+    /**
+     * The fields of a street, in the order of
+     * {@link IOpenStreetMapDao#listReverseGeocodingFieldsByCountryCode(String, Long, int)}
+     */
+    static class IndexedStreet {
+	final long id;
+	final Long gid;
+	final Long openstreetmapId;
+	final String name;
+	final StreetType streetType;
+	final boolean oneWay;
+	final LineString shape;
+	final Point location;
+	final String countryCode;
+	final String isIn;
+	final String isInPlace;
+	final String isInAdm;
+	final String[] admNames;
+	final String zipCode;
+	final String streetRef;
+	final Double length;
+	final Integer lanes;
+	final Boolean toll;
+	final String surface;
+	final SpeedMode speedMode;
+	final String maxSpeed;
+	final String maxSpeedBackward;
+	final Integer azimuthStart;
+	final Integer azimuthEnd;
+
+	IndexedStreet(Object[] row, Map<String, String> strings) {
+	    this.id = (Long) row[0];
+	    this.gid = (Long) row[1];
+	    this.openstreetmapId = (Long) row[2];
+	    this.name = (String) row[3];
+	    this.streetType = (StreetType) row[4];
+	    this.oneWay = Boolean.TRUE.equals(row[5]);
+	    this.shape = (LineString) row[6];
+	    this.location = (Point) row[7];
+	    this.countryCode = share(strings, row[8]);
+	    this.isIn = share(strings, row[9]);
+	    this.isInPlace = share(strings, row[10]);
+	    this.isInAdm = share(strings, row[11]);
+	    this.admNames = admNames(strings, row, 12);
+	    this.zipCode = share(strings, row[17]);
+	    this.streetRef = (String) row[18];
+	    this.length = (Double) row[19];
+	    this.lanes = (Integer) row[20];
+	    this.toll = (Boolean) row[21];
+	    this.surface = share(strings, row[22]);
+	    this.speedMode = (SpeedMode) row[23];
+	    this.maxSpeed = share(strings, row[24]);
+	    this.maxSpeedBackward = share(strings, row[25]);
+	    this.azimuthStart = (Integer) row[26];
+	    this.azimuthEnd = (Integer) row[27];
+	}
+
+	/**
+	 * @return a detached street with the fields of the index
+	 */
+	OpenStreetMap toOpenStreetMap() {
+	    OpenStreetMap street = new OpenStreetMap();
+	    street.setId(id);
+	    street.setGid(gid);
+	    street.setOpenstreetmapId(openstreetmapId);
+	    street.setName(name);
+	    street.setStreetType(streetType);
+	    street.setOneWay(oneWay);
+	    street.setShape(shape);
+	    street.setLocation(location);
+	    street.setCountryCode(countryCode);
+	    street.setIsIn(isIn);
+	    street.setIsInPlace(isInPlace);
+	    street.setIsInAdm(isInAdm);
+	    if (admNames != null) {
+		street.setAdm1Name(admNames[0]);
+		street.setAdm2Name(admNames[1]);
+		street.setAdm3Name(admNames[2]);
+		street.setAdm4Name(admNames[3]);
+		street.setAdm5Name(admNames[4]);
+	    }
+	    street.setZipCode(zipCode);
+	    street.setStreetRef(streetRef);
+	    street.setLength(length);
+	    street.setLanes(lanes);
+	    street.setToll(toll);
+	    street.setSurface(surface);
+	    street.setSpeedMode(speedMode);
+	    street.setMaxSpeed(maxSpeed);
+	    street.setMaxSpeedBackward(maxSpeedBackward);
+	    street.setAzimuthStart(azimuthStart);
+	    street.setAzimuthEnd(azimuthEnd);
+	    return street;
+	}
+    }
+
+    /**
+     * The fields of a city, in the order of
+     * {@link ICityDao#listReverseGeocodingFieldsByCountryCode(String, Long, int)}
+     */
+    static class IndexedCity {
+	final long id;
+	final Long featureId;
+	final Long openstreetmapId;
+	final String name;
+	final Geometry shape;
+	final PreparedGeometry preparedShape;
+	final double area;
+	final Point location;
+	final Point adminCentreLocation;
+	final String countryCode;
+	final String isInAdm;
+	final String[] admNames;
+	//set when the page is loaded, before the index is shared
+	String[] zipCodes;
+
+	IndexedCity(Object[] row, Map<String, String> strings) {
+	    this.id = (Long) row[0];
+	    this.featureId = (Long) row[1];
+	    this.openstreetmapId = (Long) row[2];
+	    this.name = (String) row[3];
+	    this.shape = (Geometry) row[4];
+	    this.preparedShape = shape == null ? null : PreparedGeometryFactory.prepare(shape);
+	    this.area = shape == null ? 0 : shape.getArea();
+	    this.location = (Point) row[5];
+	    this.adminCentreLocation = (Point) row[6];
+	    this.countryCode = share(strings, row[7]);
+	    this.isInAdm = share(strings, row[8]);
+	    this.admNames = admNames(strings, row, 9);
+	}
+
+	/**
+	 * @return a detached city with the fields of the index
+	 */
+	City toCity() {
+	    City city = new City();
+	    city.setId(id);
+	    city.setFeatureId(featureId);
+	    city.setOpenstreetmapId(openstreetmapId);
+	    city.setName(name);
+	    city.setShape(shape);
+	    city.setLocation(location);
+	    city.setAdminCentreLocation(adminCentreLocation);
+	    city.setCountryCode(countryCode);
+	    city.setIsInAdm(isInAdm);
+	    if (admNames != null) {
+		for (int level = 1; level <= admNames.length; level++) {
+		    city.setAdmName(level, admNames[level - 1]);
+		}
+	    }
+	    if (zipCodes != null) {
+		Set<ZipCode> cityZipCodes = new HashSet<ZipCode>();
+		for (String code : zipCodes) {
+		    ZipCode zipCode = new ZipCode();
+		    zipCode.setCode(code);
+		    zipCode.setCountryCode(countryCode);
+		    zipCode.setGisFeature(city);
+		    cityZipCodes.add(zipCode);
+		}
+		city.setZipCodes(cityZipCodes);
+	    }
+	    return city;
+	}
+    }
+
+    /**
+     * @return the same instance for the equal strings of the index (the
+     *         names of the adms, the country codes,... are repeated a lot)
+     */
+    static String share(Map<String, String> strings, Object value) {
+	if (value == null) {
+	    return null;
+	}
+	String string = (String) value;
+	String shared = strings.get(string);
+	if (shared == null) {
+	    strings.put(string, string);
+	    return string;
+	}
+	return shared;
+    }
+
+    /**
+     * @return the 5 adm names from the offset of the row, null if there is
+     *         none
+     */
+    static String[] admNames(Map<String, String> strings, Object[] row, int offset) {
+	String[] admNames = null;
+	for (int i = 0; i < 5; i++) {
+	    if (row[offset + i] != null) {
+		if (admNames == null) {
+		    admNames = new String[5];
+		}
+		admNames[i] = share(strings, row[offset + i]);
+	    }
+	}
+	return admNames;
+    }
+
+    @PostConstruct
+    protected void init() {
+	if (enabled) {
+	    if (countries.isEmpty()) {
+		//the whole planet doesn't fit in the heap
+		logger.error("the in memory reverse geocoding index is enabled but no country is set (reversegeocoding.inMemory.countries), it is disabled and the database is used");
+		enabled = false;
+		return;
+	    }
+	    rebuildInBackground();
+	}
+    }
+
+    @PreDestroy
+    public void destroy() {
+	synchronized (this) {
+	    if (builder != null) {
+		builder.shutdownNow();
+	    }
+	}
+    }
+
+    /**
+     * Rebuild the index in a background thread, the current data (if any) is
+     * used until the new one is built. Does nothing if the index is disabled
+     */
+    public void rebuildInBackground() {
+	if (!enabled) {
+	    return;
+	}
+	synchronized (this) {
+	    if (builder == null) {
+		builder = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		    public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "reverse-geocoding-index-builder");
+			thread.setDaemon(true);
+			return thread;
+		    }
+		});
+	    }
+	    builder.execute(new Runnable() {
+		public void run() {
+		    try {
+			rebuild();
+		    } catch (RuntimeException e) {
+			logger.error("can not build the in memory reverse geocoding index, the database will be used : " + e.getMessage(), e);
+		    }
+		}
+	    });
+	}
+    }
+
+    /**
+     * Load the data from the database and replace the one of the index
+     * 
+     * @throws IllegalStateException
+     *             if no country is set
+     */
+    public void rebuild() {
+	if (countries.isEmpty()) {
+	    throw new IllegalStateException("the countries of the in memory reverse geocoding index should be set, the whole planet can not be loaded in memory");
+	}
+	long start = System.currentTimeMillis();
+	logger.info("building the in memory reverse geocoding index for " + countries);
+	Snapshot newSnapshot = new Snapshot();
+	Map<String, String> strings = new HashMap<String, String>();
+	for (String countryCode : countries) {
+	    loadStreets(newSnapshot, countryCode, strings);
+	    loadCities(newSnapshot, countryCode, strings);
+	}
+	//the trees are built once, before being shared between threads
+	newSnapshot.streets.build();
+	newSnapshot.cityShapes.build();
+	newSnapshot.cityLocations.build();
+	snapshot = newSnapshot;
+	logger.info("the in memory reverse geocoding index has been built in " + (System.currentTimeMillis() - start) + " ms : "
+		+ newSnapshot.numberOfStreets + " streets, " + newSnapshot.houseNumbers.size() + " streets with house numbers, "
+		+ newSnapshot.numberOfCities + " cities");
+    }
+
+    /**
+     * Remove the data of the index (when the data of the database is
+     * deleted), the database is used until the index is rebuilt
+     */
+    public void clear() {
+	snapshot = null;
+    }
+
+    private void loadStreets(Snapshot newSnapshot, String countryCode, Map<String, String> strings) {
+	Long lastId = null;
+	List<Object[]> rows;
+	do {
+	    rows = openStreetMapDao.listReverseGeocodingFieldsByCountryCode(countryCode, lastId, pageSize);
+	    if (rows == null || rows.isEmpty()) {
+		break;
+	    }
+	    Set<Long> streetIds = new HashSet<Long>();
+	    for (Object[] row : rows) {
+		IndexedStreet street = new IndexedStreet(row, strings);
+		if (street.shape != null) {
+		    newSnapshot.streets.insert(street.shape.getEnvelopeInternal(), street);
+		    streetIds.add(street.id);
+		    newSnapshot.numberOfStreets++;
+		}
+	    }
+	    lastId = (Long) rows.get(rows.size() - 1)[0];
+	    if (!streetIds.isEmpty()) {
+		loadHouseNumbers(newSnapshot, streetIds, (Long) rows.get(0)[0], lastId);
+	    }
+	} while (rows.size() == pageSize);
+    }
+
+    private void loadHouseNumbers(Snapshot newSnapshot, Set<Long> streetIds, Long fromStreetId, Long toStreetId) {
+	List<Object[]> rows = houseNumberDao.listPointsByStreetIdRange(fromStreetId, toStreetId);
+	if (rows == null) {
+	    return;
+	}
+	Map<Long, List<Object[]>> pointsByStreetId = new HashMap<Long, List<Object[]>>();
+	for (Object[] row : rows) {
+	    Long streetId = (Long) row[0];
+	    //the range can contains streets of other countries or without shape
+	    if (!streetIds.contains(streetId)) {
+		continue;
+	    }
+	    List<Object[]> points = pointsByStreetId.get(streetId);
+	    if (points == null) {
+		points = new ArrayList<Object[]>();
+		pointsByStreetId.put(streetId, points);
+	    }
+	    points.add(Arrays.copyOfRange(row, 1, row.length));
+	}
+	for (Map.Entry<Long, List<Object[]>> entry : pointsByStreetId.entrySet()) {
+	    HouseNumberPointIndex index = HouseNumberPointIndex.fromPoints(entry.getValue());
+	    if (index.size() > 0) {
+		newSnapshot.houseNumbers.put(entry.getKey(), index);
+	    }
+	}
+    }
+
+    private void loadCities(Snapshot newSnapshot, String countryCode, Map<String, String> strings) {
+	Long lastId = null;
+	List<Object[]> rows;
+	do {
+	    rows = cityDao.listReverseGeocodingFieldsByCountryCode(countryCode, lastId, pageSize);
+	    if (rows == null || rows.isEmpty()) {
+		break;
+	    }
+	    Map<Long, IndexedCity> citiesById = new HashMap<Long, IndexedCity>();
+	    for (Object[] row : rows) {
+		IndexedCity city = new IndexedCity(row, strings);
+		boolean indexed = false;
+		if (city.shape != null) {
+		    newSnapshot.cityShapes.insert(city.shape.getEnvelopeInternal(), city);
+		    indexed = true;
+		}
+		if (city.location != null) {
+		    newSnapshot.cityLocations.insert(city.location.getEnvelopeInternal(), city);
+		    indexed = true;
+		}
+		if (indexed) {
+		    citiesById.put(city.id, city);
+		    newSnapshot.numberOfCities++;
+		}
+	    }
+	    lastId = (Long) rows.get(rows.size() - 1)[0];
+	    if (!citiesById.isEmpty()) {
+		loadZipCodes(citiesById, (Long) rows.get(0)[0], lastId, strings);
+	    }
+	} while (rows.size() == pageSize);
+    }
+
+    private void loadZipCodes(Map<Long, IndexedCity> citiesById, Long fromId, Long toId, Map<String, String> strings) {
+	List<Object[]> rows = cityDao.listZipCodesByIdRange(fromId, toId);
+	if (rows == null) {
+	    return;
+	}
+	Map<Long, List<String>> codesByCityId = new HashMap<Long, List<String>>();
+	for (Object[] row : rows) {
+	    Long cityId = (Long) row[0];
+	    //the range can contains other features
+	    if (!citiesById.containsKey(cityId) || row[1] == null) {
+		continue;
+	    }
+	    List<String> codes = codesByCityId.get(cityId);
+	    if (codes == null) {
+		codes = new ArrayList<String>();
+		codesByCityId.put(cityId, codes);
+	    }
+	    codes.add(share(strings, row[1]));
+	}
+	for (Map.Entry<Long, List<String>> entry : codesByCityId.entrySet()) {
+	    citiesById.get(entry.getKey()).zipCodes = entry.getValue().toArray(new String[entry.getValue().size()]);
+	}
+    }
+
+    /**
+     * @return true if the index is enabled and built
+     */
+    public boolean isReady() {
+	return enabled && snapshot != null;
+    }
+
+    /**
+     * The country of a point is not known without querying the database : a
+     * point is covered if it is in the shape of a city of the index. The
+     * other points (out of the shapes or in another country) should be
+     * reverse geocoded with the database
+     * 
+     * @return true if the index is ready and has the data around the point
+     */
+    public boolean covers(Point point) {
+	Snapshot current = snapshot;
+	if (!enabled || current == null || point == null) {
+	    return false;
+	}
+	return getCityByShape(current, point) != null;
+    }
+
+    /**
+     * @param point
+     *            the point to search around
+     * @param onlyRoad
+     *            whether the footways should be excluded
+     * @param filterEmptyName
+     *            whether the streets without name should be excluded
+     * @param distance
+     *            the maximum distance in meters
+     * @return the nearest street of the point, null if there is none or if
+     *         the index is not ready
+     */
+    public OpenStreetMap getNearestStreet(Point point, boolean onlyRoad, boolean filterEmptyName, double distance) {
+	Snapshot current = snapshot;
+	if (current == null || point == null) {
+	    return null;
+	}
+	Polygon box = GeolocHelper.createPolygonBox(point.getX(), point.getY(), distance);
+	IndexedStreet nearest = null;
+	double nearestDistance = Double.MAX_VALUE;
+	for (Object candidate : current.streets.query(box.getEnvelopeInternal())) {
+	    IndexedStreet street = (IndexedStreet) candidate;
+	    //the restrictions of the SQL query (a null street type is excluded by 'ne')
+	    if (onlyRoad && (street.streetType == null || street.streetType == StreetType.FOOTWAY)) {
+		continue;
+	    }
+	    if (filterEmptyName && street.name == null) {
+		continue;
+	    }
+	    if (!street.shape.intersects(box)) {
+		continue;
+	    }
+	    double streetDistance = distance(street.shape, point);
+	    if (streetDistance < nearestDistance) {
+		nearest = street;
+		nearestDistance = streetDistance;
+	    }
+	}
+	return nearest == null ? null : nearest.toOpenStreetMap();
+    }
+
+    /**
+     * @return the distance from the point to the nearest point of the shape
+     */
+    static double distance(Geometry shape, Point point) {
+	Coordinate[] nearestPoints = DistanceOp.nearestPoints(shape, point);
+	return GeolocHelper.distance(point, GeolocHelper.createPoint(nearestPoints[0].x, nearestPoints[0].y));
+    }
+
+    /**
+     * @param streetId
+     *            the id of the street
+     * @return the index of the house numbers of the street,
+     *         {@link HouseNumberPointIndex#EMPTY} if the street has no house
+     *         number or is not in the index
+     */
+    public HouseNumberPointIndex getHouseNumbers(Long streetId) {
+	Snapshot current = snapshot;
+	if (current == null || streetId == null) {
+	    return HouseNumberPointIndex.EMPTY;
+	}
+	HouseNumberPointIndex index = current.houseNumbers.get(streetId);
+	return index == null ? HouseNumberPointIndex.EMPTY : index;
+    }
+
+    /**
+     * @param point
+     *            the point
+     * @return the city with the smallest shape that contains the point, null
+     *         if there is none or if the index is not ready
+     */
+    public City getCityByShape(Point point) {
+	Snapshot current = snapshot;
+	if (current == null || point == null) {
+	    return null;
+	}
+	IndexedCity city = getCityByShape(current, point);
+	return city == null ? null : city.toCity();
+    }
+
+    private IndexedCity getCityByShape(Snapshot current, Point point) {
+	IndexedCity smallest = null;
+	for (Object candidate : current.cityShapes.query(point.getEnvelopeInternal())) {
+	    IndexedCity city = (IndexedCity) candidate;
+	    if ((smallest == null || city.area < smallest.area) && city.preparedShape.contains(point)) {
+		smallest = city;
+	    }
+	}
+	return smallest;
+    }
+
+    /**
+     * @param point
+     *            the point
+     * @param distance
+     *            the maximum distance in meters
+     * @return the nearest city of the point, null if there is none or if the
+     *         index is not ready
+     */
+    public City getNearestCity(Point point, int distance) {
+	Snapshot current = snapshot;
+	if (current == null || point == null) {
+	    return null;
+	}
+	//the box is only a filter, the distance is checked for each city
+	Envelope envelope = GeolocHelper.createPolygonBox(point.getX(), point.getY(), distance).getEnvelopeInternal();
+	envelope.expandBy(envelope.getWidth() / 10, envelope.getHeight() / 10);
+	IndexedCity nearest = null;
+	double nearestDistance = distance;
+	for (Object candidate : current.cityLocations.query(envelope)) {
+	    IndexedCity city = (IndexedCity) candidate;
+	    double cityDistance = GeolocHelper.distance(point, city.location);
+	    if (cityDistance < nearestDistance) {
+		nearest = city;
+		nearestDistance = cityDistance;
+	    }
+	}
+	return nearest == null ? null : nearest.toCity();
+    }
+
+    /**
+     * @param enabled
+     *            whether the index is built and used. Default to false
+     */
+    public void setEnabled(boolean enabled) {
+	this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+	return enabled;
+    }
+
+    /**
+     * @param countries
+     *            the country codes of the data to load in the index,
+     *            separated by a comma. The index is not built if empty
+     */
+    public void setCountries(String countries) {
+	List<String> countryCodes = new ArrayList<String>();
+	if (countries != null) {
+	    for (String countryCode : countries.split(",")) {
+		if (countryCode.trim().length() > 0) {
+		    countryCodes.add(countryCode.trim().toUpperCase());
+		}
+	    }
+	}
+	this.countries = countryCodes;
+    }
+
+    /**
+     * @param pageSize
+     *            the number of streets or cities loaded by query when the
+     *            index is built. Default to {@link #DEFAULT_PAGE_SIZE}
+     */
+    public void setPageSize(int pageSize) {
+	this.pageSize = pageSize;
+    }
+
+    public void setOpenStreetMapDao(IOpenStreetMapDao openStreetMapDao) {
+	this.openStreetMapDao = openStreetMapDao;
+    }
+
+    public void setCityDao(ICityDao cityDao) {
+	this.cityDao = cityDao;
+    }
+
+    public void setHouseNumberDao(IhouseNumberDao houseNumberDao) {
+	this.houseNumberDao = houseNumberDao;
+    }
+
+}
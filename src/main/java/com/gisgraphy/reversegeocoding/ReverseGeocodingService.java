@@ -53,6 +53,7 @@ import com.gisgraphy.importer.LabelGenerator;
 import com.gisgraphy.serializer.common.UniversalSerializerConstant;
 import com.gisgraphy.service.IStatsUsageService;
 import com.gisgraphy.service.ServiceException;
+import com.gisgraphy.stats.LatencyStats;
 import com.gisgraphy.stats.StatsUsageType;
 import com.vividsolutions.jts.geom.Point;
 
@@ -74,9 +75,25 @@ public class ReverseGeocodingService implements IReverseGeocodingService {
 	protected IStatsUsageService statsUsageService;
 	
 	protected LabelGenerator labelGenerator = LabelGenerator.getInstance();
+
+	private LatencyStats latencyStats = LatencyStats.getInstance();
 	
 	@Autowired
 	protected ICityDao cityDao;
+
+	/**
+	 * the indexes of the house numbers of the streets, if null or disabled,
+	 * the house numbers of the street are loaded for each request
+	 */
+	@Autowired(required=false)
+	protected HouseNumberIndexCache houseNumberIndexCache;
+
+	/**
+	 * the in memory copy of the streets and of the cities, used instead of
+	 * the database when it is ready
+	 */
+	@Autowired(required=false)
+	protected InMemoryReverseGeocodingIndex inMemoryIndex;
 	
 	AddressResultsDtoSerializer addressResultsDtoSerializer = new AddressResultsDtoSerializer();
 
@@ -94,23 +111,52 @@ public class ReverseGeocodingService implements IReverseGeocodingService {
 
 	public AddressResultsDto executeQuery(ReverseGeocodingQuery query)
 			throws ServiceException {
+		long startNanos = System.nanoTime();
+		try {
+			return doExecuteQuery(query);
+		} finally {
+			latencyStats.record(StatsUsageType.REVERSEGEOCODING, LatencyStats.TOTAL, startNanos);
+		}
+	}
+
+	private AddressResultsDto doExecuteQuery(ReverseGeocodingQuery query)
+			throws ServiceException {
 		Assert.notNull(query, "Can not execute a null query");
 		Point point = query.getPoint();
 		Assert.notNull(point, "Can not execute a query without a valid point");
 		long start = System.currentTimeMillis();
 		statsUsageService.increaseUsage(StatsUsageType.REVERSEGEOCODING);
-		OpenStreetMap openStreetMap = openStreetMapDao.getNearestRoadFrom(point,DEFAULT_STREET_RADIUS);
+		long databaseStart = System.nanoTime();
+		//the index may not have the data of the country of the point
+		boolean useInMemoryIndex = inMemoryIndex != null && inMemoryIndex.covers(point);
+		OpenStreetMap openStreetMap = useInMemoryIndex ? inMemoryIndex.getNearestStreet(point, true, true, DEFAULT_STREET_RADIUS)
+				: openStreetMapDao.getNearestRoadFrom(point,DEFAULT_STREET_RADIUS);
 		//AddressResultsDto addressResultsDto = null;
 		if (openStreetMap==null){
 			logger.debug("no road found, try to search deeper");
-			openStreetMap =openStreetMapDao.getNearestFrom(point,DEFAULT_STREET_RADIUS);
+			openStreetMap = useInMemoryIndex ? inMemoryIndex.getNearestStreet(point, false, false, DEFAULT_STREET_RADIUS)
+					: openStreetMapDao.getNearestFrom(point,DEFAULT_STREET_RADIUS);
 		}
+		latencyStats.record(StatsUsageType.REVERSEGEOCODING, LatencyStats.DATABASE + ".street", databaseStart);
 		if (openStreetMap!= null){
 			logger.debug("found a street "+openStreetMap);
-			if (openStreetMap.getHouseNumbers()!=null && openStreetMap.getHouseNumbers().size() >=1 ){
+			HouseNumberPointIndex houseNumberIndex = null;
+			if (useInMemoryIndex){
+				houseNumberIndex = inMemoryIndex.getHouseNumbers(openStreetMap.getId());
+			} else if (houseNumberIndexCache != null && houseNumberIndexCache.isEnabled() && openStreetMap.getId() != null){
+				long indexStart = System.nanoTime();
+				houseNumberIndex = houseNumberIndexCache.getIndex(openStreetMap.getId());
+				latencyStats.record(StatsUsageType.REVERSEGEOCODING, LatencyStats.DATABASE + ".houseNumbers", indexStart);
+			}
+			int numberOfHouseNumbers = houseNumberIndex != null ? houseNumberIndex.size()
+					: (openStreetMap.getHouseNumbers()!=null ? openStreetMap.getHouseNumbers().size() : 0);
+			if (numberOfHouseNumbers >=1 ){
 				
-				logger.debug("the street has "+openStreetMap.getHouseNumbers().size()+" housenumbers");
-				HouseNumberDistance houseNumberDistance = labelGenerator.getNearestHouse(openStreetMap.getHouseNumbers(), point);
+				logger.debug("the street has "+numberOfHouseNumbers+" housenumbers");
+				long houseNumberStart = System.nanoTime();
+				HouseNumberDistance houseNumberDistance = houseNumberIndex != null ? houseNumberIndex.getNearestHouse(point, openStreetMap)
+						: labelGenerator.getNearestHouse(openStreetMap.getHouseNumbers(), point);
+				latencyStats.record(StatsUsageType.REVERSEGEOCODING, LatencyStats.HOUSE_NUMBER, houseNumberStart);
 				if (houseNumberDistance!=null){
 					Address address = labelGenerator.buildAddressFromHouseNumberDistance(houseNumberDistance);
 					if (address!=null){
@@ -162,11 +208,16 @@ public class ReverseGeocodingService implements IReverseGeocodingService {
 			
 		} else {
 			logger.info("No street found, try to find city by shape");
-			City city = cityDao.getByShape(point, null, false);
+			long cityStart = System.nanoTime();
+			City city = useInMemoryIndex ? inMemoryIndex.getCityByShape(point) : cityDao.getByShape(point, null, false);
+			latencyStats.record(StatsUsageType.REVERSEGEOCODING, LatencyStats.DATABASE + ".cityByShape", cityStart);
 			Address address = null;
 			if (city == null){
 				logger.info("No city by shape found, try by vicinity");
-				city = cityDao.getNearest(point,null, false, DEFAULT_CITY_RADIUS);
+				cityStart = System.nanoTime();
+				city = useInMemoryIndex ? inMemoryIndex.getNearestCity(point, DEFAULT_CITY_RADIUS)
+						: cityDao.getNearest(point,null, false, DEFAULT_CITY_RADIUS);
+				latencyStats.record(StatsUsageType.REVERSEGEOCODING, LatencyStats.DATABASE + ".nearestCity", cityStart);
 				if (city == null){
 					logger.info("No city by vicinity found");
 				} else {
@@ -220,9 +271,11 @@ public class ReverseGeocodingService implements IReverseGeocodingService {
 		Assert.notNull(outputStream,
 				"Can not serialize into a null outputStream");
 	AddressResultsDto AddressResultDto = executeQuery(query);
+	long start = System.nanoTime();
 	Map<String, Object> extraParameter = new HashMap<String, Object>();
 	extraParameter.put(UniversalSerializerConstant.CALLBACK_METHOD_NAME, query.getCallback());
 	addressResultsDtoSerializer.serialize(outputStream, query.getOutputFormat(), AddressResultDto, false,extraParameter);
+	latencyStats.record(StatsUsageType.REVERSEGEOCODING, LatencyStats.SERIALIZATION, start);
 	}
 
 	/*
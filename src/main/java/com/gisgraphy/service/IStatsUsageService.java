@@ -37,12 +37,12 @@ import com.gisgraphy.stats.StatsUsageType;
 public interface IStatsUsageService {
 
     /**
-     * The satsUsage will be flush into the database every ... It is recommended
-     * to increase this value to a higher value to improve performances. if the
-     * server is stopped, you can loose FLUSH_THRESHOLD usage at most because the
-     * value won't be persist in the datastore
+     * The satsUsage that have changed will be flush into the database every
+     * FLUSH_INTERVAL_SECONDS seconds by a background thread. if the server is
+     * killed, you can loose the usage of the last FLUSH_INTERVAL_SECONDS
+     * seconds at most because the value won't be persist in the datastore
      */
-    int FLUSH_THRESHOLD = 50;
+    int FLUSH_INTERVAL_SECONDS = 30;
 
     /**
      * @return the number of counter that are managed
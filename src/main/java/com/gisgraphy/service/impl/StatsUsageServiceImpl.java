@@ -22,11 +22,17 @@
  *******************************************************************************/
 package com.gisgraphy.service.impl;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionDefinition;
@@ -38,12 +44,28 @@ import com.gisgraphy.service.IStatsUsageService;
 import com.gisgraphy.stats.StatsUsage;
 import com.gisgraphy.stats.StatsUsageType;
 
+/**
+ * The counters are kept in memory, indexed by the ordinal of the
+ * {@link StatsUsageType}, and are increased without lock. A background thread
+ * saves the counters that have changed every
+ * {@link IStatsUsageService#FLUSH_INTERVAL_SECONDS} seconds, so the request
+ * threads never access the database.
+ */
 public class StatsUsageServiceImpl implements IStatsUsageService {
 
+    protected static final Logger logger = LoggerFactory.getLogger(StatsUsageServiceImpl.class);
 
-    private static final Long RESET_COUNTER_VALUE = Long.valueOf(0L);
+    private final AtomicLongArray counters = new AtomicLongArray(StatsUsageType.values().length);
 
-    private Map<String, Long> counterMap = new HashMap<String, Long>();
+    /**
+     * the values that have been saved the last time, only used by
+     * {@link #flush(StatsUsageType)}
+     */
+    private final long[] flushedCounters = new long[StatsUsageType.values().length];
+
+    private ScheduledExecutorService flusher;
+
+    private long flushInterval = FLUSH_INTERVAL_SECONDS;
     
     @Autowired
     IStatsUsageDao statsUsageDao;
@@ -59,7 +81,32 @@ public class StatsUsageServiceImpl implements IStatsUsageService {
 	for (StatsUsageType statsUsageType : StatsUsageType.values()) {
 	    initCounter(statsUsageType);
 	}
+	if (flushInterval > 0 && flusher == null) {
+	    flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable runnable) {
+		    Thread thread = new Thread(runnable, "stats-usage-flusher");
+		    thread.setDaemon(true);
+		    return thread;
+		}
+	    });
+	    flusher.scheduleWithFixedDelay(new Runnable() {
+		public void run() {
+		    flushChangedCounters();
+		}
+	    }, flushInterval, flushInterval, TimeUnit.SECONDS);
+	}
+    }
 
+    /**
+     * Stop the flusher thread and save the counters that have changed
+     */
+    @PreDestroy
+    public void destroy() {
+	if (flusher != null) {
+	    flusher.shutdown();
+	    flusher = null;
+	}
+	flushChangedCounters();
     }
 
     private StatsUsage initCounter(StatsUsageType statsUsageType) {
@@ -69,18 +116,46 @@ public class StatsUsageServiceImpl implements IStatsUsageService {
 	statsUsage = new StatsUsage(statsUsageType);
 	statsUsageDao.save(statsUsage);
 	}
-	this.counterMap.put(statsUsage.getStatsUsageType().toString(),
-	    statsUsage.getUsage());
+	int index = statsUsage.getStatsUsageType().ordinal();
+	long usage = statsUsage.getUsage() == null ? 0 : statsUsage.getUsage();
+	synchronized (flushedCounters) {
+	    counters.set(index, usage);
+	    flushedCounters[index] = usage;
+	}
 	return statsUsage;
     }
 
+    /**
+     * Save the counters that have been increased or reset since the last
+     * flush. Called by the flusher thread.
+     */
+    protected void flushChangedCounters() {
+	if (disabled) {
+	    return;
+	}
+	for (StatsUsageType statsUsageType : StatsUsageType.values()) {
+	    int index = statsUsageType.ordinal();
+	    boolean changed;
+	    synchronized (flushedCounters) {
+		changed = counters.get(index) != flushedCounters[index];
+	    }
+	    if (changed) {
+		try {
+		    flush(statsUsageType);
+		} catch (RuntimeException e) {
+		    logger.error("Can not save the usage of " + statsUsageType + " : " + e.getMessage(), e);
+		}
+	    }
+	}
+    }
+
     /*
      * (non-Javadoc)
      * 
      * @see com.gisgraphy.service.IStatsUsageService#GetNumberOfCounter()
      */
     public int getNumberOfCounter() {
-    	return counterMap.size();
+    	return counters.length();
     }
 
     /*
@@ -89,7 +164,7 @@ public class StatsUsageServiceImpl implements IStatsUsageService {
      * @see com.gisgraphy.service.IStatsUsageService#GetUsage(com.gisgraphy.stats.StatsUsageType)
      */
     public Long getUsage(StatsUsageType statsUsageType) {
-    	return counterMap.get(statsUsageType.toString());
+    	return counters.get(statsUsageType.ordinal());
     }
 
     /*
@@ -99,39 +174,52 @@ public class StatsUsageServiceImpl implements IStatsUsageService {
      */
     public void increaseUsage(StatsUsageType statsUsageType) {
     	if (!disabled){
-    		long newValue = counterMap.get(statsUsageType.toString()) + 1;
-    		counterMap.put(statsUsageType.toString(), newValue);
-    		if (newValue % IStatsUsageService.FLUSH_THRESHOLD == 0) {
-    			flush(statsUsageType);
-    		}
+    		counters.incrementAndGet(statsUsageType.ordinal());
     	}
     }
 
     public void resetUsage(StatsUsageType statsUsageType) {
     	if (!disabled){
-    		counterMap.put(statsUsageType.toString(), RESET_COUNTER_VALUE);
+    		counters.set(statsUsageType.ordinal(), 0);
     		flush(statsUsageType);
     	}
     }
 
     public void flush(StatsUsageType statsUsageType) {
     	if (!disabled){
-    		statsUsageDao.flushAndClear();
-    		StatsUsage statsUsage = statsUsageDao.getByUsageType(statsUsageType);
-    		if (statsUsage==null){
-    			statsUsage= initCounter(statsUsageType);
+    		// only one flush at a time, the request threads never wait for it
+    		synchronized (flushedCounters) {
+    			statsUsageDao.flushAndClear();
+    			StatsUsage statsUsage = statsUsageDao.getByUsageType(statsUsageType);
+    			if (statsUsage==null){
+    				statsUsage= new StatsUsage(statsUsageType);
+    			}
+    			TransactionStatus txStatus = null;
+    			DefaultTransactionDefinition txDefinition = new DefaultTransactionDefinition();
+    			txDefinition.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRED);
+    			txDefinition.setReadOnly(false);
+
+    			txStatus = transactionManager.getTransaction(txDefinition);
+    			long usage = counters.get(statsUsageType.ordinal());
+    			statsUsage.setUsage(usage);
+    			statsUsageDao.save(statsUsage);
+    			transactionManager.commit(txStatus);
+    			flushedCounters[statsUsageType.ordinal()] = usage;
     		}
-    		TransactionStatus txStatus = null;
-    		DefaultTransactionDefinition txDefinition = new DefaultTransactionDefinition();
-    		txDefinition.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRED);
-    		txDefinition.setReadOnly(false);
-
-    		txStatus = transactionManager.getTransaction(txDefinition);
-    		statsUsage.setUsage(counterMap.get(statsUsageType.toString()));
-    		statsUsageDao.save(statsUsage);
-    		transactionManager.commit(txStatus);
     	}
     }
 
+    /**
+     * @param flushInterval
+     *            the number of seconds between two saves of the counters
+     *            that have changed. 0 to disable the flusher thread (the
+     *            counters are then only saved by {@link #flush(StatsUsageType)}
+     *            and {@link #resetUsage(StatsUsageType)}). default to
+     *            {@link IStatsUsageService#FLUSH_INTERVAL_SECONDS}
+     */
+    public void setFlushInterval(long flushInterval) {
+	this.flushInterval = flushInterval;
+    }
+
 
 }
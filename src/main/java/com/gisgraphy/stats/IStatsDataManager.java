@@ -6,6 +6,12 @@ public interface IStatsDataManager {
 	
 	public String getAllInJson(boolean refresh,boolean details);
 	
+	/**
+	 * @param approximate whether the stats should be estimated with the
+	 * statistics of the postgres planner (fast) rather than counted
+	 */
+	public String getAllInJson(boolean refresh,boolean details, boolean approximate);
+	
 	public String getOneInJson(String countryCode, boolean refresh) ;
 	
 	public List<StatsDataDTO> processCountryCode(String country,boolean withdetails) ;
@@ -0,0 +1,180 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock free histogram of latencies, with a precision of about 3%.
+ * <p>
+ * The latencies are recorded in microseconds. Values lower than 64 have
+ * their own bucket, greater values are stored in 32 buckets per power of two
+ * (the same log-linear layout as HdrHistogram with 5 significant bits), so
+ * the memory used is constant (about 10Kb) whatever the number of recorded
+ * values. Recording a value is an increment of an {@link AtomicLongArray},
+ * it never blocks.
+ * 
+ * @see LatencyStats
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int LINEAR_LIMIT = SUB_BUCKET_COUNT * 2;
+
+    /**
+     * The highest power of two that is tracked, higher values (more than 12
+     * days) are counted in the last bucket
+     */
+    private static final int MAX_EXPONENT = 40;
+
+    static final int BUCKET_COUNT = LINEAR_LIMIT + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    private final AtomicLong totalCount = new AtomicLong();
+
+    private final AtomicLong totalMicros = new AtomicLong();
+
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    static int getBucketIndex(long micros) {
+	if (micros < LINEAR_LIMIT) {
+	    return micros < 0 ? 0 : (int) micros;
+	}
+	int exponent = 63 - Long.numberOfLeadingZeros(micros);
+	if (exponent > MAX_EXPONENT) {
+	    return BUCKET_COUNT - 1;
+	}
+	int shift = exponent - SUB_BUCKET_BITS;
+	return LINEAR_LIMIT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKET_COUNT + (int) ((micros >> shift) - SUB_BUCKET_COUNT);
+    }
+
+    /**
+     * @return the highest value (in microseconds) that is stored in the
+     *         bucket
+     */
+    static long getBucketHighestValue(int index) {
+	if (index < LINEAR_LIMIT) {
+	    return index;
+	}
+	int exponent = (index - LINEAR_LIMIT) / SUB_BUCKET_COUNT + SUB_BUCKET_BITS + 1;
+	int subBucket = (index - LINEAR_LIMIT) % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+	int shift = exponent - SUB_BUCKET_BITS;
+	return (((long) subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * @param nanos
+     *            the latency to record in nanoseconds
+     */
+    public void recordNanos(long nanos) {
+	recordMicros(nanos / 1000);
+    }
+
+    /**
+     * @param micros
+     *            the latency to record in microseconds
+     */
+    public void recordMicros(long micros) {
+	if (micros < 0) {
+	    micros = 0;
+	}
+	counts.incrementAndGet(getBucketIndex(micros));
+	totalCount.incrementAndGet();
+	totalMicros.addAndGet(micros);
+	long max = maxMicros.get();
+	while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+	    max = maxMicros.get();
+	}
+    }
+
+    /**
+     * @return the number of recorded values
+     */
+    public long getCount() {
+	return totalCount.get();
+    }
+
+    /**
+     * @return the highest recorded value in microseconds
+     */
+    public long getMaxMicros() {
+	return maxMicros.get();
+    }
+
+    /**
+     * @return the mean of the recorded values in microseconds, 0 if no value
+     *         has been recorded
+     */
+    public long getMeanMicros() {
+	long count = totalCount.get();
+	return count == 0 ? 0 : totalMicros.get() / count;
+    }
+
+    /**
+     * @param percentile
+     *            the percentile, between 0 and 100 (e.g : 99.9)
+     * @return the value in microseconds that is greater or equals (at the
+     *         precision of the histogram) to the given percentage of the
+     *         recorded values, 0 if no value has been recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+	long[] snapshot = new long[BUCKET_COUNT];
+	long count = 0;
+	for (int i = 0; i < BUCKET_COUNT; i++) {
+	    snapshot[i] = counts.get(i);
+	    count += snapshot[i];
+	}
+	if (count == 0) {
+	    return 0;
+	}
+	double rank = Math.min(100D, Math.max(0D, percentile)) / 100D * count;
+	long countToReach = Math.max(1, (long) Math.ceil(rank));
+	long seen = 0;
+	for (int i = 0; i < BUCKET_COUNT; i++) {
+	    seen += snapshot[i];
+	    if (seen >= countToReach) {
+		return Math.min(getBucketHighestValue(i), getMaxMicros());
+	    }
+	}
+	return getMaxMicros();
+    }
+
+    /**
+     * Remove all the recorded values. Values that are recorded during the
+     * reset may be partially lost
+     */
+    public void reset() {
+	for (int i = 0; i < BUCKET_COUNT; i++) {
+	    counts.set(i, 0);
+	}
+	totalCount.set(0);
+	totalMicros.set(0);
+	maxMicros.set(0);
+    }
+
+}
@@ -0,0 +1,147 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.stats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Hold the {@link LatencyHistogram} of every service and of the stages of the
+ * services (country detection, SolR sub-queries, serialization,...).
+ * <p>
+ * The services record a latency with :<br/>
+ * <code>long start = System.nanoTime();<br/>
+ * ...<br/>
+ * LatencyStats.getInstance().record(StatsUsageType.GEOCODING, LatencyStats.COUNTRY_DETECTION, start);</code>
+ * <p>
+ * The overhead is a call to {@link System#nanoTime()}, a lookup in a
+ * {@link ConcurrentHashMap} and some atomic increments, no lock is taken.
+ * 
+ * @see com.gisgraphy.webapp.action.LatencyStatsAction
+ */
+public class LatencyStats {
+
+    /**
+     * the whole call to the service
+     */
+    public static final String TOTAL = "total";
+
+    public static final String COUNTRY_DETECTION = "countryDetection";
+
+    public static final String ADDRESS_PARSING = "addressParsing";
+
+    /**
+     * a query to SolR, the services that send several queries use
+     * SOLR+"."+name of the sub-query
+     */
+    public static final String SOLR = "solr";
+
+    /**
+     * a query to the database
+     */
+    public static final String DATABASE = "database";
+
+    /**
+     * search of the house number and interpolation
+     */
+    public static final String HOUSE_NUMBER = "houseNumber";
+
+    /**
+     * serialization of the results into the output stream
+     */
+    public static final String SERIALIZATION = "serialization";
+
+    private static final LatencyStats instance = new LatencyStats();
+
+    private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<String, LatencyHistogram>();
+
+    public static LatencyStats getInstance() {
+	return instance;
+    }
+
+    /**
+     * Record the time elapsed since startNanos
+     * 
+     * @param service
+     *            the service
+     * @param stage
+     *            the stage of the service, e.g : {@link #TOTAL}
+     * @param startNanos
+     *            the value of {@link System#nanoTime()} when the stage has
+     *            started
+     */
+    public void record(StatsUsageType service, String stage, long startNanos) {
+	getHistogram(service, stage).recordNanos(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @return the histogram of the stage, it is created if needed
+     */
+    public LatencyHistogram getHistogram(StatsUsageType service, String stage) {
+	String name = getName(service, stage);
+	LatencyHistogram histogram = histograms.get(name);
+	if (histogram == null) {
+	    LatencyHistogram newHistogram = new LatencyHistogram();
+	    histogram = histograms.putIfAbsent(name, newHistogram);
+	    if (histogram == null) {
+		histogram = newHistogram;
+	    }
+	}
+	return histogram;
+    }
+
+    static String getName(StatsUsageType service, String stage) {
+	return service + "." + stage;
+    }
+
+    /**
+     * @return a summary of all the histograms that have recorded a value,
+     *         sorted by name
+     */
+    public List<LatencyStatsDto> getSummaries() {
+	SortedMap<String, LatencyHistogram> sorted = new TreeMap<String, LatencyHistogram>(histograms);
+	List<LatencyStatsDto> summaries = new ArrayList<LatencyStatsDto>(sorted.size());
+	for (Entry<String, LatencyHistogram> entry : sorted.entrySet()) {
+	    LatencyHistogram histogram = entry.getValue();
+	    if (histogram.getCount() > 0) {
+		summaries.add(new LatencyStatsDto(entry.getKey(), histogram));
+	    }
+	}
+	return summaries;
+    }
+
+    /**
+     * Reset all the histograms
+     */
+    public void reset() {
+	for (LatencyHistogram histogram : histograms.values()) {
+	    histogram.reset();
+	}
+    }
+
+}
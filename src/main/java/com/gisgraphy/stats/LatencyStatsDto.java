@@ -0,0 +1,93 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.stats;
+
+/**
+ * The percentiles of a {@link LatencyHistogram} at a given time, in
+ * milliseconds
+ */
+public class LatencyStatsDto {
+
+    private final String name;
+    private final long count;
+    private final double mean;
+    private final double p50;
+    private final double p90;
+    private final double p99;
+    private final double p999;
+    private final double max;
+
+    public LatencyStatsDto(String name, LatencyHistogram histogram) {
+	this.name = name;
+	this.count = histogram.getCount();
+	this.mean = toMillis(histogram.getMeanMicros());
+	this.p50 = toMillis(histogram.getValueAtPercentile(50));
+	this.p90 = toMillis(histogram.getValueAtPercentile(90));
+	this.p99 = toMillis(histogram.getValueAtPercentile(99));
+	this.p999 = toMillis(histogram.getValueAtPercentile(99.9));
+	this.max = toMillis(histogram.getMaxMicros());
+    }
+
+    private static double toMillis(long micros) {
+	return micros / 1000D;
+    }
+
+    /**
+     * @return the name of the histogram : service.stage
+     */
+    public String getName() {
+	return name;
+    }
+
+    /**
+     * @return the number of recorded latencies
+     */
+    public long getCount() {
+	return count;
+    }
+
+    public double getMean() {
+	return mean;
+    }
+
+    public double getP50() {
+	return p50;
+    }
+
+    public double getP90() {
+	return p90;
+    }
+
+    public double getP99() {
+	return p99;
+    }
+
+    public double getP999() {
+	return p999;
+    }
+
+    public double getMax() {
+	return max;
+    }
+
+}
@@ -29,9 +29,9 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,12 +44,16 @@ import com.gisgraphy.domain.geoloc.entity.CitySubdivision;
 import com.gisgraphy.domain.geoloc.entity.Continent;
 import com.gisgraphy.domain.geoloc.entity.Country;
 import com.gisgraphy.domain.geoloc.entity.GisFeature;
+import com.gisgraphy.domain.geoloc.entity.HouseNumber;
+import com.gisgraphy.domain.geoloc.entity.OpenStreetMap;
 import com.gisgraphy.domain.geoloc.entity.Street;
 import com.gisgraphy.domain.repository.AdmDao;
 import com.gisgraphy.domain.repository.CityDao;
 import com.gisgraphy.domain.repository.HouseNumberDao;
+import com.gisgraphy.domain.repository.IFeatureCountDao;
 import com.gisgraphy.domain.repository.IGisDao;
 import com.gisgraphy.domain.repository.IOpenStreetMapDao;
+import com.gisgraphy.domain.valueobject.CountryCountDto;
 import com.gisgraphy.helper.CountryInfo;
 import com.gisgraphy.serializer.UniversalSerializer;
 import com.gisgraphy.serializer.common.OutputFormat;
@@ -67,7 +71,9 @@ public class StatsDataManager implements IStatsDataManager{
 
 	private static final String ADMS_LABEL = "Adms";
 
-	private static final String POIS_ALL_LABEL = "Pois:all";
+	private static final String POIS_LABEL_PREFIX = "Pois:";
+
+	private static final String POIS_ALL_LABEL = POIS_LABEL_PREFIX + "all";
 
 	private static final String CITIES_LABEL = "Cities";
 
@@ -105,6 +111,9 @@ public class StatsDataManager implements IStatsDataManager{
 	@Autowired
 	protected AdmDao admDao;
 
+	@Autowired
+	protected IFeatureCountDao featureCountDao;
+
 	public static Map<String, List<StatsDataDTO>> statsByCountry = new HashMap<String, List<StatsDataDTO>>();
 
 	String statsAsJson = "{}";
@@ -117,18 +126,19 @@ public class StatsDataManager implements IStatsDataManager{
 	 */
 	@Override
 	public void exportEachCountriesInJson() {
+		exportEachCountriesInJson(true);
+	}
+
+	private void exportEachCountriesInJson(boolean refresh) {
 		File directory = new File(EXPORT_DIRECTORY);
 		if (! directory.exists()){
 			directory.mkdir();
 		}
 
 
-		Set<String> countries = CountryInfo.countryLookupMap.keySet();
-		int counter = 0;
-		for (String country: countries){
-			counter++;
-			logger.info("stats "+counter+"/"+countries.size());
-			List<StatsDataDTO> countryStats = processCountryCode(country,true);
+		Map<String, List<StatsDataDTO>> allStats = getAll(refresh, true, false);
+		for (String country: allStats.keySet()){
+			List<StatsDataDTO> countryStats = allStats.get(country);
 			String json = UniversalSerializer.getInstance().writeToString(countryStats, OutputFormat.JSON);
 			File file = new File(EXPORT_DIRECTORY + "/" + country+".json");
 			try{
@@ -147,11 +157,15 @@ public class StatsDataManager implements IStatsDataManager{
  */
 	@Override
 	public void exportAllInJson() {
+		exportAllInJson(true);
+	}
+
+	private void exportAllInJson(boolean refresh) {
 		File directory = new File(EXPORT_DIRECTORY);
 		if (! directory.exists()){
 			directory.mkdir();
 		}
-		String json = getAllInJson(true,true);
+		String json = getAllInJson(refresh,true);
 		File file = new File(EXPORT_DIRECTORY + "/" + "all.json");
 		try{
 			FileWriter fw = new FileWriter(file.getAbsoluteFile());
@@ -169,11 +183,15 @@ public class StatsDataManager implements IStatsDataManager{
 	 */
 	@Override
 	public void exportAllInJsonNoDetails() {
+		exportAllInJsonNoDetails(true);
+	}
+
+	private void exportAllInJsonNoDetails(boolean refresh) {
 		File directory = new File(EXPORT_DIRECTORY);
 		if (! directory.exists()){
 			directory.mkdir();
 		}
-		String json = getAllInJson(true,false);
+		String json = getAllInJson(refresh,false);
 		File file = new File(EXPORT_DIRECTORY + "/" + "all_nodetails.json");
 		try{
 			FileWriter fw = new FileWriter(file.getAbsoluteFile());
@@ -191,12 +209,16 @@ public class StatsDataManager implements IStatsDataManager{
 	 */
 	@Override
 	public void exportAllSummaryInJson() {
+		exportAllSummaryInJson(true);
+	}
+
+	private void exportAllSummaryInJson(boolean refresh) {
 
 		File directory = new File(EXPORT_DIRECTORY);
 		if (! directory.exists()){
 			directory.mkdir();
 		}
-		List<StatsDataDTO> stats  = getAllSummary(true);
+		List<StatsDataDTO> stats  = getAllSummary(refresh);
 		String json = UniversalSerializer.getInstance().writeToString(stats, OutputFormat.JSON);
 		File file = new File(EXPORT_DIRECTORY + "/" + "all_summary.json");
 		try{
@@ -211,41 +233,170 @@ public class StatsDataManager implements IStatsDataManager{
 	}
 
 
+	/**
+	 * The stats are computed once (with details) and all the exports use
+	 * them
+	 */
 	@Override
 	public void exportStats(){
-		exportAllInJsonNoDetails();
-		exportEachCountriesInJson();
-		exportAllInJson();
-		exportAllSummaryInJson();
+		getAll(true, true, false);
+		exportAllInJsonNoDetails(false);
+		exportEachCountriesInJson(false);
+		exportAllInJson(false);
+		exportAllSummaryInJson(false);
 	}
 
 	public String getAllInJson(boolean refresh,boolean withdetails) {
-		getAll(refresh,withdetails);
-		statsAsJson = UniversalSerializer.getInstance().writeToString(statsByCountry, OutputFormat.JSON);
+		return getAllInJson(refresh, withdetails, false);
+	}
+
+	public String getAllInJson(boolean refresh, boolean withdetails, boolean approximate) {
+		statsAsJson = UniversalSerializer.getInstance().writeToString(getAll(refresh, withdetails, approximate), OutputFormat.JSON);
 		return statsAsJson;
 	}
 
-	private Map<String, List<StatsDataDTO>> getAll(boolean refresh, boolean withdetails) {
-		if (statsByCountry!=null && !statsByCountry.isEmpty() && !refresh){
+	/**
+	 * @param approximate
+	 *            whether the stats should be estimated with the statistics
+	 *            of the postgres planner rather than counted, they are not
+	 *            cached
+	 * @return the stats of all the countries, the exact ones are computed
+	 *         with details and cached, and the details are removed if
+	 *         withdetails is false
+	 */
+	private Map<String, List<StatsDataDTO>> getAll(boolean refresh, boolean withdetails, boolean approximate) {
+		Map<String, List<StatsDataDTO>> allStats;
+		if (approximate) {
+			allStats = processAllCountryCodes(true);
+		} else if (statsByCountry!=null && !statsByCountry.isEmpty() && !refresh){
 			logger.info("stats are alredy processed and in cache");
-			return statsByCountry;
+			allStats = statsByCountry;
+		} else {
+			statsByCountry = processAllCountryCodes(false);
+			allStats = statsByCountry;
+		}
+		if (withdetails) {
+			return allStats;
+		}
+		Map<String, List<StatsDataDTO>> statsWithoutDetails = new HashMap<String, List<StatsDataDTO>>();
+		for (String country : allStats.keySet()) {
+			List<StatsDataDTO> countryStats = new ArrayList<StatsDataDTO>();
+			for (StatsDataDTO stat : allStats.get(country)) {
+				if (!isDetail(stat)) {
+					countryStats.add(stat);
+				}
+			}
+			statsWithoutDetails.put(country, countryStats);
+		}
+		return statsWithoutDetails;
+	}
+
+	private boolean isDetail(StatsDataDTO stat) {
+		return stat.getLabel().startsWith(POIS_LABEL_PREFIX) && !stat.getLabel().equals(POIS_ALL_LABEL);
+	}
+
+	/**
+	 * Count the features of all the countries with one GROUP BY query per
+	 * table, rather than one count per table and per country
+	 * 
+	 * @param approximate
+	 *            whether the counts should be estimated with the statistics
+	 *            of the postgres planner
+	 * @return the stats (with details) of each country of
+	 *         {@link CountryInfo#countryLookupMap}
+	 */
+	protected Map<String, List<StatsDataDTO>> processAllCountryCodes(boolean approximate) {
+		long start = System.currentTimeMillis();
+		Map<Class<?>, Map<String, CountryCountDto>> counts = new LinkedHashMap<Class<?>, Map<String, CountryCountDto>>();
+		counts.put(OpenStreetMap.class, countByCountryCode(OpenStreetMap.class, true, approximate));
+		counts.put(HouseNumber.class, countByCountryCode(HouseNumber.class, false, approximate));
+		counts.put(City.class, countByCountryCode(City.class, true, approximate));
+		counts.put(Adm.class, countByCountryCode(Adm.class, true, approximate));
+		for (Class<?> poiClass : getPoiClasses()) {
+			counts.put(poiClass, countByCountryCode(poiClass, false, approximate));
 		}
 		Map<String, List<StatsDataDTO>> localStatsByCountry = new HashMap<String, List<StatsDataDTO>>();
-		Set<String> countries = CountryInfo.countryLookupMap.keySet();
-		int counter = 0;
-		for (String country: countries){
-			counter++;
-			logger.info("stats "+counter+"/"+countries.size());
-			List<StatsDataDTO> countryStats = processCountryCode(country,withdetails);
-			localStatsByCountry.put(country, countryStats);
+		for (String country: CountryInfo.countryLookupMap.keySet()){
+			localStatsByCountry.put(country, createCountryStats(country, counts, true));
 		}
-		statsByCountry = localStatsByCountry;
-		return statsByCountry;
+		logger.info("stats of " + localStatsByCountry.size() + " countries processed in " + (System.currentTimeMillis() - start) + " ms"
+				+ (approximate ? " (approximate)" : ""));
+		return localStatsByCountry;
+	}
+
+	private Map<String, CountryCountDto> countByCountryCode(Class<?> entityClass, boolean withShape, boolean approximate) {
+		List<CountryCountDto> dtos = approximate ? featureCountDao.estimateCountByCountryCode(entityClass, withShape)
+				: featureCountDao.countByCountryCode(entityClass, withShape);
+		Map<String, CountryCountDto> countsByCountry = new HashMap<String, CountryCountDto>();
+		for (CountryCountDto dto : dtos) {
+			countsByCountry.put(dto.getCountryCode(), dto);
+		}
+		return countsByCountry;
+	}
+
+	/**
+	 * @return the classes of the pois, the daos of the other classes are
+	 *         counted separately
+	 */
+	private List<Class<?>> getPoiClasses() {
+		List<Class<?>> poiClasses = new ArrayList<Class<?>>();
+		for (int i = 0; i < daos.length; i++) {
+			IGisDao<? extends GisFeature> dao = daos[i];
+			if (dao.getPersistenceClass()== Continent.class || dao.getPersistenceClass()== Street.class || dao.getPersistenceClass()== CitySubdivision.class || dao.getPersistenceClass()== City.class || dao.getPersistenceClass()== Adm.class || dao.getPersistenceClass()== Country.class){
+				continue;
+			}
+			poiClasses.add(dao.getPersistenceClass());
+		}
+		return poiClasses;
+	}
+
+	/**
+	 * @param counts
+	 *            the counts of each class by country code, the null country
+	 *            code is the count of the countries that are not in the map
+	 */
+	List<StatsDataDTO> createCountryStats(String country, Map<Class<?>, Map<String, CountryCountDto>> counts, boolean withdetails) {
+		List<StatsDataDTO> countryStats = new ArrayList<StatsDataDTO>();
+		CountryCountDto streets = getCount(counts, OpenStreetMap.class, country);
+		countryStats.add(new StatsDataDTO(STREETS_LABEL, streets.getCount()));
+		countryStats.add(new StatsDataDTO(STREETS_SHAPE_LABEL, streets.getShapeCount()));
+		countryStats.add(new StatsDataDTO(ADDRESSES_LABEL, getCount(counts, HouseNumber.class, country).getCount()));
+		CountryCountDto cities = getCount(counts, City.class, country);
+		countryStats.add(new StatsDataDTO(CITIES_LABEL, cities.getCount()));
+		countryStats.add(new StatsDataDTO(CITIES_SHAPE_LABEL, cities.getShapeCount()));
+		CountryCountDto adms = getCount(counts, Adm.class, country);
+		countryStats.add(new StatsDataDTO(ADMS_LABEL, adms.getCount()));
+		countryStats.add(new StatsDataDTO(ADMS_SHAPE_LABEL, adms.getShapeCount()));
+		//then poi
+		long globalcount = 0;
+		for (Class<?> poiClass : getPoiClasses()) {
+			long count = getCount(counts, poiClass, country).getCount();
+			globalcount = globalcount + count;
+			if (withdetails) {
+				countryStats.add(new StatsDataDTO(POIS_LABEL_PREFIX + poiClass.getSimpleName(), count));
+			}
+		}
+		countryStats.add(new StatsDataDTO(POIS_ALL_LABEL, globalcount));
+		return countryStats;
+	}
+
+	private CountryCountDto getCount(Map<Class<?>, Map<String, CountryCountDto>> counts, Class<?> entityClass, String country) {
+		Map<String, CountryCountDto> countsByCountry = counts.get(entityClass);
+		if (countsByCountry != null) {
+			CountryCountDto count = countsByCountry.get(country);
+			if (count == null) {
+				count = countsByCountry.get(null);
+			}
+			if (count != null) {
+				return count;
+			}
+		}
+		return new CountryCountDto(country, 0, 0);
 	}
 
 	@Override
 	public List<StatsDataDTO> getAllSummary(boolean refresh) {
-		statsByCountry = getAll(refresh,true);
+		statsByCountry = getAll(refresh,true,false);
 		long streets = 0;
 		long cities = 0;
 		long pois = 0;
@@ -304,56 +455,26 @@ public class StatsDataManager implements IStatsDataManager{
 
 	@Override
 	public List<StatsDataDTO> processCountryCode(String country,boolean withdetails) {
-		List<StatsDataDTO> countryStats = new ArrayList<StatsDataDTO>();
 		logger.info("process stats for country "+country);
-		long streets = openStreetMapDao.countByCountryCode(country);
-		logger.info("counting stats for streets : "+ streets);
-		countryStats.add(new StatsDataDTO(STREETS_LABEL, streets));
-		
-		long streetsWithShape = openStreetMapDao.countShapeByCountryCode(country);
-		logger.info("counting stats for shape streets : "+ streetsWithShape);
-		countryStats.add(new StatsDataDTO(STREETS_SHAPE_LABEL, streetsWithShape));
-		
-		long houses = houseNumberDao.countByCountryCode(country);
-		logger.info("counting stats for houses : "+ houses);
-		countryStats.add(new StatsDataDTO(ADDRESSES_LABEL, houses));
-
-		long cities = cityDao.countByCountryCode(country);
-		logger.info("counting stats for cities : "+ cities);
-		countryStats.add(new StatsDataDTO(CITIES_LABEL, cities));
-		
-		long citiesWithShape = cityDao.countShapeByCountryCode(country);
-		logger.info("counting stats for cities shapes: "+ citiesWithShape);
-		countryStats.add(new StatsDataDTO(CITIES_SHAPE_LABEL, citiesWithShape));
-
-		long adms = admDao.countByCountryCode(country);
-		logger.info("counting stats for adms : "+ adms);
-		countryStats.add(new StatsDataDTO(ADMS_LABEL, adms));
-		
-		long admsWithShape = admDao.countShapeByCountryCode(country);
-		logger.info("counting stats for adms shapes: "+ admsWithShape);
-		countryStats.add(new StatsDataDTO(ADMS_SHAPE_LABEL, admsWithShape));
-
-		//then poi
-		long globalcount = 0;
+		Map<Class<?>, Map<String, CountryCountDto>> counts = new HashMap<Class<?>, Map<String, CountryCountDto>>();
+		putCount(counts, OpenStreetMap.class, new CountryCountDto(country, openStreetMapDao.countByCountryCode(country), openStreetMapDao.countShapeByCountryCode(country)));
+		putCount(counts, HouseNumber.class, new CountryCountDto(country, houseNumberDao.countByCountryCode(country), 0));
+		putCount(counts, City.class, new CountryCountDto(country, cityDao.countByCountryCode(country), cityDao.countShapeByCountryCode(country)));
+		putCount(counts, Adm.class, new CountryCountDto(country, admDao.countByCountryCode(country), admDao.countShapeByCountryCode(country)));
+		List<Class<?>> poiClasses = getPoiClasses();
 		for (int i = 0; i < daos.length; i++) {
 			IGisDao<? extends GisFeature> dao = daos[i];
-			if (dao.getPersistenceClass()== Continent.class || dao.getPersistenceClass()== Street.class || dao.getPersistenceClass()== CitySubdivision.class || dao.getPersistenceClass()== City.class || dao.getPersistenceClass()== Adm.class || dao.getPersistenceClass()== Country.class){
-				continue;
-			}
-			long count = dao.countByCountryCode(country);
-			/*if (dao.getPersistenceClass()== GisFeature.class){
-				count--;//remove the country itself
-			}*/
-			logger.info("counting stats for pois:"+dao.getPersistenceClass().getSimpleName()+" : "+ count);
-			globalcount = globalcount+ count;
-			if (withdetails){
-			countryStats.add(new StatsDataDTO("Pois:"+dao.getPersistenceClass().getSimpleName(), count));
+			if (poiClasses.contains(dao.getPersistenceClass())) {
+				putCount(counts, dao.getPersistenceClass(), new CountryCountDto(country, dao.countByCountryCode(country), 0));
 			}
 		}
-		countryStats.add(new StatsDataDTO(POIS_ALL_LABEL, globalcount));
-		logger.info("counting stats for pois:all : "+ globalcount);
-		return countryStats;
+		return createCountryStats(country, counts, withdetails);
+	}
+
+	private void putCount(Map<Class<?>, Map<String, CountryCountDto>> counts, Class<?> entityClass, CountryCountDto count) {
+		Map<String, CountryCountDto> countsByCountry = new HashMap<String, CountryCountDto>();
+		countsByCountry.put(count.getCountryCode(), count);
+		counts.put(entityClass, countsByCountry);
 	}
 
 	/**
@@ -442,7 +563,7 @@ public class StatsDataManager implements IStatsDataManager{
 
 
 	public int getFlushFrequency(){
-		return IStatsUsageService.FLUSH_THRESHOLD;
+		return IStatsUsageService.FLUSH_INTERVAL_SECONDS;
 	}
 
 
@@ -0,0 +1,246 @@
+package com.gisgraphy.street;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.codec.binary.Base64;
+
+import com.gisgraphy.domain.geoloc.entity.HouseNumber;
+
+/**
+ * Encode the house numbers of a street into the compact binary format read by
+ * {@link PackedHouseNumbers}.
+ * <p>
+ * Layout (version 1, big endian) :
+ * <ul>
+ * <li>1 byte : version</li>
+ * <li>1 byte : width of the keys (2 or 4 bytes)</li>
+ * <li>1 byte : width of the coordinate offsets (2, 3 or 4 bytes)</li>
+ * <li>4 bytes : number of house numbers (n)</li>
+ * <li>4 bytes : number of strings in the string table (s)</li>
+ * <li>4+4 bytes : longitude and latitude of the first house number, in
+ * 1/10<sup>7</sup> degree</li>
+ * <li>n keys : the numeric part of the numbers, sorted</li>
+ * <li>n longitudes then n latitudes : offsets from the first house number,
+ * in 1/10<sup>7</sup> degree</li>
+ * <li>if s&gt;0, n * 2 bytes : index+1 in the string table of the numbers
+ * that are not plain numbers (e.g : '12b'), 0 for the others</li>
+ * <li>s strings : 2 bytes length + UTF-8 bytes</li>
+ * </ul>
+ * Every entry has a fixed width, so the numbers can be searched with a
+ * binary search without decoding the whole street.
+ * 
+ * @see HouseNumberSerializer for the legacy format (one string per house
+ *      number)
+ */
+public class HouseNumberPacker {
+
+	public static final byte VERSION = 1;
+
+	static final int HEADER_SIZE = 1 + 1 + 1 + 4 + 4 + 4 + 4;
+
+	static final double COORDINATE_PRECISION = 10000000D;
+
+	/**
+	 * The maximum number of strings in the string table : the indexes are
+	 * stored with 2 bytes and 0 is reserved for the plain numbers
+	 */
+	static final int MAX_STRINGS = 0xFFFF;
+
+	private static final class Entry {
+		int key;
+		String number;
+		boolean plainNumber;
+		int lng;
+		int lat;
+	}
+
+	private static final Comparator<Entry> ENTRY_COMPARATOR = new Comparator<Entry>() {
+		public int compare(Entry o1, Entry o2) {
+			if (o1.key != o2.key) {
+				return o1.key < o2.key ? -1 : 1;
+			}
+			if (o1.plainNumber != o2.plainNumber) {
+				return o1.plainNumber ? -1 : 1;
+			}
+			return o1.number.compareTo(o2.number);
+		}
+	};
+
+	/**
+	 * @return the numeric part at the start of the number (12 for '12b'), 0
+	 *         if the number doesn't start with a digit or if it is too big
+	 */
+	static int getKey(String number) {
+		int key = 0;
+		for (int i = 0; i < number.length(); i++) {
+			char c = number.charAt(i);
+			if (c < '0' || c > '9') {
+				break;
+			}
+			if (key > 99999999) {
+				return 0;
+			}
+			key = key * 10 + (c - '0');
+		}
+		return key;
+	}
+
+	/**
+	 * @return true if the number is the decimal representation of the key
+	 *         (no leading zero, no letter)
+	 */
+	static boolean isPlainNumber(String number) {
+		if (number.length() == 0 || number.length() > 9 || (number.length() > 1 && number.charAt(0) == '0')) {
+			return false;
+		}
+		for (int i = 0; i < number.length(); i++) {
+			char c = number.charAt(i);
+			if (c < '0' || c > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	static int toFixedPoint(double coordinate) {
+		return (int) Math.round(coordinate * COORDINATE_PRECISION);
+	}
+
+	/**
+	 * @param houseNumbers
+	 *            the house numbers, the ones without number or location are
+	 *            ignored
+	 * @return the packed house numbers or null if there is no house number
+	 *         to pack
+	 * @throws IllegalArgumentException
+	 *             if there are more than {@link #MAX_STRINGS} distinct numbers
+	 *             that are not plain numbers, the house numbers should then be
+	 *             stored in the legacy format
+	 */
+	public byte[] pack(Collection<HouseNumber> houseNumbers) {
+		if (houseNumbers == null || houseNumbers.size() == 0) {
+			return null;
+		}
+		List<Entry> entries = new ArrayList<Entry>(houseNumbers.size());
+		for (HouseNumber houseNumber : houseNumbers) {
+			if (houseNumber == null || houseNumber.getNumber() == null || houseNumber.getLocation() == null) {
+				continue;
+			}
+			Entry entry = new Entry();
+			entry.number = houseNumber.getNumber().trim();
+			entry.key = getKey(entry.number);
+			entry.plainNumber = isPlainNumber(entry.number);
+			entry.lng = toFixedPoint(houseNumber.getLongitude());
+			entry.lat = toFixedPoint(houseNumber.getLatitude());
+			entries.add(entry);
+		}
+		if (entries.size() == 0) {
+			return null;
+		}
+		Collections.sort(entries, ENTRY_COMPARATOR);
+
+		Map<String, Integer> stringTable = new LinkedHashMap<String, Integer>();
+		int maxKey = 0;
+		long maxOffset = 0;
+		Entry first = entries.get(0);
+		for (Entry entry : entries) {
+			maxKey = Math.max(maxKey, entry.key);
+			maxOffset = Math.max(maxOffset, Math.abs((long) entry.lng - first.lng));
+			maxOffset = Math.max(maxOffset, Math.abs((long) entry.lat - first.lat));
+			if (!entry.plainNumber && !stringTable.containsKey(entry.number)) {
+				if (stringTable.size() == MAX_STRINGS) {
+					throw new IllegalArgumentException("more than " + MAX_STRINGS + " house numbers are not plain numbers, they can not be packed");
+				}
+				stringTable.put(entry.number, stringTable.size());
+			}
+		}
+		int keyWidth = maxKey <= 0xFFFF ? 2 : 4;
+		int coordinateWidth = maxOffset <= Short.MAX_VALUE ? 2 : (maxOffset <= 0x7FFFFF ? 3 : 4);
+
+		List<byte[]> strings = new ArrayList<byte[]>(stringTable.size());
+		int stringsSize = 0;
+		for (String number : stringTable.keySet()) {
+			byte[] bytes = toUtf8(number);
+			strings.add(bytes);
+			stringsSize += 2 + bytes.length;
+		}
+		int n = entries.size();
+		int size = HEADER_SIZE + n * keyWidth + 2 * n * coordinateWidth + (strings.size() > 0 ? 2 * n : 0) + stringsSize;
+		byte[] packed = new byte[size];
+		packed[0] = VERSION;
+		packed[1] = (byte) keyWidth;
+		packed[2] = (byte) coordinateWidth;
+		int pos = 3;
+		pos = write(packed, pos, n, 4);
+		pos = write(packed, pos, strings.size(), 4);
+		pos = write(packed, pos, first.lng, 4);
+		pos = write(packed, pos, first.lat, 4);
+		for (Entry entry : entries) {
+			pos = write(packed, pos, entry.key, keyWidth);
+		}
+		for (Entry entry : entries) {
+			pos = write(packed, pos, entry.lng - first.lng, coordinateWidth);
+		}
+		for (Entry entry : entries) {
+			pos = write(packed, pos, entry.lat - first.lat, coordinateWidth);
+		}
+		if (strings.size() > 0) {
+			for (Entry entry : entries) {
+				Integer index = entry.plainNumber ? null : stringTable.get(entry.number);
+				pos = write(packed, pos, index == null ? 0 : index + 1, 2);
+			}
+			for (byte[] bytes : strings) {
+				pos = write(packed, pos, bytes.length, 2);
+				System.arraycopy(bytes, 0, packed, pos, bytes.length);
+				pos += bytes.length;
+			}
+		}
+		return packed;
+	}
+
+	/**
+	 * @return the packed house numbers encoded in base64 (to be stored in a
+	 *         SolR string field) or null if there is no house number to pack
+	 * @throws IllegalArgumentException
+	 *             if the house numbers can not be packed (see
+	 *             {@link #pack(Collection)})
+	 */
+	public String packToBase64(Collection<HouseNumber> houseNumbers) {
+		byte[] packed = pack(houseNumbers);
+		if (packed == null) {
+			return null;
+		}
+		try {
+			return new String(Base64.encodeBase64(packed), "US-ASCII");
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static int write(byte[] bytes, int pos, int value, int width) {
+		for (int i = width - 1; i >= 0; i--) {
+			bytes[pos++] = (byte) (value >>> (i * 8));
+		}
+		return pos;
+	}
+
+	private static byte[] toUtf8(String number) {
+		try {
+			byte[] bytes = number.getBytes("UTF-8");
+			if (bytes.length > 0xFFFF) {
+				throw new IllegalArgumentException("house number is too long : " + number);
+			}
+			return bytes;
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+}
@@ -50,16 +50,23 @@ public class HouseNumberSerializer {
 		if (houseNumber==null ){
 			return null;
 		}
-		StringBuffer sb = new StringBuffer();
 			if (houseNumber==null || houseNumber.getNumber()==null || houseNumber.getLocation()==null){
 				return null;
 			}
-			String cleaned = clean_pattern.matcher(houseNumber.getNumber()).replaceAll("");
+		return serialize(houseNumber.getNumber(), houseNumber.getLongitude().doubleValue(), houseNumber.getLatitude().doubleValue());
+	}
+	
+	public String serialize(String number, double longitude, double latitude){
+		if (number==null){
+			return null;
+		}
+		StringBuffer sb = new StringBuffer();
+			String cleaned = clean_pattern.matcher(number).replaceAll("");
 			sb.append(cleaned)
 			.append(HOUSENUMBER_AND_LOCATION_SEPARATOR)
-			.append(String.format(Locale.US, "%s", houseNumber.getLongitude().doubleValue()))
+			.append(String.format(Locale.US, "%s", longitude))
 			.append(LAT_LON_SEPARATOR)
-			.append(String.format(Locale.US, "%s", houseNumber.getLatitude().doubleValue()));
+			.append(String.format(Locale.US, "%s", latitude));
 		return sb.toString().trim();
 	}
 	
@@ -0,0 +1,36 @@
+package com.gisgraphy.street;
+
+/**
+ * How the house numbers of the streets are stored in the fulltext engine.
+ * <p>
+ * The readers use the packed field when it is present and the legacy one
+ * otherwise, so an existing index can be migrated by reindexing the streets
+ * with {@link #BOTH} (the clients of the fulltext webservice that read the
+ * house_numbers field keep working), and then with {@link #PACKED} when no
+ * client needs the legacy field anymore.
+ */
+public enum HouseNumbersEncoding {
+
+	/**
+	 * one 'number:lng,lat' string per house number (see
+	 * {@link HouseNumberSerializer})
+	 */
+	LEGACY,
+	/**
+	 * a single base64 field (see {@link HouseNumberPacker})
+	 */
+	PACKED,
+	/**
+	 * the two fields, to migrate an index
+	 */
+	BOTH;
+
+	public boolean writeLegacy() {
+		return this != PACKED;
+	}
+
+	public boolean writePacked() {
+		return this != LEGACY;
+	}
+
+}
@@ -0,0 +1,331 @@
+package com.gisgraphy.street;
+
+import static com.gisgraphy.street.HouseNumberPacker.COORDINATE_PRECISION;
+import static com.gisgraphy.street.HouseNumberPacker.HEADER_SIZE;
+
+import java.io.UnsupportedEncodingException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.gisgraphy.helper.GeolocHelper;
+
+/**
+ * Read the house numbers encoded by {@link HouseNumberPacker}. The bytes are
+ * read in place : searching a number or reading a location doesn't allocate
+ * any object (except the strings of the numbers that are not plain numbers,
+ * that are decoded the first time they are needed). Decoding the base64 field
+ * only allocates the decoded bytes.
+ */
+public class PackedHouseNumbers {
+
+	/**
+	 * The name of the SolR field that stores the packed house numbers in
+	 * base64
+	 */
+	public static final String FIELD_NAME = "house_numbers_packed";
+
+	private static final String BASE64_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+
+	/**
+	 * the value of the ASCII chars in base64, -1 for the other chars
+	 */
+	private static final byte[] BASE64_VALUES = new byte[128];
+
+	static {
+		Arrays.fill(BASE64_VALUES, (byte) -1);
+		for (int i = 0; i < BASE64_ALPHABET.length(); i++) {
+			BASE64_VALUES[BASE64_ALPHABET.charAt(i)] = (byte) i;
+		}
+	}
+
+	private final byte[] bytes;
+	private final int size;
+	private final int keyWidth;
+	private final int coordinateWidth;
+	private final int stringCount;
+	private final int baseLng;
+	private final int baseLat;
+	private final int keysOffset;
+	private final int lngOffset;
+	private final int latOffset;
+	private final int stringIndexOffset;
+	private String[] strings;
+
+	/**
+	 * @param bytes
+	 *            bytes created by {@link HouseNumberPacker#pack(java.util.Collection)}
+	 * @throws IllegalArgumentException
+	 *             if the bytes are not packed house numbers or if the version
+	 *             is not supported
+	 */
+	public PackedHouseNumbers(byte[] bytes) {
+		if (bytes == null || bytes.length < HEADER_SIZE) {
+			throw new IllegalArgumentException("not packed house numbers");
+		}
+		if (bytes[0] != HouseNumberPacker.VERSION) {
+			throw new IllegalArgumentException("unsupported version of packed house numbers : " + bytes[0]);
+		}
+		this.bytes = bytes;
+		this.keyWidth = bytes[1];
+		this.coordinateWidth = bytes[2];
+		if ((keyWidth != 2 && keyWidth != 4) || coordinateWidth < 2 || coordinateWidth > 4) {
+			throw new IllegalArgumentException("corrupted packed house numbers");
+		}
+		this.size = read(3, 4);
+		this.stringCount = read(7, 4);
+		this.baseLng = read(11, 4);
+		this.baseLat = read(15, 4);
+		this.keysOffset = HEADER_SIZE;
+		this.lngOffset = keysOffset + size * keyWidth;
+		this.latOffset = lngOffset + size * coordinateWidth;
+		this.stringIndexOffset = latOffset + size * coordinateWidth;
+		if (size < 0 || stringIndexOffset + (stringCount > 0 ? 2 * size : 0) > bytes.length) {
+			throw new IllegalArgumentException("corrupted packed house numbers");
+		}
+	}
+
+	/**
+	 * @param base64
+	 *            the value of the {@link #FIELD_NAME} field
+	 * @return the packed house numbers, null if base64 is null or empty
+	 * @throws IllegalArgumentException
+	 *             if the value is not valid base64 or not packed house numbers
+	 */
+	public static PackedHouseNumbers fromBase64(String base64) {
+		if (base64 == null || base64.length() == 0) {
+			return null;
+		}
+		return new PackedHouseNumbers(decodeBase64(base64));
+	}
+
+	/**
+	 * Decode the chars of the string directly into the returned array (the
+	 * field is decoded for every street of every response, so there is no
+	 * intermediate copy)
+	 * 
+	 * @param base64
+	 *            padded base64 without line separators, as written by
+	 *            {@link HouseNumberPacker#packToBase64(java.util.Collection)}
+	 */
+	static byte[] decodeBase64(String base64) {
+		int length = base64.length();
+		if (length % 4 != 0) {
+			throw new IllegalArgumentException("not base64 : the length is not a multiple of 4");
+		}
+		int padding = 0;
+		while (padding < 2 && length - padding > 0 && base64.charAt(length - padding - 1) == '=') {
+			padding++;
+		}
+		byte[] decoded = new byte[length / 4 * 3 - padding];
+		int buffer = 0;
+		int bits = 0;
+		int pos = 0;
+		for (int i = 0; i < length - padding; i++) {
+			char c = base64.charAt(i);
+			int value = c < BASE64_VALUES.length ? BASE64_VALUES[c] : -1;
+			if (value < 0) {
+				throw new IllegalArgumentException("not base64 : unexpected char '" + c + "' at " + i);
+			}
+			buffer = (buffer << 6) | value;
+			bits += 6;
+			if (bits >= 8) {
+				bits -= 8;
+				decoded[pos++] = (byte) (buffer >> bits);
+			}
+		}
+		return decoded;
+	}
+
+	/**
+	 * signed big endian int of the given width
+	 */
+	private int read(int pos, int width) {
+		int value = bytes[pos];
+		for (int i = 1; i < width; i++) {
+			value = (value << 8) | (bytes[pos + i] & 0xFF);
+		}
+		return value;
+	}
+
+	/**
+	 * @return the number of house numbers
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the numeric part of the number at the given index (12 for
+	 *         '12b'), the keys are sorted
+	 */
+	public int getKey(int index) {
+		int pos = keysOffset + index * keyWidth;
+		return keyWidth == 2 ? ((bytes[pos] & 0xFF) << 8) | (bytes[pos + 1] & 0xFF) : read(pos, 4);
+	}
+
+	public double getLongitude(int index) {
+		return (baseLng + read(lngOffset + index * coordinateWidth, coordinateWidth)) / COORDINATE_PRECISION;
+	}
+
+	public double getLatitude(int index) {
+		return (baseLat + read(latOffset + index * coordinateWidth, coordinateWidth)) / COORDINATE_PRECISION;
+	}
+
+	/**
+	 * @return the index+1 of the number in the string table, 0 if the number
+	 *         is the plain key
+	 */
+	private int getStringIndex(int index) {
+		if (stringCount == 0) {
+			return 0;
+		}
+		int pos = stringIndexOffset + index * 2;
+		return ((bytes[pos] & 0xFF) << 8) | (bytes[pos + 1] & 0xFF);
+	}
+
+	/**
+	 * @return true if the number is a plain number (e.g : '12' but not '12b')
+	 */
+	public boolean isPlainNumber(int index) {
+		return getStringIndex(index) == 0;
+	}
+
+	/**
+	 * @return the number at the given index
+	 */
+	public String getNumber(int index) {
+		int stringIndex = getStringIndex(index);
+		if (stringIndex == 0) {
+			return String.valueOf(getKey(index));
+		}
+		return getStrings()[stringIndex - 1];
+	}
+
+	private String[] getStrings() {
+		if (strings == null) {
+			String[] decoded = new String[stringCount];
+			int pos = stringIndexOffset + 2 * size;
+			try {
+				for (int i = 0; i < stringCount; i++) {
+					int length = ((bytes[pos] & 0xFF) << 8) | (bytes[pos + 1] & 0xFF);
+					decoded[i] = new String(bytes, pos + 2, length, "UTF-8");
+					pos += 2 + length;
+				}
+			} catch (UnsupportedEncodingException e) {
+				throw new RuntimeException(e);
+			}
+			strings = decoded;
+		}
+		return strings;
+	}
+
+	/**
+	 * @return the index of the first house number with the given key, or
+	 *         (-(insertion point) - 1) if there is none (same contract as
+	 *         {@link java.util.Arrays#binarySearch(int[], int)})
+	 */
+	public int indexOfKey(int key) {
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int middleKey = getKey(middle);
+			if (middleKey < key) {
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+		if (low < size && getKey(low) == key) {
+			return low;
+		}
+		return -(low + 1);
+	}
+
+	/**
+	 * @param number
+	 *            the number to search (e.g : '12' or '12b')
+	 * @return the index of the number or -1 if the street doesn't have this
+	 *         number
+	 */
+	public int indexOf(String number) {
+		if (number == null) {
+			return -1;
+		}
+		number = number.trim();
+		int key = HouseNumberPacker.getKey(number);
+		boolean plainNumber = HouseNumberPacker.isPlainNumber(number);
+		int index = indexOfKey(key);
+		if (index < 0) {
+			return -1;
+		}
+		for (; index < size && getKey(index) == key; index++) {
+			if (plainNumber) {
+				if (isPlainNumber(index)) {
+					return index;
+				}
+			} else if (!isPlainNumber(index) && number.equals(getNumber(index))) {
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return a read only view of the house numbers, sorted by number. The
+	 *         house numbers are decoded when they are read, so that a search
+	 *         can use the packed house numbers (see
+	 *         {@link HouseNumberDtoList#getPackedHouseNumbers()}) without
+	 *         decoding all of them
+	 */
+	public List<HouseNumberDto> asList() {
+		return new HouseNumberDtoList(this);
+	}
+
+	/**
+	 * The list returned by {@link PackedHouseNumbers#asList()}
+	 */
+	public static class HouseNumberDtoList extends AbstractList<HouseNumberDto> {
+
+		private final PackedHouseNumbers packedHouseNumbers;
+
+		private HouseNumberDtoList(PackedHouseNumbers packedHouseNumbers) {
+			this.packedHouseNumbers = packedHouseNumbers;
+		}
+
+		@Override
+		public HouseNumberDto get(int index) {
+			if (index < 0 || index >= packedHouseNumbers.size) {
+				throw new IndexOutOfBoundsException("index : " + index + ", size : " + packedHouseNumbers.size);
+			}
+			return packedHouseNumbers.getHouseNumberDto(index);
+		}
+
+		@Override
+		public int size() {
+			return packedHouseNumbers.size;
+		}
+
+		public PackedHouseNumbers getPackedHouseNumbers() {
+			return packedHouseNumbers;
+		}
+	}
+
+	private HouseNumberDto getHouseNumberDto(int index) {
+		return new HouseNumberDto(GeolocHelper.createPoint(getLongitude(index), getLatitude(index)), getNumber(index));
+	}
+
+	/**
+	 * @return all the house numbers, sorted by number
+	 */
+	public List<HouseNumberDto> toHouseNumberDtos() {
+		List<HouseNumberDto> houseNumbers = new ArrayList<HouseNumberDto>(size);
+		for (int i = 0; i < size; i++) {
+			houseNumbers.add(getHouseNumberDto(i));
+		}
+		return houseNumbers;
+	}
+
+}
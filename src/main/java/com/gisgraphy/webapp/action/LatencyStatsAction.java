@@ -0,0 +1,92 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.webapp.action;
+
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.struts2.ServletActionContext;
+
+import com.gisgraphy.stats.LatencyStats;
+import com.gisgraphy.stats.LatencyStatsDto;
+import com.opensymphony.xwork2.Action;
+import com.opensymphony.xwork2.ActionSupport;
+
+/**
+ * Display the percentiles of the latencies of the services and of their
+ * stages
+ * 
+ * @see LatencyStats
+ */
+public class LatencyStatsAction extends ActionSupport {
+
+    /**
+     * Default serialId
+     */
+    private static final long serialVersionUID = 4562815632019547631L;
+
+    private LatencyStats latencyStats = LatencyStats.getInstance();
+
+    private List<LatencyStatsDto> latencies;
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.opensymphony.xwork2.ActionSupport#execute()
+     */
+    @Override
+    public String execute() throws Exception {
+	latencies = latencyStats.getSummaries();
+	return Action.SUCCESS;
+    }
+
+    /**
+     * Reset all the histograms and display them. The histograms are only
+     * reset by a POST request, so that a link or a crawler can not reset them
+     */
+    public String reset() throws Exception {
+	HttpServletRequest request = ServletActionContext.getRequest();
+	if (request != null && "post".equalsIgnoreCase(request.getMethod())) {
+	    latencyStats.reset();
+	}
+	return execute();
+    }
+
+    /**
+     * @return the latencies of the services and of their stages, sorted by
+     *         name
+     */
+    public List<LatencyStatsDto> getLatencies() {
+	return latencies;
+    }
+
+    /**
+     * @param latencyStats
+     *            the latencyStats to set
+     */
+    public void setLatencyStats(LatencyStats latencyStats) {
+	this.latencyStats = latencyStats;
+    }
+
+}
@@ -26,6 +26,7 @@ import java.util.List;
 
 import org.springframework.beans.factory.annotation.Required;
 
+import com.gisgraphy.domain.repository.ISolRSynchroniser;
 import com.gisgraphy.domain.repository.IStatsUsageDao;
 import com.gisgraphy.service.IStatsUsageService;
 import com.gisgraphy.stats.StatsUsage;
@@ -46,6 +47,8 @@ public class StatsAction extends ActionSupport {
 
     private IStatsUsageDao statsUsageDao;
 
+    private ISolRSynchroniser solRSynchroniser;
+
     private List<StatsUsage> statsUsages;
     
     private Long totalUsage;
@@ -89,7 +92,33 @@ public class StatsAction extends ActionSupport {
     }
     
     public int getFlushFrequency(){
-	return IStatsUsageService.FLUSH_THRESHOLD;
+	return IStatsUsageService.FLUSH_INTERVAL_SECONDS;
+    }
+
+    /**
+     * @return the number of documents that wait to be sent to the full text
+     *         search engine
+     * @see ISolRSynchroniser#getIndexingQueueSize()
+     */
+    public long getIndexingQueueSize() {
+	return solRSynchroniser == null ? 0 : solRSynchroniser.getIndexingQueueSize();
+    }
+
+    /**
+     * @return the time in milliseconds the last sent documents have waited
+     *         before being sent to the full text search engine
+     * @see ISolRSynchroniser#getIndexingLag()
+     */
+    public long getIndexingLag() {
+	return solRSynchroniser == null ? 0 : solRSynchroniser.getIndexingLag();
+    }
+
+    /**
+     * @param solRSynchroniser
+     *                the solRSynchroniser to set
+     */
+    public void setSolRSynchroniser(ISolRSynchroniser solRSynchroniser) {
+	this.solRSynchroniser = solRSynchroniser;
     }
 
 }
@@ -50,6 +50,8 @@ public class StatsDataAction extends ActionSupport {
 
 	public boolean refresh = false;
 
+	public boolean approximate = false;
+
 	public String countrycode;
 	
 	public String statsAsJson = "{}";
@@ -82,13 +84,27 @@ public class StatsDataAction extends ActionSupport {
 		this.refresh = refresh;
 	}
 
+	/**
+	 * @return the approximate
+	 */
+	public boolean isApproximate() {
+		return approximate;
+	}
+
+	/**
+	 * @param approximate whether the stats should be estimated rather than counted
+	 */
+	public void setApproximate(boolean approximate) {
+		this.approximate = approximate;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
 	 * @see com.opensymphony.xwork2.ActionSupport#execute()
 	 */
 	public String alljson() throws Exception {
-		statsAsJson = statsDataManager.getAllInJson(refresh,true);
+		statsAsJson = statsDataManager.getAllInJson(refresh,true,approximate);
 		return Action.SUCCESS;
 	}
 
@@ -0,0 +1,43 @@
+<html>
+<head>
+	<title><@s.text name="stats.latency.title"/></title>
+</head>
+
+<body>
+<@s.text name="stats.latency.text"/> :
+<br/>
+<table border="1" cellpadding="3">
+	<tr>
+		<th><@s.text name="stats.latency.name"/></th>
+		<th><@s.text name="stats.latency.count"/></th>
+		<th><@s.text name="stats.latency.mean"/></th>
+		<th>p50</th>
+		<th>p90</th>
+		<th>p99</th>
+		<th>p99.9</th>
+		<th>max</th>
+	</tr>
+	<#list latencies as latency>
+	<tr>
+		<td>${latency.name}</td>
+		<td>${latency.count?c}</td>
+		<td>${latency.mean?string("0.###")}</td>
+		<td>${latency.p50?string("0.###")}</td>
+		<td>${latency.p90?string("0.###")}</td>
+		<td>${latency.p99?string("0.###")}</td>
+		<td>${latency.p999?string("0.###")}</td>
+		<td>${latency.max?string("0.###")}</td>
+	</tr>
+	</#list>
+</table>
+<br/>
+<@s.text name="stats.latency.unit"/>
+<br/>
+<br/>
+<form action="resetlatencystats.html" method="post" style="display:inline">
+	<input type="submit" value="<@s.text name="stats.latency.reset"/>"/>
+</form>
+ - <a href="stats.html"><@s.text name="stats.title"/></a>
+<br/>
+</body>
+</html>
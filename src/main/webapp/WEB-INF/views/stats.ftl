@@ -15,6 +15,14 @@
 <br/>
 <@s.text name="stats.flush.every"><@s.param>${FlushFrequency}</@s.param></@s.text>
 <br/> 
+<br/> 
+<@s.text name="stats.indexing.text"/> :
+<ul>
+ <li><@s.text name="stats.indexing.queue"/> : <@s.property value='indexingQueueSize' /></li>
+ <li><@s.text name="stats.indexing.lag"/> : <@s.property value='indexingLag' /> ms</li>
+</ul>
+<a href="latencystats.html"><@s.text name="stats.latency.title"/></a>
+<br/> 
 <br/>
 <@s.text name="global.others"/> :
 <ul>
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.domain.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.gisgraphy.domain.geoloc.entity.HouseNumber;
+import com.gisgraphy.domain.geoloc.entity.OpenStreetMap;
+import com.gisgraphy.fulltext.AbstractIntegrationHttpSolrTestCase;
+import com.gisgraphy.helper.GeolocHelper;
+import com.gisgraphy.test.GisgraphyTestHelper;
+
+public class BulkCopyDaoTest extends AbstractIntegrationHttpSolrTestCase {
+
+    @Autowired
+    private IBulkCopyDao bulkCopyDao;
+
+    @Autowired
+    private IOpenStreetMapDao openStreetMapDao;
+
+    @Autowired
+    private IhouseNumberDao houseNumberDao;
+
+    @Test
+    public void copyShouldInsertTheEntitiesAndTheirReferences() {
+	OpenStreetMap street = createStreet(1L);
+	HouseNumber houseNumber = new HouseNumber("1", GeolocHelper.createPoint(30.001F, 40F), "XX");
+	houseNumber.setStreet(street);
+	List<Object> entities = new ArrayList<Object>();
+	entities.add(street);
+	entities.add(createStreet(2L));
+	entities.add(houseNumber);
+
+	Assert.assertEquals(3, bulkCopyDao.copy(entities));
+	Assert.assertNotNull("the id should be generated", street.getId());
+	Assert.assertNotNull(houseNumber.getId());
+	openStreetMapDao.flushAndClear();
+
+	Assert.assertEquals(2, openStreetMapDao.count());
+	OpenStreetMap retrieved = openStreetMapDao.get(street.getId());
+	Assert.assertNotNull(retrieved);
+	Assert.assertEquals(street.getName(), retrieved.getName());
+	Assert.assertEquals(street.getShape(), retrieved.getShape());
+	Assert.assertEquals(1, retrieved.getHouseNumbers().size());
+	Assert.assertEquals(houseNumber.getId(), retrieved.getHouseNumbers().first().getId());
+    }
+
+    @Test
+    public void copyShouldRollbackTheBatchAndResetTheIdsWhenItFails() {
+	openStreetMapDao.save(createStreet(1L));
+	openStreetMapDao.flushAndClear();
+	OpenStreetMap street = createStreet(2L);
+	OpenStreetMap duplicate = createStreet(1L);
+	List<Object> entities = new ArrayList<Object>();
+	entities.add(street);
+	entities.add(duplicate);
+	try {
+	    bulkCopyDao.copy(entities);
+	    Assert.fail("the gid should be unique");
+	} catch (RuntimeException expected) {
+	}
+	Assert.assertNull("the generated ids should be removed", street.getId());
+	Assert.assertNull(duplicate.getId());
+	//the transaction can still be used
+	Assert.assertEquals("no street of the batch should be inserted", 1, openStreetMapDao.count());
+	openStreetMapDao.save(street);
+	openStreetMapDao.flushAndClear();
+	Assert.assertEquals(2, openStreetMapDao.count());
+    }
+
+    @Test
+    public void copyShouldDoNothingWithoutEntities() {
+	Assert.assertEquals(0, bulkCopyDao.copy(null));
+	Assert.assertEquals(0, bulkCopyDao.copy(new ArrayList<Object>()));
+	Assert.assertEquals(0, houseNumberDao.count());
+    }
+
+    private OpenStreetMap createStreet(long gid) {
+	OpenStreetMap street = GisgraphyTestHelper.createOpenStreetMapForPeterMartinStreet();
+	street.setGid(gid);
+	street.setOpenstreetmapId(gid);
+	return street;
+    }
+
+}
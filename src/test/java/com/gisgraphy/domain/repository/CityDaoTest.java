@@ -420,6 +420,32 @@ public class CityDaoTest extends AbstractIntegrationHttpSolrTestCase {
 	Assert.assertEquals("paris", result.get(0).getName());
     }
     
+    @Test
+    public void testGetNearestsShouldReturnTheNearestOnTheSphereEvenIfItIsNotAKnnCandidate() {
+	//at the latitude 60, a degree of longitude is half a degree of latitude :
+	//the planar KNN distance prefers the northern cities
+	Point location = GeolocHelper.createPoint(0F, 60F);
+	City nearest = GisgraphyTestHelper.createCity("east", 1.9F, 60F, 1L);
+	this.cityDao.save(nearest);
+	for (int i = 0; i < GenericGisDao.KNN_CANDIDATES_FACTOR; i++) {
+	    City north = GisgraphyTestHelper.createCity("north" + i, 0F, 61.5F, 2L + i);
+	    this.cityDao.save(north);
+	}
+	City result = this.cityDao.getNearest(location, "FR", false, 300000);
+	Assert.assertNotNull(result);
+	Assert.assertEquals("east", result.getName());
+    }
+
+    @Test
+    public void testGetKnnLowerBoundShouldBeLowerThanTheDistanceOnTheSphere() {
+	Point location = GeolocHelper.createPoint(0F, 60F);
+	double lowerBound = GenericGisDao.getKnnLowerBound(1.5D, 60D);
+	Assert.assertTrue(lowerBound <= GeolocHelper.distance(location, GeolocHelper.createPoint(1.5F, 60F)));
+	Assert.assertTrue(lowerBound <= GeolocHelper.distance(location, GeolocHelper.createPoint(0F, 61.5F)));
+	Assert.assertTrue(lowerBound <= GeolocHelper.distance(location, GeolocHelper.createPoint(1.06F, 61.06F)));
+	Assert.assertEquals("the bound is 0 near the poles", 0D, GenericGisDao.getKnnLowerBound(2D, 89D), 0.001D);
+    }
+
     @Test
     public void testGetNearests_wrongCountryCode() {
 	City p1 = GisgraphyTestHelper.createCity("paris", 48.86667F, 2.3333F, 1L);
@@ -881,6 +907,18 @@ public class CityDaoTest extends AbstractIntegrationHttpSolrTestCase {
     	Assert.assertNull("the city should be null cause we countrycode is not correct",actual);
     }
     
+    @Test
+    public void testListFeatureIds() {
+	City paris = GisgraphyTestHelper.createCityWithAlternateNames("paris", 0);
+	City lyon = GisgraphyTestHelper.createCityWithAlternateNames("lyon", 0);
+	this.cityDao.save(paris);
+	this.cityDao.save(lyon);
+	List<Long> featureIds = this.cityDao.listFeatureIds();
+	assertEquals("The list of featureIds has not the expected size", 2, featureIds.size());
+	assertTrue("the featureId of the first city is not present", featureIds.contains(paris.getFeatureId()));
+	assertTrue("the featureId of the second city is not present", featureIds.contains(lyon.getFeatureId()));
+    }
+
     @Test
     public void testFixPolygons(){
     	cityDao.fixPolygons();
@@ -0,0 +1,155 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.domain.repository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.SessionFactory;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.gisgraphy.domain.geoloc.entity.City;
+import com.gisgraphy.domain.geoloc.entity.GisFeature;
+import com.gisgraphy.domain.valueobject.CountryCountDto;
+import com.gisgraphy.fulltext.AbstractIntegrationHttpSolrTestCase;
+import com.gisgraphy.helper.GeolocHelper;
+import com.gisgraphy.test.GisgraphyTestHelper;
+
+public class FeatureCountDaoTest extends AbstractIntegrationHttpSolrTestCase {
+
+    @Autowired
+    private IFeatureCountDao featureCountDao;
+
+    @Autowired
+    private ICityDao cityDao;
+
+    @Autowired
+    private IGisFeatureDao gisFeatureDao;
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    @Test
+    public void countByCountryCodeShouldCountTheRowsOfEachCountry() {
+	City paris = GisgraphyTestHelper.createCity("paris", 2.3F, 48.8F, 1L);
+	paris.setShape(GeolocHelper.createPolygonBox(2.3D, 48.8D, 5000));
+	cityDao.save(paris);
+	cityDao.save(GisgraphyTestHelper.createCity("lyon", 4.8F, 45.7F, 2L));
+	City newYork = GisgraphyTestHelper.createCity("new york", -74F, 40.7F, 3L);
+	newYork.setCountryCode("US");
+	cityDao.save(newYork);
+	gisFeatureDao.save(GisgraphyTestHelper.createGisFeature("feature", 2.3F, 48.8F, 4L));
+	flushAndClear();
+	// the setter of the entities changes the case, the importers may not
+	sessionFactory.getCurrentSession().createSQLQuery("update city set countrycode = 'fr' where name = 'lyon'").executeUpdate();
+
+	Map<String, CountryCountDto> cities = toMap(featureCountDao.countByCountryCode(City.class, true));
+	Assert.assertEquals(2, cities.size());
+	Assert.assertEquals("the country codes should be case insensitive", 2, cities.get("FR").getCount());
+	Assert.assertEquals(1, cities.get("FR").getShapeCount());
+	Assert.assertEquals(1, cities.get("US").getCount());
+	Assert.assertEquals(0, cities.get("US").getShapeCount());
+
+	Map<String, CountryCountDto> gisFeatures = toMap(featureCountDao.countByCountryCode(GisFeature.class, false));
+	Assert.assertEquals("only the table of the entity should be counted, not the ones of the subclasses", 1, gisFeatures.size());
+	Assert.assertEquals(1, gisFeatures.get("FR").getCount());
+	Assert.assertEquals(0, gisFeatures.get("FR").getShapeCount());
+    }
+
+    @Test
+    public void getTableNameShouldReturnTheTableOfTheEntityOnly() {
+	FeatureCountDao dao = new FeatureCountDao();
+	dao.setSessionFactory(sessionFactory);
+	Assert.assertEquals("gisfeature", dao.getTableName(GisFeature.class));
+	Assert.assertEquals("city", dao.getTableName(City.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getTableNameShouldRejectTheClassesThatAreNotEntities() {
+	FeatureCountDao dao = new FeatureCountDao();
+	dao.setSessionFactory(sessionFactory);
+	dao.getTableName(String.class);
+    }
+
+    private Map<String, CountryCountDto> toMap(List<CountryCountDto> counts) {
+	Map<String, CountryCountDto> countsByCountry = new HashMap<String, CountryCountDto>();
+	for (CountryCountDto count : counts) {
+	    countsByCountry.put(count.getCountryCode(), count);
+	}
+	return countsByCountry;
+    }
+
+    @Test
+    public void parseArrayShouldReturnTheElementsWithoutQuotes() {
+	Assert.assertArrayEquals(new String[] { "FR", "US", "a b" }, FeatureCountDao.parseArray("{FR,US,\"a b\"}"));
+	Assert.assertEquals(0, FeatureCountDao.parseArray("{}").length);
+	Assert.assertEquals(0, FeatureCountDao.parseArray(null).length);
+    }
+
+    @Test
+    public void estimateShouldUseTheMostCommonValuesAndTheAverageOfTheOthers() {
+	// 1000 rows, 10% without country, FR=50%, US=20%, 3 other countries
+	List<CountryCountDto> estimates = FeatureCountDao.estimate(1000, 0.1, 5, "{fr,US}", "{0.5,0.2}", 0.25);
+	Assert.assertEquals(3, estimates.size());
+	Assert.assertEquals("FR", estimates.get(0).getCountryCode());
+	Assert.assertEquals(500, estimates.get(0).getCount());
+	Assert.assertEquals(375, estimates.get(0).getShapeCount());
+	Assert.assertEquals("US", estimates.get(1).getCountryCode());
+	Assert.assertEquals(200, estimates.get(1).getCount());
+	Assert.assertNull("the estimate of the other countries", estimates.get(2).getCountryCode());
+	Assert.assertEquals(67, estimates.get(2).getCount());
+    }
+
+    @Test
+    public void estimateShouldSumTheMostCommonValuesThatOnlyDifferByTheirCase() {
+	// 1000 rows, FR=50%+10%, US=20%, 1 other country
+	List<CountryCountDto> estimates = FeatureCountDao.estimate(1000, 0, 4, "{FR,US,fr}", "{0.5,0.2,0.1}", 0);
+	Assert.assertEquals(3, estimates.size());
+	Assert.assertEquals("FR", estimates.get(0).getCountryCode());
+	Assert.assertEquals(600, estimates.get(0).getCount());
+	Assert.assertEquals("US", estimates.get(1).getCountryCode());
+	Assert.assertEquals(200, estimates.get(1).getCount());
+	Assert.assertNull(estimates.get(2).getCountryCode());
+	Assert.assertEquals(200, estimates.get(2).getCount());
+    }
+
+    @Test
+    public void estimateShouldUseTheFractionOfDistinctValuesWhenItIsNegative() {
+	// n_distinct=-0.01 : 10 distinct values for 1000 rows
+	List<CountryCountDto> estimates = FeatureCountDao.estimate(1000, 0, -0.01, null, null, 1);
+	Assert.assertEquals(1, estimates.size());
+	Assert.assertNull(estimates.get(0).getCountryCode());
+	Assert.assertEquals(100, estimates.get(0).getCount());
+	Assert.assertEquals(0, estimates.get(0).getShapeCount());
+    }
+
+    @Test
+    public void estimateShouldReturnAnEmptyListWhenTheTableIsEmpty() {
+	Assert.assertTrue(FeatureCountDao.estimate(0, 0, 0, "{FR}", "{1}", 0).isEmpty());
+	Assert.assertEquals("all the rows are in the most common values", 1, FeatureCountDao.estimate(100, 0, 1, "{FR}", "{1}", 0).size());
+    }
+
+}
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.domain.repository;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Date;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.gisgraphy.domain.valueobject.GISSource;
+import com.gisgraphy.helper.GeolocHelper;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKBReader;
+
+public class PgBinaryCopyWriterTest {
+
+    @Test
+    public void toInputStreamShouldWriteTheHeaderAndTheTrailer() throws IOException {
+	PgBinaryCopyWriter writer = new PgBinaryCopyWriter();
+	DataInputStream in = new DataInputStream(writer.toInputStream());
+	byte[] signature = new byte[PgBinaryCopyWriter.SIGNATURE.length];
+	in.readFully(signature);
+	Assert.assertArrayEquals(PgBinaryCopyWriter.SIGNATURE, signature);
+	Assert.assertEquals("flags", 0, in.readInt());
+	Assert.assertEquals("header extension", 0, in.readInt());
+	Assert.assertEquals("trailer", -1, in.readShort());
+	Assert.assertEquals(-1, in.read());
+	Assert.assertEquals(0, writer.getRowCount());
+    }
+
+    @Test
+    public void writeShouldEncodeTheValuesInTheBinaryFormat() throws IOException {
+	PgBinaryCopyWriter writer = new PgBinaryCopyWriter();
+	writer.startRow(6);
+	writer.write("int8", 123456789012L);
+	writer.write("int4", null);
+	writer.write("text", "Pa\u0000ris");
+	writer.write("varchar", GISSource.OSM);
+	writer.write("int4", GISSource.OSM);
+	writer.write("bool", Boolean.TRUE);
+	Assert.assertEquals(1, writer.getRowCount());
+
+	DataInputStream in = skipHeader(writer);
+	Assert.assertEquals(6, in.readShort());
+	Assert.assertEquals(8, in.readInt());
+	Assert.assertEquals(123456789012L, in.readLong());
+	Assert.assertEquals("null is written as a -1 length", -1, in.readInt());
+	Assert.assertEquals("the NUL character should be removed", "Paris", readText(in));
+	Assert.assertEquals("an enum should be written with its name in a text column", GISSource.OSM.name(), readText(in));
+	Assert.assertEquals(4, in.readInt());
+	Assert.assertEquals("an enum should be written with its ordinal in a numeric column", GISSource.OSM.ordinal(), in.readInt());
+	Assert.assertEquals(1, in.readInt());
+	Assert.assertEquals(1, in.readByte());
+	Assert.assertEquals(-1, in.readShort());
+    }
+
+    @Test
+    public void writeShouldEncodeTheGeometriesInEWKBWithTheWGS84SRID() throws IOException, ParseException {
+	Point point = GeolocHelper.createPoint(2.35F, 48.85F);
+	point.setSRID(0);
+	PgBinaryCopyWriter writer = new PgBinaryCopyWriter();
+	writer.startRow(1);
+	writer.write("geometry", point);
+
+	DataInputStream in = skipHeader(writer);
+	Assert.assertEquals(1, in.readShort());
+	byte[] wkb = new byte[in.readInt()];
+	in.readFully(wkb);
+	Geometry geometry = new WKBReader().read(wkb);
+	Assert.assertEquals(4326, geometry.getSRID());
+	Assert.assertTrue(point.equalsExact(geometry));
+	Assert.assertEquals("the geometry of the entity should not be modified", 0, point.getSRID());
+    }
+
+    @Test
+    public void writeShouldEncodeTheTimestampWithTimeZoneFromThePostgresEpoch() throws IOException {
+	PgBinaryCopyWriter writer = new PgBinaryCopyWriter();
+	writer.startRow(1);
+	writer.write("timestamptz", new Date(PgBinaryCopyWriter.POSTGRES_EPOCH_MILLIS + 1000));
+
+	DataInputStream in = skipHeader(writer);
+	Assert.assertEquals(1, in.readShort());
+	Assert.assertEquals(8, in.readInt());
+	Assert.assertEquals("the value should be in microseconds", 1000000L, in.readLong());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void writeShouldThrowWhenTheTypeIsNotSupported() {
+	PgBinaryCopyWriter writer = new PgBinaryCopyWriter();
+	writer.startRow(1);
+	writer.write("hstore", "a=>b");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void writeShouldThrowWhenTheValueDoesNotMatchTheType() {
+	PgBinaryCopyWriter writer = new PgBinaryCopyWriter();
+	writer.startRow(1);
+	writer.write("int8", "1");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void startRowShouldThrowWhenTheDataHasBeenSent() {
+	PgBinaryCopyWriter writer = new PgBinaryCopyWriter();
+	writer.toInputStream();
+	writer.startRow(1);
+    }
+
+    private DataInputStream skipHeader(PgBinaryCopyWriter writer) throws IOException {
+	DataInputStream in = new DataInputStream(writer.toInputStream());
+	in.readFully(new byte[PgBinaryCopyWriter.SIGNATURE.length + 8]);
+	return in;
+    }
+
+    private String readText(DataInputStream in) throws IOException {
+	byte[] bytes = new byte[in.readInt()];
+	in.readFully(bytes);
+	return new String(bytes, "UTF-8");
+    }
+
+}
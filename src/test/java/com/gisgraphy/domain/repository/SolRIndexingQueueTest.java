@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Gisgraphy Project 
+ *  
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *  
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *    Lesser General Public License for more details.
+ *  
+ *    You should have received a copy of the GNU Lesser General Public
+ *    License along with this library; if not, write to the Free Software
+ *    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ *  
+ *   Copyright 2008  Gisgraphy project 
+ * 
+ *   David Masclet <davidmasclet@gisgraphy.com>
+ ******************************************************************************/
+package com.gisgraphy.domain.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.solr.common.SolrInputDocument;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.gisgraphy.geoloc.GisgraphyCommunicationException;
+
+public class SolRIndexingQueueTest {
+
+    private SolrInputDocument createDocument(long featureId, int version) {
+	SolrInputDocument document = new SolrInputDocument();
+	document.setField("featureId", featureId);
+	document.setField("version", version);
+	return document;
+    }
+
+    @Test
+    public void drainShouldWaitForAllTheDocumentsAndKeepTheOrderOfAFeature() throws InterruptedException {
+	final List<SolrInputDocument> sent = Collections.synchronizedList(new ArrayList<SolrInputDocument>());
+	SolRIndexingQueue queue = new SolRIndexingQueue(3, 10, 4, new SolRIndexingQueue.BatchSender() {
+	    public void send(List<SolrInputDocument> batch) throws Exception {
+		Thread.sleep(1);
+		sent.addAll(batch);
+	    }
+	});
+	try {
+	    for (int version = 0; version < 20; version++) {
+		for (long featureId = 1; featureId <= 5; featureId++) {
+		    queue.put(featureId, createDocument(featureId, version));
+		}
+	    }
+	    queue.drain();
+	    Assert.assertEquals(0, queue.getSize());
+	    Assert.assertEquals(100, sent.size());
+	    Assert.assertEquals(100, queue.getIndexedCount());
+	    int[] lastVersion = new int[] { -1, -1, -1, -1, -1, -1 };
+	    for (SolrInputDocument document : sent) {
+		int featureId = ((Long) document.getFieldValue("featureId")).intValue();
+		int version = (Integer) document.getFieldValue("version");
+		Assert.assertTrue("the documents of a feature should be sent in order", version > lastVersion[featureId]);
+		lastVersion[featureId] = version;
+	    }
+	} finally {
+	    queue.shutdown();
+	}
+    }
+
+    @Test
+    public void drainShouldThrowIfSomeDocumentsCanNotBeSent() throws InterruptedException {
+	SolRIndexingQueue queue = new SolRIndexingQueue(1, 10, 1, new SolRIndexingQueue.BatchSender() {
+	    public void send(List<SolrInputDocument> batch) throws Exception {
+		throw new Exception("solr is down");
+	    }
+	});
+	try {
+	    queue.put(1, createDocument(1, 1));
+	    try {
+		queue.drain();
+		Assert.fail("drain should throw when a document can not be sent");
+	    } catch (GisgraphyCommunicationException e) {
+		//ok
+	    }
+	    Assert.assertEquals(1, queue.getFailedCount());
+	    //the error is only reported once
+	    queue.drain();
+	} finally {
+	    queue.shutdown();
+	}
+    }
+
+}
@@ -117,6 +117,29 @@ public class SolRSynchroniserTest extends AbstractIntegrationHttpSolrTestCase {
     @Resource
     private ISpellCheckerIndexer spellCheckerIndexer;
 
+    @Test
+    public void testBatchedIndexingShouldSendTheDocumentsOnCommit() {
+	SolRSynchroniser batchedSynchroniser = new SolRSynchroniser(solrClient);
+	batchedSynchroniser.setBatchSize(10);
+	batchedSynchroniser.setMaxBatchAge(60000);
+	batchedSynchroniser.init();
+	try {
+	    City city = GisgraphyTestHelper.createCityAtSpecificPoint("my batched city", 1.5F, 1.6F);
+	    city.setFeatureId(1234567L);
+	    batchedSynchroniser.handleEvent(new GisFeatureStoredEvent(city));
+	    solRSynchroniser.commit();
+	    assertTrue("the document should be buffered until the batch is full or a commit is done",
+		    searchInFulltextSearchEngine("my batched city").getResults().isEmpty());
+
+	    assertTrue(batchedSynchroniser.commit());
+	    QueryResponse results = searchInFulltextSearchEngine("my batched city");
+	    assertEquals("The buffered city should be sent on commit", 1, results.getResults().size());
+	    assertEquals(city.getFeatureId(), results.getResults().get(0).getFieldValue(FullTextFields.FEATUREID.getValue()));
+	} finally {
+	    batchedSynchroniser.destroy();
+	}
+    }
+
     @Test
     public void testDeleteAllShouldResetTheIndex() {
 	City city = GisgraphyTestHelper.createCityAtSpecificPoint("my city", 1.5F,
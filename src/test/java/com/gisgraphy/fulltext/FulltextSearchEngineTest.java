@@ -30,6 +30,7 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -46,7 +47,11 @@ import java.util.Set;
 import javax.annotation.Resource;
 
 import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.params.SolrParams;
+import org.codehaus.jackson.map.ObjectMapper;
 import org.easymock.EasyMock;
+import org.easymock.IAnswer;
 import org.junit.Assert;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -55,6 +60,7 @@ import com.gisgraphy.domain.geoloc.entity.Adm;
 import com.gisgraphy.domain.geoloc.entity.AlternateName;
 import com.gisgraphy.domain.geoloc.entity.City;
 import com.gisgraphy.domain.geoloc.entity.GisFeature;
+import com.gisgraphy.domain.geoloc.entity.HouseNumber;
 import com.gisgraphy.domain.geoloc.entity.OpenStreetMap;
 import com.gisgraphy.domain.geoloc.entity.Street;
 import com.gisgraphy.domain.geoloc.entity.ZipCode;
@@ -70,11 +76,15 @@ import com.gisgraphy.fulltext.spell.SpellCheckerConfig;
 import com.gisgraphy.fulltext.suggest.GisgraphySearchEntry;
 import com.gisgraphy.fulltext.suggest.GisgraphySearchResponse;
 import com.gisgraphy.fulltext.suggest.GisgraphySearchResult;
+import com.gisgraphy.fulltext.suggest.SuggestFeedStreamer;
 import com.gisgraphy.helper.FileHelper;
 import com.gisgraphy.helper.GeolocHelper;
 import com.gisgraphy.serializer.common.OutputFormat;
 import com.gisgraphy.service.IStatsUsageService;
 import com.gisgraphy.stats.StatsUsageType;
+import com.gisgraphy.street.HouseNumberDeserializer;
+import com.gisgraphy.street.HouseNumberPacker;
+import com.gisgraphy.street.PackedHouseNumbers;
 import com.gisgraphy.street.StreetType;
 import com.gisgraphy.test.FeedChecker;
 import com.gisgraphy.test.GisgraphyTestHelper;
@@ -1737,6 +1747,157 @@ public class FulltextSearchEngineTest extends
 	Assert.assertEquals("13", updated.getResponse().getDocs().get(1).getHouseNumber());
     	
     	
+    }
+
+    @Test
+    public void testUpdateFeedWhileStreamingShouldGiveTheSameFeedAsUpdateFeed() throws IOException{
+    	FullTextSearchEngine fullTextSearchEngineTest = new FullTextSearchEngine(
+    			new MultiThreadedHttpConnectionManager());
+    	ObjectMapper mapper = new ObjectMapper();
+    	SuggestFeedStreamer streamer = new SuggestFeedStreamer(mapper);
+    	for (String number : new String[]{"11","13","14"}){
+    		String feed = mapper.writeValueAsString(createGisgraphySearchEntry(null));
+    		//fields that are not mapped should be dropped as when the feed is read as an object
+    		feed = "{\"spellcheck\":{\"suggestions\":[\"foo\"]},"+feed.substring(1);
+    		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    		streamer.stream(new ByteArrayInputStream(feed.getBytes("UTF-8")), outputStream, fullTextSearchEngineTest.new HouseNumberEntryFilter(number));
+
+    		GisgraphySearchResult expected = fullTextSearchEngineTest.updateFeed(createGisgraphySearchEntry(null), number);
+    		Assert.assertEquals(mapper.readTree(mapper.writeValueAsString(expected)), mapper.readTree(outputStream.toString("UTF-8")));
+    	}
+    }
+
+    @Test
+    public void testUpdateFeedWhileStreamingShouldWriteThePackedHouseNumbersInTheHouseNumbersField() throws IOException{
+    	FullTextSearchEngine fullTextSearchEngineTest = new FullTextSearchEngine(
+    			new MultiThreadedHttpConnectionManager());
+    	ObjectMapper mapper = new ObjectMapper();
+    	SuggestFeedStreamer streamer = new SuggestFeedStreamer(mapper);
+    	List<HouseNumber> houseNumbers = new ArrayList<HouseNumber>();
+    	for (String number : new String[]{"11","12b"}){
+    		HouseNumber houseNumber = new HouseNumber();
+    		houseNumber.setNumber(number);
+    		houseNumber.setLocation(GeolocHelper.createPoint(3.5D, 45.25D));
+    		houseNumbers.add(houseNumber);
+    	}
+    	String feed = "{\"response\":{\"numFound\":1,\"docs\":[{\"feature_id\":1,\"name\":\"rue de la paix\",\"lat\":45.0,\"lng\":3.0,\"house_numbers_packed\":\""
+    			+ new HouseNumberPacker().packToBase64(houseNumbers) + "\"}]}}";
+    	ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    	streamer.stream(new ByteArrayInputStream(feed.getBytes("UTF-8")), outputStream, fullTextSearchEngineTest.new HouseNumberEntryFilter("12b"));
+
+    	GisgraphySearchEntry entry = mapper.readValue(outputStream.toString("UTF-8"), GisgraphySearchResult.class).getResponse().getDocs().get(0);
+    	Assert.assertFalse("the packed house numbers are internal", outputStream.toString("UTF-8").contains(PackedHouseNumbers.FIELD_NAME));
+    	Assert.assertEquals("12b", entry.getHouseNumber());
+    	Assert.assertEquals(45.25D, entry.getLat(), 0.00001);
+    	Assert.assertEquals(3.5D, entry.getLng(), 0.00001);
+    	Assert.assertEquals(2, entry.getHouseNumbers().size());
+    	Assert.assertEquals("11", new HouseNumberDeserializer().deserialize(entry.getHouseNumbers().get(0)).getNumber());
+    	Assert.assertEquals("12b", new HouseNumberDeserializer().deserialize(entry.getHouseNumbers().get(1)).getNumber());
+    }
+
+    @Test
+    public void testParameterizeWithPackedHouseNumbersShouldOnlyAddThePackedFieldToTheFieldListsWithTheHouseNumbers(){
+    	FullTextSearchEngine fullTextSearchEngineTest = new FullTextSearchEngine(
+    			new MultiThreadedHttpConnectionManager());
+    	Output medium = Output.withFormat(OutputFormat.JSON).withStyle(OutputStyle.MEDIUM);
+    	FulltextQuery query = new FulltextQuery("rue de la paix", Pagination.DEFAULT_PAGINATION, medium, Constants.STREET_PLACETYPE, null);
+    	String fieldList = FulltextQuerySolrHelper.parameterize(query).get(com.gisgraphy.domain.valueobject.Constants.FL_PARAMETER);
+    	Assert.assertFalse("the packed house numbers should not be sent to the clients", fieldList.contains(PackedHouseNumbers.FIELD_NAME));
+    	Assert.assertEquals(fieldList + "," + PackedHouseNumbers.FIELD_NAME,
+    			fullTextSearchEngineTest.parameterizeWithPackedHouseNumbers(query).get(com.gisgraphy.domain.valueobject.Constants.FL_PARAMETER));
+
+    	Output shortOutput = Output.withFormat(OutputFormat.JSON).withStyle(OutputStyle.SHORT);
+    	query = new FulltextQuery("rue de la paix", Pagination.DEFAULT_PAGINATION, shortOutput, Constants.STREET_PLACETYPE, null);
+    	Assert.assertEquals(FulltextQuerySolrHelper.parameterize(query).get(com.gisgraphy.domain.valueobject.Constants.FL_PARAMETER),
+    			fullTextSearchEngineTest.parameterizeWithPackedHouseNumbers(query).get(com.gisgraphy.domain.valueobject.Constants.FL_PARAMETER));
+    }
+
+    @Test
+    public void testUpdateFeedWhileStreamingShouldWriteTheScalarsOfTheResponseAsUpdateFeed() throws IOException{
+    	FullTextSearchEngine fullTextSearchEngineTest = new FullTextSearchEngine(
+    			new MultiThreadedHttpConnectionManager());
+    	ObjectMapper mapper = new ObjectMapper();
+    	SuggestFeedStreamer streamer = new SuggestFeedStreamer(mapper);
+    	String[] feeds = new String[]{
+    			"{\"response\":{\"numFound\":2,\"foo\":\"bar\"}}",
+    			"{\"response\":{\"docs\":[],\"maxScore\":1.5,\"start\":4,\"numFound\":0}}",
+    			"{\"response\":{\"docs\":[]}}"
+    	};
+    	for (String feed : feeds){
+    		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    		streamer.stream(new ByteArrayInputStream(feed.getBytes("UTF-8")), outputStream, fullTextSearchEngineTest.new HouseNumberEntryFilter("11"));
+
+    		GisgraphySearchResult expected = fullTextSearchEngineTest.updateFeed(mapper.readValue(feed, GisgraphySearchResult.class), "11");
+    		Assert.assertEquals(feed, mapper.readTree(mapper.writeValueAsString(expected)), mapper.readTree(outputStream.toString("UTF-8")));
+    	}
+    }
+
+    @Test
+    public void testExecuteAndSerializeShouldNotWriteAPartialSuggestResponse() throws SolrServerException{
+    	FullTextSearchEngine fullTextSearchEngineTest = new FullTextSearchEngine(
+    			new MultiThreadedHttpConnectionManager());
+    	fullTextSearchEngineTest.statsUsageService = EasyMock.createNiceMock(IStatsUsageService.class);
+    	IsolrClient mockSolClient = EasyMock.createNiceMock(IsolrClient.class);
+    	mockSolClient.executeAndProcess((SolrParams) EasyMock.anyObject(), (IResponseStreamHandler) EasyMock.anyObject());
+    	EasyMock.expectLastCall().andAnswer(new IAnswer<Object>() {
+    		public Object answer() throws Throwable {
+    			IResponseStreamHandler handler = (IResponseStreamHandler) EasyMock.getCurrentArguments()[1];
+    			String truncated = "{\"response\":{\"numFound\":1,\"docs\":[{\"name\":\"rue de la paix\"},{\"name\":";
+    			try {
+    				handler.handle(new ByteArrayInputStream(truncated.getBytes("UTF-8")), "UTF-8");
+    			} catch (IOException e) {
+    				//as SolrClient does
+    				throw new SolrServerException(e);
+    			}
+    			return null;
+    		}
+    	});
+    	EasyMock.replay(mockSolClient, fullTextSearchEngineTest.statsUsageService);
+    	fullTextSearchEngineTest.setSolrClient(mockSolClient);
+
+    	ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    	FulltextQuery query = new FulltextQuery("10 rue de la paix").withSuggest(true);
+    	try {
+    		fullTextSearchEngineTest.executeAndSerialize(query, outputStream);
+    		fail("an invalid response should throw a FullTextSearchException");
+    	} catch (FullTextSearchException e) {
+    		//ok
+    	}
+    	assertEquals("nothing should be written when the response can not be read", 0, outputStream.size());
+    	EasyMock.verify(mockSolClient);
+    }
+
+    @Test
+    public void testExecuteAndSerializeShouldStreamTheSuggestResponseIntoTheOutputStream() throws SolrServerException, IOException{
+    	FullTextSearchEngine fullTextSearchEngineTest = new FullTextSearchEngine(
+    			new MultiThreadedHttpConnectionManager());
+    	fullTextSearchEngineTest.statsUsageService = EasyMock.createNiceMock(IStatsUsageService.class);
+    	final List<Boolean> closed = new ArrayList<Boolean>();
+    	final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(){
+    		@Override
+    		public void close() throws IOException {
+    			closed.add(true);
+    		}
+    	};
+    	IsolrClient mockSolClient = EasyMock.createNiceMock(IsolrClient.class);
+    	mockSolClient.executeAndProcess((SolrParams) EasyMock.anyObject(), (IResponseStreamHandler) EasyMock.anyObject());
+    	EasyMock.expectLastCall().andAnswer(new IAnswer<Object>() {
+    		public Object answer() throws Throwable {
+    			IResponseStreamHandler handler = (IResponseStreamHandler) EasyMock.getCurrentArguments()[1];
+    			String feed = "{\"response\":{\"numFound\":1,\"docs\":[{\"name\":\"rue de la paix\",\"lat\":45.0,\"lng\":3.0}]}}";
+    			handler.handle(new ByteArrayInputStream(feed.getBytes("UTF-8")), "UTF-8");
+    			assertTrue("the response should be written while it is received", outputStream.size() > 0);
+    			return null;
+    		}
+    	});
+    	EasyMock.replay(mockSolClient, fullTextSearchEngineTest.statsUsageService);
+    	fullTextSearchEngineTest.setSolrClient(mockSolClient);
+
+    	fullTextSearchEngineTest.executeAndSerialize(new FulltextQuery("10 rue de la paix").withSuggest(true), outputStream);
+    	GisgraphySearchResult result = new ObjectMapper().readValue(outputStream.toString("UTF-8"), GisgraphySearchResult.class);
+    	assertEquals("rue de la paix", result.getResponse().getDocs().get(0).getName());
+    	assertTrue("the output stream belongs to the caller and should not be closed", closed.isEmpty());
+    	EasyMock.verify(mockSolClient);
     }
 
 	protected GisgraphySearchResult createGisgraphySearchEntry(String name) {
@@ -22,9 +22,11 @@
  *******************************************************************************/
 package com.gisgraphy.fulltext;
 
+import java.io.ByteArrayOutputStream;
 import java.util.logging.Level;
 
 import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.solr.common.params.ModifiableSolrParams;
 import org.junit.Assert;
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -86,6 +88,23 @@ public class SolrClientTest extends AbstractIntegrationHttpSolrTestCase {
     }
     
 
+    @Test
+    public void testExecuteAndSerializeShouldStreamTheRawResponse() throws Exception {
+	    IsolrClient client = new SolrClient(AbstractIntegrationHttpSolrTestCase.fulltextSearchUrlBinded,
+		    new MultiThreadedHttpConnectionManager());
+	    ModifiableSolrParams params = new ModifiableSolrParams();
+	    params.set("q", "*:*");
+	    params.set("wt", "json");
+	    //the same client should be reusable for several queries
+	    for (int i = 0; i < 2; i++) {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		client.executeAndSerialize(params, outputStream);
+		String response = outputStream.toString("UTF-8");
+		assertTrue("the response should be the raw json of the server : " + response,
+			response.trim().startsWith("{") && response.contains("responseHeader"));
+	    }
+    }
+
     @Test
     public void testBindToURL() {
 		    IsolrClient clientAlive = new SolrClient("http://nowhere.tld/solr",
@@ -42,6 +42,7 @@ import com.gisgraphy.addressparser.StructuredAddressQuery;
 import com.gisgraphy.addressparser.commons.GeocodingLevels;
 import com.gisgraphy.addressparser.exception.AddressParserException;
 import com.gisgraphy.addressparser.format.BasicAddressFormater;
+import com.gisgraphy.domain.geoloc.entity.HouseNumber;
 import com.gisgraphy.domain.valueobject.GisgraphyConfig;
 import com.gisgraphy.domain.valueobject.Pagination;
 import com.gisgraphy.fulltext.FullTextSearchEngine;
@@ -56,6 +57,8 @@ import com.gisgraphy.serializer.common.OutputFormat;
 import com.gisgraphy.service.IStatsUsageService;
 import com.gisgraphy.stats.StatsUsageType;
 import com.gisgraphy.street.HouseNumberDto;
+import com.gisgraphy.street.HouseNumberPacker;
+import com.gisgraphy.street.PackedHouseNumbers;
 import com.gisgraphy.test.GisgraphyTestHelper;
 import com.vividsolutions.jts.geom.Point;
 
@@ -643,6 +646,39 @@ public class GeocodingServiceTest {
     	Assert.assertNull(result.getHigherNumber());
     }
     
+    @Test
+    public void searchHouseNumberInPackedHouseNumbersShouldGiveTheSameResultsAsInTheList(){
+    	GeocodingService service = new GeocodingService();
+    	List<HouseNumber> houseNumbers = new ArrayList<HouseNumber>();
+    	String[] numbers = {"bis 7", "3", "5", "12", "12b", "15", "-9"};
+    	for (int i = 0; i < numbers.length; i++) {
+    		HouseNumber houseNumber = new HouseNumber();
+    		houseNumber.setNumber(numbers[i]);
+    		houseNumber.setLocation(GeolocHelper.createPoint(2D + i, 3D + i));
+    		houseNumbers.add(houseNumber);
+    	}
+    	PackedHouseNumbers packed = new PackedHouseNumbers(new HouseNumberPacker().pack(houseNumbers));
+    	for (boolean doInterpolation : new boolean[] { true, false }) {
+    		for (int number = 0; number <= 20; number++) {
+    			HouseNumberDtoInterpolation expected = service.searchHouseNumber(number, packed.toHouseNumberDtos(), "FR", doInterpolation);
+    			HouseNumberDtoInterpolation actual = service.searchHouseNumber(number, packed.asList(), "FR", doInterpolation);
+    			String message = "house number " + number + (doInterpolation ? " with" : " without") + " interpolation";
+    			if (expected == null) {
+    				Assert.assertNull(message, actual);
+    				continue;
+    			}
+    			Assert.assertEquals(message, expected.isApproximative(), actual.isApproximative());
+    			Assert.assertEquals(message, expected.getExactNumber(), actual.getExactNumber());
+    			Assert.assertEquals(message, expected.getLowerNumber(), actual.getLowerNumber());
+    			Assert.assertEquals(message, expected.getHigherNumber(), actual.getHigherNumber());
+    			Assert.assertEquals(message, expected.getHouseNumberDif(), actual.getHouseNumberDif());
+    			Assert.assertEquals(message, expected.getExactLocation(), actual.getExactLocation());
+    			Assert.assertEquals(message, expected.getLowerLocation(), actual.getLowerLocation());
+    			Assert.assertEquals(message, expected.getHigherLocation(), actual.getHigherLocation());
+    		}
+    	}
+    }
+    
     @Test
     public void searchHouseNumberTestWithNull(){
     	GeocodingService service = new GeocodingService();
@@ -2754,4 +2790,49 @@ public class GeocodingServiceTest {
     
 
    
+    @Test
+    public void geocodeShouldUseTheCacheWithNormalizedKeys() {
+	final List<String> geocodedAddresses = new ArrayList<String>();
+	GeocodingService geocodingService = new GeocodingService() {
+	    @Override
+	    protected AddressResultsDto doGeocode(AddressQuery query, String rawAddress, String countryCode, Long startTime) {
+		geocodedAddresses.add(rawAddress);
+		List<Address> addresses = new ArrayList<Address>();
+		Address address = new Address();
+		address.setStreetName("rue de la paix");
+		addresses.add(address);
+		return new AddressResultsDto(addresses, 5000L);
+	    }
+	};
+	geocodingService.setStatsUsageService(statsUsageService);
+	geocodingService.setImporterConfig(new ImporterConfig());
+	EhcacheGeocodingCache cache = new EhcacheGeocodingCache();
+	cache.setCacheName("geocodingCacheTest");
+	cache.setEnabled(true);
+	cache.init();
+	cache.invalidate();
+	geocodingService.setGeocodingCache(cache);
+
+	AddressResultsDto first = geocodingService.geocode(new AddressQuery("Rue de la Paix  Paris", "FR"));
+	AddressResultsDto second = geocodingService.geocode(new AddressQuery(" rue de la paix paris", "fr"));
+	Assert.assertNotSame("the cache should return a copy of the results", first, second);
+	Assert.assertEquals(1, second.getResult().size());
+	Assert.assertEquals("rue de la paix", second.getResult().get(0).getStreetName());
+	Assert.assertTrue("the qTime should be the one of the cache hit", second.getQTime() < 5000L);
+	second.getResult().get(0).setStreetName("modified");
+	first.getResult().clear();
+	AddressResultsDto third = geocodingService.geocode(new AddressQuery("rue de la paix paris", "FR"));
+	Assert.assertEquals("the cached results should not be modified by the callers", "rue de la paix", third.getResult().get(0).getStreetName());
+	Assert.assertEquals(1, geocodedAddresses.size());
+	Assert.assertEquals(2, cache.getHitCount());
+	Assert.assertEquals(1, cache.getMissCount());
+
+	geocodingService.geocode(new AddressQuery("rue de la paix paris", "BE"));
+	Assert.assertEquals("the country should be part of the key", 2, geocodedAddresses.size());
+
+	cache.handleEvent(null);
+	geocodingService.geocode(new AddressQuery("rue de la paix paris", "FR"));
+	Assert.assertEquals("the cache should be invalidated", 3, geocodedAddresses.size());
+    }
+
 }
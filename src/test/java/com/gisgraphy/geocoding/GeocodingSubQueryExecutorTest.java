@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Gisgraphy Project 
+ *  
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *  
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *    Lesser General Public License for more details.
+ *  
+ *    You should have received a copy of the GNU Lesser General Public
+ *    License along with this library; if not, write to the Free Software
+ *    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ *  
+ *   Copyright 2008  Gisgraphy project 
+ * 
+ *   David Masclet <davidmasclet@gisgraphy.com>
+ ******************************************************************************/
+package com.gisgraphy.geocoding;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GeocodingSubQueryExecutorTest {
+
+    @Test
+    public void submitShouldExecuteInTheCallingThreadWhenNotEnabled() {
+	GeocodingSubQueryExecutor executor = new GeocodingSubQueryExecutor();
+	executor.init();
+	Assert.assertFalse(executor.isEnabled());
+	Assert.assertFalse(executor.isSpeculativeFuzzy());
+	final Thread caller = Thread.currentThread();
+	Future<Boolean> future = executor.submit(new Callable<Boolean>() {
+	    public Boolean call() throws Exception {
+		return Thread.currentThread() == caller;
+	    }
+	});
+	Assert.assertTrue(future.isDone());
+	Assert.assertTrue(executor.get(future, executor.getDeadline(), false));
+    }
+
+    @Test
+    public void subQueriesShouldRunConcurrently() throws Exception {
+	GeocodingSubQueryExecutor executor = new GeocodingSubQueryExecutor();
+	executor.setThreads(2);
+	executor.init();
+	try {
+	    Assert.assertTrue(executor.isEnabled());
+	    //both sub-queries wait for each other, so they can only end if they run concurrently
+	    final CountDownLatch latch = new CountDownLatch(2);
+	    Callable<String> subQuery = new Callable<String>() {
+		public String call() throws Exception {
+		    latch.countDown();
+		    latch.await();
+		    return "done";
+		}
+	    };
+	    Future<String> first = executor.submit(subQuery);
+	    Future<String> second = executor.submit(subQuery);
+	    long deadline = executor.getDeadline();
+	    Assert.assertEquals("done", executor.get(first, deadline, null));
+	    Assert.assertEquals("done", executor.get(second, deadline, null));
+	} finally {
+	    executor.destroy();
+	}
+    }
+
+    @Test
+    public void getShouldReturnTheDefaultValueWhenTheDeadlineIsReached() {
+	GeocodingSubQueryExecutor executor = new GeocodingSubQueryExecutor();
+	executor.setThreads(1);
+	executor.setTimeout(50);
+	executor.init();
+	try {
+	    Future<String> future = executor.submit(new Callable<String>() {
+		public String call() throws Exception {
+		    Thread.sleep(5000);
+		    return "too late";
+		}
+	    });
+	    Assert.assertEquals("default", executor.get(future, executor.getDeadline(), "default"));
+	    Assert.assertTrue(future.isCancelled());
+	} finally {
+	    executor.destroy();
+	}
+    }
+
+    @Test
+    public void getShouldRethrowTheRuntimeExceptionOfTheSubQuery() {
+	GeocodingSubQueryExecutor executor = new GeocodingSubQueryExecutor();
+	executor.setThreads(1);
+	executor.init();
+	try {
+	    Future<String> future = executor.submit(new Callable<String>() {
+		public String call() throws Exception {
+		    throw new IllegalStateException("fail");
+		}
+	    });
+	    executor.get(future, executor.getDeadline(), null);
+	    Assert.fail("the exception of the sub-query should be rethrown");
+	} catch (IllegalStateException e) {
+	    //ok
+	} finally {
+	    executor.destroy();
+	}
+    }
+
+}
@@ -32,6 +32,42 @@ public class CountryDetectorTest {
 	
 	}
 	
+	@Test
+	public void detectAndRemoveCountryShouldRemoveTheLongestCountryName() {
+		CountryDetector detector = new CountryDetector();
+		CountryDetectorDto dto = detector.detectAndRemoveCountry("Port Moresby, Papua New Guinea");
+		Assert.assertEquals("PG", dto.getCountryCode());
+		Assert.assertEquals("Port Moresby", dto.getAddress());
+
+		dto = detector.detectAndRemoveCountry("Conakry Guinea");
+		Assert.assertEquals("GN", dto.getCountryCode());
+		Assert.assertEquals("Conakry", dto.getAddress());
+	}
+
+	@Test
+	public void detectAndRemoveCountryShouldIgnoreSeparatorsAndCase() {
+		CountryDetector detector = new CountryDetector();
+		CountryDetectorDto dto = detector.detectAndRemoveCountry("Port Moresby -  PAPUA-new   guinea  ");
+		Assert.assertEquals("PG", dto.getCountryCode());
+		Assert.assertEquals("Port Moresby", dto.getAddress());
+
+		dto = detector.detectAndRemoveCountry("");
+		Assert.assertEquals(null, dto.getCountryCode());
+		Assert.assertEquals("", dto.getAddress());
+
+		dto = detector.detectAndRemoveCountry(null);
+		Assert.assertEquals(null, dto.getCountryCode());
+		Assert.assertEquals(null, dto.getAddress());
+	}
+
+	@Test
+	public void detectAndRemoveCountryShouldNotRemoveMexico() {
+		CountryDetector detector = new CountryDetector();
+		CountryDetectorDto dto = detector.detectAndRemoveCountry("Avenida Juarez 10 Mexico");
+		Assert.assertEquals(null, dto.getCountryCode());
+		Assert.assertEquals("Avenida Juarez 10 Mexico", dto.getAddress());
+	}
+
 	@Test
 	public void DetectAndRemoveCountry_performance() {
 		CountryDetector detector = new CountryDetector();
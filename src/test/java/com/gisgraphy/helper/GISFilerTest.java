@@ -22,9 +22,13 @@
  *******************************************************************************/
 package com.gisgraphy.helper;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
 
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 import org.junit.Assert;
 
 import org.junit.After;
@@ -84,5 +88,40 @@ public class GISFilerTest {
 	untar.process();
 	Assert.assertTrue("",new File(tempDir+File.separator+"tarwocompression.txt").exists());
     }
+
+    @Test
+    public void openArchiveStreamShouldReadTheEntriesWithoutExtractingThem() throws IOException{
+	for (boolean readAhead : new boolean[] { false, true }) {
+	    GISFiler gisFiler = new GISFiler("./data/tests/gis/test.tar.gz",tempDir);
+	    TarArchiveInputStream archive = gisFiler.openArchiveStream(readAhead);
+	    try {
+		TarArchiveEntry entry = archive.getNextTarEntry();
+		Assert.assertEquals("tarfilegzip.txt", entry.getName());
+		BufferedReader reader = new BufferedReader(new InputStreamReader(archive, "UTF-8"));
+		Assert.assertEquals("file to test untar bzip2", reader.readLine());
+		Assert.assertNull(reader.readLine());
+		Assert.assertNull(archive.getNextTarEntry());
+	    } finally {
+		archive.close();
+	    }
+	    Assert.assertFalse("the archive should not be extracted", new File(tempDir+File.separator+"tarfilegzip.txt").exists());
+	}
+    }
+
+    @Test
+    public void openArchiveStreamShouldBunzipGisFiles() throws IOException{
+	GISFiler gisFiler = new GISFiler("./data/tests/gis/test.gis",tempDir);
+	TarArchiveInputStream archive = gisFiler.openArchiveStream(true);
+	try {
+	    Assert.assertEquals("testgis", archive.getNextTarEntry().getName());
+	} finally {
+	    archive.close();
+	}
+    }
+
+    @Test (expected=IOException.class)
+    public void openArchiveStreamForUnknowCompression() throws IOException{
+	new GISFiler("./data/tests/gis/test.tar.unknowext",tempDir).openArchiveStream(false);
+    }
     
 }
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.helper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ReadAheadInputStreamTest {
+
+    private byte[] createData(int size) {
+	byte[] data = new byte[size];
+	for (int i = 0; i < size; i++) {
+	    data[i] = (byte) (i % 251);
+	}
+	return data;
+    }
+
+    @Test
+    public void readShouldReturnTheContentOfTheWrappedStream() throws IOException {
+	byte[] data = createData(10000);
+	ReadAheadInputStream in = new ReadAheadInputStream(new ByteArrayInputStream(data), "test", 1000, 2);
+	ByteArrayOutputStream out = new ByteArrayOutputStream();
+	byte[] buffer = new byte[333];
+	int read;
+	while ((read = in.read(buffer, 0, buffer.length)) != -1) {
+	    out.write(buffer, 0, read);
+	}
+	in.close();
+	Assert.assertArrayEquals(data, out.toByteArray());
+	Assert.assertEquals(-1, in.read());
+    }
+
+    @Test
+    public void readByteByByte() throws IOException {
+	byte[] data = createData(2500);
+	ReadAheadInputStream in = new ReadAheadInputStream(new ByteArrayInputStream(data), "test", 1000, 1);
+	for (int i = 0; i < data.length; i++) {
+	    Assert.assertEquals(data[i] & 0xff, in.read());
+	}
+	Assert.assertEquals(-1, in.read());
+	in.close();
+    }
+
+    @Test
+    public void readShouldThrowTheExceptionOfTheWrappedStream() throws IOException {
+	InputStream failingStream = new InputStream() {
+	    private int count = 0;
+
+	    @Override
+	    public int read() throws IOException {
+		if (count++ == 1500) {
+		    throw new IOException("corrupted archive");
+		}
+		return 1;
+	    }
+	};
+	ReadAheadInputStream in = new ReadAheadInputStream(failingStream, "test", 1000, 2);
+	Assert.assertEquals(1000, in.read(new byte[1000], 0, 1000));
+	try {
+	    in.read(new byte[1000], 0, 1000);
+	    Assert.fail("the exception of the wrapped stream should be thrown");
+	} catch (IOException e) {
+	    Assert.assertEquals("corrupted archive", e.getMessage());
+	} finally {
+	    in.close();
+	}
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorShouldNotAcceptNullStream() {
+	new ReadAheadInputStream(null, "test");
+    }
+
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.hibernate.criterion;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.gisgraphy.domain.geoloc.entity.City;
+import com.gisgraphy.domain.valueobject.GisFeatureDistance;
+import com.gisgraphy.helper.GeolocHelper;
+
+public class ResultTransformerUtilTest {
+
+    private static final String[] ALIASES = { "id", "featureId", "name", "countryCode", "location", "distance" };
+
+    private Object[] createTuple(long id, double distance) {
+	return new Object[] { id, id + 1000, "name" + id, "FR", GeolocHelper.createPoint(2F, 48F), distance };
+    }
+
+    @Test
+    public void transformToGisFeatureDistanceShouldRemoveDuplicatesAndKeepTheOrder() {
+	List<Object[]> tuples = new ArrayList<Object[]>();
+	tuples.add(createTuple(3L, 10D));
+	tuples.add(createTuple(1L, 20D));
+	tuples.add(createTuple(3L, 10D));
+	tuples.add(createTuple(2L, 30D));
+	tuples.add(createTuple(1L, 20D));
+
+	List<GisFeatureDistance> results = ResultTransformerUtil.transformToGisFeatureDistance(ALIASES, tuples, null, City.class);
+
+	Assert.assertEquals(3, results.size());
+	Assert.assertEquals(Long.valueOf(3L), results.get(0).getId());
+	Assert.assertEquals(Long.valueOf(1L), results.get(1).getId());
+	Assert.assertEquals(Long.valueOf(2L), results.get(2).getId());
+	Assert.assertEquals("name1", results.get(1).getName());
+	Assert.assertEquals(Long.valueOf(1001L), results.get(1).getFeatureId());
+	Assert.assertEquals(20D, results.get(1).getDistance(), 0.0001);
+	Assert.assertEquals("the fields should be updated", "city", results.get(0).getPlaceType());
+    }
+
+    @Test
+    public void transformToGisFeatureDistanceShouldCompareTheUpdatedBeans() {
+	String[] aliases = { "id", "name", "countryCode", "location", "featureClass", "featureCode", "distance" };
+	List<Object[]> tuples = new ArrayList<Object[]>();
+	tuples.add(new Object[] { 1L, "paris", "FR", GeolocHelper.createPoint(2F, 48F), "P", "PPL", 20D });
+	tuples.add(new Object[] { 1L, "paris", "FR", GeolocHelper.createPoint(2F, 48F), "P", "PPL", 20D });
+	Map<Long, Set<String>> zipCodes = new HashMap<Long, Set<String>>();
+	Set<String> codes = new HashSet<String>();
+	codes.add("75000");
+	zipCodes.put(1L, codes);
+
+	List<GisFeatureDistance> results = ResultTransformerUtil.transformToGisFeatureDistance(aliases, tuples, zipCodes, City.class);
+
+	Assert.assertEquals("identical rows should give one bean, even once the fields and the zip codes are set", 1, results.size());
+	Assert.assertEquals("city", results.get(0).getPlaceType());
+	Assert.assertEquals(48D, results.get(0).getLat(), 0.0001);
+	Assert.assertEquals(codes, results.get(0).getZipCodes());
+    }
+
+    @Test
+    public void transformToGisFeatureDistanceShouldSetZipCodes() {
+	List<Object[]> tuples = new ArrayList<Object[]>();
+	tuples.add(createTuple(1L, 20D));
+	Map<Long, Set<String>> zipCodes = new HashMap<Long, Set<String>>();
+	Set<String> codes = new HashSet<String>();
+	codes.add("75000");
+	zipCodes.put(1L, codes);
+
+	List<GisFeatureDistance> results = ResultTransformerUtil.transformToGisFeatureDistance(ALIASES, tuples, zipCodes, City.class);
+
+	Assert.assertEquals(codes, results.get(0).getZipCodes());
+    }
+
+    @Test
+    public void transformToGisFeatureDistanceShouldReturnAnEmptyListForNoResults() {
+	Assert.assertTrue(ResultTransformerUtil.transformToGisFeatureDistance(ALIASES, new ArrayList<Object[]>(), null, City.class).isEmpty());
+	Assert.assertTrue(ResultTransformerUtil.transformToGisFeatureDistance(null, new ArrayList<Object[]>(), null, City.class).isEmpty());
+    }
+
+    @Test
+    public void getTupleMapperShouldReuseTheMapperForTheSameAliases() {
+	Assert.assertSame(ResultTransformerUtil.getTupleMapper(GisFeatureDistance.class, ALIASES),
+		ResultTransformerUtil.getTupleMapper(GisFeatureDistance.class, ALIASES.clone()));
+	Assert.assertNotSame(ResultTransformerUtil.getTupleMapper(GisFeatureDistance.class, ALIASES),
+		ResultTransformerUtil.getTupleMapper(GisFeatureDistance.class, new String[] { "id", "name" }));
+    }
+
+}
@@ -2,12 +2,22 @@ package com.gisgraphy.importer;
 
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.easymock.EasyMock;
 import org.junit.Assert;
 import org.junit.Test;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import com.gisgraphy.domain.repository.IBulkCopyDao;
+import com.gisgraphy.domain.valueobject.ImporterStatus;
 import com.gisgraphy.domain.valueobject.NameValueDTO;
 
 public class AbstractSimpleImporterProcessorTest {
@@ -127,5 +137,274 @@ public class AbstractSimpleImporterProcessorTest {
 		
 	}
 	
+	@Test
+	public void processPipelinedShouldKeepTheOrderOfTheLinesAndCommit() throws IOException {
+		final File file = File.createTempFile("pipeline", ".txt");
+		file.deleteOnExit();
+		FileWriter writer = new FileWriter(file);
+		writer.write("#comment\n");
+		for (int i = 1; i <= 1000; i++) {
+			writer.write(i + "\n");
+		}
+		writer.close();
+		final List<Integer> processed = new ArrayList<Integer>();
+		final int[] flushCount = new int[1];
+		AbstractSimpleImporterProcessor importerProcessor = new AbstractSimpleImporterProcessor() {
+			
+			public List<NameValueDTO<Integer>> rollback() {
+				return null;
+			}
+			
+			@Override
+			protected boolean shouldIgnoreFirstLine() {
+				return false;
+			}
+			
+			@Override
+			protected boolean shouldIgnoreComments() {
+				return true;
+			}
+			
+			@Override
+			protected void setCommitFlushMode() {
+				
+			}
+			
+			@Override
+			protected void processData(String line) throws ImporterException {
+				Assert.fail("processData should not be called in pipelined mode");
+			}
+			
+			@Override
+			protected boolean isPipelineSupported() {
+				return true;
+			}
+			
+			@Override
+			protected Object prepareData(String line) throws ImporterException {
+				return Integer.valueOf(line);
+			}
+			
+			@Override
+			protected void processPreparedData(Object preparedData) throws ImporterException {
+				processed.add((Integer) preparedData);
+			}
+			
+			@Override
+			protected int getNumberOfColumns() {
+				return 1;
+			}
+			
+			@Override
+			protected File[] getFiles() {
+				return new File[]{file};
+			}
+			
+			@Override
+			protected void flushAndClear() {
+				flushCount[0]++;
+			}
+		};
+		ImporterConfig importerConfig = new ImporterConfig();
+		importerConfig.setImporterWorkerThreads(4);
+		importerConfig.setImporterPipelineBatchSize(7);
+		importerConfig.setMaxInsertsBeforeFlush(100);
+		importerConfig.setKey(0);
+		importerProcessor.setImporterConfig(importerConfig);
+		importerProcessor.setTransactionManager(EasyMock.createNiceMock(PlatformTransactionManager.class));
+		
+		importerProcessor.process();
+		
+		Assert.assertEquals(ImporterStatus.PROCESSED, importerProcessor.getStatus());
+		Assert.assertEquals(1000, processed.size());
+		for (int i = 0; i < processed.size(); i++) {
+			Assert.assertEquals("the lines should be processed in the order of the file", i + 1, processed.get(i).intValue());
+		}
+		Assert.assertEquals(1001, importerProcessor.getTotalReadLine());
+		//one commit every 100 lines and the last one
+		Assert.assertEquals(11, flushCount[0]);
+	}
+	
+
+	@Test
+	public void estimateNumberOfLinesShouldUseTheMeanSizeOfTheLinesRead() {
+		Assert.assertEquals("a line has one byte at least", 1000, AbstractSimpleImporterProcessor.estimateNumberOfLines(0, 0, 1000));
+		Assert.assertEquals(100, AbstractSimpleImporterProcessor.estimateNumberOfLines(10, 100, 1000));
+		Assert.assertEquals("the lines read should be returned at the end", 12, AbstractSimpleImporterProcessor.estimateNumberOfLines(12, 1000, 1000));
+		Assert.assertEquals(0, AbstractSimpleImporterProcessor.estimateNumberOfLines(0, 0, 0));
+	}
+
+	@Test
+	public void scanArchivesShouldSumTheSizeOfTheCountryFilesToImport() throws IOException {
+		File archive = File.createTempFile("scan", ".tar");
+		archive.deleteOnExit();
+		TarArchiveOutputStream out = new TarArchiveOutputStream(new FileOutputStream(archive));
+		addEntry(out, "FR.txt", "1\n2\n");
+		addEntry(out, "allCountries.txt", "1\n2\n3\n");
+		addEntry(out, "readme.txt", "1\n2\n3\n4\n");
+		out.close();
+		AbstractSimpleImporterProcessor importerProcessor = new AbstractSimpleImporterProcessor() {
+
+			public List<NameValueDTO<Integer>> rollback() {
+				return null;
+			}
+
+			@Override
+			protected boolean shouldIgnoreFirstLine() {
+				return false;
+			}
+
+			@Override
+			protected boolean shouldIgnoreComments() {
+				return true;
+			}
+
+			@Override
+			protected void setCommitFlushMode() {
+			}
+
+			@Override
+			protected void processData(String line) throws ImporterException {
+			}
+
+			@Override
+			protected int getNumberOfColumns() {
+				return 1;
+			}
+
+			@Override
+			protected void flushAndClear() {
+			}
+		};
+		importerProcessor.setImporterConfig(new ImporterConfig());
+
+		Assert.assertEquals("only allCountries.txt should be counted", 6, importerProcessor.scanArchives(new File[]{archive}));
+	}
+
+	@Test
+	public void bulkCopyShouldCopyTheEntitiesAndTheirDependentEntities() {
+		List<Object> saved = new ArrayList<Object>();
+		AbstractSimpleImporterProcessor importerProcessor = createBulkCopyImporterProcessor(saved);
+		IBulkCopyDao bulkCopyDao = EasyMock.createMock(IBulkCopyDao.class);
+		List<Object> expected = new ArrayList<Object>();
+		expected.add("street1");
+		expected.add("street2");
+		expected.add("alternateName1");
+		expected.add("alternateName2");
+		EasyMock.expect(bulkCopyDao.copy(expected)).andReturn(4);
+		EasyMock.replay(bulkCopyDao);
+		importerProcessor.setBulkCopyDao(bulkCopyDao);
+
+		List<String> alternateNames = new ArrayList<String>();
+		alternateNames.add("alternateName1");
+		alternateNames.add("alternateName2");
+		importerProcessor.addToBulkCopy("street1", alternateNames, null);
+		importerProcessor.addToBulkCopy("street2");
+		importerProcessor.bulkCopy();
+		//nothing left to copy
+		importerProcessor.bulkCopy();
+		EasyMock.verify(bulkCopyDao);
+		Assert.assertTrue(saved.isEmpty());
+	}
+
+	@Test
+	public void bulkCopyShouldSaveTheEntitiesOneByOneWhenTheCopyFails() {
+		List<Object> saved = new ArrayList<Object>();
+		AbstractSimpleImporterProcessor importerProcessor = createBulkCopyImporterProcessor(saved);
+		IBulkCopyDao bulkCopyDao = EasyMock.createMock(IBulkCopyDao.class);
+		EasyMock.expect(bulkCopyDao.copy((List<?>) EasyMock.anyObject())).andThrow(new RuntimeException("duplicate key"));
+		EasyMock.replay(bulkCopyDao);
+		importerProcessor.setBulkCopyDao(bulkCopyDao);
+
+		List<String> alternateNames = new ArrayList<String>();
+		alternateNames.add("alternateName1");
+		importerProcessor.addToBulkCopy("street1", alternateNames);
+		importerProcessor.addToBulkCopy("street2");
+		importerProcessor.bulkCopy();
+		EasyMock.verify(bulkCopyDao);
+		Assert.assertEquals("the dependent entities should be saved by cascade", 2, saved.size());
+		Assert.assertEquals("street1", saved.get(0));
+		Assert.assertEquals("street2", saved.get(1));
+	}
+
+	@Test
+	public void isBulkCopiedShouldNeedTheSupportOfTheProcessorTheOptionAndTheDao() {
+		AbstractSimpleImporterProcessor importerProcessor = createBulkCopyImporterProcessor(new ArrayList<Object>());
+		Assert.assertFalse("no dao", importerProcessor.isBulkCopied());
+		importerProcessor.setBulkCopyDao(EasyMock.createMock(IBulkCopyDao.class));
+		Assert.assertTrue(importerProcessor.isBulkCopied());
+		importerProcessor.importerConfig.setBulkCopyEnabled(false);
+		Assert.assertFalse("disabled", importerProcessor.isBulkCopied());
+
+		importerProcessor = createBulkCopyImporterProcessor(null);
+		importerProcessor.setBulkCopyDao(EasyMock.createMock(IBulkCopyDao.class));
+		Assert.assertFalse("not supported", importerProcessor.isBulkCopied());
+	}
+
+	/**
+	 * @param saved
+	 *            the list where the entities saved without bulk copy are
+	 *            added, null if the processor doesn't support the bulk copy
+	 */
+	private AbstractSimpleImporterProcessor createBulkCopyImporterProcessor(final List<Object> saved) {
+		AbstractSimpleImporterProcessor importerProcessor = new AbstractSimpleImporterProcessor() {
+
+			public List<NameValueDTO<Integer>> rollback() {
+				return null;
+			}
+
+			@Override
+			protected boolean shouldIgnoreFirstLine() {
+				return false;
+			}
+
+			@Override
+			protected boolean shouldIgnoreComments() {
+				return true;
+			}
+
+			@Override
+			protected void setCommitFlushMode() {
+			}
+
+			@Override
+			protected void processData(String line) throws ImporterException {
+			}
+
+			@Override
+			protected int getNumberOfColumns() {
+				return 1;
+			}
+
+			@Override
+			protected void flushAndClear() {
+			}
+
+			@Override
+			protected BulkCopySupport getBulkCopySupport() {
+				if (saved == null) {
+					return null;
+				}
+				return new BulkCopySupport() {
+					public void saveWithoutBulkCopy(Object entity) {
+						saved.add(entity);
+					}
+				};
+			}
+		};
+		ImporterConfig importerConfig = new ImporterConfig();
+		importerConfig.setBulkCopyEnabled(true);
+		importerProcessor.setImporterConfig(importerConfig);
+		return importerProcessor;
+	}
+
+	private void addEntry(TarArchiveOutputStream out, String name, String content) throws IOException {
+		byte[] bytes = content.getBytes("UTF-8");
+		TarArchiveEntry entry = new TarArchiveEntry(name);
+		entry.setSize(bytes.length);
+		out.putArchiveEntry(entry);
+		out.write(bytes);
+		out.closeArchiveEntry();
+	}
 
 }
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.importer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.gisgraphy.domain.geoloc.entity.Adm;
+import com.gisgraphy.helper.GeolocHelper;
+import com.gisgraphy.test.GisgraphyTestHelper;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKTReader;
+
+public class CachedAdmHierarchyTest {
+
+    private Adm adm1 = GisgraphyTestHelper.createAdm("adm1", "FR", "A1", null, null, null, null, null, 1);
+    private Adm adm2 = GisgraphyTestHelper.createAdm("adm2", "FR", "A1", "B2", null, null, null, null, 2);
+    private Adm adm3 = GisgraphyTestHelper.createAdm("adm3", "FR", "A1", "B2", "C3", null, null, null, 3);
+    private Adm adm4 = GisgraphyTestHelper.createAdm("adm4", "FR", "A1", "B2", "C3", "D4", null, null, 4);
+
+    private CachedAdmHierarchy createHierarchy() {
+	return new CachedAdmHierarchy(Arrays.asList(adm1, adm2, adm3, adm4));
+    }
+
+    @Test
+    public void getAdmShouldReturnTheAdmOfTheHighestNotNullCode() {
+	CachedAdmHierarchy hierarchy = createHierarchy();
+	Assert.assertEquals(4, hierarchy.size());
+	Assert.assertSame(adm1, hierarchy.getAdm("FR", "A1", null, null, null));
+	Assert.assertSame(adm2, hierarchy.getAdm("fr", "A1", "B2", "", null));
+	Assert.assertSame(adm3, hierarchy.getAdm("FR", "A1", "B2", "C3", null));
+	Assert.assertSame(adm4, hierarchy.getAdm("FR", "A1", "B2", "C3", "D4"));
+	Assert.assertNull(hierarchy.getAdm("FR", "A1", "B2", "C3", "DD"));
+	Assert.assertNull("an adm can not be found without adm1code", hierarchy.getAdm("FR", null, "B2", null, null));
+	Assert.assertNull(hierarchy.getAdm("ES", "A1", null, null, null));
+    }
+
+    @Test
+    public void getAdmShouldIgnoreTheAdm1CodeWhenItIs00() {
+	CachedAdmHierarchy hierarchy = createHierarchy();
+	Assert.assertSame(adm3, hierarchy.getAdm3("FR", "00", "B2", "C3"));
+	Assert.assertNull("00 is not ignored for the level 1", hierarchy.getAdm1("FR", "00"));
+
+	Adm otherAdm3 = GisgraphyTestHelper.createAdm("otheradm3", "FR", "A2", "B2", "C3", null, null, null, 3);
+	hierarchy = new CachedAdmHierarchy(Arrays.asList(adm1, adm2, adm3, otherAdm3));
+	Assert.assertNull("the result is ambiguous", hierarchy.getAdm3("FR", "00", "B2", "C3"));
+	Assert.assertSame(otherAdm3, hierarchy.getAdm3("FR", "A2", "B2", "C3"));
+    }
+
+    @Test
+    public void getAdmByCountryAndCodeAndLevelShouldNeverReturnNull() {
+	CachedAdmHierarchy hierarchy = createHierarchy();
+	Assert.assertEquals(Arrays.asList(adm3), hierarchy.getAdmByCountryAndCodeAndLevel("fr", "C3", 3));
+	Assert.assertTrue(hierarchy.getAdmByCountryAndCodeAndLevel("FR", "C3", 2).isEmpty());
+    }
+
+    @Test
+    public void getAdmOrFirstValidParentIfNotFoundShouldReturnTheNearestParent() {
+	CachedAdmHierarchy hierarchy = createHierarchy();
+	Assert.assertSame(adm4, hierarchy.getAdmOrFirstValidParentIfNotFound("FR", "A1", "B2", "C3", "D4"));
+	Assert.assertSame(adm3, hierarchy.getAdmOrFirstValidParentIfNotFound("FR", "A1", "B2", "C3", "DD"));
+	Assert.assertSame(adm2, hierarchy.getAdmOrFirstValidParentIfNotFound("FR", "A1", "B2", "CC", "DD"));
+	Assert.assertSame(adm1, hierarchy.getAdmOrFirstValidParentIfNotFound("FR", "A1", "BB", "CC", "DD"));
+	Assert.assertNull(hierarchy.getAdmOrFirstValidParentIfNotFound("FR", "AA", "BB", "CC", "DD"));
+    }
+
+    @Test
+    public void suggestMostAccurateAdmShouldHaveTheSameResultsAsTheDao() {
+	// same cases as AdmDaoTest.testSuggestAdmShouldReturnCorrectValues
+	CachedAdmHierarchy hierarchy = createHierarchy();
+	Assert.assertSame(adm4, hierarchy.suggestMostAccurateAdm("FR", "A1", "B2", "C3", "D4", null));
+	Assert.assertSame(adm4, hierarchy.suggestMostAccurateAdm("FR", "AA", "BB", "CC", "D4", null));
+	Assert.assertSame(adm4, hierarchy.suggestMostAccurateAdm("FR", "A1", "B2", "CC", "D4", null));
+	Assert.assertSame(adm1, hierarchy.suggestMostAccurateAdm("FR", "A1", "BB", "CC", "D4", null));
+	Assert.assertSame(adm3, hierarchy.suggestMostAccurateAdm("FR", "A1", "B2", "C3", "DD", null));
+	Assert.assertSame(adm2, hierarchy.suggestMostAccurateAdm("FR", "A1", "B2", "CC", "DD", null));
+	Assert.assertSame(adm1, hierarchy.suggestMostAccurateAdm("FR", "A1", "BB", "CC", "DD", null));
+	Assert.assertNull(hierarchy.suggestMostAccurateAdm("FR", "AA", "BB", "CC", "DD", null));
+	Assert.assertNull(hierarchy.suggestMostAccurateAdm("FR", null, null, null, null, null));
+	try {
+	    hierarchy.suggestMostAccurateAdm(null, null, null, null, null, null);
+	    Assert.fail();
+	} catch (IllegalArgumentException e) {
+	}
+    }
+
+    @Test
+    public void listByShapeShouldReturnTheAdmsThatContainsThePointTheLargestFirst() throws ParseException {
+	WKTReader reader = new WKTReader();
+	adm1.setShape(reader.read("POLYGON((0 0,10 0,10 10,0 10,0 0))"));
+	adm2.setShape(reader.read("POLYGON((0 0,5 0,5 5,0 5,0 0))"));
+	adm3.setShape(reader.read("POLYGON((0 0,2 0,2 2,0 2,0 0))"));
+	Adm otherCountryAdm = GisgraphyTestHelper.createAdm("other", "ES", "A1", null, null, null, null, null, 1);
+	otherCountryAdm.setShape(reader.read("POLYGON((0 0,20 0,20 20,0 20,0 0))"));
+	CachedAdmHierarchy hierarchy = new CachedAdmHierarchy(Arrays.asList(adm3, adm1, otherCountryAdm, adm2, adm4));
+
+	Assert.assertEquals(Arrays.asList(adm1, adm2, adm3), hierarchy.listByShape(GeolocHelper.createPoint(1F, 1F), "FR"));
+	Assert.assertEquals(Arrays.asList(adm1, adm2), hierarchy.listByShape(GeolocHelper.createPoint(4F, 4F), "FR"));
+	Assert.assertEquals(Arrays.asList(otherCountryAdm, adm1), hierarchy.listByShape(GeolocHelper.createPoint(8F, 8F), null));
+	Assert.assertEquals(new ArrayList<Adm>(), hierarchy.listByShape(GeolocHelper.createPoint(30F, 30F), null));
+    }
+
+    @Test
+    public void constructorShouldIgnoreTheAdmsWithoutLevelOrCountry() {
+	Adm withoutCountry = GisgraphyTestHelper.createAdm("adm", null, "A1", null, null, null, null, null, 1);
+	List<Adm> adms = new ArrayList<Adm>(Arrays.asList(adm1, withoutCountry, null));
+	Assert.assertEquals(1, new CachedAdmHierarchy(adms).size());
+	Assert.assertEquals(0, new CachedAdmHierarchy(null).size());
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.gisgraphy.importer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.gisgraphy.domain.geoloc.entity.Adm;
+import com.gisgraphy.domain.geoloc.entity.City;
+import com.gisgraphy.domain.geoloc.entity.ZipCode;
+import com.gisgraphy.domain.repository.ICityDao;
+import com.gisgraphy.helper.GeolocHelper;
+import com.vividsolutions.jts.geom.Point;
+
+public class CityShapeIndexTest {
+
+	@Test
+	public void getByShapeShouldReturnTheSmallestContainingShape() {
+		List<Object[]> shapes = new ArrayList<Object[]>();
+		shapes.add(new Object[] { 1L, GeolocHelper.createPolygonBox(2D, 48D, 20000), true });
+		shapes.add(new Object[] { 2L, GeolocHelper.createPolygonBox(2D, 48D, 2000), true });
+		shapes.add(new Object[] { 3L, GeolocHelper.createPolygonBox(2D, 48D, 1000), false });
+		City city = new City();
+		ICityDao cityDao = EasyMock.createMock(ICityDao.class);
+		EasyMock.expect(cityDao.listShapesByCountryCode("FR")).andReturn(shapes).once();
+		EasyMock.expect(cityDao.get(2L)).andReturn(city).once();
+		EasyMock.expect(cityDao.get(3L)).andReturn(city).once();
+		EasyMock.replay(cityDao);
+
+		CityShapeIndex index = new CityShapeIndex(cityDao, null, 1);
+		Point point = GeolocHelper.createPoint(2F, 48F);
+		Assert.assertEquals(city, index.getByShape(point, "fr", true));
+		Assert.assertEquals(city, index.getByShape(point, "FR", false));
+		Assert.assertNull(index.getByShape(GeolocHelper.createPoint(10F, 10F), "FR", true));
+		Assert.assertEquals(3, index.getLookupCount());
+		Assert.assertEquals(0, index.getFallbackCount());
+		EasyMock.verify(cityDao);
+	}
+
+	@Test
+	public void getByShapeShouldInitializeTheZipCodesAndTheAdm() {
+		List<Object[]> shapes = new ArrayList<Object[]>();
+		shapes.add(new Object[] { 1L, GeolocHelper.createPolygonBox(2D, 48D, 2000), true });
+		final List<String> initialized = new ArrayList<String>();
+		City city = new City() {
+			@Override
+			public Set<ZipCode> getZipCodes() {
+				initialized.add("zipCodes");
+				return super.getZipCodes();
+			}
+
+			@Override
+			public Adm getAdm() {
+				initialized.add("adm");
+				return super.getAdm();
+			}
+		};
+		ICityDao cityDao = EasyMock.createMock(ICityDao.class);
+		EasyMock.expect(cityDao.listShapesByCountryCode("FR")).andReturn(shapes).once();
+		EasyMock.expect(cityDao.get(1L)).andReturn(city).once();
+		EasyMock.replay(cityDao);
+
+		CityShapeIndex index = new CityShapeIndex(cityDao, null, 1);
+		Assert.assertEquals(city, index.getByShape(GeolocHelper.createPoint(2F, 48F), "FR", true));
+		Assert.assertTrue(initialized.contains("zipCodes"));
+		Assert.assertTrue(initialized.contains("adm"));
+		EasyMock.verify(cityDao);
+	}
+
+	@Test
+	public void getByShapeShouldUseTheDaoWhenThereIsNoCountryCode() {
+		City city = new City();
+		Point point = GeolocHelper.createPoint(2F, 48F);
+		ICityDao cityDao = EasyMock.createMock(ICityDao.class);
+		EasyMock.expect(cityDao.getByShape(point, null, true)).andReturn(city);
+		EasyMock.replay(cityDao);
+
+		CityShapeIndex index = new CityShapeIndex(cityDao, null, 1);
+		Assert.assertEquals(city, index.getByShape(point, null, true));
+		Assert.assertEquals(1, index.getFallbackCount());
+		EasyMock.verify(cityDao);
+	}
+
+	@Test
+	public void countriesShouldBeEvictedWhenMaxCountriesIsReached() {
+		ICityDao cityDao = EasyMock.createMock(ICityDao.class);
+		EasyMock.expect(cityDao.listShapesByCountryCode("FR")).andReturn(new ArrayList<Object[]>()).times(2);
+		EasyMock.expect(cityDao.listShapesByCountryCode("DE")).andReturn(new ArrayList<Object[]>()).once();
+		EasyMock.replay(cityDao);
+
+		CityShapeIndex index = new CityShapeIndex(cityDao, null, 1);
+		Point point = GeolocHelper.createPoint(2F, 48F);
+		index.getByShape(point, "FR", true);
+		index.getByShape(point, "DE", true);
+		index.getByShape(point, "FR", true);
+		EasyMock.verify(cityDao);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructorShouldRejectWrongMaxCountries() {
+		new CityShapeIndex(EasyMock.createMock(ICityDao.class), null, 0);
+	}
+
+}
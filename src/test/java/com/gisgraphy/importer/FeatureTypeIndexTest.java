@@ -0,0 +1,53 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.importer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FeatureTypeIndexTest {
+
+    @Test
+    public void getTypeShouldReturnTheTypeOfTheFeature() {
+	FeatureTypeIndex index = new FeatureTypeIndex(Arrays.asList(30L, 10L, null, 20L), Arrays.asList(15L, 5L));
+	Assert.assertEquals(5, index.size());
+	Assert.assertEquals(FeatureTypeIndex.CITY, index.getType(10L));
+	Assert.assertEquals(FeatureTypeIndex.CITY, index.getType(20L));
+	Assert.assertEquals(FeatureTypeIndex.CITY, index.getType(30L));
+	Assert.assertEquals(FeatureTypeIndex.ADM, index.getType(5L));
+	Assert.assertEquals(FeatureTypeIndex.ADM, index.getType(15L));
+	Assert.assertEquals(FeatureTypeIndex.OTHER, index.getType(25L));
+	Assert.assertEquals(FeatureTypeIndex.OTHER, index.getType(-1L));
+    }
+
+    @Test
+    public void getTypeShouldReturnOtherWhenTheIndexIsEmpty() {
+	FeatureTypeIndex index = new FeatureTypeIndex(new ArrayList<Long>(), null);
+	Assert.assertEquals(0, index.size());
+	Assert.assertEquals(FeatureTypeIndex.OTHER, index.getType(1L));
+    }
+
+}
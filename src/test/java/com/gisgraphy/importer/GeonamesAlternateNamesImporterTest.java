@@ -25,6 +25,8 @@ package com.gisgraphy.importer;
 import static org.junit.Assert.assertEquals;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 
@@ -34,7 +36,13 @@ import org.easymock.EasyMock;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import com.gisgraphy.domain.geoloc.entity.AlternateName;
+import com.gisgraphy.domain.geoloc.entity.City;
+import com.gisgraphy.domain.geoloc.entity.GisFeature;
+import com.gisgraphy.domain.repository.IAdmDao;
 import com.gisgraphy.domain.repository.IAlternateNameDao;
+import com.gisgraphy.domain.repository.ICityDao;
+import com.gisgraphy.domain.repository.IGisFeatureDao;
 import com.gisgraphy.domain.repository.ISolRSynchroniser;
 import com.gisgraphy.domain.repository.SolRSynchroniser;
 import com.gisgraphy.domain.valueobject.ImporterStatus;
@@ -42,6 +50,7 @@ import com.gisgraphy.domain.valueobject.ImporterStatusDto;
 import com.gisgraphy.domain.valueobject.NameValueDTO;
 import com.gisgraphy.fulltext.AbstractIntegrationHttpSolrTestCase;
 import com.gisgraphy.fulltext.spell.ISpellCheckerIndexer;
+import com.gisgraphy.test.GisgraphyTestHelper;
 
 public class GeonamesAlternateNamesImporterTest extends AbstractIntegrationHttpSolrTestCase {
     
@@ -85,6 +94,63 @@ public class GeonamesAlternateNamesImporterTest extends AbstractIntegrationHttpS
 	assertEquals(5, deleted.get(0).getValue().intValue());
     }
     
+    @Test
+    public void processDataShouldSaveTheFeatureOnceWhenTheLinesAreGroupedByFeature() {
+	City city = GisgraphyTestHelper.createCity("paris", 1.5F, 2.5F, 1L);
+	GisFeature gisFeature = GisgraphyTestHelper.createGisFeature("tower", 1.5F, 2.5F, 2L);
+
+	ICityDao cityDao = EasyMock.createMock(ICityDao.class);
+	EasyMock.expect(cityDao.listFeatureIds()).andReturn(Arrays.asList(1L));
+	EasyMock.expect(cityDao.getByFeatureId(1L)).andReturn(city);
+	cityDao.flushAndClear();
+	EasyMock.replay(cityDao);
+	IAdmDao admDao = EasyMock.createMock(IAdmDao.class);
+	EasyMock.expect(admDao.listFeatureIds()).andReturn(new ArrayList<Long>());
+	EasyMock.replay(admDao);
+	IGisFeatureDao gisFeatureDao = EasyMock.createMock(IGisFeatureDao.class);
+	EasyMock.expect(gisFeatureDao.save(city)).andReturn(city);
+	EasyMock.expect(gisFeatureDao.getByFeatureId(2L)).andReturn(gisFeature);
+	EasyMock.expect(gisFeatureDao.save(gisFeature)).andReturn(gisFeature);
+	gisFeatureDao.flushAndClear();
+	EasyMock.replay(gisFeatureDao);
+	IAlternateNameDao alternateNameDao = EasyMock.createNiceMock(IAlternateNameDao.class);
+	EasyMock.replay(alternateNameDao);
+
+	ImporterConfig importerConfig = new ImporterConfig();
+	importerConfig.setAlternateNamesGroupedByFeature(true);
+	GeonamesAlternateNamesSimpleImporter importer = new GeonamesAlternateNamesSimpleImporter();
+	importer.setImporterConfig(importerConfig);
+	importer.setCityDao(cityDao);
+	importer.setAdmDao(admDao);
+	importer.setGisFeatureDao(gisFeatureDao);
+	importer.setAlternateNameDao(alternateNameDao);
+
+	importer.setup();
+	importer.processData("10\t1\tfr\tParis\t1\t");
+	importer.processData("11\t1\ten\tParis city\t\t");
+	importer.processData("12\t1\tlink\thttp://paris.fr\t\t");
+	importer.processData("13\t1\tpost\t75001\t\t");
+	importer.processData("20\t2\tfr\tTour Eiffel\t\t");
+	importer.flushAndClear();
+
+	EasyMock.verify(cityDao);
+	EasyMock.verify(admDao);
+	EasyMock.verify(gisFeatureDao);
+	Assert.assertEquals(2, city.getAlternateNames().size());
+	Assert.assertEquals("the zip code should be added to the one of the city", 2, city.getZipCodes().size());
+	Assert.assertEquals(1, gisFeature.getAlternateNames().size());
+    }
+    
+    @Test
+    public void createAlternateNameShouldReturnNullIfTheNameIsEmpty() {
+	GeonamesAlternateNamesSimpleImporter importer = new GeonamesAlternateNamesSimpleImporter();
+	Assert.assertNull(importer.createAlternateName("13\t1\tpost\t\t\t".split("\t", -1)));
+	Assert.assertNull(importer.createAlternateName("10\t1\tfr\t \t1\t".split("\t", -1)));
+	AlternateName alternateName = importer.createAlternateName("10\t1\tfr\tParis \t1\t".split("\t", -1));
+	Assert.assertEquals("Paris", alternateName.getName());
+	Assert.assertTrue(alternateName.isPreferredName());
+    }
+    
     @Test
     public void testTeardown(){
 	ISolRSynchroniser mockSolRSynchroniser = EasyMock.createMock(ISolRSynchroniser.class);
@@ -173,8 +173,40 @@ public class GeonamesZipCodeImporterTest {
 		boolean actual = importer.processByShape(countryCode, "code", location);
 		Assert.assertEquals(true, actual);
 		Assert.assertTrue(city.getZipCodes().contains(new ZipCode("code","fr")));
+		importer.savePendingZipCodes();
 		EasyMock.verify(cityDao);
+		EasyMock.verify(citySubdivisionDao);
     }
+    @Test
+    public void processByShapeShouldSaveTheCityOnceWhenItReceivesSeveralZipCodes(){
+    	GeonamesZipCodeSimpleImporter importer = new GeonamesZipCodeSimpleImporter();
+    	ICityDao cityDao = EasyMock.createMock(ICityDao.class);
+    	Point location = GeolocHelper.createPoint(3D, 4D);
+		City city = new City();
+		city.setFeatureId(123L);
+		String countryCode = "FR";
+		EasyMock.expect(cityDao.getByShape(location, countryCode, true)).andStubReturn(city);
+		EasyMock.expect(cityDao.save(city)).andReturn(city).once();
+		EasyMock.replay(cityDao);
+		
+		ICitySubdivisionDao citySubdivisionDao = EasyMock.createMock(ICitySubdivisionDao.class);
+		EasyMock.expect(citySubdivisionDao.getByShape(location, countryCode)).andStubReturn(null);
+		EasyMock.replay(citySubdivisionDao);
+		
+		importer.setCityDao(cityDao);
+		importer.setCitySubdivisionDao(citySubdivisionDao);
+		
+		Assert.assertTrue(importer.processByShape(countryCode, "75001", location));
+		Assert.assertTrue(importer.processByShape(countryCode, "75002", location));
+		importer.savePendingZipCodes();
+		Assert.assertEquals(2, city.getZipCodes().size());
+		EasyMock.verify(cityDao);
+		
+		//nothing more to save
+		importer.savePendingZipCodes();
+		EasyMock.verify(cityDao);
+    }
+    
     @Test
     public void getByShape_first_null(){
     	GeonamesZipCodeSimpleImporter importer = new GeonamesZipCodeSimpleImporter();
@@ -204,7 +236,9 @@ public class GeonamesZipCodeImporterTest {
 		boolean actual = importer.processByShape(countryCode, "code", location);
 		Assert.assertEquals(true, actual);
 		Assert.assertTrue(city.getZipCodes().contains(new ZipCode("code","fr")));
+		importer.savePendingZipCodes();
 		EasyMock.verify(cityDao);
+		EasyMock.verify(citySubdivisionDao);
     }
     
     @Test
@@ -30,6 +30,7 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.regex.Pattern;
@@ -45,6 +46,24 @@ import com.gisgraphy.test.GisgraphyTestHelper;
 
 public class ImporterHelperTest {
 
+	@Test
+	public void selectCountryFileNamesToImportShouldOnlyKeepAllCountriesAndTheUKFile() {
+		List<String> fileNames = Arrays.asList("FR.txt", ImporterHelper.ALLCOUTRY_FILENAME, "US.txt");
+		assertEquals(Arrays.asList(ImporterHelper.ALLCOUTRY_FILENAME), ImporterHelper.selectCountryFileNamesToImport(fileNames));
+		fileNames = Arrays.asList("FR.txt", ImporterConfig.GEONAMES_UK_FULL_ZIPCODE_FILE, ImporterHelper.ALLCOUTRY_FILENAME);
+		assertEquals(Arrays.asList(ImporterHelper.ALLCOUTRY_FILENAME, ImporterConfig.GEONAMES_UK_FULL_ZIPCODE_FILE), ImporterHelper.selectCountryFileNamesToImport(fileNames));
+		fileNames = Arrays.asList("FR.txt", "US.txt");
+		assertEquals(fileNames, ImporterHelper.selectCountryFileNamesToImport(fileNames));
+	}
+
+	@Test
+	public void isGisFileName() {
+		assertTrue(ImporterHelper.isGisFileName("FR.gis"));
+		assertTrue(ImporterHelper.isGisFileName("FR.tar.bz2"));
+		Assert.assertFalse(ImporterHelper.isGisFileName("FR.txt"));
+		Assert.assertFalse(ImporterHelper.isGisFileName("FR.zip"));
+	}
+
 	@Test
 	public void testGetHTTPFileSize() {
 		Assert.assertEquals(1150, ImporterHelper.getHttpFileSize("https://www.gisgraphy.com/favicon.ico"));
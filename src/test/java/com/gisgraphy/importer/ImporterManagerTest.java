@@ -183,6 +183,43 @@ public class ImporterManagerTest extends AbstractIntegrationHttpSolrTestCase {
 	}
     }
     
+    @Test
+    public void getDependencies() {
+	IImporterProcessor processor1 = EasyMock.createMock(IImporterProcessor.class);
+	IImporterProcessor processor2 = EasyMock.createMock(IImporterProcessor.class);
+	IImporterProcessor processor3 = EasyMock.createMock(IImporterProcessor.class);
+	IImporterProcessor processor4 = EasyMock.createMock(IImporterProcessor.class);
+	List<IImporterProcessor> processors = new ArrayList<IImporterProcessor>();
+	processors.add(processor1);
+	processors.add(processor2);
+	processors.add(processor3);
+	processors.add(processor4);
+	Map<IImporterProcessor, List<IImporterProcessor>> declared = new HashMap<IImporterProcessor, List<IImporterProcessor>>();
+	declared.put(processor2, new ArrayList<IImporterProcessor>());
+	List<IImporterProcessor> processor3Dependencies = new ArrayList<IImporterProcessor>();
+	processor3Dependencies.add(processor1);
+	declared.put(processor3, processor3Dependencies);
+	ImporterManager importerManager = new ImporterManager();
+	importerManager.setImporters(processors);
+	importerManager.setImporterDependencies(declared);
+
+	Map<IImporterProcessor, Set<IImporterProcessor>> dependencies = importerManager.getDependencies();
+	Assert.assertTrue(dependencies.get(processor1).isEmpty());
+	Assert.assertTrue(dependencies.get(processor2).isEmpty());
+	Assert.assertEquals(1, dependencies.get(processor3).size());
+	Assert.assertTrue(dependencies.get(processor3).contains(processor1));
+	Assert.assertEquals("an importer without declared dependencies should wait for all the previous ones", 3, dependencies.get(processor4).size());
+
+	//a dependency after the importer
+	declared.put(processor1, processor3Dependencies);
+	try {
+	    importerManager.getDependencies();
+	    Assert.fail("a dependency that is after the importer should throw");
+	} catch (ImporterException e) {
+	    //ok
+	}
+    }
+
     // test reset
     @SuppressWarnings("unchecked")
     @Test
@@ -270,6 +270,7 @@ public class OpenStreetMapCitiesFileRetrieverTest {
     	OpenStreetMapCitiesFileRetriever openStreetMapCitiesFileRetriever = new OpenStreetMapCitiesFileRetriever();
 	openStreetMapCitiesFileRetriever.setInternationalisationService(createMockInternationalisationService());
 	ImporterConfig importerConfig = EasyMock.createMock(ImporterConfig.class);
+	EasyMock.expect(importerConfig.isArchiveStreamingEnabled()).andStubReturn(false);
 	EasyMock.expect(importerConfig.isRetrieveFiles()).andReturn(true).times(2);
 	EasyMock.expect(importerConfig.isOpenstreetmapImporterEnabled()).andReturn(true);
 	EasyMock.expect(importerConfig.getGeonamesDownloadFilesListFromOption()).andStubReturn(new ArrayList<String>());
@@ -5,11 +5,13 @@ import java.util.List;
 
 import net.sf.jstester.util.Assert;
 
+import org.easymock.Capture;
 import org.easymock.EasyMock;
 import org.junit.Test;
 
 import com.gisgraphy.domain.geoloc.entity.HouseNumber;
 import com.gisgraphy.domain.geoloc.entity.OpenStreetMap;
+import com.gisgraphy.domain.repository.IBulkCopyDao;
 import com.gisgraphy.domain.repository.IOpenStreetMapDao;
 import com.gisgraphy.domain.valueobject.HouseNumberType;
 import com.gisgraphy.domain.valueobject.Pagination;
@@ -25,13 +27,78 @@ import com.gisgraphy.importer.dto.InterpolationHouseNumber;
 import com.gisgraphy.importer.dto.InterpolationMember;
 import com.gisgraphy.importer.dto.InterpolationType;
 import com.gisgraphy.importer.dto.NodeHouseNumber;
+import com.gisgraphy.reversegeocoding.HouseNumberIndexCache;
 import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
 
 public class OpenStreetMapHouseNumberSimpleImporterTest {
 	
 		boolean findNearestStreetCalled=false;
 		boolean buildHouseNumberFromAssociatedHouseNumberCalled=false;
 
+	@Test
+	public void tearDownShouldClearTheHouseNumberIndexCache() {
+		final boolean[] cleared = new boolean[1];
+		OpenStreetMapHouseNumberSimpleImporter importer = new OpenStreetMapHouseNumberSimpleImporter();
+		importer.setHouseNumberIndexCache(new HouseNumberIndexCache() {
+			@Override
+			public void clear() {
+				cleared[0] = true;
+			}
+		});
+		importer.tearDown();
+		Assert.assertTrue("the indexes built before the import should be removed", cleared[0]);
+	}
+
+	@Test
+	public void saveOsmShouldBulkCopyTheNewHouseNumbersAndSaveTheStreetOnceInFlushAndClear() {
+		OpenStreetMapHouseNumberSimpleImporter importer = new OpenStreetMapHouseNumberSimpleImporter();
+		ImporterConfig importerConfig = new ImporterConfig();
+		importerConfig.setBulkCopyEnabled(true);
+		importer.setImporterConfig(importerConfig);
+		OpenStreetMap street = new OpenStreetMap();
+		street.setId(1L);
+		HouseNumber existing = new HouseNumber("1", GeolocHelper.createPoint(2D, 48D), "FR");
+		existing.setId(10L);
+		street.addHouseNumber(existing);
+		HouseNumber new1 = new HouseNumber("2", GeolocHelper.createPoint(2D, 48D), "FR");
+		street.addHouseNumber(new1);
+		HouseNumber new2 = new HouseNumber("3", GeolocHelper.createPoint(2D, 48D), "FR");
+		street.addHouseNumber(new2);
+
+		IBulkCopyDao bulkCopyDao = EasyMock.createMock(IBulkCopyDao.class);
+		Capture<List<?>> copied = new Capture<List<?>>();
+		EasyMock.expect(bulkCopyDao.copy(EasyMock.capture(copied))).andReturn(2);
+		EasyMock.replay(bulkCopyDao);
+		importer.setBulkCopyDao(bulkCopyDao);
+		IOpenStreetMapDao openStreetMapDao = EasyMock.createMock(IOpenStreetMapDao.class);
+		//the street is not saved by saveOsm, the new house numbers would be cascaded
+		openStreetMapDao.flushAndClear();
+		OpenStreetMap reloaded = new OpenStreetMap();
+		reloaded.setId(1L);
+		EasyMock.expect(openStreetMapDao.get(1L)).andReturn(reloaded);
+		EasyMock.expect(openStreetMapDao.save(reloaded)).andReturn(reloaded);
+		EasyMock.replay(openStreetMapDao);
+		importer.setOpenStreetMapDao(openStreetMapDao);
+
+		importer.saveOsm(street);
+		//the same street with the same numbers, in the same transaction
+		street.addHouseNumber(new1);
+		importer.saveOsm(street);
+		Assert.assertEquals("the new house numbers should be removed from the street", 1, street.getHouseNumbers().size());
+		Assert.assertSame(existing, street.getHouseNumbers().first());
+
+		importer.bulkCopy();
+		Assert.assertEquals("a house number should be copied once", 2, copied.getValue().size());
+		Assert.assertTrue(copied.getValue().contains(new1));
+		Assert.assertTrue(copied.getValue().contains(new2));
+		importer.flushAndClear();
+		//the street is only saved again once
+		importer.flushAndClear();
+		EasyMock.verify(bulkCopyDao);
+		EasyMock.verify(openStreetMapDao);
+	}
+
 	@Test
 	public void parseAssociatedStreetHouseNumber() {
 		String line = "A	" +
@@ -364,6 +431,78 @@ public class OpenStreetMapHouseNumberSimpleImporterTest {
 		EasyMock.verify(fulltextEngine);
 	}
 	
+	@Test
+	public void findNearestStreet_shouldUseTheAlternateNamesOfTheStreetIndex(){
+		OpenStreetMap osm = new OpenStreetMap();
+		osm.setGid(3L);
+		IOpenStreetMapDao osmDaoMock = EasyMock.createMock(IOpenStreetMapDao.class);
+		List<Object[]> rows = new ArrayList<Object[]>();
+		rows.add(new Object[] { 3L, 103L, "Avenue Foch", "FR", GeolocHelper.createLineString("LINESTRING (2.0 48.0001,2.001 48.0001)") });
+		List<Object[]> alternateNames = new ArrayList<Object[]>();
+		alternateNames.add(new Object[] { 3L, "Avenue du Marechal Foch" });
+		EasyMock.expect(osmDaoMock.countStreetShapesInBoundingBox(EasyMock.isA(Polygon.class))).andStubReturn(new long[] { 1, 2, 34 });
+		EasyMock.expect(osmDaoMock.listStreetShapesInBoundingBox(EasyMock.isA(Polygon.class))).andStubReturn(rows);
+		EasyMock.expect(osmDaoMock.listStreetAlternateNamesInBoundingBox(EasyMock.isA(Polygon.class))).andStubReturn(alternateNames);
+		EasyMock.expect(osmDaoMock.getByGid(3L)).andReturn(osm);
+		EasyMock.replay(osmDaoMock);
+		//the fulltext engine should not be called
+		IFullTextSearchEngine fulltextEngine = EasyMock.createMock(IFullTextSearchEngine.class);
+		EasyMock.replay(fulltextEngine);
+		
+		OpenStreetMapHouseNumberSimpleImporter importer = new OpenStreetMapHouseNumberSimpleImporter();
+		importer.setFullTextSearchEngine(fulltextEngine);
+		importer.setOpenStreetMapDao(osmDaoMock);
+		importer.streetIndex = new StreetSpatialIndex(osmDaoMock, 1024 * 1024);
+		//the addr:street is the alternate name of the street
+		OpenStreetMap result = importer.findNearestStreet("Avenue du Marechal Foch", GeolocHelper.createPoint(2.0005F, 48F));
+		Assert.assertEquals(osm, result);
+		EasyMock.verify(osmDaoMock);
+		EasyMock.verify(fulltextEngine);
+	}
+	
+	@Test
+	public void findNearestStreet_shouldUseTheFulltextSearchWhenTheStreetIndexDoesNotFindTheName(){
+		List<SolrResponseDto> results = new ArrayList<SolrResponseDto>();
+		SolrResponseDto solrResponseDto = EasyMock.createMock(SolrResponseDto.class);
+		long openstreetmapId = 233L;
+		EasyMock.expect(solrResponseDto.getOpenstreetmap_id()).andStubReturn(openstreetmapId);
+		EasyMock.replay(solrResponseDto);
+		results.add(solrResponseDto);
+		FulltextResultsDto mockResultDTO = EasyMock.createMock(FulltextResultsDto.class);
+		EasyMock.expect(mockResultDTO.getResultsSize()).andReturn(1);
+		EasyMock.expect(mockResultDTO.getResults()).andReturn(results);
+		EasyMock.replay(mockResultDTO);
+		
+		String streetName="Marechal Foch";
+		Point point = GeolocHelper.createPoint(2.0005F, 48F);
+		FulltextQuery query = new FulltextQuery(streetName, Pagination.DEFAULT_PAGINATION, OpenStreetMapHouseNumberSimpleImporter.MEDIUM_OUTPUT, 
+				com.gisgraphy.fulltext.Constants.STREET_PLACETYPE, null);
+		query.around(point);
+		query.withRadius(OpenStreetMapHouseNumberSimpleImporter.DEFAULT_SEARCH_DISTANCE);
+		query.withAllWordsRequired(false).withoutSpellChecking();
+		
+		OpenStreetMap osm = new OpenStreetMap();
+		osm.setOpenstreetmapId(openstreetmapId);
+		IOpenStreetMapDao osmDaoMock = EasyMock.createMock(IOpenStreetMapDao.class);
+		EasyMock.expect(osmDaoMock.countStreetShapesInBoundingBox(EasyMock.isA(Polygon.class))).andStubReturn(new long[] { 0, 0, 0 });
+		EasyMock.expect(osmDaoMock.listStreetShapesInBoundingBox(EasyMock.isA(Polygon.class))).andStubReturn(new ArrayList<Object[]>());
+		EasyMock.expect(osmDaoMock.listStreetAlternateNamesInBoundingBox(EasyMock.isA(Polygon.class))).andStubReturn(new ArrayList<Object[]>());
+		EasyMock.expect(osmDaoMock.getByOpenStreetMapId(openstreetmapId)).andStubReturn(osm);
+		EasyMock.replay(osmDaoMock);
+
+		IFullTextSearchEngine fulltextEngine = EasyMock.createMock(IFullTextSearchEngine.class);
+		EasyMock.expect(fulltextEngine.executeQuery(query)).andReturn(mockResultDTO);
+		EasyMock.replay(fulltextEngine);
+		OpenStreetMapHouseNumberSimpleImporter importer = new OpenStreetMapHouseNumberSimpleImporter();
+		importer.setFullTextSearchEngine(fulltextEngine);
+		importer.setOpenStreetMapDao(osmDaoMock);
+		importer.streetIndex = new StreetSpatialIndex(osmDaoMock, 1024 * 1024);
+		OpenStreetMap result = importer.findNearestStreet(streetName, point);
+		Assert.assertEquals(osm, result);
+		Assert.assertEquals(1, importer.streetIndex.getFallbackCount());
+		EasyMock.verify(fulltextEngine);
+	}
+	
 	@Test
 	public void findNearestStreet_errorsShouldBeCatched(){
 		
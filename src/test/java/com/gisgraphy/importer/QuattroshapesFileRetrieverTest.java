@@ -245,6 +245,7 @@ public class QuattroshapesFileRetrieverTest {
 	    	QuattroshapesFileRetriever quattroshapeFileRetriever = new QuattroshapesFileRetriever();
 		quattroshapeFileRetriever.setInternationalisationService(createMockInternationalisationService());
 		ImporterConfig importerConfig = EasyMock.createMock(ImporterConfig.class);
+		EasyMock.expect(importerConfig.isArchiveStreamingEnabled()).andStubReturn(false);
 		EasyMock.expect(importerConfig.isRetrieveFiles()).andReturn(true).times(2);
 		EasyMock.expect(importerConfig.isQuattroshapesImporterEnabled()).andReturn(true);
 		EasyMock.expect(importerConfig.isGeonamesImporterEnabled()).andReturn(true);
@@ -0,0 +1,164 @@
+package com.gisgraphy.importer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.gisgraphy.domain.repository.IOpenStreetMapDao;
+import com.gisgraphy.helper.GeolocHelper;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+
+public class StreetSpatialIndexTest {
+
+	private static final GeometryFactory factory = new GeometryFactory();
+
+	private LineString createStreet(double lng, double lat) {
+		return factory.createLineString(new Coordinate[] { new Coordinate(lng, lat), new Coordinate(lng + 0.001, lat) });
+	}
+
+	private IOpenStreetMapDao createDao() {
+		List<Object[]> rows = new ArrayList<Object[]>();
+		//about 10 meters from the point
+		rows.add(new Object[] { 1L, 101L, "Rue de la Paix", "FR", createStreet(2.0, 48.0001) });
+		//about 100 meters from the point
+		rows.add(new Object[] { 2L, 102L, "Rue de la paix", "FR", createStreet(2.0, 48.001) });
+		rows.add(new Object[] { 3L, 103L, "Avenue Foch", "FR", createStreet(2.0, 48.0005) });
+		rows.add(new Object[] { 4L, 104L, null, "FR", createStreet(2.0, 47.9999) });
+		List<Object[]> alternateNames = new ArrayList<Object[]>();
+		alternateNames.add(new Object[] { 3L, "Avenue du Marechal Foch" });
+		alternateNames.add(new Object[] { 4L, "Chemin des Vignes" });
+		IOpenStreetMapDao dao = EasyMock.createMock(IOpenStreetMapDao.class);
+		EasyMock.expect(dao.countStreetShapesInBoundingBox(EasyMock.isA(Polygon.class))).andStubReturn(new long[] { 4, 8, 80 });
+		EasyMock.expect(dao.listStreetShapesInBoundingBox(EasyMock.isA(Polygon.class))).andStubReturn(rows);
+		EasyMock.expect(dao.listStreetAlternateNamesInBoundingBox(EasyMock.isA(Polygon.class))).andStubReturn(alternateNames);
+		EasyMock.replay(dao);
+		return dao;
+	}
+
+	@Test
+	public void findNearestStreetShouldUseTheName() {
+		StreetSpatialIndex index = new StreetSpatialIndex(createDao(), 1024 * 1024);
+		Point point = GeolocHelper.createPoint(2.0005F, 48F);
+		Assert.assertTrue(index.isIndexed(point, 500));
+		Assert.assertEquals(Long.valueOf(1L), index.findNearestStreet("rue de la paix", point, 500));
+		Assert.assertEquals(Long.valueOf(3L), index.findNearestStreet("Avenue Foch", point, 500));
+		Assert.assertEquals("the street should be found with a similar name", Long.valueOf(3L), index.findNearestStreet("avenue foch", point, 500));
+		Assert.assertNull(index.findNearestStreet("Boulevard Haussmann", point, 500));
+		Assert.assertNull("the street should be at less than the distance", index.findNearestStreet("Avenue Foch", point, 10));
+	}
+
+	@Test
+	public void findNearestStreetShouldUseTheAlternateNames() {
+		StreetSpatialIndex index = new StreetSpatialIndex(createDao(), 1024 * 1024);
+		Point point = GeolocHelper.createPoint(2.0005F, 48F);
+		Assert.assertTrue(index.isIndexed(point, 500));
+		Assert.assertEquals(Long.valueOf(4L), index.findNearestStreet("Chemin des Vignes", point, 500));
+		Assert.assertEquals("the street should be found with a similar alternate name", Long.valueOf(4L), index.findNearestStreet("Chemin des Vigne", point, 500));
+		Assert.assertEquals(Long.valueOf(3L), index.findNearestStreet("Avenue du Marechal Foch", point, 500));
+		Assert.assertEquals(0, index.getFallbackCount());
+	}
+
+	@Test
+	public void findNearestStreetShouldCountTheNamesThatAreNotFoundAsFallbacks() {
+		StreetSpatialIndex index = new StreetSpatialIndex(createDao(), 1024 * 1024);
+		Point point = GeolocHelper.createPoint(2.0005F, 48F);
+		Assert.assertTrue(index.isIndexed(point, 500));
+		Assert.assertNull(index.findNearestStreet("Boulevard Haussmann", point, 500));
+		Assert.assertEquals("the caller should use the fulltext search", 1, index.getFallbackCount());
+	}
+
+	@Test
+	public void findNearestStreetShouldReturnTheNearestWhenThereIsNoName() {
+		StreetSpatialIndex index = new StreetSpatialIndex(createDao(), 1024 * 1024);
+		Point point = GeolocHelper.createPoint(2.0005F, 47.99995F);
+		Assert.assertTrue(index.isIndexed(point, 500));
+		Assert.assertEquals(Long.valueOf(4L), index.findNearestStreet(null, point, 500));
+	}
+
+	@Test
+	public void findNearestByOpenstreetmapIds() {
+		StreetSpatialIndex index = new StreetSpatialIndex(createDao(), 1024 * 1024);
+		Point point = GeolocHelper.createPoint(2.0005F, 48F);
+		List<Long> ids = new ArrayList<Long>();
+		ids.add(102L);
+		ids.add(103L);
+		Assert.assertTrue(index.isIndexed(point, 7000));
+		Assert.assertEquals(Long.valueOf(3L), index.findNearestByOpenstreetmapIds(point, ids, 7000));
+		Assert.assertNull(index.findNearestByOpenstreetmapIds(point, new ArrayList<Long>(), 7000));
+	}
+
+	@Test
+	public void isIndexedShouldReturnFalseWhenTheMemoryIsExceeded() {
+		StreetSpatialIndex index = new StreetSpatialIndex(createDao(), 100);
+		Point point = GeolocHelper.createPoint(2.0005F, 48F);
+		Assert.assertFalse(index.isIndexed(point, 500));
+		Assert.assertEquals(1, index.getLookupCount());
+		Assert.assertEquals(1, index.getFallbackCount());
+		Assert.assertEquals(0, index.getUsedMemory());
+	}
+
+	@Test
+	public void theLeastRecentlyUsedTileShouldBeEvictedWhenTheMemoryIsExceeded() {
+		List<Object[]> rows = new ArrayList<Object[]>();
+		rows.add(new Object[] { 1L, 101L, null, "FR", createStreet(2.0, 48.0001) });
+		long tileMemory = StreetSpatialIndex.estimateMemory(1, 2, 0);
+		IOpenStreetMapDao dao = EasyMock.createMock(IOpenStreetMapDao.class);
+		EasyMock.expect(dao.countStreetShapesInBoundingBox(EasyMock.isA(Polygon.class))).andStubReturn(new long[] { 1, 2, 0 });
+		EasyMock.expect(dao.listStreetShapesInBoundingBox(EasyMock.isA(Polygon.class))).andReturn(rows).times(4);
+		EasyMock.expect(dao.listStreetAlternateNamesInBoundingBox(EasyMock.isA(Polygon.class))).andReturn(new ArrayList<Object[]>()).times(4);
+		EasyMock.replay(dao);
+		//room for two tiles
+		StreetSpatialIndex index = new StreetSpatialIndex(dao, tileMemory * 2);
+		//in the middle of three different tiles
+		Point first = GeolocHelper.createPoint(2.25F, 48.25F);
+		Point second = GeolocHelper.createPoint(3.25F, 48.25F);
+		Point third = GeolocHelper.createPoint(4.25F, 48.25F);
+		Assert.assertTrue(index.isIndexed(first, 500));
+		Assert.assertTrue(index.isIndexed(second, 500));
+		Assert.assertTrue("the first tile is now the most recently used", index.isIndexed(first, 500));
+		Assert.assertTrue(index.isIndexed(third, 500));
+		Assert.assertEquals(1, index.getEvictionCount());
+		Assert.assertEquals(tileMemory * 2, index.getUsedMemory());
+		Assert.assertTrue("the first tile should still be in memory", index.isIndexed(first, 500));
+		Assert.assertTrue("the second tile should be loaded again", index.isIndexed(second, 500));
+		Assert.assertEquals(2, index.getEvictionCount());
+		Assert.assertEquals(0, index.getFallbackCount());
+		EasyMock.verify(dao);
+	}
+
+	@Test
+	public void aTileShouldNotBeLoadedWhenItsEstimatedSizeIsMoreThanTheMaximumMemory() {
+		IOpenStreetMapDao dao = EasyMock.createMock(IOpenStreetMapDao.class);
+		EasyMock.expect(dao.countStreetShapesInBoundingBox(EasyMock.isA(Polygon.class))).andReturn(new long[] { 1000, 10000, 0 }).once();
+		EasyMock.replay(dao);
+		StreetSpatialIndex index = new StreetSpatialIndex(dao, 1024);
+		Point point = GeolocHelper.createPoint(2.25F, 48.25F);
+		Assert.assertFalse(index.isIndexed(point, 500));
+		Assert.assertFalse("the tile should not be estimated again", index.isIndexed(point, 500));
+		EasyMock.verify(dao);
+	}
+
+	@Test
+	public void tilesShouldBeLoadedOnce() {
+		IOpenStreetMapDao dao = EasyMock.createMock(IOpenStreetMapDao.class);
+		EasyMock.expect(dao.countStreetShapesInBoundingBox(EasyMock.isA(Polygon.class))).andReturn(new long[] { 0, 0, 0 }).once();
+		EasyMock.expect(dao.listStreetShapesInBoundingBox(EasyMock.isA(Polygon.class))).andReturn(new ArrayList<Object[]>()).once();
+		EasyMock.expect(dao.listStreetAlternateNamesInBoundingBox(EasyMock.isA(Polygon.class))).andReturn(new ArrayList<Object[]>()).once();
+		EasyMock.replay(dao);
+		StreetSpatialIndex index = new StreetSpatialIndex(dao, 1024 * 1024);
+		//in the middle of a tile
+		Point point = GeolocHelper.createPoint(2.25F, 48.25F);
+		Assert.assertTrue(index.isIndexed(point, 500));
+		Assert.assertTrue(index.isIndexed(point, 500));
+		Assert.assertNull(index.findNearestStreet("Avenue Foch", point, 500));
+		EasyMock.verify(dao);
+	}
+
+}
@@ -0,0 +1,62 @@
+package com.gisgraphy.reversegeocoding;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.gisgraphy.domain.geoloc.entity.OpenStreetMap;
+import com.gisgraphy.helper.GeolocHelper;
+import com.vividsolutions.jts.geom.Point;
+
+public class HouseNumberPointIndexTest {
+
+	@Test
+	public void getNearestHouseShouldFindTheSameHouseAsALinearSearch() {
+		Random random = new Random(42);
+		List<Object[]> points = new ArrayList<Object[]>();
+		for (int i = 0; i < 500; i++) {
+			//a street of about 2 km
+			points.add(new Object[] { (long) i, String.valueOf(i), null,
+					GeolocHelper.createPoint(2.35D + random.nextDouble() * 0.02D, 48.85D + random.nextDouble() * 0.01D) });
+		}
+		HouseNumberPointIndex index = HouseNumberPointIndex.fromPoints(points);
+		Assert.assertEquals(500, index.size());
+		OpenStreetMap street = new OpenStreetMap();
+		for (int i = 0; i < 200; i++) {
+			Point location = GeolocHelper.createPoint(2.345D + random.nextDouble() * 0.03D, 48.845D + random.nextDouble() * 0.02D);
+			double smallestDistance = Double.MAX_VALUE;
+			for (Object[] point : points) {
+				smallestDistance = Math.min(smallestDistance, GeolocHelper.distance((Point) point[3], location));
+			}
+			HouseNumberDistance nearest = index.getNearestHouse(location, street);
+			Assert.assertEquals(smallestDistance, nearest.getDistance(), 0.05D);
+			Assert.assertSame(street, nearest.getHouseNumber().getStreet());
+			Assert.assertEquals(String.valueOf(nearest.getHouseNumber().getId()), nearest.getHouseNumber().getNumber());
+		}
+	}
+
+	@Test
+	public void fromPointsShouldIgnoreThePointsWithoutLocation() {
+		List<Object[]> points = new ArrayList<Object[]>();
+		points.add(new Object[] { 1L, "1", "name", GeolocHelper.createPoint(2D, 48D) });
+		points.add(new Object[] { 2L, "2", null, null });
+		HouseNumberPointIndex index = HouseNumberPointIndex.fromPoints(points);
+		Assert.assertEquals(1, index.size());
+		HouseNumberDistance nearest = index.getNearestHouse(GeolocHelper.createPoint(3D, 49D), null);
+		Assert.assertEquals("1", nearest.getHouseNumber().getNumber());
+		Assert.assertEquals("name", nearest.getHouseNumber().getName());
+		Assert.assertEquals(Long.valueOf(1L), nearest.getHouseNumber().getId());
+	}
+
+	@Test
+	public void emptyIndex() {
+		Assert.assertEquals(0, HouseNumberPointIndex.fromPoints(null).size());
+		Assert.assertEquals(0, HouseNumberPointIndex.fromPoints(new ArrayList<Object[]>()).size());
+		Assert.assertNull(HouseNumberPointIndex.EMPTY.getNearestHouse(GeolocHelper.createPoint(3D, 49D), null));
+		Assert.assertEquals(-1, HouseNumberPointIndex.EMPTY.nearest(3D, 49D));
+	}
+
+}
@@ -0,0 +1,491 @@
+package com.gisgraphy.reversegeocoding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.gisgraphy.domain.geoloc.entity.City;
+import com.gisgraphy.domain.geoloc.entity.OpenStreetMap;
+import com.gisgraphy.domain.geoloc.entity.ZipCode;
+import com.gisgraphy.domain.repository.ICityDao;
+import com.gisgraphy.domain.repository.IOpenStreetMapDao;
+import com.gisgraphy.domain.repository.IhouseNumberDao;
+import com.gisgraphy.fulltext.AbstractIntegrationHttpSolrTestCase;
+import com.gisgraphy.helper.GeolocHelper;
+import com.gisgraphy.helper.StringHelper;
+import com.gisgraphy.street.StreetType;
+import com.gisgraphy.test.GisgraphyTestHelper;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+
+public class InMemoryReverseGeocodingIndexTest extends AbstractIntegrationHttpSolrTestCase {
+
+	@Autowired
+	private IOpenStreetMapDao openStreetMapDao;
+
+	@Autowired
+	private IhouseNumberDao houseNumberDao;
+
+	@Autowired
+	private ICityDao cityDao;
+
+	@Test
+	public void queriesShouldGiveTheSameResultsAsTheDatabaseDaos() {
+		Random random = new Random(7);
+		for (long i = 1; i <= 40; i++) {
+			OpenStreetMap street = new OpenStreetMap();
+			street.setGid(i);
+			street.setOpenstreetmapId(i);
+			double x = 2.30D + random.nextDouble() * 0.05D;
+			double y = 48.80D + random.nextDouble() * 0.05D;
+			street.setShape(GeolocHelper.createLineString("LINESTRING (" + x + " " + y + "," + (x + random.nextDouble() * 0.005D) + " "
+					+ (y + random.nextDouble() * 0.005D) + ")"));
+			street.setLocation(GeolocHelper.createPoint(x, y));
+			street.setStreetType(i % 5 == 0 ? StreetType.FOOTWAY : StreetType.RESIDENTIAL);
+			street.setName(i % 4 == 0 ? null : "street " + i);
+			street.setCountryCode("FR");
+			StringHelper.updateOpenStreetMapEntityForIndexation(street);
+			openStreetMapDao.save(street);
+		}
+		for (long i = 1; i <= 15; i++) {
+			float x = 2.30F + random.nextFloat() * 0.05F;
+			float y = 48.80F + random.nextFloat() * 0.05F;
+			City city = GisgraphyTestHelper.createCity("city " + i, x, y, i);
+			if (i % 3 != 0) {
+				city.setShape(GeolocHelper.createPolygonBox((double) x, (double) y, 500 + random.nextInt(2000)));
+			}
+			if (i % 2 == 0) {
+				city.addZipCode(new ZipCode("750" + (10 + i), "FR"));
+			}
+			cityDao.save(city);
+		}
+		flushAndClear();
+
+		InMemoryReverseGeocodingIndex index = new InMemoryReverseGeocodingIndex();
+		index.setOpenStreetMapDao(openStreetMapDao);
+		index.setHouseNumberDao(houseNumberDao);
+		index.setCityDao(cityDao);
+		//several pages to check the paging by id
+		index.setPageSize(7);
+		index.setCountries("FR");
+		index.setEnabled(true);
+		index.rebuild();
+		Assert.assertTrue(index.isReady());
+
+		for (int i = 0; i < 50; i++) {
+			Point point = GeolocHelper.createPoint(2.29D + random.nextDouble() * 0.07D, 48.79D + random.nextDouble() * 0.07D);
+			for (boolean onlyRoad : new boolean[] { true, false }) {
+				OpenStreetMap expected = openStreetMapDao.getNearestFrom(point, onlyRoad, onlyRoad, 1000);
+				OpenStreetMap actual = index.getNearestStreet(point, onlyRoad, onlyRoad, 1000);
+				Assert.assertEquals(idOf(expected), idOf(actual));
+				if (expected != null) {
+					Assert.assertEquals(expected.getGid(), actual.getGid());
+					Assert.assertEquals(expected.getName(), actual.getName());
+					Assert.assertEquals(expected.getLocation(), actual.getLocation());
+				}
+			}
+			City expected = cityDao.getByShape(point, null, false);
+			City actual = index.getCityByShape(point);
+			Assert.assertEquals(idOf(expected), idOf(actual));
+			if (expected != null) {
+				Assert.assertEquals(expected.getFeatureId(), actual.getFeatureId());
+				Assert.assertEquals(zipCodesOf(expected), zipCodesOf(actual));
+			}
+			Assert.assertEquals(idOf(cityDao.getNearest(point, null, false, 3000)), idOf(index.getNearestCity(point, 3000)));
+		}
+	}
+
+	private Set<String> zipCodesOf(City city) {
+		Set<String> codes = new HashSet<String>();
+		if (city.getZipCodes() != null) {
+			for (ZipCode zipCode : city.getZipCodes()) {
+				codes.add(zipCode.getCode());
+			}
+		}
+		return codes;
+	}
+
+	private Long idOf(OpenStreetMap street) {
+		return street == null ? null : street.getId();
+	}
+
+	private Long idOf(City city) {
+		return city == null ? null : city.getId();
+	}
+
+	@Test
+	public void queriesShouldGiveTheSameResultsAsTheDatabase() {
+		Random random = new Random(42);
+		List<OpenStreetMap> streets = new ArrayList<OpenStreetMap>();
+		for (int i = 1; i <= 120; i++) {
+			OpenStreetMap street = new OpenStreetMap();
+			street.setId((long) i);
+			double x = 2.30D + random.nextDouble() * 0.1D;
+			double y = 48.80D + random.nextDouble() * 0.1D;
+			street.setShape(GeolocHelper.createLineString("LINESTRING (" + x + " " + y + "," + (x + random.nextDouble() * 0.005D) + " "
+					+ (y + random.nextDouble() * 0.005D) + ")"));
+			int type = random.nextInt(StreetType.values().length + 1);
+			street.setStreetType(type == StreetType.values().length ? null : StreetType.values()[type]);
+			street.setName(random.nextInt(4) == 0 ? null : "street " + i);
+			streets.add(street);
+		}
+		List<City> cities = new ArrayList<City>();
+		for (int i = 1; i <= 60; i++) {
+			City city = new City();
+			city.setId((long) i);
+			city.setName("city " + i);
+			double x = 2.30D + random.nextDouble() * 0.1D;
+			double y = 48.80D + random.nextDouble() * 0.1D;
+			city.setLocation(GeolocHelper.createPoint(x, y));
+			if (i % 3 != 0) {
+				city.setShape(GeolocHelper.createPolygonBox(x, y, 500 + random.nextInt(3000)));
+			}
+			cities.add(city);
+		}
+		InMemoryReverseGeocodingIndex index = createIndex(streets, cities, 50);
+		Assert.assertTrue(index.isReady());
+
+		for (int i = 0; i < 300; i++) {
+			Point point = GeolocHelper.createPoint(2.29D + random.nextDouble() * 0.12D, 48.79D + random.nextDouble() * 0.12D);
+			for (boolean onlyRoad : new boolean[] { true, false }) {
+				OpenStreetMap expected = getNearestStreetLikeTheDatabase(streets, point, onlyRoad, onlyRoad, 1000);
+				OpenStreetMap actual = index.getNearestStreet(point, onlyRoad, onlyRoad, 1000);
+				Assert.assertEquals(idOf(expected), idOf(actual));
+			}
+			Assert.assertEquals(idOf(getCityByShapeLikeTheDatabase(cities, point)), idOf(index.getCityByShape(point)));
+			Assert.assertEquals(idOf(getNearestCityLikeTheDatabase(cities, point, 3000)), idOf(index.getNearestCity(point, 3000)));
+		}
+	}
+
+	@Test
+	public void houseNumbersShouldBeGroupedByStreet() {
+		List<OpenStreetMap> streets = new ArrayList<OpenStreetMap>();
+		for (long id : new long[] { 1L, 3L }) {
+			OpenStreetMap street = new OpenStreetMap();
+			street.setId(id);
+			street.setShape(GeolocHelper.createLineString("LINESTRING (2 48,2.001 48.001)"));
+			streets.add(street);
+		}
+		IOpenStreetMapDao openStreetMapDao = EasyMock.createMock(IOpenStreetMapDao.class);
+		EasyMock.expect(openStreetMapDao.listReverseGeocodingFieldsByCountryCode("FR", null, 10)).andReturn(toStreetRows(streets));
+		EasyMock.replay(openStreetMapDao);
+		IhouseNumberDao houseNumberDao = EasyMock.createMock(IhouseNumberDao.class);
+		List<Object[]> rows = new ArrayList<Object[]>();
+		rows.add(new Object[] { 1L, 10L, "1", null, GeolocHelper.createPoint(2D, 48D) });
+		rows.add(new Object[] { 1L, 11L, "2", null, GeolocHelper.createPoint(2.001D, 48.001D) });
+		//the street 2 is not in the index (no shape)
+		rows.add(new Object[] { 2L, 12L, "3", null, GeolocHelper.createPoint(2.001D, 48.001D) });
+		rows.add(new Object[] { 3L, 13L, "4", "name", GeolocHelper.createPoint(2.001D, 48.001D) });
+		EasyMock.expect(houseNumberDao.listPointsByStreetIdRange(1L, 3L)).andReturn(rows);
+		EasyMock.replay(houseNumberDao);
+		ICityDao cityDao = EasyMock.createMock(ICityDao.class);
+		EasyMock.expect(cityDao.listReverseGeocodingFieldsByCountryCode("FR", null, 10)).andReturn(new ArrayList<Object[]>());
+		EasyMock.replay(cityDao);
+
+		InMemoryReverseGeocodingIndex index = new InMemoryReverseGeocodingIndex();
+		index.setOpenStreetMapDao(openStreetMapDao);
+		index.setHouseNumberDao(houseNumberDao);
+		index.setCityDao(cityDao);
+		index.setPageSize(10);
+		index.setCountries(" fr, ");
+		index.setEnabled(true);
+		index.rebuild();
+
+		Assert.assertEquals(2, index.getHouseNumbers(1L).size());
+		Assert.assertEquals(0, index.getHouseNumbers(2L).size());
+		Assert.assertEquals(1, index.getHouseNumbers(3L).size());
+		Assert.assertEquals("name", index.getHouseNumbers(3L).getNearestHouse(GeolocHelper.createPoint(2D, 48D), streets.get(1)).getHouseNumber().getName());
+		Assert.assertEquals(0, index.getHouseNumbers(null).size());
+		EasyMock.verify(openStreetMapDao);
+		EasyMock.verify(houseNumberDao);
+		EasyMock.verify(cityDao);
+	}
+
+	@Test
+	public void coversShouldOnlyAcceptThePointsOfTheIndexedCountries() {
+		City city = new City();
+		city.setId(1L);
+		city.setLocation(GeolocHelper.createPoint(2D, 48D));
+		city.setShape(GeolocHelper.createPolygonBox(2D, 48D, 1000));
+		List<City> cities = new ArrayList<City>();
+		cities.add(city);
+		IOpenStreetMapDao openStreetMapDao = EasyMock.createMock(IOpenStreetMapDao.class);
+		EasyMock.expect(openStreetMapDao.listReverseGeocodingFieldsByCountryCode("FR", null, 10)).andReturn(new ArrayList<Object[]>());
+		ICityDao cityDao = EasyMock.createMock(ICityDao.class);
+		EasyMock.expect(cityDao.listReverseGeocodingFieldsByCountryCode("FR", null, 10)).andReturn(toCityRows(cities));
+		EasyMock.expect(cityDao.listZipCodesByIdRange(1L, 1L)).andReturn(new ArrayList<Object[]>());
+		EasyMock.replay(openStreetMapDao, cityDao);
+
+		InMemoryReverseGeocodingIndex index = new InMemoryReverseGeocodingIndex();
+		Assert.assertFalse("an index that is not built should not cover any point", index.covers(GeolocHelper.createPoint(2D, 48D)));
+		index.setOpenStreetMapDao(openStreetMapDao);
+		index.setCityDao(cityDao);
+		index.setPageSize(10);
+		index.setCountries("FR");
+		index.setEnabled(true);
+		index.rebuild();
+
+		Assert.assertTrue(index.covers(GeolocHelper.createPoint(2.001D, 48.001D)));
+		Assert.assertFalse("a point out of the cities of the indexed countries should not be covered", index.covers(GeolocHelper.createPoint(10D, 10D)));
+		Assert.assertFalse(index.covers(null));
+		EasyMock.verify(openStreetMapDao, cityDao);
+	}
+
+	@Test
+	public void queriesShouldReturnTheFieldsOfTheIndex() {
+		OpenStreetMap street = GisgraphyTestHelper.createOpenStreetMapForJohnKenedyStreet();
+		street.setId(1L);
+		street.setShape(GeolocHelper.createLineString("LINESTRING (2 48,2.001 48.001)"));
+		street.setLocation(GeolocHelper.createPoint(2D, 48D));
+		street.setAdm2Name("adm2");
+		street.setLanes(2);
+		street.setToll(true);
+		street.setAzimuthEnd(90);
+		City city = GisgraphyTestHelper.createCity("paris", 2F, 48F, 3L);
+		city.setId(2L);
+		city.setShape(GeolocHelper.createPolygonBox(2D, 48D, 1000));
+		city.setAdminCentreLocation(GeolocHelper.createPoint(2.001D, 48.001D));
+		city.setAdm1Name("adm1");
+		city.setIsInAdm("adm");
+		List<Object[]> zipCodes = new ArrayList<Object[]>();
+		zipCodes.add(new Object[] { 2L, "75001" });
+		//not a city of the page
+		zipCodes.add(new Object[] { 3L, "75002" });
+		IOpenStreetMapDao openStreetMapDao = EasyMock.createMock(IOpenStreetMapDao.class);
+		EasyMock.expect(openStreetMapDao.listReverseGeocodingFieldsByCountryCode("FR", null, 10)).andReturn(toStreetRows(Arrays.asList(street)));
+		IhouseNumberDao houseNumberDao = EasyMock.createMock(IhouseNumberDao.class);
+		EasyMock.expect(houseNumberDao.listPointsByStreetIdRange(1L, 1L)).andReturn(new ArrayList<Object[]>());
+		ICityDao cityDao = EasyMock.createMock(ICityDao.class);
+		EasyMock.expect(cityDao.listReverseGeocodingFieldsByCountryCode("FR", null, 10)).andReturn(toCityRows(Arrays.asList(city)));
+		EasyMock.expect(cityDao.listZipCodesByIdRange(2L, 2L)).andReturn(zipCodes);
+		EasyMock.replay(openStreetMapDao, houseNumberDao, cityDao);
+
+		InMemoryReverseGeocodingIndex index = new InMemoryReverseGeocodingIndex();
+		index.setOpenStreetMapDao(openStreetMapDao);
+		index.setHouseNumberDao(houseNumberDao);
+		index.setCityDao(cityDao);
+		index.setPageSize(10);
+		index.setCountries("FR");
+		index.setEnabled(true);
+		index.rebuild();
+
+		Point point = GeolocHelper.createPoint(2D, 48D);
+		OpenStreetMap actualStreet = index.getNearestStreet(point, false, false, 1000);
+		Assert.assertNotSame("a detached copy should be returned", actualStreet, index.getNearestStreet(point, false, false, 1000));
+		Assert.assertEquals(street.getId(), actualStreet.getId());
+		Assert.assertEquals(street.getGid(), actualStreet.getGid());
+		Assert.assertEquals(street.getOpenstreetmapId(), actualStreet.getOpenstreetmapId());
+		Assert.assertEquals(street.getName(), actualStreet.getName());
+		Assert.assertEquals(street.getIsIn(), actualStreet.getIsIn());
+		Assert.assertEquals(street.getCountryCode(), actualStreet.getCountryCode());
+		Assert.assertEquals(street.getStreetType(), actualStreet.getStreetType());
+		Assert.assertEquals(street.isOneWay(), actualStreet.isOneWay());
+		Assert.assertEquals(street.getLength(), actualStreet.getLength());
+		Assert.assertEquals(street.getLocation(), actualStreet.getLocation());
+		Assert.assertNull(actualStreet.getAdm1Name());
+		Assert.assertEquals("adm2", actualStreet.getAdm2Name());
+		Assert.assertEquals(Integer.valueOf(2), actualStreet.getLanes());
+		Assert.assertEquals(Boolean.TRUE, actualStreet.isToll());
+		Assert.assertEquals(Integer.valueOf(90), actualStreet.getAzimuthEnd());
+
+		City actualCity = index.getCityByShape(point);
+		Assert.assertEquals(city.getId(), actualCity.getId());
+		Assert.assertEquals(city.getFeatureId(), actualCity.getFeatureId());
+		Assert.assertEquals(city.getName(), actualCity.getName());
+		Assert.assertEquals(city.getCountryCode(), actualCity.getCountryCode());
+		Assert.assertEquals(city.getLocation(), actualCity.getLocation());
+		Assert.assertEquals(city.getAdminCentreLocation(), actualCity.getAdminCentreLocation());
+		Assert.assertEquals("adm1", actualCity.getAdm1Name());
+		Assert.assertEquals("adm", actualCity.getIsInAdm());
+		Assert.assertEquals(1, actualCity.getZipCodes().size());
+		Assert.assertEquals("75001", actualCity.getZipCodes().iterator().next().getCode());
+		Assert.assertEquals(city.getId(), index.getNearestCity(point, 1000).getId());
+		EasyMock.verify(openStreetMapDao, houseNumberDao, cityDao);
+	}
+
+	@Test
+	public void indexShouldNotLoadAllTheCountries() {
+		//no call is expected
+		IOpenStreetMapDao openStreetMapDao = EasyMock.createMock(IOpenStreetMapDao.class);
+		ICityDao cityDao = EasyMock.createMock(ICityDao.class);
+		EasyMock.replay(openStreetMapDao, cityDao);
+		InMemoryReverseGeocodingIndex index = new InMemoryReverseGeocodingIndex();
+		index.setOpenStreetMapDao(openStreetMapDao);
+		index.setCityDao(cityDao);
+		index.setCountries(" ");
+		index.setEnabled(true);
+		try {
+			index.rebuild();
+			Assert.fail("the index should not be built without countries");
+		} catch (IllegalStateException e) {
+			//ok
+		}
+		index.init();
+		Assert.assertFalse("the index should be disabled without countries", index.isEnabled());
+		Assert.assertFalse(index.isReady());
+		EasyMock.verify(openStreetMapDao, cityDao);
+	}
+
+	@Test
+	public void clearShouldRemoveTheData() {
+		List<City> cities = new ArrayList<City>();
+		City city = new City();
+		city.setId(1L);
+		city.setLocation(GeolocHelper.createPoint(2D, 48D));
+		cities.add(city);
+		InMemoryReverseGeocodingIndex index = createIndex(new ArrayList<OpenStreetMap>(), cities, 10);
+		Assert.assertTrue(index.isReady());
+		Assert.assertNotNull(index.getNearestCity(GeolocHelper.createPoint(2D, 48D), 1000));
+
+		index.clear();
+		Assert.assertFalse(index.isReady());
+		Assert.assertNull(index.getNearestCity(GeolocHelper.createPoint(2D, 48D), 1000));
+	}
+
+	@Test
+	public void indexShouldNotBeReadyIfNotBuiltOrDisabled() {
+		InMemoryReverseGeocodingIndex index = new InMemoryReverseGeocodingIndex();
+		Point point = GeolocHelper.createPoint(2D, 48D);
+		Assert.assertFalse(index.isReady());
+		Assert.assertNull(index.getNearestStreet(point, true, true, 1000));
+		Assert.assertNull(index.getCityByShape(point));
+		Assert.assertNull(index.getNearestCity(point, 1000));
+		Assert.assertSame(HouseNumberPointIndex.EMPTY, index.getHouseNumbers(1L));
+		//disabled : nothing is built
+		index.rebuildInBackground();
+		Assert.assertFalse(index.isReady());
+	}
+
+	static InMemoryReverseGeocodingIndex createIndex(List<OpenStreetMap> streets, List<City> cities, int pageSize) {
+		IOpenStreetMapDao openStreetMapDao = EasyMock.createMock(IOpenStreetMapDao.class);
+		IhouseNumberDao houseNumberDao = EasyMock.createMock(IhouseNumberDao.class);
+		//the pages are read after the last id of the previous page
+		Long afterId = null;
+		for (int from = 0; from < streets.size(); from += pageSize) {
+			List<OpenStreetMap> page = streets.subList(from, Math.min(streets.size(), from + pageSize));
+			EasyMock.expect(openStreetMapDao.listReverseGeocodingFieldsByCountryCode("FR", afterId, pageSize)).andReturn(toStreetRows(page));
+			EasyMock.expect(houseNumberDao.listPointsByStreetIdRange(page.get(0).getId(), page.get(page.size() - 1).getId())).andReturn(
+					new ArrayList<Object[]>());
+			afterId = page.get(page.size() - 1).getId();
+		}
+		if (streets.size() % pageSize == 0) {
+			EasyMock.expect(openStreetMapDao.listReverseGeocodingFieldsByCountryCode("FR", afterId, pageSize)).andReturn(new ArrayList<Object[]>());
+		}
+		ICityDao cityDao = EasyMock.createMock(ICityDao.class);
+		afterId = null;
+		for (int from = 0; from < cities.size(); from += pageSize) {
+			List<City> page = cities.subList(from, Math.min(cities.size(), from + pageSize));
+			EasyMock.expect(cityDao.listReverseGeocodingFieldsByCountryCode("FR", afterId, pageSize)).andReturn(toCityRows(page));
+			EasyMock.expect(cityDao.listZipCodesByIdRange(page.get(0).getId(), page.get(page.size() - 1).getId())).andReturn(
+					new ArrayList<Object[]>());
+			afterId = page.get(page.size() - 1).getId();
+		}
+		if (cities.size() % pageSize == 0) {
+			EasyMock.expect(cityDao.listReverseGeocodingFieldsByCountryCode("FR", afterId, pageSize)).andReturn(new ArrayList<Object[]>());
+		}
+		EasyMock.replay(openStreetMapDao, houseNumberDao, cityDao);
+
+		InMemoryReverseGeocodingIndex index = new InMemoryReverseGeocodingIndex();
+		index.setOpenStreetMapDao(openStreetMapDao);
+		index.setHouseNumberDao(houseNumberDao);
+		index.setCityDao(cityDao);
+		index.setPageSize(pageSize);
+		index.setCountries("FR");
+		index.setEnabled(true);
+		index.rebuild();
+		EasyMock.verify(openStreetMapDao, houseNumberDao, cityDao);
+		return index;
+	}
+
+	/**
+	 * @return the rows of
+	 *         IOpenStreetMapDao#listReverseGeocodingFieldsByCountryCode
+	 */
+	static List<Object[]> toStreetRows(List<OpenStreetMap> streets) {
+		List<Object[]> rows = new ArrayList<Object[]>();
+		for (OpenStreetMap street : streets) {
+			rows.add(new Object[] { street.getId(), street.getGid(), street.getOpenstreetmapId(), street.getName(), street.getStreetType(),
+					street.isOneWay(), street.getShape(), street.getLocation(), street.getCountryCode(), street.getIsIn(),
+					street.getIsInPlace(), street.getIsInAdm(), street.getAdm1Name(), street.getAdm2Name(), street.getAdm3Name(),
+					street.getAdm4Name(), street.getAdm5Name(), street.getZipCode(), street.getStreetRef(), street.getLength(),
+					street.getLanes(), street.isToll(), street.getSurface(), street.getSpeedMode(), street.getMaxSpeed(),
+					street.getMaxSpeedBackward(), street.getAzimuthStart(), street.getAzimuthEnd() });
+		}
+		return rows;
+	}
+
+	/**
+	 * @return the rows of ICityDao#listReverseGeocodingFieldsByCountryCode
+	 */
+	static List<Object[]> toCityRows(List<City> cities) {
+		List<Object[]> rows = new ArrayList<Object[]>();
+		for (City city : cities) {
+			rows.add(new Object[] { city.getId(), city.getFeatureId(), city.getOpenstreetmapId(), city.getName(), city.getShape(),
+					city.getLocation(), city.getAdminCentreLocation(), city.getCountryCode(), city.getIsInAdm(), city.getAdm1Name(),
+					city.getAdm2Name(), city.getAdm3Name(), city.getAdm4Name(), city.getAdm5Name() });
+		}
+		return rows;
+	}
+
+	/**
+	 * the same restrictions and order as the SQL query of
+	 * OpenStreetMapDao#getNearestsFrom
+	 */
+	private OpenStreetMap getNearestStreetLikeTheDatabase(List<OpenStreetMap> streets, Point point, boolean onlyRoad, boolean filterEmptyName,
+			double distance) {
+		Polygon box = GeolocHelper.createPolygonBox(point.getX(), point.getY(), distance);
+		OpenStreetMap nearest = null;
+		double nearestDistance = Double.MAX_VALUE;
+		for (OpenStreetMap street : streets) {
+			if (!street.getShape().intersects(box) || (onlyRoad && (street.getStreetType() == null || street.getStreetType() == StreetType.FOOTWAY))
+					|| (filterEmptyName && street.getName() == null)) {
+				continue;
+			}
+			double streetDistance = InMemoryReverseGeocodingIndex.distance(street.getShape(), point);
+			if (streetDistance < nearestDistance) {
+				nearest = street;
+				nearestDistance = streetDistance;
+			}
+		}
+		return nearest;
+	}
+
+	/**
+	 * the same restrictions and order as the query of CityDao#getByShape
+	 */
+	private City getCityByShapeLikeTheDatabase(List<City> cities, Point point) {
+		City smallest = null;
+		for (City city : cities) {
+			if (city.getShape() != null && city.getShape().contains(point)
+					&& (smallest == null || city.getShape().getArea() < smallest.getShape().getArea())) {
+				smallest = city;
+			}
+		}
+		return smallest;
+	}
+
+	/**
+	 * the same restrictions and order as the query of GenericGisDao#getNearests
+	 */
+	private City getNearestCityLikeTheDatabase(List<City> cities, Point point, int distance) {
+		City nearest = null;
+		double nearestDistance = distance;
+		for (City city : cities) {
+			double cityDistance = GeolocHelper.distance(point, city.getLocation());
+			if (cityDistance < nearestDistance) {
+				nearest = city;
+				nearestDistance = cityDistance;
+			}
+		}
+		return nearest;
+	}
+
+}
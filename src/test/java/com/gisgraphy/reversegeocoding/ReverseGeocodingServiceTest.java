@@ -2,6 +2,9 @@ package com.gisgraphy.reversegeocoding;
 
 import static com.gisgraphy.reversegeocoding.ReverseGeocodingService.DEFAULT_STREET_RADIUS;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.easymock.EasyMock;
 import org.junit.Assert;
 import org.junit.Test;
@@ -13,6 +16,7 @@ import com.gisgraphy.domain.geoloc.entity.HouseNumber;
 import com.gisgraphy.domain.geoloc.entity.OpenStreetMap;
 import com.gisgraphy.domain.repository.ICityDao;
 import com.gisgraphy.domain.repository.IOpenStreetMapDao;
+import com.gisgraphy.domain.repository.IhouseNumberDao;
 import com.gisgraphy.helper.GeolocHelper;
 import com.gisgraphy.service.IStatsUsageService;
 import com.gisgraphy.service.impl.StatsUsageServiceImpl;
@@ -68,6 +72,169 @@ public class ReverseGeocodingServiceTest {
 	}
 	
 	
+	@Test
+	public void testExecuteQuery_RoadWithHouseNumberIndex() {
+		Point searchPoint = GeolocHelper.createPoint(2D, 3D);
+		ReverseGeocodingQuery query = new ReverseGeocodingQuery(searchPoint);
+		ReverseGeocodingService reverseGeocodingService = new ReverseGeocodingService();
+		IStatsUsageService statsService = EasyMock.createMock(StatsUsageServiceImpl.class);
+		statsService.increaseUsage(StatsUsageType.REVERSEGEOCODING);
+		EasyMock.replay(statsService);
+		
+		IOpenStreetMapDao openStreetMapDao = EasyMock.createMock(IOpenStreetMapDao.class);
+		OpenStreetMap osm = GisgraphyTestHelper.createOpenStreetMapForJohnKenedyStreet();
+		osm.setId(123L);
+		//the house numbers of the street should not be loaded
+		osm.setHouseNumbers(null);
+		EasyMock.expect(openStreetMapDao.getNearestRoadFrom(searchPoint,DEFAULT_STREET_RADIUS)).andReturn(osm );
+		EasyMock.replay(openStreetMapDao);
+		
+		IhouseNumberDao houseNumberDao = EasyMock.createMock(IhouseNumberDao.class);
+		List<Object[]> points = new ArrayList<Object[]>();
+		points.add(new Object[]{1L,"1",null,GeolocHelper.createPoint(5D, 6D)});
+		points.add(new Object[]{2L,"2","houseName",GeolocHelper.createPoint(2.001D, 3.001D)});
+		points.add(new Object[]{3L,"3",null,GeolocHelper.createPoint(2.1D, 3.1D)});
+		EasyMock.expect(houseNumberDao.listPointsByStreetId(123L)).andReturn(points);
+		EasyMock.replay(houseNumberDao);
+		HouseNumberIndexCache houseNumberIndexCache = new HouseNumberIndexCache();
+		houseNumberIndexCache.setHouseNumberDao(houseNumberDao);
+		
+		reverseGeocodingService.openStreetMapDao =openStreetMapDao;
+		reverseGeocodingService.statsUsageService = statsService;
+		reverseGeocodingService.houseNumberIndexCache = houseNumberIndexCache;
+		
+		AddressResultsDto addressResultsDto = reverseGeocodingService.executeQuery(query);
+		Assert.assertEquals(1,addressResultsDto.getResult().size());
+		Address address = addressResultsDto.getResult().get(0);
+		Assert.assertEquals("2", address.getHouseNumber());
+		Assert.assertEquals(2L, address.getId().longValue());
+		Assert.assertEquals(3.001D, address.getLat(), 0.000001);
+		Assert.assertEquals(2.001D, address.getLng(), 0.000001);
+		Assert.assertEquals(GeolocHelper.distance(searchPoint, GeolocHelper.createPoint(2.001D, 3.001D)), address.getDistance(), 0.01);
+		Assert.assertEquals(1, houseNumberIndexCache.size());
+		
+		EasyMock.verify(statsService);
+		EasyMock.verify(openStreetMapDao);
+		EasyMock.verify(houseNumberDao);
+	}
+	
+	@Test
+	public void testExecuteQuery_WithInMemoryIndexShouldNotQueryTheDatabase() {
+		Point searchPoint = GeolocHelper.createPoint(2D, 3D);
+		OpenStreetMap osm = GisgraphyTestHelper.createOpenStreetMapForJohnKenedyStreet();
+		osm.setId(123L);
+		osm.setShape(GeolocHelper.createLineString("LINESTRING (1.999 2.999, 2.002 3.002)"));
+		osm.setHouseNumbers(null);
+		List<OpenStreetMap> streets = new ArrayList<OpenStreetMap>();
+		streets.add(osm);
+		City city = GisgraphyTestHelper.createCity("paris", 10F, 10F, 1L);
+		city.setId(1L);
+		city.setShape(GeolocHelper.createPolygonBox(10D, 10D, 10000));
+		//the points out of the shapes of the cities are not covered by the index
+		City cityOfTheStreet = GisgraphyTestHelper.createCity("city of the street", 2F, 3F, 2L);
+		cityOfTheStreet.setId(2L);
+		cityOfTheStreet.setShape(GeolocHelper.createPolygonBox(2D, 3D, 10000));
+		List<City> cities = new ArrayList<City>();
+		cities.add(city);
+		cities.add(cityOfTheStreet);
+		
+		InMemoryReverseGeocodingIndex inMemoryIndex = new InMemoryReverseGeocodingIndex();
+		IOpenStreetMapDao indexOpenStreetMapDao = EasyMock.createMock(IOpenStreetMapDao.class);
+		EasyMock.expect(indexOpenStreetMapDao.listReverseGeocodingFieldsByCountryCode("FR", null, InMemoryReverseGeocodingIndex.DEFAULT_PAGE_SIZE)).andReturn(InMemoryReverseGeocodingIndexTest.toStreetRows(streets));
+		EasyMock.replay(indexOpenStreetMapDao);
+		IhouseNumberDao houseNumberDao = EasyMock.createMock(IhouseNumberDao.class);
+		List<Object[]> points = new ArrayList<Object[]>();
+		points.add(new Object[]{123L,1L,"1",null,GeolocHelper.createPoint(5D, 6D)});
+		points.add(new Object[]{123L,2L,"2","houseName",GeolocHelper.createPoint(2.001D, 3.001D)});
+		EasyMock.expect(houseNumberDao.listPointsByStreetIdRange(123L, 123L)).andReturn(points);
+		EasyMock.replay(houseNumberDao);
+		ICityDao indexCityDao = EasyMock.createMock(ICityDao.class);
+		EasyMock.expect(indexCityDao.listReverseGeocodingFieldsByCountryCode("FR", null, InMemoryReverseGeocodingIndex.DEFAULT_PAGE_SIZE)).andReturn(InMemoryReverseGeocodingIndexTest.toCityRows(cities));
+		EasyMock.expect(indexCityDao.listZipCodesByIdRange(city.getId(), cityOfTheStreet.getId())).andReturn(new ArrayList<Object[]>());
+		EasyMock.replay(indexCityDao);
+		inMemoryIndex.setOpenStreetMapDao(indexOpenStreetMapDao);
+		inMemoryIndex.setHouseNumberDao(houseNumberDao);
+		inMemoryIndex.setCityDao(indexCityDao);
+		inMemoryIndex.setCountries("FR");
+		inMemoryIndex.setEnabled(true);
+		inMemoryIndex.rebuild();
+		
+		ReverseGeocodingService reverseGeocodingService = new ReverseGeocodingService();
+		IStatsUsageService statsService = EasyMock.createMock(StatsUsageServiceImpl.class);
+		statsService.increaseUsage(StatsUsageType.REVERSEGEOCODING);
+		EasyMock.expectLastCall().times(2);
+		EasyMock.replay(statsService);
+		//no call is expected
+		IOpenStreetMapDao openStreetMapDao = EasyMock.createMock(IOpenStreetMapDao.class);
+		EasyMock.replay(openStreetMapDao);
+		ICityDao cityDao = EasyMock.createMock(ICityDao.class);
+		EasyMock.replay(cityDao);
+		reverseGeocodingService.openStreetMapDao = openStreetMapDao;
+		reverseGeocodingService.cityDao = cityDao;
+		reverseGeocodingService.statsUsageService = statsService;
+		reverseGeocodingService.inMemoryIndex = inMemoryIndex;
+		
+		AddressResultsDto addressResultsDto = reverseGeocodingService.executeQuery(new ReverseGeocodingQuery(searchPoint));
+		Assert.assertEquals(1,addressResultsDto.getResult().size());
+		Address address = addressResultsDto.getResult().get(0);
+		Assert.assertEquals("2", address.getHouseNumber());
+		Assert.assertEquals(2L, address.getId().longValue());
+		Assert.assertEquals(3.001D, address.getLat(), 0.000001);
+		Assert.assertEquals(2.001D, address.getLng(), 0.000001);
+		
+		addressResultsDto = reverseGeocodingService.executeQuery(new ReverseGeocodingQuery(GeolocHelper.createPoint(10.01D, 10.01D)));
+		Assert.assertEquals(1,addressResultsDto.getResult().size());
+		Assert.assertEquals(city.getName(), addressResultsDto.getResult().get(0).getCity());
+		
+		EasyMock.verify(statsService);
+		EasyMock.verify(openStreetMapDao);
+		EasyMock.verify(cityDao);
+	}
+	
+	@Test
+	public void testExecuteQuery_WithInMemoryIndexShouldQueryTheDatabaseOutOfTheIndexedCountries() {
+		City city = GisgraphyTestHelper.createCity("paris", 10F, 10F, 1L);
+		city.setId(1L);
+		city.setShape(GeolocHelper.createPolygonBox(10D, 10D, 10000));
+		List<City> cities = new ArrayList<City>();
+		cities.add(city);
+		InMemoryReverseGeocodingIndex inMemoryIndex = new InMemoryReverseGeocodingIndex();
+		IOpenStreetMapDao indexOpenStreetMapDao = EasyMock.createMock(IOpenStreetMapDao.class);
+		EasyMock.expect(indexOpenStreetMapDao.listReverseGeocodingFieldsByCountryCode("FR", null, InMemoryReverseGeocodingIndex.DEFAULT_PAGE_SIZE)).andReturn(new ArrayList<Object[]>());
+		EasyMock.replay(indexOpenStreetMapDao);
+		ICityDao indexCityDao = EasyMock.createMock(ICityDao.class);
+		EasyMock.expect(indexCityDao.listReverseGeocodingFieldsByCountryCode("FR", null, InMemoryReverseGeocodingIndex.DEFAULT_PAGE_SIZE)).andReturn(InMemoryReverseGeocodingIndexTest.toCityRows(cities));
+		EasyMock.expect(indexCityDao.listZipCodesByIdRange(city.getId(), city.getId())).andReturn(new ArrayList<Object[]>());
+		EasyMock.replay(indexCityDao);
+		inMemoryIndex.setOpenStreetMapDao(indexOpenStreetMapDao);
+		inMemoryIndex.setCityDao(indexCityDao);
+		inMemoryIndex.setCountries("FR");
+		inMemoryIndex.setEnabled(true);
+		inMemoryIndex.rebuild();
+		
+		ReverseGeocodingService reverseGeocodingService = new ReverseGeocodingService();
+		IStatsUsageService statsService = EasyMock.createMock(StatsUsageServiceImpl.class);
+		statsService.increaseUsage(StatsUsageType.REVERSEGEOCODING);
+		EasyMock.replay(statsService);
+		//the point is not in a city of the indexed countries
+		Point searchPoint = GeolocHelper.createPoint(2D, 3D);
+		IOpenStreetMapDao openStreetMapDao = EasyMock.createMock(IOpenStreetMapDao.class);
+		OpenStreetMap osm = GisgraphyTestHelper.createOpenStreetMapForJohnKenedyStreet();
+		osm.setHouseNumbers(null);
+		EasyMock.expect(openStreetMapDao.getNearestRoadFrom(searchPoint,DEFAULT_STREET_RADIUS)).andReturn(osm);
+		EasyMock.replay(openStreetMapDao);
+		reverseGeocodingService.openStreetMapDao = openStreetMapDao;
+		reverseGeocodingService.statsUsageService = statsService;
+		reverseGeocodingService.inMemoryIndex = inMemoryIndex;
+		
+		AddressResultsDto addressResultsDto = reverseGeocodingService.executeQuery(new ReverseGeocodingQuery(searchPoint));
+		Assert.assertEquals(1,addressResultsDto.getResult().size());
+		Assert.assertEquals(osm.getName(), addressResultsDto.getResult().get(0).getStreetName());
+		
+		EasyMock.verify(statsService);
+		EasyMock.verify(openStreetMapDao);
+	}
+	
 	@Test
 	public void testExecuteQuery_RoadWithoutHouseNumber() {
 		Point searchPoint = GeolocHelper.createPoint(2D, 3D);
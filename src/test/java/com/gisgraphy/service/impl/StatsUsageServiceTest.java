@@ -89,17 +89,52 @@ public class StatsUsageServiceTest extends AbstractTransactionalTestCase {
     }
 
     @Test
-    public void testIncreaseUsageShouldflush() {
+    public void testIncreaseUsageShouldNotFlush() {
 	statsUsageService.resetUsage(StatsUsageType.FULLTEXT);
-	for (int i = 1; i < IStatsUsageService.FLUSH_THRESHOLD; i++) {
+	for (int i = 0; i < 100; i++) {
 	    statsUsageService.increaseUsage(StatsUsageType.FULLTEXT);
-	    assertEquals(new Long(0), statsUsageDao.getByUsageType(
-		    StatsUsageType.FULLTEXT).getUsage());
 	}
+	assertEquals(new Long(0), statsUsageDao.getByUsageType(
+		StatsUsageType.FULLTEXT).getUsage());
+	assertEquals(new Long(100), statsUsageService
+		.getUsage(StatsUsageType.FULLTEXT));
+    }
+
+    @Test
+    public void testFlushChangedCountersShouldSaveTheCountersThatHaveChanged() {
+	statsUsageService.resetUsage(StatsUsageType.FULLTEXT);
+	statsUsageService.resetUsage(StatsUsageType.GEOLOC);
+	statsUsageService.increaseUsage(StatsUsageType.FULLTEXT);
 	statsUsageService.increaseUsage(StatsUsageType.FULLTEXT);
-	assertEquals(new Long(IStatsUsageService.FLUSH_THRESHOLD),
-		statsUsageDao.getByUsageType(StatsUsageType.FULLTEXT)
-			.getUsage());
+	((StatsUsageServiceImpl) statsUsageService).flushChangedCounters();
+	assertEquals(new Long(2), statsUsageDao.getByUsageType(
+		StatsUsageType.FULLTEXT).getUsage());
+	assertEquals(new Long(0), statsUsageDao.getByUsageType(
+		StatsUsageType.GEOLOC).getUsage());
+    }
+
+    @Test
+    public void testIncreaseUsageShouldNotLoseCountsWhenCalledConcurrently() throws InterruptedException {
+	final StatsUsageServiceImpl service = new StatsUsageServiceImpl();
+	final int increasesPerThread = 10000;
+	Thread[] threads = new Thread[8];
+	for (int i = 0; i < threads.length; i++) {
+	    threads[i] = new Thread() {
+		@Override
+		public void run() {
+		    for (int j = 0; j < increasesPerThread; j++) {
+			service.increaseUsage(StatsUsageType.GEOLOC);
+		    }
+		}
+	    };
+	    threads[i].start();
+	}
+	for (Thread thread : threads) {
+	    thread.join();
+	}
+	assertEquals(new Long(threads.length * increasesPerThread), service
+		.getUsage(StatsUsageType.GEOLOC));
+	assertEquals(new Long(0), service.getUsage(StatsUsageType.FULLTEXT));
     }
 
 }
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.stats;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsShouldContainTheirValues() {
+	for (long value = 0; value < 10000000; value += value < 2000 ? 1 : 997) {
+	    int index = LatencyHistogram.getBucketIndex(value);
+	    long highest = LatencyHistogram.getBucketHighestValue(index);
+	    long lowest = index == 0 ? 0 : LatencyHistogram.getBucketHighestValue(index - 1) + 1;
+	    Assert.assertTrue(value + " should be in [" + lowest + "," + highest + "]", value >= lowest && value <= highest);
+	    Assert.assertTrue("the precision should be 3%", highest - lowest <= Math.max(1, lowest * 0.032));
+	}
+	Assert.assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.getBucketIndex(Long.MAX_VALUE));
+	Assert.assertEquals(0, LatencyHistogram.getBucketIndex(-5));
+    }
+
+    @Test
+    public void getValueAtPercentile() {
+	LatencyHistogram histogram = new LatencyHistogram();
+	Assert.assertEquals(0, histogram.getValueAtPercentile(99));
+	for (int i = 1; i <= 10000; i++) {
+	    histogram.recordMicros(i);
+	}
+	Assert.assertEquals(10000, histogram.getCount());
+	Assert.assertEquals(10000, histogram.getMaxMicros());
+	Assert.assertEquals(5000, histogram.getMeanMicros());
+	assertAbout(5000, histogram.getValueAtPercentile(50));
+	assertAbout(9900, histogram.getValueAtPercentile(99));
+	assertAbout(9990, histogram.getValueAtPercentile(99.9));
+	Assert.assertEquals(10000, histogram.getValueAtPercentile(100));
+	Assert.assertEquals(1, histogram.getValueAtPercentile(0));
+    }
+
+    @Test
+    public void recordNanosShouldRecordMicros() {
+	LatencyHistogram histogram = new LatencyHistogram();
+	histogram.recordNanos(3000000);
+	Assert.assertEquals(3000, histogram.getMaxMicros());
+	Assert.assertEquals(1, histogram.getCount());
+    }
+
+    @Test
+    public void reset() {
+	LatencyHistogram histogram = new LatencyHistogram();
+	histogram.recordMicros(10);
+	histogram.reset();
+	Assert.assertEquals(0, histogram.getCount());
+	Assert.assertEquals(0, histogram.getMaxMicros());
+	Assert.assertEquals(0, histogram.getValueAtPercentile(50));
+    }
+
+    @Test
+    public void recordShouldNotLoseValuesWhenCalledConcurrently() throws InterruptedException {
+	final LatencyHistogram histogram = new LatencyHistogram();
+	Thread[] threads = new Thread[8];
+	for (int i = 0; i < threads.length; i++) {
+	    threads[i] = new Thread() {
+		@Override
+		public void run() {
+		    for (int j = 0; j < 10000; j++) {
+			histogram.recordMicros(j);
+		    }
+		}
+	    };
+	    threads[i].start();
+	}
+	for (Thread thread : threads) {
+	    thread.join();
+	}
+	Assert.assertEquals(80000, histogram.getCount());
+	Assert.assertEquals(9999, histogram.getMaxMicros());
+    }
+
+    @Test
+    public void latencyStatsShouldOnlyReturnTheUsedHistograms() {
+	LatencyStats latencyStats = new LatencyStats();
+	latencyStats.getHistogram(StatsUsageType.GEOCODING, LatencyStats.SOLR);
+	latencyStats.getHistogram(StatsUsageType.GEOCODING, LatencyStats.TOTAL).recordMicros(2000);
+	latencyStats.record(StatsUsageType.FULLTEXT, LatencyStats.TOTAL, System.nanoTime());
+	Assert.assertEquals(2, latencyStats.getSummaries().size());
+	Assert.assertEquals("FULLTEXT.total", latencyStats.getSummaries().get(0).getName());
+	LatencyStatsDto geocoding = latencyStats.getSummaries().get(1);
+	Assert.assertEquals("GEOCODING.total", geocoding.getName());
+	Assert.assertEquals(1, geocoding.getCount());
+	Assert.assertEquals(2D, geocoding.getMax(), 0.0001);
+	latencyStats.reset();
+	Assert.assertEquals(0, latencyStats.getSummaries().size());
+    }
+
+    private void assertAbout(long expected, long actual) {
+	Assert.assertTrue(actual + " should be about " + expected, Math.abs(actual - expected) <= expected * 0.032);
+    }
+
+}
@@ -1,12 +1,29 @@
 package com.gisgraphy.stats;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.easymock.EasyMock;
+import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import com.gisgraphy.domain.geoloc.entity.Adm;
+import com.gisgraphy.domain.geoloc.entity.City;
+import com.gisgraphy.domain.geoloc.entity.HouseNumber;
+import com.gisgraphy.domain.geoloc.entity.OpenStreetMap;
+import com.gisgraphy.domain.geoloc.entity.Restaurant;
+import com.gisgraphy.domain.geoloc.entity.School;
+import com.gisgraphy.domain.repository.IFeatureCountDao;
+import com.gisgraphy.domain.repository.IGisDao;
+import com.gisgraphy.domain.valueobject.CountryCountDto;
 import com.gisgraphy.fulltext.AbstractIntegrationHttpSolrTestCase;
+import com.gisgraphy.helper.CountryInfo;
 
-@Ignore
 public class StatsDataManagerTest extends AbstractIntegrationHttpSolrTestCase{
 
 	@Autowired
@@ -14,9 +31,114 @@ public class StatsDataManagerTest extends AbstractIntegrationHttpSolrTestCase{
 	
 	
 	@Test
+	@Ignore
 	public void exportStats() {
 		statsDataManager.exportStats();
 	}
 	
+	@Test
+	public void processAllCountryCodesShouldCountEachTableOnceForAllTheCountries() {
+		StatsDataManager manager = createStatsDataManager();
+		IFeatureCountDao featureCountDao = EasyMock.createMock(IFeatureCountDao.class);
+		EasyMock.expect(featureCountDao.countByCountryCode(OpenStreetMap.class, true)).andReturn(counts(new CountryCountDto("FR", 10, 8)));
+		EasyMock.expect(featureCountDao.countByCountryCode(HouseNumber.class, false)).andReturn(counts(new CountryCountDto("FR", 20, 0)));
+		EasyMock.expect(featureCountDao.countByCountryCode(City.class, true)).andReturn(
+				counts(new CountryCountDto("FR", 3, 2), new CountryCountDto("US", 4, 1)));
+		EasyMock.expect(featureCountDao.countByCountryCode(Adm.class, true)).andReturn(counts());
+		EasyMock.expect(featureCountDao.countByCountryCode(Restaurant.class, false)).andReturn(counts(new CountryCountDto("FR", 5, 0)));
+		EasyMock.expect(featureCountDao.countByCountryCode(School.class, false)).andReturn(counts(new CountryCountDto("FR", 6, 0)));
+		EasyMock.replay(featureCountDao);
+		manager.featureCountDao = featureCountDao;
+
+		Map<String, List<StatsDataDTO>> stats = manager.processAllCountryCodes(false);
+		Assert.assertEquals(CountryInfo.countryLookupMap.size(), stats.size());
+		Map<String, Long> france = toMap(stats.get("FR"));
+		Assert.assertEquals(10L, france.get("Streets").longValue());
+		Assert.assertEquals(8L, france.get("Streets_shape").longValue());
+		Assert.assertEquals(20L, france.get("Addresses").longValue());
+		Assert.assertEquals(3L, france.get("Cities").longValue());
+		Assert.assertEquals(2L, france.get("Cities_shape").longValue());
+		Assert.assertEquals(0L, france.get("Adms").longValue());
+		Assert.assertEquals(11L, france.get("Pois:all").longValue());
+		Map<String, Long> unitedStates = toMap(stats.get("US"));
+		Assert.assertEquals(4L, unitedStates.get("Cities").longValue());
+		Assert.assertEquals(0L, unitedStates.get("Streets").longValue());
+		Assert.assertEquals(0L, unitedStates.get("Pois:all").longValue());
+		EasyMock.verify(featureCountDao);
+	}
+
+	@Test
+	public void processAllCountryCodesShouldEstimateTheCountsWhenApproximate() {
+		StatsDataManager manager = createStatsDataManager();
+		IFeatureCountDao featureCountDao = EasyMock.createMock(IFeatureCountDao.class);
+		EasyMock.expect(featureCountDao.estimateCountByCountryCode(EasyMock.<Class<?>> anyObject(), EasyMock.anyBoolean())).andReturn(
+				counts(new CountryCountDto("FR", 100, 50), new CountryCountDto(null, 7, 0))).times(6);
+		EasyMock.replay(featureCountDao);
+		manager.featureCountDao = featureCountDao;
+
+		Map<String, List<StatsDataDTO>> stats = manager.processAllCountryCodes(true);
+		Assert.assertEquals(100L, toMap(stats.get("FR")).get("Streets").longValue());
+		Assert.assertEquals("the countries out of the most common values should have the estimate of the others", 7L,
+				toMap(stats.get("US")).get("Streets").longValue());
+		EasyMock.verify(featureCountDao);
+	}
+
+	@Test
+	public void createCountryStatsShouldAddTheDetailsOfThePoisIfRequired() {
+		StatsDataManager manager = createStatsDataManager();
+		Map<Class<?>, Map<String, CountryCountDto>> counts = new LinkedHashMap<Class<?>, Map<String, CountryCountDto>>();
+		Map<String, CountryCountDto> restaurants = new HashMap<String, CountryCountDto>();
+		restaurants.put("FR", new CountryCountDto("FR", 5, 0));
+		counts.put(Restaurant.class, restaurants);
+		Map<String, CountryCountDto> schools = new HashMap<String, CountryCountDto>();
+		schools.put(null, new CountryCountDto(null, 2, 0));
+		counts.put(School.class, schools);
+
+		List<StatsDataDTO> stats = manager.createCountryStats("FR", counts, true);
+		Map<String, Long> statsByLabel = toMap(stats);
+		Assert.assertEquals(5L, statsByLabel.get("Pois:Restaurant").longValue());
+		Assert.assertEquals("the count of the null country code should be used for the countries without count", 2L,
+				statsByLabel.get("Pois:School").longValue());
+		Assert.assertEquals(7L, statsByLabel.get("Pois:all").longValue());
+		Assert.assertEquals("a class without count should be 0", 0L, statsByLabel.get("Streets").longValue());
+		Assert.assertEquals("Pois:all", stats.get(stats.size() - 1).getLabel());
+
+		statsByLabel = toMap(manager.createCountryStats("FR", counts, false));
+		Assert.assertFalse(statsByLabel.containsKey("Pois:Restaurant"));
+		Assert.assertFalse(statsByLabel.containsKey("Pois:School"));
+		Assert.assertEquals(7L, statsByLabel.get("Pois:all").longValue());
+	}
+
+	@SuppressWarnings("unchecked")
+	private StatsDataManager createStatsDataManager() {
+		StatsDataManager manager = new StatsDataManager();
+		//the daos of the cities are not pois
+		manager.daos = new IGisDao[] { createDao(City.class), createDao(Restaurant.class), createDao(School.class) };
+		return manager;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private IGisDao createDao(Class persistenceClass) {
+		IGisDao dao = EasyMock.createMock(IGisDao.class);
+		EasyMock.expect(dao.getPersistenceClass()).andStubReturn(persistenceClass);
+		EasyMock.replay(dao);
+		return dao;
+	}
+
+	private List<CountryCountDto> counts(CountryCountDto... dtos) {
+		List<CountryCountDto> counts = new ArrayList<CountryCountDto>();
+		for (CountryCountDto dto : dtos) {
+			counts.add(dto);
+		}
+		return counts;
+	}
+
+	private Map<String, Long> toMap(List<StatsDataDTO> stats) {
+		Map<String, Long> statsByLabel = new HashMap<String, Long>();
+		for (StatsDataDTO stat : stats) {
+			statsByLabel.put(stat.getLabel(), stat.getStat());
+		}
+		return statsByLabel;
+	}
 
 }
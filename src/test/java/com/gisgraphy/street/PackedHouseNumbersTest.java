@@ -0,0 +1,167 @@
+package com.gisgraphy.street;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Test;
+
+import com.gisgraphy.domain.geoloc.entity.HouseNumber;
+import com.gisgraphy.helper.GeolocHelper;
+
+public class PackedHouseNumbersTest {
+
+	private HouseNumberPacker packer = new HouseNumberPacker();
+
+	private HouseNumber createHouseNumber(String number, double lng, double lat) {
+		HouseNumber houseNumber = new HouseNumber();
+		houseNumber.setLocation(GeolocHelper.createPoint(lng, lat));
+		houseNumber.setNumber(number);
+		return houseNumber;
+	}
+
+	@Test
+	public void packAndReadShouldKeepNumbersAndLocations() {
+		List<HouseNumber> houseNumbers = new ArrayList<HouseNumber>();
+		houseNumbers.add(createHouseNumber("12", 2.3522219D, 48.856614D));
+		houseNumbers.add(createHouseNumber("3", 2.3525D, 48.8567D));
+		houseNumbers.add(createHouseNumber("12b", 2.3523D, 48.8565D));
+		houseNumbers.add(createHouseNumber("bis", 2.352D, 48.856D));
+		houseNumbers.add(createHouseNumber(null, 2.352D, 48.856D));
+		houseNumbers.add(null);
+
+		PackedHouseNumbers packed = PackedHouseNumbers.fromBase64(packer.packToBase64(houseNumbers));
+		assertEquals(4, packed.size());
+		//sorted by key, plain numbers first
+		assertEquals("bis", packed.getNumber(0));
+		assertEquals("3", packed.getNumber(1));
+		assertEquals("12", packed.getNumber(2));
+		assertEquals("12b", packed.getNumber(3));
+		assertTrue(packed.isPlainNumber(2));
+		assertFalse(packed.isPlainNumber(3));
+		assertEquals(12, packed.getKey(3));
+
+		int index = packed.indexOf("12");
+		assertEquals(2, index);
+		assertEquals(2.3522219D, packed.getLongitude(index), 0.0000001D);
+		assertEquals(48.856614D, packed.getLatitude(index), 0.0000001D);
+		assertEquals(3, packed.indexOf("12b"));
+		assertEquals(0, packed.indexOf("bis"));
+		assertEquals(-1, packed.indexOf("4"));
+		assertEquals(-1, packed.indexOf("12c"));
+
+		List<HouseNumberDto> dtos = packed.toHouseNumberDtos();
+		assertEquals(4, dtos.size());
+		assertEquals("12b", dtos.get(3).getNumber());
+		assertEquals(2.3523D, dtos.get(3).getLongitude(), 0.0000001D);
+		assertEquals(48.8565D, dtos.get(3).getLatitude(), 0.0000001D);
+	}
+
+	@Test
+	public void indexOfKeyShouldReturnTheFirstIndex() {
+		List<HouseNumber> houseNumbers = new ArrayList<HouseNumber>();
+		for (int i = 1; i <= 200; i++) {
+			houseNumbers.add(createHouseNumber(String.valueOf(i * 2), 10D + i * 0.0001D, 45D));
+		}
+		houseNumbers.add(createHouseNumber("100a", 10D, 45D));
+		PackedHouseNumbers packed = new PackedHouseNumbers(packer.pack(houseNumbers));
+		assertEquals(201, packed.size());
+		assertEquals(49, packed.indexOfKey(100));
+		assertEquals(50, packed.indexOf("100a"));
+		assertEquals(-1, packed.indexOf("101"));
+		assertTrue(packed.indexOfKey(101) < 0);
+		assertEquals(10.02D, packed.getLongitude(packed.indexOf("400")), 0.0000001D);
+	}
+
+	@Test
+	public void packShouldUseWiderOffsetsForLongStreets() {
+		List<HouseNumber> houseNumbers = new ArrayList<HouseNumber>();
+		houseNumbers.add(createHouseNumber("1", -179.5D, -10D));
+		houseNumbers.add(createHouseNumber("2", -179.49D, -10.01D));
+		houseNumbers.add(createHouseNumber("70000", 179.5D, 10D));
+		PackedHouseNumbers packed = new PackedHouseNumbers(packer.pack(houseNumbers));
+		int index = packed.indexOf("70000");
+		assertEquals(179.5D, packed.getLongitude(index), 0.0000001D);
+		assertEquals(10D, packed.getLatitude(index), 0.0000001D);
+		index = packed.indexOf("2");
+		assertEquals(-179.49D, packed.getLongitude(index), 0.0000001D);
+		assertEquals(-10.01D, packed.getLatitude(index), 0.0000001D);
+	}
+
+	@Test
+	public void packShouldReturnNullWhenThereIsNothingToPack() {
+		assertNull(packer.pack(null));
+		assertNull(packer.pack(new ArrayList<HouseNumber>()));
+		assertNull(packer.packToBase64(new ArrayList<HouseNumber>()));
+		assertNull(PackedHouseNumbers.fromBase64(null));
+		assertNull(PackedHouseNumbers.fromBase64(""));
+	}
+
+	@Test
+	public void constructorShouldRejectUnknownVersions() {
+		List<HouseNumber> houseNumbers = new ArrayList<HouseNumber>();
+		houseNumbers.add(createHouseNumber("1", 2D, 48D));
+		byte[] bytes = packer.pack(houseNumbers);
+		bytes[0] = HouseNumberPacker.VERSION + 1;
+		try {
+			new PackedHouseNumbers(bytes);
+			fail("an unknown version should be rejected");
+		} catch (IllegalArgumentException e) {
+			//ok
+		}
+		try {
+			new PackedHouseNumbers(new byte[] { HouseNumberPacker.VERSION, 2, 2 });
+			fail("truncated bytes should be rejected");
+		} catch (IllegalArgumentException e) {
+			//ok
+		}
+	}
+
+	@Test
+	public void packShouldRefuseTooManyStrings() {
+		List<HouseNumber> houseNumbers = new ArrayList<HouseNumber>();
+		for (int i = 0; i < HouseNumberPacker.MAX_STRINGS; i++) {
+			houseNumbers.add(createHouseNumber(i + "b", 2D, 48D));
+		}
+		assertEquals(HouseNumberPacker.MAX_STRINGS, new PackedHouseNumbers(packer.pack(houseNumbers)).size());
+		houseNumbers.add(createHouseNumber("1c", 2D, 48D));
+		try {
+			packer.pack(houseNumbers);
+			fail("the string table can not have more than " + HouseNumberPacker.MAX_STRINGS + " strings");
+		} catch (IllegalArgumentException e) {
+			//ok
+		}
+	}
+
+	@Test
+	public void decodeBase64ShouldDecodeWhatCommonsCodecEncodes() throws Exception {
+		Random random = new Random(42);
+		for (int length = 0; length < 50; length++) {
+			byte[] bytes = new byte[length];
+			random.nextBytes(bytes);
+			String base64 = new String(Base64.encodeBase64(bytes), "US-ASCII");
+			assertTrue(Arrays.equals(bytes, PackedHouseNumbers.decodeBase64(base64)));
+		}
+	}
+
+	@Test
+	public void decodeBase64ShouldRejectInvalidValues() {
+		for (String invalid : new String[] { "abc", "ab!d", "ab\u00e9d" }) {
+			try {
+				PackedHouseNumbers.decodeBase64(invalid);
+				fail(invalid + " is not base64");
+			} catch (IllegalArgumentException e) {
+				//ok
+			}
+		}
+	}
+
+}
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.webapp.action;
+
+import org.apache.struts2.ServletActionContext;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import com.gisgraphy.stats.LatencyStats;
+import com.gisgraphy.stats.StatsUsageType;
+import com.opensymphony.xwork2.Action;
+
+public class LatencyStatsActionTest {
+
+    @Test
+    public void execute() throws Exception {
+	LatencyStats latencyStats = new LatencyStats();
+	latencyStats.getHistogram(StatsUsageType.GEOLOC, LatencyStats.TOTAL).recordMicros(1500);
+	LatencyStatsAction action = new LatencyStatsAction();
+	action.setLatencyStats(latencyStats);
+	Assert.assertEquals(Action.SUCCESS, action.execute());
+	Assert.assertEquals(1, action.getLatencies().size());
+	Assert.assertEquals("GEOLOC.total", action.getLatencies().get(0).getName());
+	Assert.assertEquals(1, action.getLatencies().get(0).getCount());
+    }
+
+    @Test
+    public void reset() throws Exception {
+	LatencyStats latencyStats = new LatencyStats();
+	latencyStats.getHistogram(StatsUsageType.GEOLOC, LatencyStats.TOTAL).recordMicros(1500);
+	ServletActionContext.setRequest(new MockHttpServletRequest("POST", "/admin/resetlatencystats.html"));
+	LatencyStatsAction action = new LatencyStatsAction();
+	action.setLatencyStats(latencyStats);
+	Assert.assertEquals(Action.SUCCESS, action.reset());
+	Assert.assertEquals(0, action.getLatencies().size());
+	Assert.assertEquals(0, latencyStats.getHistogram(StatsUsageType.GEOLOC, LatencyStats.TOTAL).getCount());
+    }
+
+    @Test
+    public void resetShouldNotResetOnGet() throws Exception {
+	LatencyStats latencyStats = new LatencyStats();
+	latencyStats.getHistogram(StatsUsageType.GEOLOC, LatencyStats.TOTAL).recordMicros(1500);
+	ServletActionContext.setRequest(new MockHttpServletRequest("GET", "/admin/resetlatencystats.html"));
+	LatencyStatsAction action = new LatencyStatsAction();
+	action.setLatencyStats(latencyStats);
+	Assert.assertEquals(Action.SUCCESS, action.reset());
+	Assert.assertEquals(1, action.getLatencies().size());
+	Assert.assertEquals(1, latencyStats.getHistogram(StatsUsageType.GEOLOC, LatencyStats.TOTAL).getCount());
+    }
+
+}
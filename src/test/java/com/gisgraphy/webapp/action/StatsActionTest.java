@@ -31,6 +31,7 @@ import org.easymock.EasyMock;
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.gisgraphy.domain.repository.ISolRSynchroniser;
 import com.gisgraphy.domain.repository.IStatsUsageDao;
 import com.gisgraphy.service.IStatsUsageService;
 import com.gisgraphy.stats.StatsUsage;
@@ -69,7 +70,22 @@ public class StatsActionTest {
     @Test
     public void getFlushFrequency(){
 	StatsAction statsAction = new StatsAction();
-	assertEquals("getFlushFrequecy should return the flush threshold",IStatsUsageService.FLUSH_THRESHOLD, statsAction.getFlushFrequency());
+	assertEquals("getFlushFrequecy should return the flush interval",IStatsUsageService.FLUSH_INTERVAL_SECONDS, statsAction.getFlushFrequency());
+    }
+
+    @Test
+    public void getIndexingQueueSizeAndLagShouldBeThoseOfTheSynchroniser(){
+	StatsAction statsAction = new StatsAction();
+	assertEquals(0L, statsAction.getIndexingQueueSize());
+	assertEquals(0L, statsAction.getIndexingLag());
+	ISolRSynchroniser mockSolRSynchroniser = EasyMock.createMock(ISolRSynchroniser.class);
+	EasyMock.expect(mockSolRSynchroniser.getIndexingQueueSize()).andReturn(12L);
+	EasyMock.expect(mockSolRSynchroniser.getIndexingLag()).andReturn(340L);
+	EasyMock.replay(mockSolRSynchroniser);
+	statsAction.setSolRSynchroniser(mockSolRSynchroniser);
+	assertEquals(12L, statsAction.getIndexingQueueSize());
+	assertEquals(340L, statsAction.getIndexingLag());
+	EasyMock.verify(mockSolRSynchroniser);
     }
 
    